@@ -0,0 +1,37 @@
+package com.jpmorgan.stock.market.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks once for every thread count in the system property
+ * benchmark.threads (comma separated, 1,2,4 by default) with the GC
+ * profiler, so allocation rates are reported next to the throughput.
+ * Any JMH command line option is passed through, e.g. a benchmark name
+ * pattern or -p symbolCount=10 to narrow the parameters.
+ * <p>
+ * Results are written to benchmarks-&lt;threads&gt;-threads.json.
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+		for (String threads : System.getProperty("benchmark.threads", "1,2,4").split(",")) {
+			Options options = new OptionsBuilder()
+					.parent(commandLineOptions)
+					.threads(Integer.parseInt(threads.trim()))
+					.addProfiler(GCProfiler.class)
+					.resultFormat(ResultFormatType.JSON)
+					.result("benchmarks-" + threads.trim() + "-threads.json")
+					.build();
+			new Runner(options).run();
+		}
+	}
+
+}
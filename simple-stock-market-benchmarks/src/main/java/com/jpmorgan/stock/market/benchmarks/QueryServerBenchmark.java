@@ -0,0 +1,169 @@
+package com.jpmorgan.stock.market.benchmarks;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import com.jpmorgan.stock.market.domain.Trade;
+import com.jpmorgan.stock.market.domain.enums.TradeIndicator;
+import com.jpmorgan.stock.market.exceptions.BusinessException;
+import com.jpmorgan.stock.market.server.QueryProtocol;
+import com.jpmorgan.stock.market.server.QueryServer;
+import com.jpmorgan.stock.market.service.SimpleStockMarketService;
+
+/**
+ * Throughput of the query server over loopback: every thread keeps a
+ * connection and pipelines a burst of All Share Index queries, in the
+ * binary protocol or over HTTP, then reads all responses. The log level
+ * is the shipped INFO by default, which the server must sustain.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryServerBenchmark {
+
+	private static final int PIPELINED_QUERIES = 100;
+
+	@Param({ "INFO" })
+	private String logLevel;
+
+	private ClassPathXmlApplicationContext context;
+
+	private int port;
+
+	@Setup(org.openjdk.jmh.annotations.Level.Trial)
+	public void setUp() throws BusinessException {
+		Logger.getRootLogger().setLevel(Level.toLevel(logLevel));
+		System.setProperty("query.server.enabled", "true");
+		System.setProperty("query.server.port", "0");
+		context = new ClassPathXmlApplicationContext("application-context.xml");
+		port = context.getBean(QueryServer.class).getPort();
+		context.getBean(SimpleStockMarketService.class)
+				.recordTrade(new Trade("POP", 10, TradeIndicator.BUY, new BigDecimal("2.00")));
+	}
+
+	@TearDown(org.openjdk.jmh.annotations.Level.Trial)
+	public void tearDown() {
+		context.close();
+		System.clearProperty("query.server.enabled");
+		System.clearProperty("query.server.port");
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PIPELINED_QUERIES)
+	public long binaryAllShareIndex(Client client) throws IOException {
+		client.out.write(client.binaryRequests);
+		long checksum = 0;
+		for (int i = 0; i < PIPELINED_QUERIES; i++) {
+			int length = client.in.readInt();
+			client.in.readFully(client.response, 0, length);
+			checksum += client.response[4];
+		}
+		return checksum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PIPELINED_QUERIES)
+	public long httpAllShareIndex(Client client) throws IOException {
+		client.out.write(client.httpRequests);
+		long checksum = 0;
+		for (int i = 0; i < PIPELINED_QUERIES; i++) {
+			checksum += client.readHttpResponse();
+		}
+		return checksum;
+	}
+
+	/**
+	 * Connection of a benchmark thread with its pipelined requests.
+	 */
+	@State(Scope.Thread)
+	public static class Client {
+
+		private Socket socket;
+
+		private OutputStream out;
+
+		private DataInputStream in;
+
+		private final byte[] response = new byte[1024];
+
+		private byte[] binaryRequests;
+
+		private byte[] httpRequests;
+
+		@Setup(org.openjdk.jmh.annotations.Level.Trial)
+		public void connect(QueryServerBenchmark benchmark) throws IOException {
+			socket = new Socket("127.0.0.1", benchmark.port);
+			socket.setTcpNoDelay(true);
+			out = socket.getOutputStream();
+			in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			ByteBuffer requests = ByteBuffer.allocate(PIPELINED_QUERIES * (4 + QueryProtocol.REQUEST_HEADER_SIZE));
+			StringBuilder http = new StringBuilder();
+			for (int i = 0; i < PIPELINED_QUERIES; i++) {
+				requests.putInt(QueryProtocol.REQUEST_HEADER_SIZE).put(QueryProtocol.ALL_SHARE_INDEX).putInt(i);
+				http.append("GET /all-share-index HTTP/1.1\r\nHost: localhost\r\n\r\n");
+			}
+			binaryRequests = requests.array();
+			httpRequests = http.toString().getBytes(StandardCharsets.US_ASCII);
+		}
+
+		@TearDown(org.openjdk.jmh.annotations.Level.Trial)
+		public void close() throws IOException {
+			socket.close();
+		}
+
+		private int readHttpResponse() throws IOException {
+			int contentLength = 0;
+			String header;
+			while (!(header = readLine(in)).isEmpty()) {
+				if (header.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+					contentLength = Integer.parseInt(header.substring(15).trim());
+				}
+			}
+			in.readFully(response, 0, contentLength);
+			return contentLength;
+		}
+
+		private static String readLine(InputStream in) throws IOException {
+			StringBuilder line = new StringBuilder();
+			int b;
+			while ((b = in.read()) != '\n') {
+				if (b < 0) {
+					throw new IOException("Connection closed in a line");
+				}
+				if (b != '\r') {
+					line.append((char) b);
+				}
+			}
+			return line.toString();
+		}
+	}
+
+}
@@ -0,0 +1,175 @@
+package com.jpmorgan.stock.market.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import com.jpmorgan.stock.market.dao.StockDao;
+import com.jpmorgan.stock.market.dao.TradeDao;
+import com.jpmorgan.stock.market.domain.Stock;
+import com.jpmorgan.stock.market.domain.Trade;
+import com.jpmorgan.stock.market.domain.enums.StockType;
+import com.jpmorgan.stock.market.domain.enums.TradeIndicator;
+import com.jpmorgan.stock.market.engine.AllShareIndexEngine;
+import com.jpmorgan.stock.market.engine.VwapEngine;
+import com.jpmorgan.stock.market.exceptions.BusinessException;
+import com.jpmorgan.stock.market.service.impl.SimpleStockMarketServiceImpl;
+
+/**
+ * Throughput of the service hot paths over the production application
+ * context. Every iteration starts with symbolCount stocks holding
+ * tradesPerSymbol trades each, every call picks a random stock.
+ * <p>
+ * With engines disabled the service falls back to calculating from the
+ * trades in the trade DAO of the context, created for the trade storage
+ * of the parameter: the sharded one or the columnar off-heap one.
+ * <p>
+ * The state is shared by all benchmark threads, so recordTrade run by
+ * BenchmarkRunner for every count in benchmark.threads shows how trade
+ * ingestion scales with concurrent writers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceBenchmark {
+
+	static final String SYMBOL_PREFIX = "B";
+
+	@Param({ "10", "1000" })
+	private int symbolCount;
+
+	@Param({ "100", "1000" })
+	private int tradesPerSymbol;
+
+	@Param({ "true", "false" })
+	private boolean engines;
+
+	@Param({ "SHARDED", "OFF_HEAP" })
+	private String tradeStorage;
+
+	// the service logs every call at DEBUG, -p logLevel=DEBUG shows what that costs
+	@Param({ "WARN" })
+	private String logLevel;
+
+	private ClassPathXmlApplicationContext context;
+
+	private SimpleStockMarketServiceImpl service;
+
+	private TradeDao dao;
+
+	private VwapEngine vwapEngine;
+
+	private AllShareIndexEngine allShareIndexEngine;
+
+	private String[] symbols;
+
+	@Setup(org.openjdk.jmh.annotations.Level.Trial)
+	public void setUp() {
+		Logger.getRootLogger().setLevel(Level.toLevel(logLevel));
+		System.setProperty("trade.storage", tradeStorage);
+		context = new ClassPathXmlApplicationContext("application-context.xml");
+		service = context.getBean(SimpleStockMarketServiceImpl.class);
+		StockDao stockDao = context.getBean(StockDao.class);
+		symbols = addStocks(stockDao, symbolCount);
+		dao = context.getBean(TradeDao.class);
+		vwapEngine = context.getBean(VwapEngine.class);
+		allShareIndexEngine = context.getBean(AllShareIndexEngine.class);
+		if (!engines) {
+			service.setVwapEngine(null);
+			service.setAllShareIndexEngine(null);
+		}
+	}
+
+	@Setup(org.openjdk.jmh.annotations.Level.Iteration)
+	public void prefill() throws BusinessException {
+		dao.clear();
+		vwapEngine.clear();
+		allShareIndexEngine.clear();
+		List<Trade> trades = new ArrayList<Trade>(symbolCount * tradesPerSymbol);
+		for (int i = 0; i < tradesPerSymbol; i++) {
+			for (String symbol : symbols) {
+				trades.add(newTrade(symbol));
+			}
+		}
+		service.recordTrades(trades);
+	}
+
+	@TearDown(org.openjdk.jmh.annotations.Level.Trial)
+	public void tearDown() {
+		context.close();
+		System.clearProperty("trade.storage");
+	}
+
+	@Benchmark
+	public Trade recordTrade() throws BusinessException {
+		Trade trade = newTrade(randomSymbol());
+		service.recordTrade(trade);
+		return trade;
+	}
+
+	@Benchmark
+	public BigDecimal calculateVolumeWeightedStockPriceInPast5Minutes() throws BusinessException {
+		return service.calculateVolumeWeightedStockPriceInPast5Minutes(randomSymbol());
+	}
+
+	@Benchmark
+	public BigDecimal calculateGBCEAllShareIndex() throws BusinessException {
+		return service.calculateGBCEAllShareIndex();
+	}
+
+	@Benchmark
+	public BigDecimal calculateDividendYield() throws BusinessException {
+		return service.calculateDividendYield(randomSymbol(), randomPrice());
+	}
+
+	@Benchmark
+	public BigDecimal calculatePriceEarningsRatio() throws BusinessException {
+		return service.calculatePriceEarningsRatio(randomSymbol(), randomPrice());
+	}
+
+	private String randomSymbol() {
+		return symbols[ThreadLocalRandom.current().nextInt(symbols.length)];
+	}
+
+	static String[] addStocks(StockDao stockDao, int symbolCount) {
+		String[] symbols = new String[symbolCount];
+		for (int i = 0; i < symbolCount; i++) {
+			symbols[i] = SYMBOL_PREFIX + i;
+			stockDao.add(new Stock(symbols[i], i % 5 == 0 ? StockType.PREFERRED : StockType.COMMON,
+					BigDecimal.valueOf(1 + i % 23), BigDecimal.valueOf(2, 2), BigDecimal.valueOf(100)));
+		}
+		return symbols;
+	}
+
+	static Trade newTrade(String symbol) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		return new Trade(symbol, 1 + random.nextInt(1000), random.nextBoolean() ? TradeIndicator.BUY : TradeIndicator.SELL,
+				randomPrice());
+	}
+
+	static BigDecimal randomPrice() {
+		return BigDecimal.valueOf(100 + ThreadLocalRandom.current().nextInt(10000), 2);
+	}
+
+}
@@ -0,0 +1,63 @@
+package com.jpmorgan.stock.market.benchmarks;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import com.jpmorgan.stock.market.dao.StockDao;
+import com.jpmorgan.stock.market.domain.Stock;
+
+/**
+ * Throughput of stock lookups by symbol, the first step of every service
+ * call, over the stock DAO of the dao-only context.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StockDaoBenchmark {
+
+	@Param({ "10", "1000", "100000" })
+	private int symbolCount;
+
+	private ClassPathXmlApplicationContext context;
+
+	private StockDao stockDao;
+
+	private String[] symbols;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		context = new ClassPathXmlApplicationContext("spring/stock-dao.xml");
+		stockDao = context.getBean(StockDao.class);
+		symbols = ServiceBenchmark.addStocks(stockDao, symbolCount);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public Optional<Stock> findBySymbol() {
+		return stockDao.findBySymbol(symbols[ThreadLocalRandom.current().nextInt(symbols.length)]);
+	}
+
+}
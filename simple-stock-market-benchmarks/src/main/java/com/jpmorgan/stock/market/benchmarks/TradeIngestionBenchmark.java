@@ -0,0 +1,112 @@
+package com.jpmorgan.stock.market.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import com.jpmorgan.stock.market.dao.StockDao;
+import com.jpmorgan.stock.market.dao.TradeDao;
+import com.jpmorgan.stock.market.domain.enums.TradeIndicator;
+import com.jpmorgan.stock.market.engine.AllShareIndexEngine;
+import com.jpmorgan.stock.market.engine.VwapEngine;
+import com.jpmorgan.stock.market.ingestion.TradeIngestion;
+
+/**
+ * Throughput of publishing trades through the ring buffer of the trade
+ * ingestion, with the writer thread recording them as trade messages.
+ * Producers wait for the writer once the buffer is full, so the rate is
+ * the one trades are recorded at. Run with the GC profiler to see the
+ * allocation per published trade of each trade storage.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TradeIngestionBenchmark {
+
+	@Param({ "10", "1000" })
+	private int symbolCount;
+
+	@Param({ "SHARDED", "OFF_HEAP" })
+	private String tradeStorage;
+
+	// the service logs every batch at DEBUG, -p logLevel=DEBUG shows what that costs
+	@Param({ "WARN" })
+	private String logLevel;
+
+	private ClassPathXmlApplicationContext context;
+
+	private TradeIngestion tradeIngestion;
+
+	private TradeDao tradeDao;
+
+	private VwapEngine vwapEngine;
+
+	private AllShareIndexEngine allShareIndexEngine;
+
+	private String[] symbols;
+
+	@Setup(org.openjdk.jmh.annotations.Level.Trial)
+	public void setUp() {
+		Logger.getRootLogger().setLevel(Level.toLevel(logLevel));
+		System.setProperty("trade.ingestion.enabled", "true");
+		System.setProperty("trade.storage", tradeStorage);
+		context = new ClassPathXmlApplicationContext("application-context.xml");
+		tradeIngestion = context.getBean(TradeIngestion.class);
+		tradeDao = context.getBean(TradeDao.class);
+		vwapEngine = context.getBean(VwapEngine.class);
+		allShareIndexEngine = context.getBean(AllShareIndexEngine.class);
+		symbols = ServiceBenchmark.addStocks(context.getBean(StockDao.class), symbolCount);
+	}
+
+	@Setup(org.openjdk.jmh.annotations.Level.Iteration)
+	public void clear() {
+		// trades are recorded in publish order, so the trades of the last iteration are recorded with this one
+		long sequence = tradeIngestion.publish(symbols[0], 1, TradeIndicator.BUY, 100, 2);
+		tradeIngestion.awaitRecorded(sequence, 60000);
+		tradeDao.clear();
+		vwapEngine.clear();
+		allShareIndexEngine.clear();
+	}
+
+	@TearDown(org.openjdk.jmh.annotations.Level.Trial)
+	public void tearDown() {
+		context.close();
+		System.clearProperty("trade.ingestion.enabled");
+		System.clearProperty("trade.storage");
+	}
+
+	@Benchmark
+	public long publishUnscaledPrice() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		return tradeIngestion.publish(symbols[random.nextInt(symbols.length)], 1 + random.nextInt(1000), 
+				random.nextBoolean() ? TradeIndicator.BUY : TradeIndicator.SELL, 100 + random.nextInt(10000), 2);
+	}
+
+	@Benchmark
+	public long publishDecimalPrice() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		return tradeIngestion.publish(symbols[random.nextInt(symbols.length)], 1 + random.nextInt(1000), 
+				random.nextBoolean() ? TradeIndicator.BUY : TradeIndicator.SELL, 
+				BigDecimal.valueOf(100 + random.nextInt(10000), 2));
+	}
+
+}
@@ -0,0 +1,28 @@
+package com.jpmorgan.stock.market.backtest;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.time.Duration;
+
+public interface Backtest {
+	
+	/**
+	 * Record the trades of a historical trade file in event time and write
+	 * the Volume Weighted Stock Price in past 5 minutes of every traded 
+	 * stock and the GBCE All Share Index at every interval of event time, 
+	 * as lines of time, stock symbol or GBCE for the index, and value. The
+	 * market is cleared first, so only the trades of the file are priced.
+	 * 
+	 * @param tradeFile
+	 * @param format
+	 * @param interval
+	 * @param series
+	 * @return the throughput of the backtest
+	 * @throws IOException if the trade file cannot be read or the series cannot be written
+	 * @throws IllegalStateException if the market clock does not run on event time
+	 */
+	public BacktestReport run(Path tradeFile, TradeFileFormat format, Duration interval, Writer series) 
+			throws IOException;
+
+}
@@ -0,0 +1,95 @@
+package com.jpmorgan.stock.market.backtest;
+
+import java.util.concurrent.TimeUnit;
+
+public class BacktestReport {
+	
+	private final long trades;
+	
+	private final long rejectedTrades;
+	
+	private final long lateTrades;
+	
+	private final long samples;
+	
+	private final long bytes;
+	
+	private final long elapsedNanos;
+	
+	private final long eventTimeNanos;
+	
+	public BacktestReport(long trades, long rejectedTrades, long lateTrades, long samples, long bytes, 
+			long elapsedNanos, long eventTimeNanos) {
+		this.trades = trades;
+		this.rejectedTrades = rejectedTrades;
+		this.lateTrades = lateTrades;
+		this.samples = samples;
+		this.bytes = bytes;
+		this.elapsedNanos = elapsedNanos;
+		this.eventTimeNanos = eventTimeNanos;
+	}
+
+	public long getTrades() {
+		return trades;
+	}
+
+	public long getRejectedTrades() {
+		return rejectedTrades;
+	}
+
+	/**
+	 * Get the number of trades which were older than a trade before them
+	 * in the file.
+	 * 
+	 * @return the number of late trades
+	 */
+	public long getLateTrades() {
+		return lateTrades;
+	}
+
+	public long getSamples() {
+		return samples;
+	}
+
+	public long getBytes() {
+		return bytes;
+	}
+
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * Get the event time from the first to the last trade.
+	 * 
+	 * @return the event time in nanoseconds
+	 */
+	public long getEventTimeNanos() {
+		return eventTimeNanos;
+	}
+
+	public double getTradesPerSecond() {
+		return trades * (double) TimeUnit.SECONDS.toNanos(1) / Math.max(1, elapsedNanos);
+	}
+
+	public double getMegabytesPerSecond() {
+		return bytes / (1024.0 * 1024.0) * TimeUnit.SECONDS.toNanos(1) / Math.max(1, elapsedNanos);
+	}
+
+	/**
+	 * Get how many times faster than real time the trades were recorded.
+	 * 
+	 * @return event time divided by elapsed time
+	 */
+	public double getSpeedUp() {
+		return eventTimeNanos / (double) Math.max(1, elapsedNanos);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d trades (%d rejected, %d late) and %d samples in %d ms: %.0f trades/s, %.1f MB/s, "
+				+ "%.0fx faster than real time", trades, rejectedTrades, lateTrades, samples, 
+				TimeUnit.NANOSECONDS.toMillis(elapsedNanos), getTradesPerSecond(), getMegabytesPerSecond(), getSpeedUp());
+	}
+
+}
@@ -0,0 +1,54 @@
+package com.jpmorgan.stock.market.backtest;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+/**
+ * Command line backtest of a historical trade file:
+ * <pre>
+ * BacktestRunner tradeFile [CSV|BINARY] [intervalSeconds] [seriesFile]
+ * </pre>
+ * The series is written to the series file or standard output, the
+ * throughput is reported on standard error. The market clock runs on
+ * event time and, unless set otherwise, trades are kept in the sharded 
+ * trade storage and the ones older than the 5 minute window are evicted,
+ * so files larger than the heap can be run.
+ */
+public class BacktestRunner {
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("Usage: BacktestRunner tradeFile [CSV|BINARY] [intervalSeconds] [seriesFile]");
+			System.exit(1);
+		}
+		TradeFileFormat format = args.length > 1 ? TradeFileFormat.valueOf(args[1]) : TradeFileFormat.CSV;
+		Duration interval = Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : 60);
+		System.setProperty("market.clock.source", "EVENT_TIME");
+		if (System.getProperty("trade.retention.max.age.minutes") == null) {
+			System.setProperty("trade.retention.max.age.minutes", "5");
+		}
+		// only the sharded trade storage can evict, the retention refuses to start on another one
+		if (System.getProperty("trade.storage") == null) {
+			System.setProperty("trade.storage", "SHARDED");
+		}
+		// logging every call would dominate the run
+		Logger.getLogger("com.jpmorgan.stock.market.service").setLevel(Level.WARN);
+		try (ClassPathXmlApplicationContext context = new ClassPathXmlApplicationContext("application-context.xml");
+				Writer series = args.length > 3 ? Files.newBufferedWriter(Paths.get(args[3]), StandardCharsets.US_ASCII) 
+						: new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.US_ASCII))) {
+			BacktestReport report = context.getBean(Backtest.class).run(Paths.get(args[0]), format, interval, series);
+			System.err.println(report);
+		}
+	}
+
+}
@@ -0,0 +1,10 @@
+package com.jpmorgan.stock.market.backtest;
+
+public enum TradeFileFormat {
+
+	// A line per trade: exchange time stamp in epoch nanoseconds, stock symbol, BUY or SELL, quantity, price
+	CSV,
+	
+	// Fixed size little endian records, see BinaryTradeFileWriter
+	BINARY;
+}
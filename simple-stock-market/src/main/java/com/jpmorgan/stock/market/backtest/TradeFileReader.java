@@ -0,0 +1,23 @@
+package com.jpmorgan.stock.market.backtest;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.jpmorgan.stock.market.domain.Trade;
+
+public interface TradeFileReader {
+	
+	/**
+	 * Read the trades of a file in file order. The trades carry the
+	 * exchange time stamps of the file.
+	 * 
+	 * @param file
+	 * @param consumer receives the trades in batches
+	 * @return the number of trades read
+	 * @throws IOException if the file cannot be read or a trade is malformed
+	 */
+	public long read(Path file, Consumer<List<Trade>> consumer) throws IOException;
+
+}
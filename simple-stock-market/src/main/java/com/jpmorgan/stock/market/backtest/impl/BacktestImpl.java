@@ -0,0 +1,213 @@
+package com.jpmorgan.stock.market.backtest.impl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.log4j.Logger;
+
+import com.jpmorgan.stock.market.backtest.Backtest;
+import com.jpmorgan.stock.market.backtest.BacktestReport;
+import com.jpmorgan.stock.market.backtest.TradeFileFormat;
+import com.jpmorgan.stock.market.backtest.TradeFileReader;
+import com.jpmorgan.stock.market.clock.ClockSource;
+import com.jpmorgan.stock.market.clock.LocalTimeStamps;
+import com.jpmorgan.stock.market.clock.MarketClock;
+import com.jpmorgan.stock.market.dao.StockDao;
+import com.jpmorgan.stock.market.domain.Trade;
+import com.jpmorgan.stock.market.exceptions.BusinessException;
+import com.jpmorgan.stock.market.service.SimpleStockMarketService;
+
+/**
+ * Backtest streaming a trade file through the service on the event time
+ * market clock. Trades are recorded in batches, a batch is cut at every
+ * interval boundary, so the clock is advanced to the boundary and the
+ * prices are sampled with exactly the trades before it recorded. Trades 
+ * are recorded in file order, which should be event time order: late 
+ * trades are recorded as late trades and counted.
+ */
+public class BacktestImpl implements Backtest {
+	
+	final static Logger LOG = Logger.getLogger(BacktestImpl.class);
+	
+	static final String ALL_SHARE_INDEX = "GBCE";
+	
+	private SimpleStockMarketService stockMarketService;
+	
+	private StockDao stockDao;
+	
+	private MarketClock marketClock;
+	
+	private int batchSize = 1024;
+
+	/*
+	 * @see com.jpmorgan.stock.market.backtest.Backtest#run(java.nio.file.Path, com.jpmorgan.stock.market.backtest.TradeFileFormat, java.time.Duration, java.io.Writer)
+	 */
+	@Override
+	public BacktestReport run(Path tradeFile, TradeFileFormat format, Duration interval, Writer series) 
+			throws IOException {
+		if (marketClock == null || marketClock.getSource() != ClockSource.EVENT_TIME) {
+			throw new IllegalStateException("Backtests need the market clock on event time.");
+		}
+		if (interval == null || interval.isNegative() || interval.isZero()) {
+			throw new IllegalArgumentException("Sampling interval must be greater than zero.");
+		}
+		LOG.info("Running a backtest of " + tradeFile + "...");
+		marketClock.reset();
+		stockMarketService.clear();
+		Run run = new Run(interval.toNanos(), series);
+		long start = System.nanoTime();
+		long trades;
+		try {
+			trades = reader(format).read(tradeFile, run::onTrades);
+			run.finish();
+		} catch (UncheckedIOException uioe) {
+			throw uioe.getCause();
+		}
+		series.flush();
+		BacktestReport report = new BacktestReport(trades, run.rejectedTrades, run.lateTrades, run.samples, 
+				Files.size(tradeFile), System.nanoTime() - start, run.lastTimeStamp - run.firstTimeStamp);
+		LOG.info("Backtest of " + tradeFile + " finished: " + report);
+		return report;
+	}
+
+	private TradeFileReader reader(TradeFileFormat format) {
+		switch (format) {
+			case CSV:
+				return new CsvTradeFileReader(batchSize);
+			case BINARY:
+				return new BinaryTradeFileReader(batchSize);
+			default:
+				throw new IllegalArgumentException("Unknown trade file format " + format);
+		}
+	}
+
+	public void setStockMarketService(SimpleStockMarketService stockMarketService) {
+		this.stockMarketService = stockMarketService;
+	}
+
+	public void setStockDao(StockDao stockDao) {
+		this.stockDao = stockDao;
+	}
+
+	public void setMarketClock(MarketClock marketClock) {
+		this.marketClock = marketClock;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * State of a single backtest, times are in local epoch nanoseconds.
+	 */
+	private class Run {
+		
+		private final long interval;
+		
+		private final Writer series;
+		
+		private final List<Trade> pending = new ArrayList<Trade>(batchSize);
+		
+		// stocks of the market traded so far, sampled in symbol order
+		private final Set<String> tradedSymbols = new TreeSet<String>();
+		
+		private boolean started;
+		
+		private long nextSample;
+		
+		private long firstTimeStamp;
+		
+		private long lastTimeStamp;
+		
+		private long rejectedTrades;
+		
+		private long lateTrades;
+		
+		private long samples;
+		
+		Run(long interval, Writer series) {
+			this.interval = interval;
+			this.series = series;
+		}
+		
+		void onTrades(List<Trade> trades) {
+			for (Trade trade : trades) {
+				long timeStamp = LocalTimeStamps.toEpochNanos(trade.getRecordCreationTimeStamp());
+				if (!started) {
+					started = true;
+					firstTimeStamp = timeStamp;
+					lastTimeStamp = timeStamp;
+					nextSample = Math.floorDiv(timeStamp, interval) * interval + interval;
+				}
+				if (timeStamp < lastTimeStamp) {
+					lateTrades++;
+				} else {
+					lastTimeStamp = timeStamp;
+				}
+				while (timeStamp >= nextSample) {
+					record();
+					sample(nextSample);
+					nextSample += interval;
+				}
+				pending.add(trade);
+				if (stockDao.getId(trade.getStockSymbol()) >= 0) {
+					tradedSymbols.add(trade.getStockSymbol());
+				}
+			}
+			if (pending.size() >= batchSize) {
+				record();
+			}
+		}
+		
+		void finish() {
+			if (started) {
+				record();
+				sample(nextSample);
+			}
+		}
+		
+		private void record() {
+			if (pending.isEmpty()) {
+				return;
+			}
+			try {
+				rejectedTrades += stockMarketService.recordTrades(pending).size();
+			} catch (BusinessException be) {
+				throw new IllegalStateException(be);
+			}
+			pending.clear();
+		}
+		
+		private void sample(long time) {
+			marketClock.advanceTo(time);
+			String sampleTime = LocalTimeStamps.toLocalDateTime(time).toString();
+			try {
+				for (String stockSymbol : tradedSymbols) {
+					write(sampleTime, stockSymbol, stockMarketService.calculateVolumeWeightedStockPriceInPast5Minutes(stockSymbol));
+				}
+				write(sampleTime, ALL_SHARE_INDEX, stockMarketService.calculateGBCEAllShareIndex());
+			} catch (BusinessException be) {
+				throw new IllegalStateException(be);
+			}
+			samples++;
+		}
+		
+		private void write(String sampleTime, String name, BigDecimal value) {
+			try {
+				series.write(sampleTime + "," + name + "," + value.toPlainString() + "\n");
+			} catch (IOException ioe) {
+				throw new UncheckedIOException(ioe);
+			}
+		}
+	}
+
+}
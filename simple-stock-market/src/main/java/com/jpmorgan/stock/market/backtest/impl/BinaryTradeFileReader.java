@@ -0,0 +1,111 @@
+package com.jpmorgan.stock.market.backtest.impl;
+
+import static com.jpmorgan.stock.market.backtest.impl.BinaryTradeFileWriter.HEADER_SIZE;
+import static com.jpmorgan.stock.market.backtest.impl.BinaryTradeFileWriter.MAGIC;
+import static com.jpmorgan.stock.market.backtest.impl.BinaryTradeFileWriter.VERSION;
+import static com.jpmorgan.stock.market.codec.TradeDecoder.MESSAGE_SIZE;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.jpmorgan.stock.market.backtest.TradeFileReader;
+import com.jpmorgan.stock.market.codec.SymbolTable;
+import com.jpmorgan.stock.market.codec.TradeDecoder;
+import com.jpmorgan.stock.market.domain.Trade;
+
+/**
+ * Reader of binary trade files written by {@link BinaryTradeFileWriter}.
+ * Messages are read through a channel into a reused direct buffer of whole
+ * messages and decoded in place by a {@link TradeDecoder}, symbols are 
+ * looked up in a {@link SymbolTable}, so a trade allocates its trade and 
+ * price only.
+ */
+public class BinaryTradeFileReader implements TradeFileReader {
+	
+	static final int BUFFER_RECORDS = 1 << 15;
+	
+	private final int batchSize;
+	
+	private final SymbolTable symbols = new SymbolTable();
+	
+	private final TradeDecoder decoder = new TradeDecoder();
+	
+	public BinaryTradeFileReader(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.backtest.TradeFileReader#read(java.nio.file.Path, java.util.function.Consumer)
+	 */
+	@Override
+	public long read(Path file, Consumer<List<Trade>> consumer) throws IOException {
+		long count = 0;
+		List<Trade> batch = new ArrayList<Trade>(batchSize);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_RECORDS * MESSAGE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.limit(HEADER_SIZE);
+			readFully(channel, buffer);
+			if (buffer.position() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+				throw new IOException("File " + file + " is not a binary trade file.");
+			}
+			if (buffer.getInt(4) != VERSION) {
+				throw new IOException("Binary trade file version " + buffer.getInt(4) + " is not supported.");
+			}
+			buffer.clear();
+			while (readFully(channel, buffer)) {
+				int limit = buffer.position();
+				if (limit % MESSAGE_SIZE != 0) {
+					throw new IOException("Binary trade file " + file + " ends with an incomplete message.");
+				}
+				for (int offset = 0; offset < limit; offset += MESSAGE_SIZE) {
+					batch.add(read(buffer, offset));
+					if (batch.size() == batchSize) {
+						consumer.accept(batch);
+						count += batch.size();
+						batch = new ArrayList<Trade>(batchSize);
+					}
+				}
+				buffer.clear();
+			}
+		}
+		if (!batch.isEmpty()) {
+			consumer.accept(batch);
+			count += batch.size();
+		}
+		return count;
+	}
+
+	private Trade read(ByteBuffer buffer, int offset) throws IOException {
+		decoder.wrap(buffer, offset);
+		if (!decoder.hasStockSymbol() || decoder.getIndicator() == null) {
+			throw new IOException("Malformed binary trade message.");
+		}
+		String stockSymbol = decoder.findStockSymbol(symbols);
+		if (stockSymbol == null) {
+			stockSymbol = symbols.add(decoder.getStockSymbol());
+		}
+		return decoder.toTrade(stockSymbol);
+	}
+
+	/**
+	 * Fill the buffer up to its limit or the end of the file.
+	 * 
+	 * @return false if nothing was read
+	 */
+	private static boolean readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) {
+				break;
+			}
+		}
+		return buffer.position() > 0;
+	}
+
+}
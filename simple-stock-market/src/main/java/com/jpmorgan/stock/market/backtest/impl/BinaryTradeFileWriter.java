@@ -0,0 +1,78 @@
+package com.jpmorgan.stock.market.backtest.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.jpmorgan.stock.market.codec.TradeDecoder;
+import com.jpmorgan.stock.market.codec.TradeEncoder;
+import com.jpmorgan.stock.market.domain.Trade;
+
+/**
+ * Writer of binary trade files. A file starts with an int magic number and
+ * an int version, followed by a {@link TradeDecoder} message per trade.
+ */
+public class BinaryTradeFileWriter implements Closeable {
+	
+	static final int MAGIC = 0x54524446;
+	
+	static final int VERSION = 1;
+	
+	static final int HEADER_SIZE = 8;
+	
+	private static final int BUFFER_RECORDS = 1 << 15;
+	
+	private final FileChannel channel;
+	
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_RECORDS * TradeDecoder.MESSAGE_SIZE)
+			.order(ByteOrder.LITTLE_ENDIAN);
+	
+	private final TradeEncoder encoder = new TradeEncoder();
+	
+	public BinaryTradeFileWriter(Path file) throws IOException {
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, 
+				StandardOpenOption.TRUNCATE_EXISTING);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+	}
+	
+	/**
+	 * Append a trade to the file.
+	 * 
+	 * @param trade
+	 * @throws IOException if the file cannot be written
+	 * @throws IllegalArgumentException if the trade does not fit into a message
+	 */
+	public void write(Trade trade) throws IOException {
+		if (buffer.remaining() < TradeDecoder.MESSAGE_SIZE) {
+			drain();
+		}
+		encoder.wrap(buffer, buffer.position()).encode(trade);
+		buffer.position(buffer.position() + TradeDecoder.MESSAGE_SIZE);
+	}
+
+	/*
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			drain();
+		} finally {
+			channel.close();
+		}
+	}
+	
+	private void drain() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+}
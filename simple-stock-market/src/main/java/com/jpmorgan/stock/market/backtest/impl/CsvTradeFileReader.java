@@ -0,0 +1,224 @@
+package com.jpmorgan.stock.market.backtest.impl;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.jpmorgan.stock.market.backtest.TradeFileReader;
+import com.jpmorgan.stock.market.codec.SymbolTable;
+import com.jpmorgan.stock.market.domain.Trade;
+import com.jpmorgan.stock.market.domain.enums.TradeIndicator;
+
+/**
+ * Reader of CSV trade files, a line per trade:
+ * <pre>
+ * exchangeTimeStamp,stockSymbol,indicator,quantity,price
+ * 1475481600000000000,TEA,BUY,100,1.25
+ * </pre>
+ * The exchange time stamp is in nanoseconds since 1970-01-01T00:00Z, lines
+ * end with LF or CRLF and a first line not starting with a digit is taken 
+ * as header. The file is read through a channel into a reused buffer and
+ * parsed in place, numbers are parsed from the bytes and symbols are 
+ * looked up in a {@link SymbolTable}, so a trade allocates its trade and 
+ * price only.
+ */
+public class CsvTradeFileReader implements TradeFileReader {
+	
+	static final int BUFFER_SIZE = 1 << 20;
+	
+	private static final int COLUMNS = 5;
+	
+	private final int batchSize;
+	
+	private final SymbolTable symbols = new SymbolTable();
+	
+	// start and end offsets of the columns of the current line
+	private final int[] columnStarts = new int[COLUMNS];
+	
+	private final int[] columnEnds = new int[COLUMNS];
+	
+	public CsvTradeFileReader(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.backtest.TradeFileReader#read(java.nio.file.Path, java.util.function.Consumer)
+	 */
+	@Override
+	public long read(Path file, Consumer<List<Trade>> consumer) throws IOException {
+		long count = 0;
+		long lineNumber = 0;
+		List<Trade> batch = new ArrayList<Trade>(batchSize);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			byte[] bytes = buffer.array();
+			boolean endOfFile = false;
+			while (!endOfFile) {
+				endOfFile = channel.read(buffer) < 0;
+				int limit = buffer.position();
+				int lineStart = 0;
+				while (lineStart < limit) {
+					int lineEnd = indexOf(bytes, (byte) '\n', lineStart, limit);
+					if (lineEnd < 0) {
+						if (!endOfFile) {
+							break;
+						}
+						// last line without line feed
+						lineEnd = limit;
+					}
+					lineNumber++;
+					int end = lineEnd > lineStart && bytes[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+					if (end > lineStart && !(lineNumber == 1 && !isDigit(bytes[lineStart]))) {
+						batch.add(parse(bytes, lineStart, end, lineNumber));
+						if (batch.size() == batchSize) {
+							consumer.accept(batch);
+							count += batch.size();
+							batch = new ArrayList<Trade>(batchSize);
+						}
+					}
+					lineStart = lineEnd + 1;
+				}
+				if (lineStart == 0 && limit == bytes.length) {
+					throw new IOException("Line " + (lineNumber + 1) + " is longer than " + BUFFER_SIZE + " bytes.");
+				}
+				// keep the incomplete line for the next read
+				int remaining = Math.max(0, limit - lineStart);
+				System.arraycopy(bytes, lineStart, bytes, 0, remaining);
+				buffer.clear();
+				buffer.position(remaining);
+			}
+		}
+		if (!batch.isEmpty()) {
+			consumer.accept(batch);
+			count += batch.size();
+		}
+		return count;
+	}
+
+	private Trade parse(byte[] bytes, int start, int end, long lineNumber) throws IOException {
+		int column = 0;
+		columnStarts[0] = start;
+		for (int i = start; i < end; i++) {
+			if (bytes[i] == ',') {
+				if (column == COLUMNS - 1) {
+					throw malformed(lineNumber, "more than " + COLUMNS + " columns");
+				}
+				columnEnds[column++] = i;
+				columnStarts[column] = i + 1;
+			}
+		}
+		if (column != COLUMNS - 1) {
+			throw malformed(lineNumber, "less than " + COLUMNS + " columns");
+		}
+		columnEnds[column] = end;
+		long exchangeTimeStamp = parseLong(bytes, columnStarts[0], columnEnds[0], lineNumber);
+		int symbolLength = columnEnds[1] - columnStarts[1];
+		if (symbolLength == 0) {
+			throw malformed(lineNumber, "no stock symbol");
+		}
+		String stockSymbol = symbols.get(bytes, columnStarts[1], symbolLength);
+		TradeIndicator indicator = parseIndicator(bytes, columnStarts[2], columnEnds[2], lineNumber);
+		long quantity = parseLong(bytes, columnStarts[3], columnEnds[3], lineNumber);
+		if (quantity > Integer.MAX_VALUE || quantity < Integer.MIN_VALUE) {
+			throw malformed(lineNumber, "quantity out of range");
+		}
+		BigDecimal price = parsePrice(bytes, columnStarts[4], columnEnds[4], lineNumber);
+		return new Trade(stockSymbol, (int) quantity, indicator, price, exchangeTimeStamp);
+	}
+
+	private static TradeIndicator parseIndicator(byte[] bytes, int start, int end, long lineNumber) throws IOException {
+		if (matches(bytes, start, end, "BUY")) {
+			return TradeIndicator.BUY;
+		}
+		if (matches(bytes, start, end, "SELL")) {
+			return TradeIndicator.SELL;
+		}
+		throw malformed(lineNumber, "indicator must be BUY or SELL");
+	}
+
+	private static long parseLong(byte[] bytes, int start, int end, long lineNumber) throws IOException {
+		boolean negative = end > start && bytes[start] == '-';
+		int i = negative ? start + 1 : start;
+		if (i == end) {
+			throw malformed(lineNumber, "missing number");
+		}
+		long value = 0;
+		for (; i < end; i++) {
+			if (!isDigit(bytes[i])) {
+				throw malformed(lineNumber, "not a number");
+			}
+			// accumulated negatively, so Long.MIN_VALUE can be read
+			if (value < (Long.MIN_VALUE + (bytes[i] - '0')) / 10) {
+				throw malformed(lineNumber, "number out of range");
+			}
+			value = value * 10 - (bytes[i] - '0');
+		}
+		if (!negative) {
+			if (value == Long.MIN_VALUE) {
+				throw malformed(lineNumber, "number out of range");
+			}
+			value = -value;
+		}
+		return value;
+	}
+
+	private static BigDecimal parsePrice(byte[] bytes, int start, int end, long lineNumber) throws IOException {
+		int point = indexOf(bytes, (byte) '.', start, end);
+		if (point < 0) {
+			return BigDecimal.valueOf(parseLong(bytes, start, end, lineNumber));
+		}
+		if (point + 1 == end || !isDigit(bytes[point + 1]) || (point > start && !isDigit(bytes[point - 1]))) {
+			throw malformed(lineNumber, "not a price");
+		}
+		// the digits after point are parsed together with the integer part
+		long unscaled = point == start ? 0 : parseLong(bytes, start, point, lineNumber);
+		boolean negative = bytes[start] == '-';
+		for (int i = point + 1; i < end; i++) {
+			if (!isDigit(bytes[i])) {
+				throw malformed(lineNumber, "not a price");
+			}
+			try {
+				unscaled = Math.addExact(Math.multiplyExact(unscaled, 10), negative ? '0' - bytes[i] : bytes[i] - '0');
+			} catch (ArithmeticException ae) {
+				throw malformed(lineNumber, "price out of range");
+			}
+		}
+		return BigDecimal.valueOf(unscaled, end - point - 1);
+	}
+
+	private static boolean matches(byte[] bytes, int start, int end, String value) {
+		if (end - start != value.length()) {
+			return false;
+		}
+		for (int i = 0; i < value.length(); i++) {
+			if (bytes[start + i] != value.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int indexOf(byte[] bytes, byte value, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (bytes[i] == value) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static boolean isDigit(byte value) {
+		return value >= '0' && value <= '9';
+	}
+
+	private static IOException malformed(long lineNumber, String reason) {
+		return new IOException("Malformed trade at line " + lineNumber + ": " + reason + ".");
+	}
+
+}
@@ -0,0 +1,6 @@
+// Copyright (c) 2016 JPMorgan
+
+/**
+* Implementation of backtests over historical trade files
+*/
+package com.jpmorgan.stock.market.backtest.impl;
\ No newline at end of file
@@ -0,0 +1,6 @@
+// Copyright (c) 2016 JPMorgan
+
+/**
+* Backtests over historical trade files
+*/
+package com.jpmorgan.stock.market.backtest;
\ No newline at end of file
@@ -0,0 +1,10 @@
+package com.jpmorgan.stock.market.clock;
+
+public enum ClockSource {
+
+	// Wall-clock time of the machine, trades are stamped when they are created
+	SYSTEM,
+	
+	// Time of the latest recorded trade, time windows advance with the trades replayed
+	EVENT_TIME;
+}
@@ -0,0 +1,101 @@
+package com.jpmorgan.stock.market.clock;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local date-times of the default time zone in nanoseconds since
+ * 1970-01-01T00:00, the form trade time stamps are compared in. Neither
+ * reading the current time nor converting an instant allocates, unlike
+ * {@link LocalDateTime#now()}: the offset of the time zone is cached for an
+ * hour around the last converted instant, bounded by the transitions of
+ * the zone, so a replayed day looks it up once an hour. The current time
+ * has millisecond precision.
+ */
+public final class LocalTimeStamps {
+
+	static final long NANOS_PER_MILLI = 1000000L;
+
+	static final long NANOS_PER_SECOND = 1000000000L;
+
+	private static final long OFFSET_RECHECK_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+	private static volatile Offset offset = new Offset(Long.MAX_VALUE, Long.MIN_VALUE, 0);
+
+	private LocalTimeStamps() {
+	}
+
+	/**
+	 * Get the current local date-time.
+	 *
+	 * @return nanoseconds since 1970-01-01T00:00 local time
+	 */
+	public static long currentEpochNanos() {
+		return toLocalEpochNanos(System.currentTimeMillis() * NANOS_PER_MILLI);
+	}
+
+	/**
+	 * Convert an instant to the local date-time of the default time zone.
+	 *
+	 * @param instantNanos nanoseconds since 1970-01-01T00:00Z
+	 * @return nanoseconds since 1970-01-01T00:00 local time
+	 */
+	public static long toLocalEpochNanos(long instantNanos) {
+		long millis = Math.floorDiv(instantNanos, NANOS_PER_MILLI);
+		Offset current = offset;
+		if (millis < current.fromMillis || millis >= current.untilMillis) {
+			current = lookUp(millis);
+			offset = current;
+		}
+		return instantNanos + current.offsetMillis * NANOS_PER_MILLI;
+	}
+
+	public static long toEpochNanos(LocalDateTime timeStamp) {
+		return timeStamp.toEpochSecond(ZoneOffset.UTC) * NANOS_PER_SECOND + timeStamp.getNano();
+	}
+
+	public static LocalDateTime toLocalDateTime(long epochNanos) {
+		return LocalDateTime.ofEpochSecond(Math.floorDiv(epochNanos, NANOS_PER_SECOND),
+				(int) Math.floorMod(epochNanos, NANOS_PER_SECOND), ZoneOffset.UTC);
+	}
+
+	private static Offset lookUp(long millis) {
+		Instant instant = Instant.ofEpochMilli(millis);
+		ZoneRules rules = ZoneId.systemDefault().getRules();
+		long fromMillis = millis - OFFSET_RECHECK_MILLIS;
+		long untilMillis = millis + OFFSET_RECHECK_MILLIS;
+		ZoneOffsetTransition previous = rules.previousTransition(instant.plusMillis(1));
+		if (previous != null) {
+			fromMillis = Math.max(fromMillis, previous.toEpochSecond() * 1000);
+		}
+		ZoneOffsetTransition next = rules.nextTransition(instant);
+		if (next != null) {
+			untilMillis = Math.min(untilMillis, next.toEpochSecond() * 1000);
+		}
+		return new Offset(fromMillis, untilMillis, rules.getOffset(instant).getTotalSeconds() * 1000L);
+	}
+
+	/**
+	 * Offset of the time zone valid from and until an epoch millisecond.
+	 */
+	private static class Offset {
+
+		final long fromMillis;
+
+		final long untilMillis;
+
+		final long offsetMillis;
+
+		Offset(long fromMillis, long untilMillis, long offsetMillis) {
+			this.fromMillis = fromMillis;
+			this.untilMillis = untilMillis;
+			this.offsetMillis = offsetMillis;
+		}
+	}
+
+}
@@ -0,0 +1,54 @@
+package com.jpmorgan.stock.market.clock;
+
+import java.time.LocalDateTime;
+
+import com.jpmorgan.stock.market.domain.Trade;
+
+public interface MarketClock {
+	
+	/**
+	 * Get the source of the time.
+	 * 
+	 * @return the clock source
+	 */
+	public ClockSource getSource();
+	
+	/**
+	 * Get the current time in the form trade time stamps are compared in,
+	 * without allocating.
+	 * 
+	 * @return nanoseconds since 1970-01-01T00:00 local time
+	 */
+	public long epochNanos();
+	
+	/**
+	 * Get the current time.
+	 * 
+	 * @return the current local date-time
+	 */
+	public LocalDateTime now();
+	
+	/**
+	 * Account a recorded trade, an event time clock advances to the creation
+	 * time stamp of the trade unless it is already later.
+	 * 
+	 * @param trade
+	 */
+	public void onTrade(Trade trade);
+	
+	/**
+	 * Advance an event time clock to a time unless it is already later, so
+	 * time windows can be read at a time between two trades.
+	 * 
+	 * @param epochNanos nanoseconds since 1970-01-01T00:00 local time
+	 */
+	public void advanceTo(long epochNanos);
+	
+	/**
+	 * Move an event time clock back to 1970-01-01T00:00, before replaying
+	 * another day.
+	 * 
+	 */
+	public void reset();
+
+}
@@ -0,0 +1,89 @@
+package com.jpmorgan.stock.market.clock.impl;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.jpmorgan.stock.market.clock.ClockSource;
+import com.jpmorgan.stock.market.clock.LocalTimeStamps;
+import com.jpmorgan.stock.market.clock.MarketClock;
+import com.jpmorgan.stock.market.domain.Trade;
+
+/**
+ * Market clock reading either the wall-clock time or the event time, the
+ * latest creation time stamp of the recorded trades. With event time a 
+ * recorded day can be replayed as fast as the trades can be read, the 
+ * sliding window and retention advance with the replayed trades instead 
+ * of the wall clock.
+ */
+public class MarketClockImpl implements MarketClock {
+	
+	private ClockSource source = ClockSource.SYSTEM;
+	
+	// latest trade time stamp in local epoch nanoseconds
+	private final AtomicLong eventTime = new AtomicLong();
+
+	/*
+	 * @see com.jpmorgan.stock.market.clock.MarketClock#getSource()
+	 */
+	@Override
+	public ClockSource getSource() {
+		return source;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.clock.MarketClock#epochNanos()
+	 */
+	@Override
+	public long epochNanos() {
+		if (source == ClockSource.EVENT_TIME) {
+			return eventTime.get();
+		}
+		return LocalTimeStamps.currentEpochNanos();
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.clock.MarketClock#now()
+	 */
+	@Override
+	public LocalDateTime now() {
+		if (source == ClockSource.EVENT_TIME) {
+			return LocalTimeStamps.toLocalDateTime(eventTime.get());
+		}
+		return LocalDateTime.now();
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.clock.MarketClock#onTrade(com.jpmorgan.stock.market.domain.Trade)
+	 */
+	@Override
+	public void onTrade(Trade trade) {
+		if (source != ClockSource.EVENT_TIME) {
+			return;
+		}
+		advanceTo(LocalTimeStamps.toEpochNanos(trade.getRecordCreationTimeStamp()));
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.clock.MarketClock#advanceTo(long)
+	 */
+	@Override
+	public void advanceTo(long epochNanos) {
+		// trades arrive mostly in time order, so the clock is rarely behind a late trade
+		if (source == ClockSource.EVENT_TIME && epochNanos > eventTime.get()) {
+			eventTime.accumulateAndGet(epochNanos, Math::max);
+		}
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.clock.MarketClock#reset()
+	 */
+	@Override
+	public void reset() {
+		eventTime.set(0);
+	}
+
+	public void setSource(ClockSource source) {
+		this.source = source;
+	}
+
+}
@@ -0,0 +1,6 @@
+// Copyright (c) 2016 JPMorgan
+
+/**
+* Implementation of the market clock
+*/
+package com.jpmorgan.stock.market.clock.impl;
\ No newline at end of file
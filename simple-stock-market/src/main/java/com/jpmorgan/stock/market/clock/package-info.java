@@ -0,0 +1,6 @@
+// Copyright (c) 2016 JPMorgan
+
+/**
+* Market clock
+*/
+package com.jpmorgan.stock.market.clock;
\ No newline at end of file
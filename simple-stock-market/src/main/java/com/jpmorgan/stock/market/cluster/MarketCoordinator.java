@@ -0,0 +1,65 @@
+package com.jpmorgan.stock.market.cluster;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+
+import com.jpmorgan.stock.market.domain.PartitionedBatchResult;
+import com.jpmorgan.stock.market.domain.Trade;
+import com.jpmorgan.stock.market.exceptions.BusinessException;
+
+public interface MarketCoordinator {
+	
+	/**
+	 * Check whether partition nodes are configured.
+	 * 
+	 * @return true if the market is partitioned over nodes
+	 */
+	public boolean isEnabled();
+	
+	/**
+	 * Get the partition, the index of the node, a stock belongs to.
+	 * 
+	 * @param stockSymbol
+	 * @return the partition
+	 */
+	public int getPartition(String stockSymbol);
+	
+	/**
+	 * Record a trade on the node of its stock.
+	 * 
+	 * @param trade
+	 * @throws BusinessException if the trade is rejected or the node cannot be reached
+	 */
+	public void recordTrade(Trade trade) throws BusinessException;
+	
+	/**
+	 * Record a batch of trades, split by node and sent to the nodes 
+	 * concurrently. Invalid trades are rejected without failing the batch, 
+	 * and a node which cannot be reached fails only its own partition.
+	 * 
+	 * @param trades
+	 * @return the rejected trades and the failures of every partition
+	 * @throws BusinessException if no nodes are configured or the trades are null
+	 */
+	public PartitionedBatchResult recordTrades(Collection<Trade> trades) throws BusinessException;
+	
+	/**
+	 * Calculate the Volume Weighted Stock Price in past 5 minutes on the node
+	 * of the stock.
+	 * 
+	 * @param stockSymbol
+	 * @return the stock price in past 5 minutes
+	 * @throws BusinessException
+	 */
+	public BigDecimal calculateVolumeWeightedStockPriceInPast5Minutes(String stockSymbol) throws BusinessException;
+	
+	/**
+	 * Calculate GBCE All Share Index by merging the partial aggregates of 
+	 * the nodes, no trades are transferred.
+	 * 
+	 * @return the All Share Index
+	 * @throws BusinessException if a node cannot be reached
+	 */
+	public BigDecimal calculateGBCEAllShareIndex() throws BusinessException;
+
+}
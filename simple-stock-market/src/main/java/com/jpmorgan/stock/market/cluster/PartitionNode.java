@@ -0,0 +1,20 @@
+package com.jpmorgan.stock.market.cluster;
+
+public interface PartitionNode {
+	
+	/**
+	 * Check whether the node serves the market of this JVM.
+	 * 
+	 * @return true if the node accepts connections of a coordinator
+	 */
+	public boolean isEnabled();
+	
+	/**
+	 * Get the port the node is bound to, which is chosen by the system 
+	 * when the configured port is zero.
+	 * 
+	 * @return the port, -1 if the node is not running
+	 */
+	public int getPort();
+
+}
@@ -0,0 +1,35 @@
+package com.jpmorgan.stock.market.cluster;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+/**
+ * Command line partition node, serving the market of its JVM until the 
+ * JVM is stopped:
+ * <pre>
+ * PartitionNodeRunner port
+ * </pre>
+ * Coordinators list the nodes in cluster.nodes, in the order of their
+ * partitions.
+ */
+public class PartitionNodeRunner {
+
+	public static void main(String[] args) throws InterruptedException {
+		if (args.length < 1) {
+			System.err.println("Usage: PartitionNodeRunner port");
+			System.exit(1);
+		}
+		System.setProperty("cluster.node.enabled", "true");
+		System.setProperty("cluster.node.port", String.valueOf(Integer.parseInt(args[0])));
+		// logging every call would dominate the node
+		Logger.getLogger("com.jpmorgan.stock.market.service").setLevel(Level.WARN);
+		ClassPathXmlApplicationContext context = new ClassPathXmlApplicationContext("application-context.xml");
+		context.registerShutdownHook();
+		PartitionNode node = context.getBean(PartitionNode.class);
+		System.err.println("Partition node is listening on port " + node.getPort());
+		// the node threads are daemons, so the main thread keeps the JVM running
+		Thread.currentThread().join();
+	}
+
+}
@@ -0,0 +1,35 @@
+package com.jpmorgan.stock.market.cluster;
+
+/**
+ * Hash partitioning of stock symbols. Every node and the coordinator 
+ * partition with the same function, so a stock belongs to a single node
+ * and all its trades and its Volume Weighted Stock Price are found there.
+ */
+public class SymbolPartitioner {
+	
+	private final int partitions;
+	
+	public SymbolPartitioner(int partitions) {
+		if (partitions < 1) {
+			throw new IllegalArgumentException("There must be at least one partition.");
+		}
+		this.partitions = partitions;
+	}
+	
+	/**
+	 * Get the partition of a stock.
+	 * 
+	 * @param stockSymbol
+	 * @return the partition, from zero to the number of partitions exclusive
+	 */
+	public int partition(String stockSymbol) {
+		int hash = stockSymbol.hashCode();
+		// spread the high bits, symbols of a few characters differ mostly in the low ones
+		return Math.floorMod(hash ^ (hash >>> 16), partitions);
+	}
+	
+	public int getPartitions() {
+		return partitions;
+	}
+
+}
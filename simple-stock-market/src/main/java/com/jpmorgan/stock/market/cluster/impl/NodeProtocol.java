@@ -0,0 +1,40 @@
+package com.jpmorgan.stock.market.cluster.impl;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Request-response protocol between the coordinator and a partition node
+ * over a socket, written with {@link java.io.DataOutput}. A request is its
+ * type followed by its arguments, a response is a status followed by the
+ * result or, for {@link #ERROR}, the message of the rejection.
+ * <ul>
+ * <li>{@link #RECORD_TRADES}: int count, count binary trade messages; returns int rejected</li>
+ * <li>{@link #VOLUME_WEIGHTED_STOCK_PRICE}: UTF stock symbol; returns UTF price</li>
+ * <li>{@link #INDEX_AGGREGATE}: returns double log sum, int priced stocks, int zero priced stocks</li>
+ * </ul>
+ */
+final class NodeProtocol {
+	
+	static final int RECORD_TRADES = 1;
+	
+	static final int VOLUME_WEIGHTED_STOCK_PRICE = 2;
+	
+	static final int INDEX_AGGREGATE = 3;
+	
+	static final int OK = 0;
+	
+	static final int ERROR = 1;
+	
+	// trades of a single request, bounds the buffer a node allocates for it
+	static final int MAX_BATCH_SIZE = 1 << 16;
+	
+	private NodeProtocol() {
+	}
+	
+	static void writeError(DataOutput out, String message) throws IOException {
+		out.writeByte(ERROR);
+		out.writeUTF(message == null ? "" : message);
+	}
+
+}
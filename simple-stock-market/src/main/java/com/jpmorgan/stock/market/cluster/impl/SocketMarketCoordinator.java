@@ -0,0 +1,407 @@
+package com.jpmorgan.stock.market.cluster.impl;
+
+import static com.jpmorgan.stock.market.cluster.impl.NodeProtocol.ERROR;
+import static com.jpmorgan.stock.market.cluster.impl.NodeProtocol.INDEX_AGGREGATE;
+import static com.jpmorgan.stock.market.cluster.impl.NodeProtocol.MAX_BATCH_SIZE;
+import static com.jpmorgan.stock.market.cluster.impl.NodeProtocol.RECORD_TRADES;
+import static com.jpmorgan.stock.market.cluster.impl.NodeProtocol.VOLUME_WEIGHTED_STOCK_PRICE;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import com.jpmorgan.stock.market.cluster.MarketCoordinator;
+import com.jpmorgan.stock.market.cluster.SymbolPartitioner;
+import com.jpmorgan.stock.market.codec.TradeDecoder;
+import com.jpmorgan.stock.market.codec.TradeEncoder;
+import com.jpmorgan.stock.market.domain.IndexAggregate;
+import com.jpmorgan.stock.market.domain.PartitionedBatchResult;
+import com.jpmorgan.stock.market.domain.Trade;
+import com.jpmorgan.stock.market.exceptions.BusinessException;
+
+/**
+ * Coordinator of partition nodes reached over sockets, see 
+ * {@link NodeProtocol}. The nodes are listed as host:port, separated by 
+ * commas, and the position of a node in the list is its partition, so every
+ * coordinator must list the nodes in the same order. Trades are encoded as
+ * binary trade messages, split by the partition of their stock and sent as
+ * one request per node, the nodes of a batch are sent to concurrently by a
+ * pool of daemon threads, one per node. The All Share Index is merged from
+ * the log sum and the number of priced stocks of every node.
+ * <p>
+ * Every node is reached through a single connection, opened when it is 
+ * first used and again after it failed; requests on a connection are 
+ * serialized.
+ */
+public class SocketMarketCoordinator implements MarketCoordinator {
+	
+	final static Logger LOG = Logger.getLogger(SocketMarketCoordinator.class);
+	
+	private List<NodeConnection> nodes = Collections.emptyList();
+	
+	private ExecutorService senders;
+	
+	private SymbolPartitioner partitioner;
+	
+	private int digitsAfterPoint;
+	
+	private int connectTimeoutMillis = 1000;
+	
+	private int readTimeoutMillis = 10000;
+
+	/**
+	 * Close the connections to the nodes.
+	 * 
+	 */
+	public void close() {
+		if (senders != null) {
+			senders.shutdown();
+			senders = null;
+		}
+		for (NodeConnection node : nodes) {
+			node.close();
+		}
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.cluster.MarketCoordinator#isEnabled()
+	 */
+	@Override
+	public boolean isEnabled() {
+		return !nodes.isEmpty();
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.cluster.MarketCoordinator#getPartition(java.lang.String)
+	 */
+	@Override
+	public int getPartition(String stockSymbol) {
+		return partitioner.partition(stockSymbol);
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.cluster.MarketCoordinator#recordTrade(com.jpmorgan.stock.market.domain.Trade)
+	 */
+	@Override
+	public void recordTrade(Trade trade) throws BusinessException {
+		PartitionedBatchResult result = recordTrades(Collections.singletonList(trade));
+		// a failed batch of a single trade was sent, so the trade has a partition
+		if (!result.isComplete()) {
+			throw new BusinessException(result.getFailure(partitioner.partition(trade.getStockSymbol())));
+		}
+		if (result.getRejectedTrades() > 0) {
+			throw new BusinessException("Trade was rejected.");
+		}
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.cluster.MarketCoordinator#recordTrades(java.util.Collection)
+	 */
+	@Override
+	public PartitionedBatchResult recordTrades(Collection<Trade> trades) throws BusinessException {
+		checkEnabled();
+		if (trades == null) {
+			throw new BusinessException("Trades cannot be null.");
+		}
+		ExecutorService senders = this.senders;
+		if (senders == null) {
+			throw new BusinessException("Market coordinator was closed.");
+		}
+		ByteBuffer[] messages = new ByteBuffer[nodes.size()];
+		TradeEncoder encoder = new TradeEncoder();
+		int invalid = 0;
+		for (Trade trade : trades) {
+			if (!isEncodable(trade)) {
+				invalid++;
+				continue;
+			}
+			int partition = partitioner.partition(trade.getStockSymbol());
+			ByteBuffer buffer = messages[partition];
+			if (buffer == null || !buffer.hasRemaining()) {
+				buffer = grow(buffer, trades.size());
+				messages[partition] = buffer;
+			}
+			try {
+				encoder.wrap(buffer, buffer.position()).encode(trade);
+			} catch (IllegalArgumentException iae) {
+				invalid++;
+				continue;
+			}
+			buffer.position(buffer.position() + TradeDecoder.MESSAGE_SIZE);
+		}
+		int[] rejected = new int[messages.length];
+		String[] failures = new String[messages.length];
+		List<Future<Integer>> sends = new ArrayList<Future<Integer>>(Collections.nCopies(messages.length, null));
+		int lastPartition = -1;
+		for (int partition = 0; partition < messages.length; partition++) {
+			if (messages[partition] == null) {
+				continue;
+			}
+			if (lastPartition >= 0) {
+				ByteBuffer buffer = messages[lastPartition];
+				NodeConnection node = nodes.get(lastPartition);
+				sends.set(lastPartition, senders.submit(() -> send(node, buffer)));
+			}
+			lastPartition = partition;
+		}
+		// the last partition is sent by the calling thread, a batch of a single partition is never handed over
+		if (lastPartition >= 0) {
+			try {
+				rejected[lastPartition] = send(nodes.get(lastPartition), messages[lastPartition]);
+			} catch (BusinessException be) {
+				failures[lastPartition] = be.getMessage();
+			}
+		}
+		boolean interrupted = false;
+		for (int partition = 0; partition < sends.size(); partition++) {
+			Future<Integer> sent = sends.get(partition);
+			if (sent == null) {
+				continue;
+			}
+			while (true) {
+				try {
+					rejected[partition] = sent.get();
+					break;
+				} catch (InterruptedException ie) {
+					// the buffers are owned by the senders until they are done
+					interrupted = true;
+				} catch (ExecutionException ee) {
+					failures[partition] = ee.getCause().getMessage();
+					break;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		return new PartitionedBatchResult(invalid, rejected, failures);
+	}
+	
+	private static int send(NodeConnection node, ByteBuffer buffer) throws BusinessException {
+		int rejected = 0;
+		buffer.flip();
+		// large batches are sent in parts the node accepts
+		while (buffer.hasRemaining()) {
+			ByteBuffer part = buffer.slice();
+			part.limit(Math.min(part.remaining(), MAX_BATCH_SIZE * TradeDecoder.MESSAGE_SIZE));
+			rejected += node.recordTrades(part);
+			buffer.position(buffer.position() + part.limit());
+		}
+		return rejected;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.cluster.MarketCoordinator#calculateVolumeWeightedStockPriceInPast5Minutes(java.lang.String)
+	 */
+	@Override
+	public BigDecimal calculateVolumeWeightedStockPriceInPast5Minutes(String stockSymbol) throws BusinessException {
+		checkEnabled();
+		if (stockSymbol == null) {
+			throw new BusinessException("Stock symbol cannot be null.");
+		}
+		return nodes.get(partitioner.partition(stockSymbol)).calculateVolumeWeightedStockPrice(stockSymbol);
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.cluster.MarketCoordinator#calculateGBCEAllShareIndex()
+	 */
+	@Override
+	public BigDecimal calculateGBCEAllShareIndex() throws BusinessException {
+		checkEnabled();
+		IndexAggregate aggregate = IndexAggregate.EMPTY;
+		for (NodeConnection node : nodes) {
+			aggregate = aggregate.merge(node.getIndexAggregate());
+		}
+		return aggregate.getAllShareIndex(digitsAfterPoint);
+	}
+	
+	private void checkEnabled() throws BusinessException {
+		if (!isEnabled()) {
+			throw new BusinessException("No partition nodes are configured.");
+		}
+	}
+	
+	private static boolean isEncodable(Trade trade) {
+		return trade != null && trade.getStockSymbol() != null && trade.getIndicator() != null 
+				&& trade.getQuantity() != null && trade.getPrice() != null;
+	}
+	
+	private static ByteBuffer grow(ByteBuffer buffer, int trades) {
+		int capacity = buffer == null ? Math.min(trades, 64) : buffer.capacity() / TradeDecoder.MESSAGE_SIZE * 2;
+		ByteBuffer grown = ByteBuffer.allocate(capacity * TradeDecoder.MESSAGE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		if (buffer != null) {
+			buffer.flip();
+			grown.put(buffer);
+		}
+		return grown;
+	}
+	
+	/**
+	 * Set the nodes, host:port separated by commas, in the order of their partitions.
+	 * 
+	 * @param nodes
+	 */
+	public void setNodes(String nodes) {
+		close();
+		List<NodeConnection> connections = new ArrayList<NodeConnection>();
+		for (String node : nodes.split(",")) {
+			node = node.trim();
+			if (node.isEmpty()) {
+				continue;
+			}
+			int colon = node.lastIndexOf(':');
+			if (colon < 0) {
+				throw new IllegalArgumentException("Node [" + node + "] must be given as host:port.");
+			}
+			connections.add(new NodeConnection(node.substring(0, colon), Integer.parseInt(node.substring(colon + 1))));
+		}
+		this.nodes = Collections.unmodifiableList(connections);
+		if (!connections.isEmpty()) {
+			AtomicInteger threads = new AtomicInteger();
+			senders = Executors.newFixedThreadPool(connections.size(), runnable -> {
+				Thread thread = new Thread(runnable, "market-coordinator-" + threads.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		this.partitioner = connections.isEmpty() ? null : new SymbolPartitioner(connections.size());
+	}
+	
+	public void setDigitsAfterPoint(int digitsAfterPoint) {
+		this.digitsAfterPoint = digitsAfterPoint;
+	}
+	
+	public void setConnectTimeoutMillis(int connectTimeoutMillis) {
+		this.connectTimeoutMillis = connectTimeoutMillis;
+	}
+	
+	public void setReadTimeoutMillis(int readTimeoutMillis) {
+		this.readTimeoutMillis = readTimeoutMillis;
+	}
+	
+	/**
+	 * Writes the arguments of a request.
+	 */
+	private interface Request {
+		
+		void write(DataOutputStream out) throws IOException;
+	}
+	
+	/**
+	 * Reads the result of a request which was not rejected.
+	 */
+	private interface Response<T> {
+		
+		T read(DataInputStream in) throws IOException;
+	}
+	
+	/**
+	 * Connection to a node, opened lazily and closed after an error.
+	 */
+	private class NodeConnection {
+		
+		private final String host;
+		
+		private final int port;
+		
+		private Socket socket;
+		
+		private DataInputStream in;
+		
+		private DataOutputStream out;
+		
+		NodeConnection(String host, int port) {
+			this.host = host;
+			this.port = port;
+		}
+		
+		int recordTrades(ByteBuffer messages) throws BusinessException {
+			return call(out -> {
+				out.writeByte(RECORD_TRADES);
+				out.writeInt(messages.remaining() / TradeDecoder.MESSAGE_SIZE);
+				out.write(messages.array(), messages.arrayOffset() + messages.position(), messages.remaining());
+			}, DataInputStream::readInt);
+		}
+		
+		BigDecimal calculateVolumeWeightedStockPrice(String stockSymbol) throws BusinessException {
+			return call(out -> {
+				out.writeByte(VOLUME_WEIGHTED_STOCK_PRICE);
+				out.writeUTF(stockSymbol);
+			}, in -> new BigDecimal(in.readUTF()));
+		}
+		
+		IndexAggregate getIndexAggregate() throws BusinessException {
+			return call(out -> out.writeByte(INDEX_AGGREGATE), 
+					in -> new IndexAggregate(in.readDouble(), in.readInt(), in.readInt()));
+		}
+		
+		private synchronized <T> T call(Request request, Response<T> response) throws BusinessException {
+			String message;
+			try {
+				if (socket == null) {
+					connect();
+				}
+				request.write(out);
+				out.flush();
+				if (in.readUnsignedByte() != ERROR) {
+					return response.read(in);
+				}
+				message = in.readUTF();
+			} catch (IOException ioe) {
+				// the state of the stream is unknown, the next request reconnects
+				close();
+				LOG.error("Partition node " + host + ":" + port + " failed: " + ioe.getMessage());
+				throw new BusinessException("Partition node " + host + ":" + port + " cannot be reached.");
+			}
+			throw new BusinessException(message);
+		}
+		
+		private void connect() throws IOException {
+			Socket connection = new Socket();
+			try {
+				connection.setTcpNoDelay(true);
+				connection.setSoTimeout(readTimeoutMillis);
+				connection.connect(new InetSocketAddress(host, port), connectTimeoutMillis);
+				in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+				out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+			} catch (IOException ioe) {
+				connection.close();
+				throw ioe;
+			}
+			socket = connection;
+		}
+		
+		synchronized void close() {
+			if (socket == null) {
+				return;
+			}
+			try {
+				socket.close();
+			} catch (IOException ioe) {
+				LOG.warn("Connection to partition node " + host + ":" + port + " cannot be closed: " + ioe.getMessage());
+			}
+			socket = null;
+			in = null;
+			out = null;
+		}
+	}
+
+}
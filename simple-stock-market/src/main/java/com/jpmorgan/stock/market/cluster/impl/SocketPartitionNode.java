@@ -0,0 +1,233 @@
+package com.jpmorgan.stock.market.cluster.impl;
+
+import static com.jpmorgan.stock.market.cluster.impl.NodeProtocol.INDEX_AGGREGATE;
+import static com.jpmorgan.stock.market.cluster.impl.NodeProtocol.MAX_BATCH_SIZE;
+import static com.jpmorgan.stock.market.cluster.impl.NodeProtocol.OK;
+import static com.jpmorgan.stock.market.cluster.impl.NodeProtocol.RECORD_TRADES;
+import static com.jpmorgan.stock.market.cluster.impl.NodeProtocol.VOLUME_WEIGHTED_STOCK_PRICE;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import com.jpmorgan.stock.market.cluster.PartitionNode;
+import com.jpmorgan.stock.market.codec.TradeDecoder;
+import com.jpmorgan.stock.market.domain.IndexAggregate;
+import com.jpmorgan.stock.market.engine.AllShareIndexEngine;
+import com.jpmorgan.stock.market.exceptions.BusinessException;
+import com.jpmorgan.stock.market.service.SimpleStockMarketService;
+
+/**
+ * Partition node serving the market of this JVM to a coordinator over 
+ * sockets, see {@link NodeProtocol}. The node owns the trades and the 
+ * Volume Weighted Stock Prices of the stocks routed to it; for the index it
+ * only returns the partial aggregate of its stocks. Trades arrive as binary
+ * trade messages and are recorded in place through
+ * {@link SimpleStockMarketService#recordTradeMessages}.
+ * <p>
+ * Every connection is served by a daemon thread of its own, a coordinator
+ * keeps a single connection per node.
+ */
+public class SocketPartitionNode implements PartitionNode {
+	
+	final static Logger LOG = Logger.getLogger(SocketPartitionNode.class);
+	
+	private boolean enabled;
+	
+	private String host = "127.0.0.1";
+	
+	private int port;
+	
+	private SimpleStockMarketService stockMarketService;
+	
+	private AllShareIndexEngine allShareIndexEngine;
+	
+	private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+	
+	private volatile boolean running;
+	
+	private ServerSocket serverSocket;
+	
+	private Thread acceptor;
+
+	/**
+	 * Bind the server socket and start accepting connections.
+	 * 
+	 * @throws IOException if the address cannot be bound
+	 */
+	public synchronized void start() throws IOException {
+		if (!enabled || running) {
+			return;
+		}
+		serverSocket = new ServerSocket();
+		serverSocket.bind(new InetSocketAddress(host, port));
+		running = true;
+		acceptor = new Thread(this::accept, "partition-node");
+		acceptor.setDaemon(true);
+		acceptor.start();
+		LOG.info("Partition node is listening on " + serverSocket.getLocalSocketAddress());
+	}
+
+	/**
+	 * Stop accepting connections and close the open ones.
+	 * 
+	 */
+	public synchronized void stop() {
+		if (!running) {
+			return;
+		}
+		running = false;
+		close(serverSocket);
+		for (Socket connection : connections) {
+			close(connection);
+		}
+		try {
+			acceptor.join(TimeUnit.SECONDS.toMillis(10));
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+		acceptor = null;
+		serverSocket = null;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.cluster.PartitionNode#isEnabled()
+	 */
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.cluster.PartitionNode#getPort()
+	 */
+	@Override
+	public synchronized int getPort() {
+		return running ? serverSocket.getLocalPort() : -1;
+	}
+	
+	private void accept() {
+		while (running) {
+			try {
+				Socket connection = serverSocket.accept();
+				connection.setTcpNoDelay(true);
+				connections.add(connection);
+				Thread server = new Thread(() -> serve(connection), "partition-node-" + connection.getPort());
+				server.setDaemon(true);
+				server.start();
+			} catch (IOException ioe) {
+				if (running) {
+					LOG.error("While accepting a connection an error occured: " + ioe.getMessage());
+				}
+			}
+		}
+	}
+	
+	private void serve(Socket connection) {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()))) {
+			// reused for the trade messages of every request on the connection
+			ByteBuffer messages = ByteBuffer.allocate(0);
+			int request;
+			while ((request = in.read()) >= 0) {
+				if (request == RECORD_TRADES) {
+					messages = recordTrades(in, out, messages);
+				} else if (request == VOLUME_WEIGHTED_STOCK_PRICE) {
+					calculateVolumeWeightedStockPrice(in, out);
+				} else if (request == INDEX_AGGREGATE) {
+					IndexAggregate aggregate = allShareIndexEngine.getIndexAggregate();
+					out.writeByte(OK);
+					out.writeDouble(aggregate.getLogSum());
+					out.writeInt(aggregate.getPricedStocks());
+					out.writeInt(aggregate.getZeroPricedStocks());
+				} else {
+					throw new IOException("Unknown request [" + request + "]");
+				}
+				out.flush();
+			}
+		} catch (IOException ioe) {
+			if (running) {
+				LOG.warn("Connection of " + connection.getRemoteSocketAddress() + " is closed: " + ioe.getMessage());
+			}
+		} finally {
+			connections.remove(connection);
+			close(connection);
+		}
+	}
+	
+	private ByteBuffer recordTrades(DataInputStream in, DataOutputStream out, ByteBuffer messages) throws IOException {
+		int count = in.readInt();
+		if (count < 0 || count > MAX_BATCH_SIZE) {
+			throw new IOException("Batch of " + count + " trades is out of range");
+		}
+		int size = count * TradeDecoder.MESSAGE_SIZE;
+		if (messages.capacity() < size) {
+			messages = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		in.readFully(messages.array(), 0, size);
+		messages.clear();
+		messages.limit(size);
+		try {
+			int rejected = stockMarketService.recordTradeMessages(messages);
+			out.writeByte(OK);
+			out.writeInt(rejected);
+		} catch (BusinessException be) {
+			NodeProtocol.writeError(out, be.getMessage());
+		}
+		return messages;
+	}
+	
+	private void calculateVolumeWeightedStockPrice(DataInputStream in, DataOutputStream out) throws IOException {
+		String stockSymbol = in.readUTF();
+		try {
+			String stockPrice = stockMarketService.calculateVolumeWeightedStockPriceInPast5Minutes(stockSymbol)
+					.toPlainString();
+			out.writeByte(OK);
+			out.writeUTF(stockPrice);
+		} catch (BusinessException be) {
+			NodeProtocol.writeError(out, be.getMessage());
+		}
+	}
+	
+	private static void close(Closeable closeable) {
+		try {
+			closeable.close();
+		} catch (IOException ioe) {
+			LOG.warn("Socket cannot be closed: " + ioe.getMessage());
+		}
+	}
+	
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+	
+	public void setHost(String host) {
+		this.host = host;
+	}
+	
+	public void setPort(int port) {
+		this.port = port;
+	}
+	
+	public void setStockMarketService(SimpleStockMarketService stockMarketService) {
+		this.stockMarketService = stockMarketService;
+	}
+	
+	public void setAllShareIndexEngine(AllShareIndexEngine allShareIndexEngine) {
+		this.allShareIndexEngine = allShareIndexEngine;
+	}
+
+}
@@ -0,0 +1,6 @@
+// Copyright (c) 2016 JPMorgan
+
+/**
+* Implementation of the symbol-partitioned deployment over sockets
+*/
+package com.jpmorgan.stock.market.cluster.impl;
\ No newline at end of file
@@ -0,0 +1,6 @@
+// Copyright (c) 2016 JPMorgan
+
+/**
+* Symbol-partitioned deployment of the market over several nodes
+*/
+package com.jpmorgan.stock.market.cluster;
\ No newline at end of file
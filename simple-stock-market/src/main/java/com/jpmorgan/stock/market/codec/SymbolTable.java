@@ -0,0 +1,144 @@
+package com.jpmorgan.stock.market.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Stock symbols read from bytes, so a symbol read again is returned
+ * without creating a string. Symbols are ASCII and hashed like
+ * {@link String#hashCode()}, in an open addressing table. Lookups do not
+ * lock, adding a symbol publishes a copy of the table, as symbols are few
+ * and rarely added.
+ */
+public final class SymbolTable {
+	
+	private volatile String[] symbols = new String[64];
+	
+	private int size;
+	
+	/**
+	 * Get the symbol of some bytes, adding it unless it is known.
+	 * 
+	 * @param bytes
+	 * @param offset
+	 * @param length
+	 * @return the symbol
+	 */
+	public String get(byte[] bytes, int offset, int length) {
+		String[] current = symbols;
+		int mask = current.length - 1;
+		for (int index = spread(hash(bytes, offset, length)) & mask;; index = (index + 1) & mask) {
+			String symbol = current[index];
+			if (symbol == null) {
+				return add(new String(bytes, offset, length, StandardCharsets.US_ASCII));
+			}
+			if (matches(symbol, bytes, offset, length)) {
+				return symbol;
+			}
+		}
+	}
+	
+	/**
+	 * Find the symbol of some bytes of a buffer, read in place.
+	 * 
+	 * @param buffer
+	 * @param offset
+	 * @param length
+	 * @return the symbol, <code>null</code> unless it was added before
+	 */
+	public String find(ByteBuffer buffer, int offset, int length) {
+		String[] current = symbols;
+		int mask = current.length - 1;
+		for (int index = spread(hash(buffer, offset, length)) & mask;; index = (index + 1) & mask) {
+			String symbol = current[index];
+			if (symbol == null) {
+				return null;
+			}
+			if (matches(symbol, buffer, offset, length)) {
+				return symbol;
+			}
+		}
+	}
+	
+	/**
+	 * Add a symbol unless it is known.
+	 * 
+	 * @param symbol
+	 * @return the known symbol equal to the given one
+	 */
+	public synchronized String add(String symbol) {
+		String[] newSymbols = symbols.clone();
+		if ((size + 1) * 2 > newSymbols.length) {
+			newSymbols = new String[newSymbols.length * 2];
+			for (String oldSymbol : symbols) {
+				if (oldSymbol != null) {
+					insert(newSymbols, oldSymbol);
+				}
+			}
+		}
+		String known = insert(newSymbols, symbol);
+		if (known == symbol) {
+			size++;
+			symbols = newSymbols;
+		}
+		return known;
+	}
+	
+	private static String insert(String[] symbols, String symbol) {
+		int mask = symbols.length - 1;
+		int index = spread(symbol.hashCode()) & mask;
+		while (symbols[index] != null) {
+			if (symbols[index].equals(symbol)) {
+				return symbols[index];
+			}
+			index = (index + 1) & mask;
+		}
+		symbols[index] = symbol;
+		return symbol;
+	}
+	
+	private static int hash(byte[] bytes, int offset, int length) {
+		int hash = 0;
+		for (int i = 0; i < length; i++) {
+			hash = 31 * hash + bytes[offset + i];
+		}
+		return hash;
+	}
+	
+	private static int hash(ByteBuffer buffer, int offset, int length) {
+		int hash = 0;
+		for (int i = 0; i < length; i++) {
+			hash = 31 * hash + buffer.get(offset + i);
+		}
+		return hash;
+	}
+	
+	private static boolean matches(String symbol, byte[] bytes, int offset, int length) {
+		if (symbol.length() != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (symbol.charAt(i) != bytes[offset + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private static boolean matches(String symbol, ByteBuffer buffer, int offset, int length) {
+		if (symbol.length() != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (symbol.charAt(i) != buffer.get(offset + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+}
@@ -0,0 +1,155 @@
+package com.jpmorgan.stock.market.codec;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import com.jpmorgan.stock.market.domain.Trade;
+import com.jpmorgan.stock.market.domain.enums.TradeIndicator;
+
+/**
+ * Flyweight reading binary trade messages in place. A message has 
+ * {@value #MESSAGE_SIZE} bytes, little endian:
+ * <pre>
+ *  0 long  exchange time stamp in nanoseconds since 1970-01-01T00:00Z
+ *  8 long  unscaled price
+ * 16 int   quantity
+ * 20 byte  trade indicator
+ * 21 byte  price scale
+ * 22 byte  symbol length
+ * 23 9 bytes symbol, ASCII
+ * </pre>
+ * The decoder is wrapped around a message of a heap, direct or mapped 
+ * buffer and reads a field from the buffer when it is asked for, so a 
+ * single decoder walks any number of messages without creating objects.
+ * The position and byte order of the buffer are left alone.
+ */
+public class TradeDecoder {
+	
+	public static final int MESSAGE_SIZE = 32;
+	
+	public static final int MAX_SYMBOL_LENGTH = 9;
+	
+	static final int TIME_STAMP = 0;
+	
+	static final int PRICE = 8;
+	
+	static final int QUANTITY = 16;
+	
+	static final int INDICATOR = 20;
+	
+	static final int PRICE_SCALE = 21;
+	
+	static final int SYMBOL_LENGTH = 22;
+	
+	static final int SYMBOL = 23;
+	
+	private static final TradeIndicator[] INDICATORS = TradeIndicator.values();
+	
+	private ByteBuffer buffer;
+	
+	private int offset;
+	
+	// whether multi byte fields are read in the reverse of the buffer order
+	private boolean swap;
+	
+	/**
+	 * Wrap the decoder around a message.
+	 * 
+	 * @param buffer
+	 * @param offset absolute index of the first byte of the message
+	 * @return the decoder
+	 */
+	public TradeDecoder wrap(ByteBuffer buffer, int offset) {
+		this.buffer = buffer;
+		this.offset = offset;
+		this.swap = buffer.order() != ByteOrder.LITTLE_ENDIAN;
+		return this;
+	}
+	
+	/**
+	 * Get the exchange time stamp.
+	 * 
+	 * @return the time stamp in nanoseconds since 1970-01-01T00:00Z
+	 */
+	public long getExchangeTimeStamp() {
+		long timeStamp = buffer.getLong(offset + TIME_STAMP);
+		return swap ? Long.reverseBytes(timeStamp) : timeStamp;
+	}
+	
+	public long getUnscaledPrice() {
+		long price = buffer.getLong(offset + PRICE);
+		return swap ? Long.reverseBytes(price) : price;
+	}
+	
+	public int getPriceScale() {
+		return buffer.get(offset + PRICE_SCALE);
+	}
+	
+	public int getQuantity() {
+		int quantity = buffer.getInt(offset + QUANTITY);
+		return swap ? Integer.reverseBytes(quantity) : quantity;
+	}
+	
+	/**
+	 * Get the trade indicator.
+	 * 
+	 * @return the trade indicator, <code>null</code> if the message holds an unknown one
+	 */
+	public TradeIndicator getIndicator() {
+		int indicator = buffer.get(offset + INDICATOR);
+		return indicator < 0 || indicator >= INDICATORS.length ? null : INDICATORS[indicator];
+	}
+	
+	/**
+	 * Check the symbol length.
+	 * 
+	 * @return true if the message holds a symbol of 1 to {@value #MAX_SYMBOL_LENGTH} characters
+	 */
+	public boolean hasStockSymbol() {
+		int length = buffer.get(offset + SYMBOL_LENGTH);
+		return length > 0 && length <= MAX_SYMBOL_LENGTH;
+	}
+	
+	/**
+	 * Find the stock symbol in a symbol table without creating a string.
+	 * 
+	 * @param symbols
+	 * @return the symbol, <code>null</code> if the table does not hold it
+	 */
+	public String findStockSymbol(SymbolTable symbols) {
+		if (!hasStockSymbol()) {
+			return null;
+		}
+		return symbols.find(buffer, offset + SYMBOL, buffer.get(offset + SYMBOL_LENGTH));
+	}
+	
+	/**
+	 * Read the stock symbol into a new string.
+	 * 
+	 * @return the symbol, <code>null</code> if the message holds none
+	 */
+	public String getStockSymbol() {
+		if (!hasStockSymbol()) {
+			return null;
+		}
+		byte[] bytes = new byte[buffer.get(offset + SYMBOL_LENGTH)];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = buffer.get(offset + SYMBOL + i);
+		}
+		return new String(bytes, StandardCharsets.US_ASCII);
+	}
+	
+	/**
+	 * Create a trade of the message.
+	 * 
+	 * @param stockSymbol the symbol of the message, see {@link #findStockSymbol}
+	 * @return the trade
+	 */
+	public Trade toTrade(String stockSymbol) {
+		return new Trade(stockSymbol, getQuantity(), getIndicator(), 
+				BigDecimal.valueOf(getUnscaledPrice(), getPriceScale()), getExchangeTimeStamp());
+	}
+
+}
@@ -0,0 +1,105 @@
+package com.jpmorgan.stock.market.codec;
+
+import static com.jpmorgan.stock.market.codec.TradeDecoder.INDICATOR;
+import static com.jpmorgan.stock.market.codec.TradeDecoder.MAX_SYMBOL_LENGTH;
+import static com.jpmorgan.stock.market.codec.TradeDecoder.PRICE;
+import static com.jpmorgan.stock.market.codec.TradeDecoder.PRICE_SCALE;
+import static com.jpmorgan.stock.market.codec.TradeDecoder.QUANTITY;
+import static com.jpmorgan.stock.market.codec.TradeDecoder.SYMBOL;
+import static com.jpmorgan.stock.market.codec.TradeDecoder.SYMBOL_LENGTH;
+import static com.jpmorgan.stock.market.codec.TradeDecoder.TIME_STAMP;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.ZoneId;
+
+import com.jpmorgan.stock.market.domain.Trade;
+import com.jpmorgan.stock.market.domain.enums.TradeIndicator;
+
+/**
+ * Flyweight writing binary trade messages in place, in the layout read by
+ * {@link TradeDecoder}. The position and byte order of the buffer are left
+ * alone.
+ */
+public class TradeEncoder {
+	
+	private ByteBuffer buffer;
+	
+	private int offset;
+	
+	private boolean swap;
+	
+	/**
+	 * Wrap the encoder around a message.
+	 * 
+	 * @param buffer
+	 * @param offset absolute index of the first byte of the message
+	 * @return the encoder
+	 */
+	public TradeEncoder wrap(ByteBuffer buffer, int offset) {
+		this.buffer = buffer;
+		this.offset = offset;
+		this.swap = buffer.order() != ByteOrder.LITTLE_ENDIAN;
+		return this;
+	}
+	
+	/**
+	 * Write a trade given by its fields.
+	 * 
+	 * @param stockSymbol
+	 * @param exchangeTimeStamp in nanoseconds since 1970-01-01T00:00Z
+	 * @param indicator
+	 * @param quantity
+	 * @param unscaledPrice
+	 * @param priceScale
+	 * @return the encoder
+	 * @throws IllegalArgumentException if the trade does not fit into a message
+	 */
+	public TradeEncoder encode(String stockSymbol, long exchangeTimeStamp, TradeIndicator indicator, int quantity, 
+			long unscaledPrice, int priceScale) {
+		if (stockSymbol.isEmpty() || stockSymbol.length() > MAX_SYMBOL_LENGTH) {
+			throw new IllegalArgumentException("Stock symbol must have 1 to " + MAX_SYMBOL_LENGTH + " characters.");
+		}
+		if (priceScale != (byte) priceScale) {
+			throw new IllegalArgumentException("Price scale must fit into a byte.");
+		}
+		buffer.putLong(offset + TIME_STAMP, swap ? Long.reverseBytes(exchangeTimeStamp) : exchangeTimeStamp);
+		buffer.putLong(offset + PRICE, swap ? Long.reverseBytes(unscaledPrice) : unscaledPrice);
+		buffer.putInt(offset + QUANTITY, swap ? Integer.reverseBytes(quantity) : quantity);
+		buffer.put(offset + INDICATOR, (byte) indicator.ordinal());
+		buffer.put(offset + PRICE_SCALE, (byte) priceScale);
+		buffer.put(offset + SYMBOL_LENGTH, (byte) stockSymbol.length());
+		for (int i = 0; i < MAX_SYMBOL_LENGTH; i++) {
+			buffer.put(offset + SYMBOL + i, i < stockSymbol.length() ? (byte) stockSymbol.charAt(i) : 0);
+		}
+		return this;
+	}
+	
+	/**
+	 * Write a trade. Trades without an exchange time stamp are written with
+	 * their creation time stamp in the default time zone.
+	 * 
+	 * @param trade
+	 * @return the encoder
+	 * @throws IllegalArgumentException if the trade does not fit into a message
+	 */
+	public TradeEncoder encode(Trade trade) {
+		long unscaledPrice;
+		try {
+			unscaledPrice = trade.getPrice().unscaledValue().longValueExact();
+		} catch (ArithmeticException ae) {
+			throw new IllegalArgumentException("Price of a share in a trade must fit into a long unscaled.");
+		}
+		return encode(trade.getStockSymbol(), exchangeTimeStamp(trade), trade.getIndicator(), trade.getQuantity(), 
+				unscaledPrice, trade.getPrice().scale());
+	}
+	
+	private static long exchangeTimeStamp(Trade trade) {
+		if (trade.hasExchangeTimeStamp()) {
+			return trade.getExchangeTimeStamp();
+		}
+		long epochSecond = trade.getRecordCreationTimeStamp().atZone(ZoneId.systemDefault()).toEpochSecond();
+		return epochSecond * 1000000000L + trade.getRecordCreationTimeStamp().getNano();
+	}
+
+}
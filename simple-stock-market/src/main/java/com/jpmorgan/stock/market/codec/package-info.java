@@ -0,0 +1,6 @@
+// Copyright (c) 2016 JPMorgan
+
+/**
+* Binary trade message codec
+*/
+package com.jpmorgan.stock.market.codec;
\ No newline at end of file
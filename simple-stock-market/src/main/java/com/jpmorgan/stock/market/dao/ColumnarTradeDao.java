@@ -0,0 +1,59 @@
+package com.jpmorgan.stock.market.dao;
+
+import java.time.LocalDateTime;
+
+import com.jpmorgan.stock.market.domain.TradeTotals;
+import com.jpmorgan.stock.market.domain.enums.TradeIndicator;
+import com.jpmorgan.stock.market.exceptions.BusinessException;
+
+public interface ColumnarTradeDao extends TradeDao {
+	
+	/**
+	 * Add a trade given by its fields straight to the stored columns, 
+	 * without a trade object.
+	 * 
+	 * @param stockSymbol
+	 * @param timeStamp creation time stamp in nanoseconds since 1970-01-01T00:00 local time
+	 * @param unscaledPrice
+	 * @param priceScale digits after point of the unscaled price
+	 * @param quantity
+	 * @param indicator
+	 * @throws BusinessException if the stock is unknown or the price has more digits after point than stored
+	 */
+	public void add(String stockSymbol, long timeStamp, long unscaledPrice, int priceScale, int quantity, 
+			TradeIndicator indicator) throws BusinessException;
+	
+	/**
+	 * Add up trades of a stock created after <code>from</code> and not 
+	 * after <code>to</code> straight from the stored columns, without 
+	 * creating trade objects.
+	 * 
+	 * @param stockSymbol
+	 * @param from exclusive lower bound, <code>null</code> for no lower bound
+	 * @param to inclusive upper bound, <code>null</code> for no upper bound
+	 * @param totals the totals the trades are added to
+	 */
+	public void sumByStockSymbol(String stockSymbol, LocalDateTime from, LocalDateTime to, TradeTotals totals);
+	
+	/**
+	 * Get the number of digits after point prices are stored with.
+	 * 
+	 * @return the price scale
+	 */
+	public int getPriceScale();
+	
+	/**
+	 * Get the number of stored trades.
+	 * 
+	 * @return the number of rows
+	 */
+	public long getTradeCount();
+	
+	/**
+	 * Get the number of bytes held by the stored columns.
+	 * 
+	 * @return the number of bytes of all allocated columns
+	 */
+	public long getColumnBytes();
+
+}
@@ -0,0 +1,46 @@
+package com.jpmorgan.stock.market.dao;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * Trade DAO which can remove old trades of a stock in small steps.
+ */
+public interface RetainingTradeDao extends TradeDao {
+	
+	/**
+	 * Remove the oldest trades of a stock which were created not after the
+	 * cutoff or exceed the maximum number of trades.
+	 * 
+	 * @param stockSymbol
+	 * @param cutoff trades created not after it are removed, null for no age limit
+	 * @param maxTrades number of newest trades kept, 0 for no limit
+	 * @param keepAfter trades created after it are never removed, null for no such trades
+	 * @param maxSegments maximum number of storage segments touched
+	 * @return the number of removed trades
+	 */
+	public int evictByStockSymbol(String stockSymbol, LocalDateTime cutoff, int maxTrades, LocalDateTime keepAfter, 
+			int maxSegments);
+	
+	/**
+	 * Get the symbols of all stocks with stored trades.
+	 * 
+	 * @return the stock symbols
+	 */
+	public Set<String> getStockSymbols();
+	
+	/**
+	 * Get the number of stored trades.
+	 * 
+	 * @return the number of trades
+	 */
+	public long getTradeCount();
+	
+	/**
+	 * Get an estimate of the memory held by the stored trades.
+	 * 
+	 * @return the estimated number of bytes
+	 */
+	public long getEstimatedBytes();
+
+}
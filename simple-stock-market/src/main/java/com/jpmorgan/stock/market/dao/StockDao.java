@@ -1,17 +1,34 @@
-package com.jpmorgan.stock.market.dao;
-
-import java.util.Optional;
-
-import com.jpmorgan.stock.market.domain.Stock;
-
-public interface StockDao extends GenericDao<Stock> {
-	
-	/**
-	 * Find by stock symbol.
-	 * 
-	 * @param symbol
-	 * @return the {@link Optional<Stock>}
-	 */
-	Optional<Stock> findBySymbol(String symbol);
-
-}
+package com.jpmorgan.stock.market.dao;
+
+import java.util.Optional;
+
+import com.jpmorgan.stock.market.domain.Stock;
+
+public interface StockDao extends GenericDao<Stock> {
+	
+	/**
+	 * Find by stock symbol.
+	 * 
+	 * @param symbol
+	 * @return the {@link Optional<Stock>}
+	 */
+	Optional<Stock> findBySymbol(String symbol);
+	
+	/**
+	 * Find by stock id.
+	 * 
+	 * @param id
+	 * @return the {@link Optional<Stock>}
+	 */
+	Optional<Stock> findById(int id);
+	
+	/**
+	 * Get the id of a stock. Ids are dense, assigned from zero in the order 
+	 * stocks are added and never change.
+	 * 
+	 * @param symbol
+	 * @return the id or -1 if the stock is not present
+	 */
+	int getId(String symbol);
+
+}
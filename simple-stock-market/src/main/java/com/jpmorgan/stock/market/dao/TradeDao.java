@@ -1,23 +1,43 @@
-package com.jpmorgan.stock.market.dao;
-
-import java.util.List;
-
-import com.jpmorgan.stock.market.domain.Trade;
-
-public interface TradeDao extends GenericDao<Trade> {
-	
-	/**
-	 * Find trades by stock symbol.
-	 * 
-	 * @param stockSymbol
-	 * @return the {@link List<Trade>}
-	 */
-	public List<Trade> findByStockSymbol(String stockSymbol);
-	
-	/**
-	 * Clear all elements.
-	 * 
-	 */
-	public void clear();
-
-}
+package com.jpmorgan.stock.market.dao;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import com.jpmorgan.stock.market.domain.Trade;
+
+public interface TradeDao extends GenericDao<Trade> {
+	
+	/**
+	 * Add a batch of trades.
+	 * 
+	 * @param trades
+	 */
+	public void addAll(Collection<Trade> trades);
+	
+	/**
+	 * Find trades by stock symbol.
+	 * 
+	 * @param stockSymbol
+	 * @return the {@link List<Trade>}
+	 */
+	public List<Trade> findByStockSymbol(String stockSymbol);
+	
+	/**
+	 * Find trades by stock symbol recorded after <code>from</code> 
+	 * and not after <code>to</code>.
+	 * 
+	 * @param stockSymbol
+	 * @param from exclusive lower bound, <code>null</code> for no lower bound
+	 * @param to inclusive upper bound, <code>null</code> for no upper bound
+	 * @return the {@link List<Trade>} ordered by creation time stamp
+	 */
+	public List<Trade> findByStockSymbol(String stockSymbol, LocalDateTime from, LocalDateTime to);
+	
+	/**
+	 * Clear all elements.
+	 * 
+	 */
+	public void clear();
+
+}
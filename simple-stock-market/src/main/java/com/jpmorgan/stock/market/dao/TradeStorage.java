@@ -0,0 +1,10 @@
+package com.jpmorgan.stock.market.dao;
+
+public enum TradeStorage {
+
+	// Trade objects on the heap in time stamp ordered segments per stock
+	SHARDED,
+	
+	// Trade columns in direct buffers, trade messages are recorded without trade objects
+	OFF_HEAP;
+}
@@ -0,0 +1,113 @@
+package com.jpmorgan.stock.market.dao.impl;
+
+import static com.jpmorgan.stock.market.domain.enums.StockType.COMMON;
+import static com.jpmorgan.stock.market.domain.enums.StockType.PREFERRED;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.jpmorgan.stock.market.dao.StockDao;
+import com.jpmorgan.stock.market.domain.Stock;
+
+/**
+ * Stock DAO indexed by symbol. Every symbol is mapped to a dense id which
+ * is the position of the stock in a copy-on-write list, so lookups by
+ * symbol or by id are constant time and readers always see a complete
+ * snapshot while stocks are added. Adding a stock with a symbol which is
+ * already present replaces the stock under the same id. Lookups return
+ * an {@link Optional} created when the stock was added, so they do not
+ * allocate.
+ */
+public class IndexedStockDaoImpl implements StockDao {
+
+	ConcurrentMap<String, Integer> ids;
+
+	// found stocks by id, never changed once published
+	volatile List<Optional<Stock>> stocks;
+
+	// immutable view of the current stocks
+	private volatile List<Stock> snapshot;
+
+	private IndexedStockDaoImpl() {
+		ids = new ConcurrentHashMap<String, Integer>();
+		stocks = Collections.emptyList();
+		snapshot = Collections.emptyList();
+		add(new Stock("TEA", COMMON, BigDecimal.ZERO, null, new BigDecimal("1.00")));
+		add(new Stock("POP", COMMON, new BigDecimal("0.08"), null, new BigDecimal("1.00")));
+		add(new Stock("ALE", COMMON, new BigDecimal("0.23"), null, new BigDecimal("0.60")));
+		add(new Stock("GIN", PREFERRED, new BigDecimal("0.23"), new BigDecimal("0.02"), new BigDecimal("1.00")));
+		add(new Stock("JOE", COMMON, new BigDecimal("0.23"), null, new BigDecimal("2.50")));
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.dao.GenericDao#getAll()
+	 */
+	@Override
+	public List<Stock> getAll() {
+		return snapshot;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.dao.GenericDao#add(java.lang.Object)
+	 */
+	@Override
+	public synchronized void add(Stock stock) {
+		// intern the symbol so that lookups of the same symbol mostly compare references
+		String symbol = stock.getSymbol().intern();
+		Integer id = ids.get(symbol);
+		List<Optional<Stock>> newStocks = new ArrayList<Optional<Stock>>(stocks);
+		if (id == null) {
+			id = newStocks.size();
+			newStocks.add(Optional.of(stock));
+		} else {
+			newStocks.set(id, Optional.of(stock));
+		}
+		Stock[] snapshotStocks = new Stock[newStocks.size()];
+		for (int i = 0; i < snapshotStocks.length; i++) {
+			snapshotStocks[i] = newStocks.get(i).get();
+		}
+		// publish the stocks before the id, so a found id is always within them
+		stocks = newStocks;
+		snapshot = Collections.unmodifiableList(Arrays.asList(snapshotStocks));
+		ids.put(symbol, id);
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.dao.StockDao#findBySymbol(java.lang.String)
+	 */
+	@Override
+	public Optional<Stock> findBySymbol(String symbol) {
+		return findById(getId(symbol));
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.dao.StockDao#findById(int)
+	 */
+	@Override
+	public Optional<Stock> findById(int id) {
+		List<Optional<Stock>> current = stocks;
+		if (id < 0 || id >= current.size()) {
+			return Optional.empty();
+		}
+		return current.get(id);
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.dao.StockDao#getId(java.lang.String)
+	 */
+	@Override
+	public int getId(String symbol) {
+		if (symbol == null) {
+			return -1;
+		}
+		Integer id = ids.get(symbol);
+		return id == null ? -1 : id;
+	}
+
+}
@@ -0,0 +1,406 @@
+package com.jpmorgan.stock.market.dao.impl;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import com.jpmorgan.stock.market.dao.ColumnarTradeDao;
+import com.jpmorgan.stock.market.dao.StockDao;
+import com.jpmorgan.stock.market.domain.Trade;
+import com.jpmorgan.stock.market.domain.TradeTotals;
+import com.jpmorgan.stock.market.domain.enums.TradeIndicator;
+import com.jpmorgan.stock.market.engine.FixedPointArithmetic;
+import com.jpmorgan.stock.market.exceptions.BusinessException;
+
+/**
+ * Trade DAO keeping trades column-wise in direct buffers outside of the heap:
+ * stock id, price in units of 10^-priceScale, quantity, indicator and
+ * creation time stamp in epoch nanoseconds. Columns are allocated in chunks
+ * of a fixed number of rows, so a full trading day costs a handful of large
+ * buffers instead of several objects per trade.
+ * <p>
+ * Every stock keeps the row numbers of its trades in time stamp order, so 
+ * lookups and {@link #sumByStockSymbol} only touch the rows of that stock 
+ * and use a binary search for the time range. A late trade is inserted at
+ * its place in a copy of the row numbers of its stock, which costs a copy
+ * per late trade but keeps every lookup a binary search. Trade objects are 
+ * only created when trades are read through the 
+ * {@link com.jpmorgan.stock.market.dao.TradeDao} methods, their prices have 
+ * priceScale digits after point.
+ * <p>
+ * Trades are added under a lock, readers do not lock: a row becomes
+ * visible once the row count that covers it is published. Rows are never
+ * removed, trades are kept until the DAO is cleared, so the trade
+ * retention leaves them alone.
+ */
+public class OffHeapTradeDaoImpl implements ColumnarTradeDao {
+
+	static final int DEFAULT_CHUNK_ROWS = 1 << 16;
+
+	private static final TradeIndicator[] INDICATORS = TradeIndicator.values();
+
+	private final StockDao stockDao;
+
+	private final int priceScale;
+
+	private final int chunkRows;
+
+	// converts trade prices without creating big decimals or big integers
+	private final FixedPointArithmetic fixedPointArithmetic = new FixedPointArithmetic();
+
+	private volatile Chunk[] chunks;
+
+	private volatile int rowCount;
+
+	// rows of every stock indexed by stock id
+	private volatile StockRows[] stockRows;
+
+	public OffHeapTradeDaoImpl(StockDao stockDao, int priceScale) {
+		this(stockDao, priceScale, DEFAULT_CHUNK_ROWS);
+	}
+
+	public OffHeapTradeDaoImpl(StockDao stockDao, int priceScale, int chunkRows) {
+		this.stockDao = stockDao;
+		this.priceScale = priceScale;
+		this.chunkRows = chunkRows;
+		this.fixedPointArithmetic.setPriceScale(priceScale);
+		this.chunks = new Chunk[0];
+		this.stockRows = new StockRows[0];
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.dao.GenericDao#getAll()
+	 */
+	@Override
+	public List<Trade> getAll() {
+		int rows = rowCount;
+		List<Trade> trades = new ArrayList<Trade>(rows);
+		for (int row = 0; row < rows; row++) {
+			trades.add(toTrade(row));
+		}
+		return trades;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.dao.GenericDao#add(java.lang.Object)
+	 */
+	@Override
+	public synchronized void add(Trade trade) {
+		append(trade);
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.dao.ColumnarTradeDao#add(java.lang.String, long, long, int, int, com.jpmorgan.stock.market.domain.enums.TradeIndicator)
+	 */
+	@Override
+	public synchronized void add(String stockSymbol, long timeStamp, long unscaledPrice, int priceScale, int quantity, 
+			TradeIndicator indicator) throws BusinessException {
+		int stockId = stockDao.getId(stockSymbol);
+		if (stockId < 0) {
+			throw new BusinessException("A trade must be associated with a stock.");
+		}
+		long price;
+		try {
+			price = FixedPointArithmetic.rescale(unscaledPrice, priceScale, this.priceScale);
+		} catch (ArithmeticException ae) {
+			throw new BusinessException("Price of a share in a trade must have at most " + this.priceScale
+					+ " digits after point.");
+		}
+		append(stockId, price, quantity, indicator, timeStamp);
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.dao.TradeDao#addAll(java.util.Collection)
+	 */
+	@Override
+	public synchronized void addAll(Collection<Trade> trades) {
+		for (Trade trade : trades) {
+			append(trade);
+		}
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.dao.TradeDao#findByStockSymbol(java.lang.String)
+	 */
+	@Override
+	public List<Trade> findByStockSymbol(String stockSymbol) {
+		return findByStockSymbol(stockSymbol, null, null);
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.dao.TradeDao#findByStockSymbol(java.lang.String, java.time.LocalDateTime, java.time.LocalDateTime)
+	 */
+	@Override
+	public List<Trade> findByStockSymbol(String stockSymbol, LocalDateTime from, LocalDateTime to) {
+		StockRows rows = stockRows(stockSymbol);
+		if (rows == null) {
+			return Collections.emptyList();
+		}
+		long fromNanos = from == null ? Long.MIN_VALUE : toEpochNanos(from);
+		long toNanos = to == null ? Long.MAX_VALUE : toEpochNanos(to);
+		List<Trade> trades = new ArrayList<Trade>();
+		int size;
+		int[] rowNumbers;
+		int version;
+		do {
+			version = rows.version;
+			size = rows.size;
+			rowNumbers = rows.rows;
+		} while ((version & 1) != 0 || version != rows.version);
+		for (int i = firstAfter(rowNumbers, size, fromNanos); i < size; i++) {
+			long timeStamp = timeStamp(rowNumbers[i]);
+			if (timeStamp > toNanos) {
+				break;
+			}
+			trades.add(toTrade(rowNumbers[i]));
+		}
+		return trades;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.dao.ColumnarTradeDao#sumByStockSymbol(java.lang.String, java.time.LocalDateTime, java.time.LocalDateTime, com.jpmorgan.stock.market.domain.TradeTotals)
+	 */
+	@Override
+	public void sumByStockSymbol(String stockSymbol, LocalDateTime from, LocalDateTime to, TradeTotals totals) {
+		if (totals.getPriceScale() != priceScale) {
+			throw new IllegalArgumentException("Totals must have price scale " + priceScale);
+		}
+		StockRows rows = stockRows(stockSymbol);
+		if (rows == null) {
+			return;
+		}
+		long fromNanos = from == null ? Long.MIN_VALUE : toEpochNanos(from);
+		long toNanos = to == null ? Long.MAX_VALUE : toEpochNanos(to);
+		int size;
+		int[] rowNumbers;
+		int version;
+		do {
+			version = rows.version;
+			size = rows.size;
+			rowNumbers = rows.rows;
+		} while ((version & 1) != 0 || version != rows.version);
+		Chunk[] current = chunks;
+		for (int i = firstAfter(rowNumbers, size, fromNanos); i < size; i++) {
+			int row = rowNumbers[i];
+			Chunk chunk = current[row / chunkRows];
+			int offset = row % chunkRows;
+			long timeStamp = chunk.timeStamps.get(offset);
+			if (timeStamp > toNanos) {
+				break;
+			}
+			totals.add(chunk.prices.get(offset), chunk.quantities.get(offset));
+		}
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.dao.TradeDao#clear()
+	 */
+	@Override
+	public synchronized void clear() {
+		rowCount = 0;
+		stockRows = new StockRows[0];
+		chunks = new Chunk[0];
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.dao.ColumnarTradeDao#getPriceScale()
+	 */
+	@Override
+	public int getPriceScale() {
+		return priceScale;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.dao.ColumnarTradeDao#getTradeCount()
+	 */
+	@Override
+	public long getTradeCount() {
+		return rowCount;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.dao.ColumnarTradeDao#getColumnBytes()
+	 */
+	@Override
+	public long getColumnBytes() {
+		// the chunks are held outside of the heap
+		return (long) chunks.length * chunkRows * Chunk.ROW_BYTES;
+	}
+
+	private void append(Trade trade) {
+		int stockId = stockId(trade.getStockSymbol());
+		long price;
+		try {
+			price = fixedPointArithmetic.toScaled(trade.getPrice());
+		} catch (ArithmeticException ae) {
+			throw new IllegalArgumentException("Price of a share in a trade must have at most " + priceScale
+					+ " digits after point.");
+		}
+		append(stockId, price, trade.getQuantity(), trade.getIndicator(), toEpochNanos(trade.getRecordCreationTimeStamp()));
+	}
+
+	private void append(int stockId, long price, int quantity, TradeIndicator indicator, long timeStamp) {
+		int row = rowCount;
+		if (row / chunkRows == chunks.length) {
+			Chunk[] newChunks = Arrays.copyOf(chunks, chunks.length + 1);
+			newChunks[chunks.length] = new Chunk(chunkRows);
+			chunks = newChunks;
+		}
+		Chunk chunk = chunks[row / chunkRows];
+		int offset = row % chunkRows;
+		chunk.stockIds.put(offset, stockId);
+		chunk.prices.put(offset, price);
+		chunk.quantities.put(offset, quantity);
+		chunk.indicators.put(offset, (byte) indicator.ordinal());
+		chunk.timeStamps.put(offset, timeStamp);
+		// publish the row before it is referenced by the stock
+		rowCount = row + 1;
+		StockRows rows = stockRows(stockId);
+		if (timeStamp < rows.lastTimeStamp) {
+			rows.insert(row, firstAfter(rows.rows, rows.size, timeStamp));
+		} else {
+			rows.add(row, timeStamp);
+		}
+	}
+
+	private int stockId(String stockSymbol) {
+		int stockId = stockDao.getId(stockSymbol);
+		if (stockId < 0) {
+			throw new IllegalArgumentException("A trade must be associated with a stock.");
+		}
+		return stockId;
+	}
+
+	private Trade toTrade(int row) {
+		Chunk chunk = chunks[row / chunkRows];
+		int offset = row % chunkRows;
+		String stockSymbol = stockDao.findById(chunk.stockIds.get(offset)).get().getSymbol();
+		Trade trade = new Trade(stockSymbol, chunk.quantities.get(offset), INDICATORS[chunk.indicators.get(offset)],
+				BigDecimal.valueOf(chunk.prices.get(offset), priceScale));
+		trade.setRecordCreationTimeStamp(toLocalDateTime(chunk.timeStamps.get(offset)));
+		return trade;
+	}
+
+	private long timeStamp(int row) {
+		return chunks[row / chunkRows].timeStamps.get(row % chunkRows);
+	}
+
+	private int firstAfter(int[] rowNumbers, int size, long timeStamp) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (timeStamp(rowNumbers[middle]) > timeStamp) {
+				high = middle;
+			} else {
+				low = middle + 1;
+			}
+		}
+		return low;
+	}
+
+	private StockRows stockRows(String stockSymbol) {
+		int stockId = stockDao.getId(stockSymbol);
+		StockRows[] current = stockRows;
+		return stockId < 0 || stockId >= current.length ? null : current[stockId];
+	}
+
+	private StockRows stockRows(int stockId) {
+		if (stockId >= stockRows.length) {
+			stockRows = Arrays.copyOf(stockRows, Math.max(stockId + 1, stockRows.length * 2));
+		}
+		StockRows rows = stockRows[stockId];
+		if (rows == null) {
+			rows = new StockRows();
+			stockRows[stockId] = rows;
+		}
+		return rows;
+	}
+
+	static long toEpochNanos(LocalDateTime timeStamp) {
+		return timeStamp.toEpochSecond(ZoneOffset.UTC) * 1000000000L + timeStamp.getNano();
+	}
+
+	static LocalDateTime toLocalDateTime(long epochNanos) {
+		return LocalDateTime.ofEpochSecond(Math.floorDiv(epochNanos, 1000000000L),
+				(int) Math.floorMod(epochNanos, 1000000000L), ZoneOffset.UTC);
+	}
+
+	/**
+	 * Columns of a fixed number of rows in direct buffers.
+	 */
+	private static class Chunk {
+
+		static final int ROW_BYTES = 4 + 8 + 4 + 1 + 8;
+
+		final IntBuffer stockIds;
+
+		final LongBuffer prices;
+
+		final IntBuffer quantities;
+
+		final ByteBuffer indicators;
+
+		final LongBuffer timeStamps;
+
+		Chunk(int rows) {
+			stockIds = allocate(rows * 4).asIntBuffer();
+			prices = allocate(rows * 8).asLongBuffer();
+			quantities = allocate(rows * 4).asIntBuffer();
+			indicators = allocate(rows);
+			timeStamps = allocate(rows * 8).asLongBuffer();
+		}
+
+		private static ByteBuffer allocate(int bytes) {
+			return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+		}
+	}
+
+	/**
+	 * Row numbers of the trades of a single stock in time stamp order. 
+	 * Readers read the size before the rows, so an appended row is in the 
+	 * rows before the size covers it. A late trade replaces the rows by a 
+	 * copy, which readers detect by the version being odd or changed.
+	 */
+	private static class StockRows {
+
+		volatile int version;
+
+		volatile int[] rows = new int[16];
+
+		volatile int size;
+
+		long lastTimeStamp = Long.MIN_VALUE;
+
+		void add(int row, long timeStamp) {
+			if (size == rows.length) {
+				rows = Arrays.copyOf(rows, size * 2);
+			}
+			rows[size] = row;
+			lastTimeStamp = timeStamp;
+			size++;
+		}
+
+		void insert(int row, int index) {
+			int[] current = rows;
+			int[] inserted = new int[size == current.length ? size * 2 : current.length];
+			System.arraycopy(current, 0, inserted, 0, index);
+			inserted[index] = row;
+			System.arraycopy(current, index, inserted, index + 1, size - index);
+			version++;
+			rows = inserted;
+			size++;
+			version++;
+		}
+	}
+
+}
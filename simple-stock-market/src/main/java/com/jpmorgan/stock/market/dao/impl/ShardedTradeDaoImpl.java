@@ -0,0 +1,171 @@
+package com.jpmorgan.stock.market.dao.impl;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+import com.jpmorgan.stock.market.dao.RetainingTradeDao;
+import com.jpmorgan.stock.market.domain.Trade;
+
+/**
+ * Trade DAO partitioned by stock symbol. Trades of every stock are kept in
+ * time stamp ordered segments, so a lookup only touches the trades of the
+ * requested stock and a time range lookup is a binary search.
+ * <p>
+ * The DAO is safe for concurrent use. Trades of different stocks are added
+ * without contention, readers get a consistent copy of the trades of a 
+ * stock without blocking writers.
+ * <p>
+ * Views spanning stocks, getAll and the trade counts, are not atomic:
+ * stocks are copied one after another, so trades added meanwhile may be
+ * seen for one stock and missed for another.
+ */
+public class ShardedTradeDaoImpl implements RetainingTradeDao {
+
+	// rough size of a trade with its symbol shared, price, quantity and time stamp
+	static final int ESTIMATED_TRADE_BYTES = 160;
+
+	// a segment array of compressed references
+	static final int ESTIMATED_SEGMENT_BYTES = 16 + 4 * TradeSegments.SEGMENT_SIZE;
+
+	ConcurrentMap<String, TradeSegments> tradeRecords;
+
+	ShardedTradeDaoImpl() {
+		tradeRecords = new ConcurrentHashMap<String, TradeSegments>();
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.dao.GenericDao#getAll()
+	 */
+	@Override
+	public List<Trade> getAll() {
+		int size = 0;
+		for (TradeSegments segments : tradeRecords.values()) {
+			size += segments.size();
+		}
+		// every stock is copied consistently, stocks are copied one after another
+		// so the list is not a point in time view across stocks
+		List<Trade> trades = new ArrayList<Trade>(size);
+		for (TradeSegments segments : tradeRecords.values()) {
+			segments.copyTo(trades);
+		}
+		return trades;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.dao.GenericDao#add(java.lang.Object)
+	 */
+	@Override
+	public void add(Trade trade) {
+		segments(trade.getStockSymbol()).add(trade);
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.dao.TradeDao#addAll(java.util.Collection)
+	 */
+	@Override
+	public void addAll(Collection<Trade> trades) {
+		// group the trades by stock to take the lock of every stock once
+		Map<String, List<Trade>> tradesByStock = trades.stream()
+				.collect(Collectors.groupingBy(Trade::getStockSymbol));
+		for (Map.Entry<String, List<Trade>> entry : tradesByStock.entrySet()) {
+			segments(entry.getKey()).addAll(entry.getValue());
+		}
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.dao.TradeDao#findByStockSymbol(java.lang.String)
+	 */
+	@Override
+	public List<Trade> findByStockSymbol(String stockSymbol) {
+		TradeSegments segments = tradeRecords.get(stockSymbol);
+		if (segments == null) {
+			return Collections.emptyList();
+		}
+		List<Trade> trades = new ArrayList<Trade>(segments.size());
+		segments.copyTo(trades);
+		return trades;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.dao.TradeDao#findByStockSymbol(java.lang.String, java.time.LocalDateTime, java.time.LocalDateTime)
+	 */
+	@Override
+	public List<Trade> findByStockSymbol(String stockSymbol, LocalDateTime from, LocalDateTime to) {
+		TradeSegments segments = tradeRecords.get(stockSymbol);
+		if (segments == null) {
+			return Collections.emptyList();
+		}
+		return segments.find(from, to);
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.dao.TradeDao#clear()
+	 */
+	@Override
+	public void clear() {
+		tradeRecords.clear();
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.dao.RetainingTradeDao#evictByStockSymbol(java.lang.String, java.time.LocalDateTime, int, java.time.LocalDateTime, int)
+	 */
+	@Override
+	public int evictByStockSymbol(String stockSymbol, LocalDateTime cutoff, int maxTrades, LocalDateTime keepAfter, 
+			int maxSegments) {
+		TradeSegments segments = tradeRecords.get(stockSymbol);
+		if (segments == null) {
+			return 0;
+		}
+		return segments.evict(cutoff, maxTrades, keepAfter, maxSegments);
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.dao.RetainingTradeDao#getStockSymbols()
+	 */
+	@Override
+	public Set<String> getStockSymbols() {
+		return Collections.unmodifiableSet(tradeRecords.keySet());
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.dao.RetainingTradeDao#getTradeCount()
+	 */
+	@Override
+	public long getTradeCount() {
+		long count = 0;
+		for (TradeSegments segments : tradeRecords.values()) {
+			count += segments.size();
+		}
+		return count;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.dao.RetainingTradeDao#getEstimatedBytes()
+	 */
+	@Override
+	public long getEstimatedBytes() {
+		long bytes = 0;
+		for (TradeSegments segments : tradeRecords.values()) {
+			bytes += (long) segments.size() * ESTIMATED_TRADE_BYTES 
+					+ (long) segments.segmentCount() * ESTIMATED_SEGMENT_BYTES;
+		}
+		return bytes;
+	}
+
+	private TradeSegments segments(String stockSymbol) {
+		TradeSegments segments = tradeRecords.get(stockSymbol);
+		if (segments == null) {
+			segments = tradeRecords.computeIfAbsent(stockSymbol, x -> new TradeSegments());
+		}
+		return segments;
+	}
+
+}
@@ -0,0 +1,30 @@
+package com.jpmorgan.stock.market.dao.impl;
+
+import com.jpmorgan.stock.market.dao.StockDao;
+import com.jpmorgan.stock.market.dao.TradeDao;
+import com.jpmorgan.stock.market.dao.TradeStorage;
+
+/**
+ * Creates the trade DAO of the configured trade storage.
+ */
+public final class TradeDaoFactory {
+
+	private TradeDaoFactory() {
+	}
+
+	/**
+	 * Create a trade DAO.
+	 * 
+	 * @param storage
+	 * @param stockDao the stocks trades are associated with
+	 * @param priceScale digits after point of stored prices, off-heap storage only
+	 * @return the {@link TradeDao}
+	 */
+	public static TradeDao newTradeDao(TradeStorage storage, StockDao stockDao, int priceScale) {
+		if (storage == TradeStorage.OFF_HEAP) {
+			return new OffHeapTradeDaoImpl(stockDao, priceScale);
+		}
+		return new ShardedTradeDaoImpl();
+	}
+
+}
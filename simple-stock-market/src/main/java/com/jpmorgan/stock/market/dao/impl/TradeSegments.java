@@ -0,0 +1,298 @@
+package com.jpmorgan.stock.market.dao.impl;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+import com.jpmorgan.stock.market.domain.Trade;
+
+/**
+ * Trades of a single stock kept in creation time stamp order, split into
+ * fixed size segments. Trades arriving in order are appended to the last
+ * segment, late trades are inserted into the segment they belong to.
+ * <p>
+ * Writers of the same stock are serialised by a lock. Readers copy trades
+ * optimistically without taking the lock and only fall back to a read lock
+ * when a writer changed the segments while they were copying.
+ */
+class TradeSegments {
+
+	static final int SEGMENT_SIZE = 1024;
+
+	private final StampedLock lock = new StampedLock();
+
+	private final List<Segment> segments = new ArrayList<Segment>();
+
+	private volatile int size;
+
+	/**
+	 * Add a trade keeping the time stamp order.
+	 *
+	 * @param trade
+	 */
+	void add(Trade trade) {
+		long stamp = lock.writeLock();
+		try {
+			append(trade);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Add a batch of trades of this stock under a single lock.
+	 *
+	 * @param trades
+	 */
+	void addAll(List<Trade> trades) {
+		long stamp = lock.writeLock();
+		try {
+			for (int i = 0; i < trades.size(); i++) {
+				append(trades.get(i));
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	private void append(Trade trade) {
+		LocalDateTime timeStamp = trade.getRecordCreationTimeStamp();
+		Segment last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+		if (last == null || !timeStamp.isBefore(last.lastTimeStamp())) {
+			// the common case - trade is the newest one
+			if (last == null || last.isFull()) {
+				last = new Segment();
+				segments.add(last);
+			}
+			last.insert(last.size, trade);
+		} else {
+			insertLate(trade);
+		}
+		size++;
+	}
+
+	private void insertLate(Trade trade) {
+		LocalDateTime timeStamp = trade.getRecordCreationTimeStamp();
+		// first segment holding a trade newer than this one
+		int segmentIndex = firstSegmentAfter(timeStamp);
+		Segment segment = segments.get(segmentIndex);
+		int position = segment.firstAfter(timeStamp);
+		if (segment.isFull()) {
+			Segment upper = segment.split();
+			segments.add(segmentIndex + 1, upper);
+			if (position > segment.size) {
+				position -= segment.size;
+				segment = upper;
+			}
+		}
+		segment.insert(position, trade);
+	}
+
+	/**
+	 * Get trades created after <code>from</code> and not after <code>to</code>.
+	 *
+	 * @param from exclusive lower bound, <code>null</code> for no lower bound
+	 * @param to inclusive upper bound, <code>null</code> for no upper bound
+	 * @return the {@link List<Trade>}
+	 */
+	List<Trade> find(LocalDateTime from, LocalDateTime to) {
+		long stamp = lock.tryOptimisticRead();
+		if (stamp != 0) {
+			try {
+				List<Trade> result = findUnlocked(from, to);
+				if (lock.validate(stamp)) {
+					return result;
+				}
+			} catch (RuntimeException e) {
+				// segments were changed while reading, read again under the lock
+			}
+		}
+		stamp = lock.readLock();
+		try {
+			return findUnlocked(from, to);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	private List<Trade> findUnlocked(LocalDateTime from, LocalDateTime to) {
+		List<Trade> result = new ArrayList<Trade>();
+		int segmentIndex = from == null ? 0 : firstSegmentAfter(from);
+		int position = from == null || segmentIndex == segments.size() ? 0 : segments.get(segmentIndex).firstAfter(from);
+		for (; segmentIndex < segments.size(); segmentIndex++) {
+			Segment segment = segments.get(segmentIndex);
+			for (; position < segment.size; position++) {
+				Trade trade = segment.trades[position];
+				if (to != null && trade.getRecordCreationTimeStamp().isAfter(to)) {
+					return result;
+				}
+				result.add(trade);
+			}
+			position = 0;
+		}
+		return result;
+	}
+
+	/**
+	 * Copy all trades into a list.
+	 *
+	 * @param target
+	 */
+	void copyTo(List<Trade> target) {
+		int targetSize = target.size();
+		long stamp = lock.tryOptimisticRead();
+		if (stamp != 0) {
+			try {
+				copyToUnlocked(target);
+				if (lock.validate(stamp)) {
+					return;
+				}
+			} catch (RuntimeException e) {
+				// segments were changed while reading, read again under the lock
+			}
+			target.subList(targetSize, target.size()).clear();
+		}
+		stamp = lock.readLock();
+		try {
+			copyToUnlocked(target);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	private void copyToUnlocked(List<Trade> target) {
+		for (int i = 0; i < segments.size(); i++) {
+			Segment segment = segments.get(i);
+			for (int j = 0; j < segment.size; j++) {
+				target.add(segment.trades[j]);
+			}
+		}
+	}
+
+	/**
+	 * Remove the oldest trades which were created not after the cutoff or
+	 * exceed the maximum number of trades. Only the oldest segments are
+	 * touched, at most maxSegments of them, so the lock is held briefly.
+	 * Segments are kept in an array list for the binary search over them,
+	 * so the segments emptied are dropped from its head in one shift of the
+	 * remaining segment references, not one shift per segment.
+	 *
+	 * @param cutoff trades created not after it are removed, <code>null</code> for no age limit
+	 * @param maxTrades number of newest trades kept, 0 for no limit
+	 * @param keepAfter trades created after it are never removed, <code>null</code> for no such trades
+	 * @param maxSegments
+	 * @return the number of removed trades
+	 */
+	int evict(LocalDateTime cutoff, int maxTrades, LocalDateTime keepAfter, int maxSegments) {
+		long stamp = lock.writeLock();
+		try {
+			int removed = 0;
+			int dropped = 0;
+			for (int i = 0; i < maxSegments && dropped < segments.size(); i++) {
+				Segment head = segments.get(dropped);
+				int expired = cutoff == null ? 0 : head.firstAfter(cutoff);
+				int excess = maxTrades <= 0 ? 0 : Math.min(size - maxTrades, head.size);
+				if (excess > 0 && keepAfter != null) {
+					excess = Math.min(excess, head.firstAfter(keepAfter));
+				}
+				int count = Math.max(expired, excess);
+				if (count <= 0) {
+					break;
+				}
+				size -= count;
+				removed += count;
+				if (count < head.size) {
+					// trades are left in the oldest segment, so all older trades are gone
+					head.removeFirst(count);
+					break;
+				}
+				dropped++;
+			}
+			segments.subList(0, dropped).clear();
+			return removed;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	int size() {
+		return size;
+	}
+
+	int segmentCount() {
+		long stamp = lock.readLock();
+		try {
+			return segments.size();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	private int firstSegmentAfter(LocalDateTime timeStamp) {
+		int low = 0;
+		int high = segments.size();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (segments.get(middle).lastTimeStamp().isAfter(timeStamp)) {
+				high = middle;
+			} else {
+				low = middle + 1;
+			}
+		}
+		return low;
+	}
+
+	private static class Segment {
+
+		private Trade[] trades = new Trade[SEGMENT_SIZE];
+
+		private int size;
+
+		boolean isFull() {
+			return size == trades.length;
+		}
+
+		LocalDateTime lastTimeStamp() {
+			return trades[size - 1].getRecordCreationTimeStamp();
+		}
+
+		int firstAfter(LocalDateTime timeStamp) {
+			int low = 0;
+			int high = size;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (trades[middle].getRecordCreationTimeStamp().isAfter(timeStamp)) {
+					high = middle;
+				} else {
+					low = middle + 1;
+				}
+			}
+			return low;
+		}
+
+		void insert(int position, Trade trade) {
+			System.arraycopy(trades, position, trades, position + 1, size - position);
+			trades[position] = trade;
+			size++;
+		}
+
+		void removeFirst(int count) {
+			System.arraycopy(trades, count, trades, 0, size - count);
+			Arrays.fill(trades, size - count, size, null);
+			size -= count;
+		}
+
+		Segment split() {
+			Segment upper = new Segment();
+			int half = size / 2;
+			upper.size = size - half;
+			System.arraycopy(trades, half, upper.trades, 0, upper.size);
+			Arrays.fill(trades, half, size, null);
+			size = half;
+			return upper;
+		}
+	}
+
+}
@@ -1,6 +1,6 @@
-// Copyright (c) 2016 JPMorgan
-
-/**
-* Implementation of Data Access Object
-*/
+// Copyright (c) 2016 JPMorgan
+
+/**
+* Implementation of Data Access Object
+*/
 package com.jpmorgan.stock.market.dao.impl;
\ No newline at end of file
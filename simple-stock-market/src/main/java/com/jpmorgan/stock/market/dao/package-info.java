@@ -1,6 +1,6 @@
-// Copyright (c) 2016 JPMorgan
-
-/**
-* Data Access Object
-*/
+// Copyright (c) 2016 JPMorgan
+
+/**
+* Data Access Object
+*/
 package com.jpmorgan.stock.market.dao;
\ No newline at end of file
@@ -0,0 +1,77 @@
+package com.jpmorgan.stock.market.domain;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Partial aggregate of the GBCE All Share Index: the sum of the logarithms
+ * of the Volume Weighted Stock Prices of a set of traded stocks, their 
+ * number and the number of them whose price rounds to zero, which makes the
+ * index zero. Aggregates of disjoint sets of stocks are merged by adding them 
+ * up, so the index of all stocks is found without their trades.
+ */
+public final class IndexAggregate {
+	
+	public static final IndexAggregate EMPTY = new IndexAggregate(0, 0, 0);
+	
+	private final double logSum;
+	
+	private final int pricedStocks;
+	
+	private final int zeroPricedStocks;
+	
+	/**
+	 * @param logSum sum of the logarithms of the prices which are not zero
+	 * @param pricedStocks number of traded stocks, including the ones priced zero
+	 * @param zeroPricedStocks number of traded stocks whose price rounds to zero
+	 */
+	public IndexAggregate(double logSum, int pricedStocks, int zeroPricedStocks) {
+		this.logSum = logSum;
+		this.pricedStocks = pricedStocks;
+		this.zeroPricedStocks = zeroPricedStocks;
+	}
+	
+	/**
+	 * Merge with the aggregate of a disjoint set of stocks.
+	 * 
+	 * @param other
+	 * @return the aggregate of both sets
+	 */
+	public IndexAggregate merge(IndexAggregate other) {
+		return new IndexAggregate(logSum + other.logSum, pricedStocks + other.pricedStocks, 
+				zeroPricedStocks + other.zeroPricedStocks);
+	}
+	
+	/**
+	 * Get the All Share Index, the geometric mean of the prices.
+	 * 
+	 * @param digitsAfterPoint
+	 * @return the index, zero if no stock was traded or a price rounds to zero
+	 */
+	public BigDecimal getAllShareIndex(int digitsAfterPoint) {
+		if (pricedStocks == 0) {
+			return BigDecimal.ZERO;
+		}
+		double geometricMean = zeroPricedStocks > 0 ? 0 : Math.exp(logSum / pricedStocks);
+		return BigDecimal.valueOf(geometricMean).setScale(digitsAfterPoint, RoundingMode.HALF_UP);
+	}
+	
+	public double getLogSum() {
+		return logSum;
+	}
+	
+	public int getPricedStocks() {
+		return pricedStocks;
+	}
+	
+	public int getZeroPricedStocks() {
+		return zeroPricedStocks;
+	}
+	
+	@Override
+	public String toString() {
+		return "IndexAggregate [logSum=" + logSum + ", pricedStocks=" + pricedStocks + ", zeroPricedStocks=" 
+				+ zeroPricedStocks + "]";
+	}
+
+}
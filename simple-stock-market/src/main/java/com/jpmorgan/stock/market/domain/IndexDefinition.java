@@ -0,0 +1,56 @@
+package com.jpmorgan.stock.market.domain;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.jpmorgan.stock.market.domain.enums.StockType;
+
+/**
+ * Definition of a basket index, the weighted geometric mean of the Volume 
+ * Weighted Stock Prices of its stocks. The stocks are either listed with 
+ * their weights or are all stocks of a type, weighted equally.
+ */
+public class IndexDefinition {
+	
+	private String name;
+	
+	private Map<String, BigDecimal> weights;
+	
+	private StockType stockType;
+	
+	public IndexDefinition(String name, Map<String, BigDecimal> weights) {
+		this.name = name;
+		this.weights = Collections.unmodifiableMap(new LinkedHashMap<String, BigDecimal>(weights));
+	}
+	
+	public IndexDefinition(String name, StockType stockType) {
+		this.name = name;
+		this.weights = Collections.emptyMap();
+		this.stockType = stockType;
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	/**
+	 * Get the listed stocks.
+	 * 
+	 * @return the weights by stock symbol, empty for an index of a stock type
+	 */
+	public Map<String, BigDecimal> getWeights() {
+		return weights;
+	}
+	
+	/**
+	 * Get the type of the stocks of the index.
+	 * 
+	 * @return the stock type, <code>null</code> for an index of listed stocks
+	 */
+	public StockType getStockType() {
+		return stockType;
+	}
+
+}
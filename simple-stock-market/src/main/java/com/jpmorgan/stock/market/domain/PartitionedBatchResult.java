@@ -0,0 +1,86 @@
+package com.jpmorgan.stock.market.domain;
+
+import java.util.Arrays;
+
+/**
+ * Result of a batch of trades recorded on the nodes of a partitioned
+ * market: the trades rejected before they were sent and, per partition,
+ * the trades its node rejected or why the node failed. Trades sent to a
+ * failed node before it failed may have been recorded.
+ */
+public final class PartitionedBatchResult {
+
+	private final int invalidTrades;
+
+	private final int[] rejectedTrades;
+
+	private final String[] failures;
+
+	/**
+	 * @param invalidTrades number of trades rejected before they were sent
+	 * @param rejectedTrades number of trades rejected by the node of every partition
+	 * @param failures why the node of every partition failed, <code>null</code> if it did not
+	 */
+	public PartitionedBatchResult(int invalidTrades, int[] rejectedTrades, String[] failures) {
+		this.invalidTrades = invalidTrades;
+		this.rejectedTrades = rejectedTrades.clone();
+		this.failures = failures.clone();
+	}
+
+	/**
+	 * Get the number of all rejected trades, the invalid ones and the ones
+	 * rejected by the nodes.
+	 *
+	 * @return the number of rejected trades
+	 */
+	public int getRejectedTrades() {
+		int rejected = invalidTrades;
+		for (int partitionRejected : rejectedTrades) {
+			rejected += partitionRejected;
+		}
+		return rejected;
+	}
+
+	public int getInvalidTrades() {
+		return invalidTrades;
+	}
+
+	public int getPartitions() {
+		return rejectedTrades.length;
+	}
+
+	public int getRejectedTrades(int partition) {
+		return rejectedTrades[partition];
+	}
+
+	/**
+	 * Get why the node of a partition failed.
+	 *
+	 * @param partition
+	 * @return the reason, <code>null</code> if the node did not fail
+	 */
+	public String getFailure(int partition) {
+		return failures[partition];
+	}
+
+	/**
+	 * Check whether every node the batch was sent to answered.
+	 *
+	 * @return true if no node failed
+	 */
+	public boolean isComplete() {
+		for (String failure : failures) {
+			if (failure != null) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "PartitionedBatchResult [invalidTrades=" + invalidTrades + ", rejectedTrades="
+				+ Arrays.toString(rejectedTrades) + ", failures=" + Arrays.toString(failures) + "]";
+	}
+
+}
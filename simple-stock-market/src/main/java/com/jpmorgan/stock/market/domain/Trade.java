@@ -1,56 +1,98 @@
-package com.jpmorgan.stock.market.domain;
-
-import java.math.BigDecimal;
-import java.time.LocalDateTime;
-
-import com.jpmorgan.stock.market.domain.enums.TradeIndicator;
-
-public class Trade {
-	
-	private String stockSymbol;
-	
-	private Integer quantity;
-	
-	private TradeIndicator indicator;
-	
-	private BigDecimal price;
-	
-	private LocalDateTime recordCreationTimeStamp;
-
-	@SuppressWarnings("unused")
-	private Trade() {
-	}
-	
-	public Trade(String stockSymbol, Integer quantity, TradeIndicator indicator, BigDecimal price) {
-		this.stockSymbol = stockSymbol;
-		this.quantity = quantity;
-		this.indicator = indicator;
-		this.price = price;
-		this.recordCreationTimeStamp = LocalDateTime.now();
-	}
-	
-	public String getStockSymbol() {
-		return stockSymbol;
-	}
-
-	public Integer getQuantity() {
-		return quantity;
-	}
-
-	public TradeIndicator getIndicator() {
-		return indicator;
-	}
-	
-	public BigDecimal getPrice() {
-		return price;
-	}
-
-	public LocalDateTime getRecordCreationTimeStamp() {
-		return recordCreationTimeStamp;
-	}
-	
-	public void setRecordCreationTimeStamp(LocalDateTime recordCreationTimeStamp) {
-		this.recordCreationTimeStamp = recordCreationTimeStamp;
-	}
-
-}
+package com.jpmorgan.stock.market.domain;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import com.jpmorgan.stock.market.clock.LocalTimeStamps;
+import com.jpmorgan.stock.market.domain.enums.TradeIndicator;
+
+public class Trade {
+	
+	public static final long NO_EXCHANGE_TIME_STAMP = Long.MIN_VALUE;
+	
+	private String stockSymbol;
+	
+	private Integer quantity;
+	
+	private TradeIndicator indicator;
+	
+	private BigDecimal price;
+	
+	private LocalDateTime recordCreationTimeStamp;
+	
+	private long exchangeTimeStamp = NO_EXCHANGE_TIME_STAMP;
+
+	@SuppressWarnings("unused")
+	private Trade() {
+	}
+	
+	public Trade(String stockSymbol, Integer quantity, TradeIndicator indicator, BigDecimal price) {
+		this.stockSymbol = stockSymbol;
+		this.quantity = quantity;
+		this.indicator = indicator;
+		this.price = price;
+		this.recordCreationTimeStamp = LocalDateTime.now();
+	}
+	
+	public Trade(String stockSymbol, Integer quantity, TradeIndicator indicator, BigDecimal price, 
+			LocalDateTime recordCreationTimeStamp) {
+		this.stockSymbol = stockSymbol;
+		this.quantity = quantity;
+		this.indicator = indicator;
+		this.price = price;
+		this.recordCreationTimeStamp = recordCreationTimeStamp;
+	}
+	
+	/**
+	 * Create an event time trade, stamped with the time it was executed at
+	 * the exchange instead of the time it is created.
+	 * 
+	 * @param stockSymbol
+	 * @param quantity
+	 * @param indicator
+	 * @param price
+	 * @param exchangeTimeStamp nanoseconds since 1970-01-01T00:00Z
+	 */
+	public Trade(String stockSymbol, Integer quantity, TradeIndicator indicator, BigDecimal price, 
+			long exchangeTimeStamp) {
+		this.stockSymbol = stockSymbol;
+		this.quantity = quantity;
+		this.indicator = indicator;
+		this.price = price;
+		this.exchangeTimeStamp = exchangeTimeStamp;
+		this.recordCreationTimeStamp = LocalTimeStamps.toLocalDateTime(LocalTimeStamps.toLocalEpochNanos(exchangeTimeStamp));
+	}
+	
+	public String getStockSymbol() {
+		return stockSymbol;
+	}
+
+	public Integer getQuantity() {
+		return quantity;
+	}
+
+	public TradeIndicator getIndicator() {
+		return indicator;
+	}
+	
+	public BigDecimal getPrice() {
+		return price;
+	}
+
+	public LocalDateTime getRecordCreationTimeStamp() {
+		return recordCreationTimeStamp;
+	}
+	
+	public long getExchangeTimeStamp() {
+		return exchangeTimeStamp;
+	}
+	
+	public boolean hasExchangeTimeStamp() {
+		return exchangeTimeStamp != NO_EXCHANGE_TIME_STAMP;
+	}
+	
+	public void setRecordCreationTimeStamp(LocalDateTime recordCreationTimeStamp) {
+		this.recordCreationTimeStamp = recordCreationTimeStamp;
+	}
+
+}
@@ -0,0 +1,29 @@
+package com.jpmorgan.stock.market.domain;
+
+public class TradeRejection {
+	
+	private Trade trade;
+	
+	private int position;
+	
+	private String reason;
+	
+	public TradeRejection(Trade trade, int position, String reason) {
+		this.trade = trade;
+		this.position = position;
+		this.reason = reason;
+	}
+	
+	public Trade getTrade() {
+		return trade;
+	}
+	
+	public int getPosition() {
+		return position;
+	}
+	
+	public String getReason() {
+		return reason;
+	}
+
+}
@@ -0,0 +1,62 @@
+package com.jpmorgan.stock.market.domain;
+
+import java.math.BigDecimal;
+
+/**
+ * Mutable totals of a set of trades. Traded price is kept as a number of
+ * units of 10^-priceScale, so adding trades up does not allocate.
+ */
+public class TradeTotals {
+	
+	private long scaledTotalTradedPrice;
+	
+	private int priceScale;
+	
+	private long totalQuantity;
+	
+	private int tradeCount;
+	
+	public TradeTotals(int priceScale) {
+		this.priceScale = priceScale;
+	}
+	
+	/**
+	 * Add a trade to the totals.
+	 * 
+	 * @param scaledPrice price in units of 10^-priceScale
+	 * @param quantity
+	 * @throws ArithmeticException if the total traded price overflows
+	 */
+	public void add(long scaledPrice, int quantity) {
+		scaledTotalTradedPrice = Math.addExact(scaledTotalTradedPrice, Math.multiplyExact(scaledPrice, quantity));
+		totalQuantity += quantity;
+		tradeCount++;
+	}
+	
+	public void clear() {
+		scaledTotalTradedPrice = 0;
+		totalQuantity = 0;
+		tradeCount = 0;
+	}
+	
+	public long getScaledTotalTradedPrice() {
+		return scaledTotalTradedPrice;
+	}
+	
+	public BigDecimal getTotalTradedPrice() {
+		return BigDecimal.valueOf(scaledTotalTradedPrice, priceScale);
+	}
+	
+	public int getPriceScale() {
+		return priceScale;
+	}
+	
+	public long getTotalQuantity() {
+		return totalQuantity;
+	}
+	
+	public int getTradeCount() {
+		return tradeCount;
+	}
+
+}
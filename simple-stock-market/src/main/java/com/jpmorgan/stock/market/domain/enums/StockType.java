@@ -1,10 +1,10 @@
-package com.jpmorgan.stock.market.domain.enums;
-
-public enum StockType {
-
-	// Common stock type
-	COMMON,
-	
-	// Preferred stock type
-	PREFERRED;
-}
+package com.jpmorgan.stock.market.domain.enums;
+
+public enum StockType {
+
+	// Common stock type
+	COMMON,
+	
+	// Preferred stock type
+	PREFERRED;
+}
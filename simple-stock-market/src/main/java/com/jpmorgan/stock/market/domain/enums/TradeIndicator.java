@@ -1,10 +1,10 @@
-package com.jpmorgan.stock.market.domain.enums;
-
-public enum TradeIndicator {
-
-	// Buy trade indicator
-	BUY,
-	
-	// Sell trade indicator
-	SELL;
-}
+package com.jpmorgan.stock.market.domain.enums;
+
+public enum TradeIndicator {
+
+	// Buy trade indicator
+	BUY,
+	
+	// Sell trade indicator
+	SELL;
+}
@@ -1,6 +1,6 @@
-// Copyright (c) 2016 JPMorgan
-
-/**
-* Enums
-*/
+// Copyright (c) 2016 JPMorgan
+
+/**
+* Enums
+*/
 package com.jpmorgan.stock.market.domain.enums;
\ No newline at end of file
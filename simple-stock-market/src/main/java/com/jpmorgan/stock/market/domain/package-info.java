@@ -1,6 +1,6 @@
-// Copyright (c) 2016 JPMorgan
-
-/**
-* Domain model
-*/
+// Copyright (c) 2016 JPMorgan
+
+/**
+* Domain model
+*/
 package com.jpmorgan.stock.market.domain;
\ No newline at end of file
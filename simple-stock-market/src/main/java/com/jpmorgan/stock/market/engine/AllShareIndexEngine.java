@@ -0,0 +1,78 @@
+package com.jpmorgan.stock.market.engine;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Collection;
+
+import com.jpmorgan.stock.market.domain.IndexAggregate;
+import com.jpmorgan.stock.market.domain.Trade;
+
+public interface AllShareIndexEngine {
+
+	/**
+	 * Account a recorded trade.
+	 *
+	 * @param trade
+	 */
+	public void onTrade(Trade trade);
+
+	/**
+	 * Account a recorded trade given by its fields, without a trade object.
+	 *
+	 * @param stockSymbol
+	 * @param timeStamp creation time stamp in nanoseconds since 1970-01-01T00:00 local time
+	 * @param unscaledPrice
+	 * @param priceScale digits after point of the unscaled price
+	 * @param quantity
+	 */
+	public void onTrade(String stockSymbol, long timeStamp, long unscaledPrice, int priceScale, int quantity);
+
+	/**
+	 * Account a batch of recorded trades.
+	 *
+	 * @param trades
+	 */
+	public void onTrades(Collection<Trade> trades);
+
+	/**
+	 * Get GBCE All Share Index, the geometric mean of the Volume Weighted 
+	 * Stock Price of all traded stocks.
+	 *
+	 * @return the All Share Index, zero if no stock was traded
+	 */
+	public BigDecimal getAllShareIndex();
+
+	/**
+	 * Get the partial aggregate of the index over the stocks of this engine,
+	 * to be merged with the aggregates of engines holding other stocks.
+	 *
+	 * @return the log sum and number of the traded stocks
+	 */
+	public IndexAggregate getIndexAggregate();
+
+	/**
+	 * Write the accounted trades in a binary form, so the engine can be
+	 * restored without the trades.
+	 *
+	 * @param out
+	 * @throws IOException
+	 */
+	public void writeState(DataOutput out) throws IOException;
+
+	/**
+	 * Replace the accounted trades with the ones written by {@link #writeState}.
+	 *
+	 * @param in
+	 * @throws IOException if the state cannot be read or was written with a different arithmetic
+	 */
+	public void readState(DataInput in) throws IOException;
+
+	/**
+	 * Clear all accounted trades.
+	 *
+	 */
+	public void clear();
+
+}
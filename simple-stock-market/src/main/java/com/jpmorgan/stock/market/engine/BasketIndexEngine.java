@@ -0,0 +1,57 @@
+package com.jpmorgan.stock.market.engine;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import com.jpmorgan.stock.market.domain.IndexDefinition;
+
+public interface BasketIndexEngine {
+
+	/**
+	 * Register an index, starting from the current prices of its stocks.
+	 *
+	 * @param definition
+	 * @throws IllegalArgumentException if the name is taken or a stock or weight is invalid
+	 */
+	public void register(IndexDefinition definition);
+
+	/**
+	 * Remove an index.
+	 *
+	 * @param name
+	 * @return false if no index has the name
+	 */
+	public boolean unregister(String name);
+
+	/**
+	 * Get the names of the registered indices.
+	 *
+	 * @return the names in registration order
+	 */
+	public List<String> getIndexNames();
+
+	/**
+	 * Get an index, the weighted geometric mean of the prices of its traded
+	 * stocks.
+	 *
+	 * @param name
+	 * @return the index, zero if none of its stocks was traded, <code>null</code> if no index has the name
+	 */
+	public BigDecimal getIndex(String name);
+
+	/**
+	 * Account a changed Volume Weighted Stock Price, only the indices of
+	 * the stock are updated.
+	 *
+	 * @param stockSymbol
+	 * @param stockPrice the price, zero if the stock has no price
+	 */
+	public void onStockPrice(String stockSymbol, double stockPrice);
+
+	/**
+	 * Clear all stock prices, the indices stay registered.
+	 *
+	 */
+	public void clear();
+
+}
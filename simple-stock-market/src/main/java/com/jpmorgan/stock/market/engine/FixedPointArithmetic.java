@@ -0,0 +1,215 @@
+package com.jpmorgan.stock.market.engine;
+
+import java.math.BigDecimal;
+
+import com.jpmorgan.stock.market.domain.Stock;
+
+/**
+ * Price arithmetic on scaled longs. Prices are held as a number of units of
+ * 10^-priceScale, calculated results as a number of units of
+ * 10^-digitsAfterPoint, and every division is rounded half up, so results
+ * equal the ones calculated with {@link BigDecimal} under
+ * {@link java.math.RoundingMode#HALF_UP}. All operations check for overflow
+ * and throw {@link ArithmeticException} instead of wrapping around.
+ */
+public class FixedPointArithmetic {
+
+	private static final long[] POWERS_OF_TEN = new long[19];
+
+	// every unscaled value of at most that many digits is exact as double
+	private static final int MAX_EXACT_DOUBLE_DIGITS = 15;
+
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+		}
+	}
+
+	private boolean enabled;
+
+	private int priceScale = 4;
+
+	private int digitsAfterPoint;
+
+	/**
+	 * Convert a price to a number of units of 10^-priceScale.
+	 *
+	 * @param price
+	 * @return the scaled price
+	 * @throws ArithmeticException if the price has more digits after point or does not fit
+	 */
+	public long toScaled(BigDecimal price) {
+		int scale = price.scale();
+		if (scale >= 0 && scale <= priceScale && price.precision() <= MAX_EXACT_DOUBLE_DIGITS) {
+			// recover the unscaled value from the double, which unlike unscaledValue() does not allocate
+			long unscaled = Math.round(price.doubleValue() * POWERS_OF_TEN[scale]);
+			return Math.multiplyExact(unscaled, powerOfTen(priceScale - scale));
+		}
+		return price.setScale(priceScale).unscaledValue().longValueExact();
+	}
+
+	/**
+	 * Convert an unscaled price to a number of units of 10^-priceScale.
+	 *
+	 * @param unscaledPrice
+	 * @param scale digits after point of the unscaled price
+	 * @return the scaled price
+	 * @throws ArithmeticException if the price has more digits after point or does not fit
+	 */
+	public long toScaled(long unscaledPrice, int scale) {
+		return rescale(unscaledPrice, scale, priceScale);
+	}
+
+	/**
+	 * Convert an unscaled value to another scale without rounding.
+	 *
+	 * @param unscaledValue
+	 * @param scale digits after point of the unscaled value
+	 * @param newScale
+	 * @return the value in units of 10^-newScale
+	 * @throws ArithmeticException if the value has more digits after point or does not fit
+	 */
+	public static long rescale(long unscaledValue, int scale, int newScale) {
+		if (scale <= newScale) {
+			return Math.multiplyExact(unscaledValue, powerOfTen(newScale - scale));
+		}
+		long divisor = powerOfTen(scale - newScale);
+		if (unscaledValue % divisor != 0) {
+			throw new ArithmeticException("Rounding necessary");
+		}
+		return unscaledValue / divisor;
+	}
+
+	/**
+	 * Calculate the traded price of a trade.
+	 *
+	 * @param scaledPrice
+	 * @param quantity
+	 * @return the scaled traded price
+	 */
+	public long tradedPrice(long scaledPrice, int quantity) {
+		return Math.multiplyExact(scaledPrice, quantity);
+	}
+
+	/**
+	 * Calculate the Volume Weighted Stock Price as a number of units of 10^-digitsAfterPoint.
+	 *
+	 * @param totalTradedPrice scaled total traded price
+	 * @param totalQuantity
+	 * @return the stock price in units of 10^-digitsAfterPoint
+	 */
+	public long volumeWeightedStockPrice(long totalTradedPrice, long totalQuantity) {
+		if (digitsAfterPoint >= priceScale) {
+			return divideHalfUp(Math.multiplyExact(totalTradedPrice, powerOfTen(digitsAfterPoint - priceScale)), totalQuantity);
+		}
+		return divideHalfUp(totalTradedPrice, Math.multiplyExact(totalQuantity, powerOfTen(priceScale - digitsAfterPoint)));
+	}
+
+	/**
+	 * Calculate the dividend yield as a number of units of 10^-digitsAfterPoint.
+	 *
+	 * @param stock
+	 * @param price
+	 * @return the dividend yield in units of 10^-digitsAfterPoint
+	 * @throws ArithmeticException if a value cannot be held as a scaled long
+	 */
+	public long dividendYield(Stock stock, BigDecimal price) {
+		long scaledPrice = toScaled(price);
+		switch (stock.getType()) {
+			case COMMON:
+				return divideHalfUp(Math.multiplyExact(toScaled(stock.getLastDividend()), powerOfTen(digitsAfterPoint)),
+						scaledPrice);
+			case PREFERRED:
+				// fixed dividend times par value is scaled twice
+				long dividend = Math.multiplyExact(toScaled(stock.getFixedDividend()), toScaled(stock.getParValue()));
+				return divideHalfUp(Math.multiplyExact(dividend, powerOfTen(digitsAfterPoint)),
+						Math.multiplyExact(scaledPrice, powerOfTen(priceScale)));
+			default:
+				throw new RuntimeException("Unknown stock type");
+		}
+	}
+
+	/**
+	 * Calculate the Price-Earnings Ratio as a number of units of 10^-digitsAfterPoint.
+	 *
+	 * @param price
+	 * @param dividend in units of 10^-digitsAfterPoint, greater than zero
+	 * @return the P/E Ratio in units of 10^-digitsAfterPoint
+	 * @throws ArithmeticException if the ratio has more digits after point or does not fit
+	 */
+	public long priceEarningsRatio(BigDecimal price, long dividend) {
+		long numerator = Math.multiplyExact(toScaled(price), powerOfTen(2 * digitsAfterPoint));
+		long denominator = Math.multiplyExact(dividend, powerOfTen(priceScale));
+		if (numerator % denominator != 0) {
+			throw new ArithmeticException("Rounding necessary");
+		}
+		return numerator / denominator;
+	}
+
+	/**
+	 * Convert a number of units of 10^-digitsAfterPoint to {@link BigDecimal}.
+	 *
+	 * @param value
+	 * @return the value with digitsAfterPoint scale
+	 */
+	public BigDecimal toBigDecimal(long value) {
+		return BigDecimal.valueOf(value, digitsAfterPoint);
+	}
+
+	/**
+	 * Convert a number of units of 10^-digitsAfterPoint to double.
+	 *
+	 * @param value
+	 * @return the nearest double
+	 */
+	public double toDouble(long value) {
+		return (double) value / powerOfTen(digitsAfterPoint);
+	}
+
+	/**
+	 * Divide rounding half up, away from zero on a tie.
+	 *
+	 * @param dividend
+	 * @param divisor
+	 * @return the rounded quotient
+	 */
+	public static long divideHalfUp(long dividend, long divisor) {
+		long quotient = dividend / divisor;
+		long remainder = Math.abs(dividend % divisor);
+		long absoluteDivisor = Math.abs(divisor);
+		if (remainder >= absoluteDivisor - remainder) {
+			// round away from zero
+			quotient += (dividend ^ divisor) < 0 ? -1 : 1;
+		}
+		return quotient;
+	}
+
+	private static long powerOfTen(int exponent) {
+		if (exponent >= POWERS_OF_TEN.length) {
+			throw new ArithmeticException("long overflow");
+		}
+		return POWERS_OF_TEN[exponent];
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public int getPriceScale() {
+		return priceScale;
+	}
+
+	public void setPriceScale(int priceScale) {
+		this.priceScale = priceScale;
+	}
+
+	public void setDigitsAfterPoint(int digitsAfterPoint) {
+		this.digitsAfterPoint = digitsAfterPoint;
+	}
+
+}
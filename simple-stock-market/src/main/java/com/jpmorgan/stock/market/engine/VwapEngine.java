@@ -0,0 +1,89 @@
+package com.jpmorgan.stock.market.engine;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collection;
+
+import com.jpmorgan.stock.market.domain.Trade;
+
+public interface VwapEngine {
+
+	/**
+	 * Account a recorded trade.
+	 *
+	 * @param trade
+	 */
+	public void onTrade(Trade trade);
+
+	/**
+	 * Account a recorded trade given by its fields, without a trade object.
+	 *
+	 * @param stockSymbol
+	 * @param timeStamp creation time stamp in nanoseconds since 1970-01-01T00:00 local time
+	 * @param unscaledPrice
+	 * @param priceScale digits after point of the unscaled price
+	 * @param quantity
+	 */
+	public void onTrade(String stockSymbol, long timeStamp, long unscaledPrice, int priceScale, int quantity);
+
+	/**
+	 * Account a batch of recorded trades.
+	 *
+	 * @param trades
+	 */
+	public void onTrades(Collection<Trade> trades);
+
+	/**
+	 * Get the Volume Weighted Stock Price of trades in the window.
+	 *
+	 * @param stockSymbol
+	 * @return the stock price, zero if there are no trades in the window
+	 */
+	public BigDecimal getVolumeWeightedStockPrice(String stockSymbol);
+
+	/**
+	 * Get the Volume Weighted Stock Price of trades in a past time period
+	 * ending now. The period may be summed up in coarser units than the 
+	 * window.
+	 *
+	 * @param stockSymbol
+	 * @param pastTime not longer than {@link #getLongestPastTime()}
+	 * @return the stock price, zero if there are no trades in the period
+	 * @throws IllegalArgumentException if the period is longer than the engine keeps trades
+	 */
+	public BigDecimal getVolumeWeightedStockPrice(String stockSymbol, Duration pastTime);
+
+	/**
+	 * Get the longest past time period the engine keeps trades for.
+	 *
+	 * @return the longest period a stock price can be calculated over
+	 */
+	public Duration getLongestPastTime();
+
+	/**
+	 * Write the accounted trades in a binary form, so the engine can be
+	 * restored without the trades.
+	 *
+	 * @param out
+	 * @throws IOException
+	 */
+	public void writeState(DataOutput out) throws IOException;
+
+	/**
+	 * Replace the accounted trades with the ones written by {@link #writeState}.
+	 *
+	 * @param in
+	 * @throws IOException if the state cannot be read or was written with a different arithmetic
+	 */
+	public void readState(DataInput in) throws IOException;
+
+	/**
+	 * Clear all accounted trades.
+	 *
+	 */
+	public void clear();
+
+}
@@ -0,0 +1,38 @@
+package com.jpmorgan.stock.market.engine.impl;
+
+/**
+ * Neumaier compensated summation, keeps the sum exact to a few ulps
+ * even though values are added and removed many times.
+ */
+class CompensatedSum {
+
+	double sum;
+
+	double compensation;
+
+	void add(double value) {
+		double newSum = sum + value;
+		compensation += error(sum, value, newSum);
+		sum = newSum;
+	}
+
+	double get() {
+		return sum + compensation;
+	}
+
+	/**
+	 * Get the rounding error of adding a value to a sum.
+	 */
+	static double error(double sum, double value, double newSum) {
+		if (Math.abs(sum) >= Math.abs(value)) {
+			return (sum - newSum) + value;
+		}
+		return (value - newSum) + sum;
+	}
+
+	void clear() {
+		sum = 0;
+		compensation = 0;
+	}
+
+}
@@ -0,0 +1,403 @@
+package com.jpmorgan.stock.market.engine.impl;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import com.jpmorgan.stock.market.domain.IndexAggregate;
+import com.jpmorgan.stock.market.domain.Trade;
+import com.jpmorgan.stock.market.engine.AllShareIndexEngine;
+import com.jpmorgan.stock.market.engine.BasketIndexEngine;
+import com.jpmorgan.stock.market.engine.FixedPointArithmetic;
+
+/**
+ * GBCE All Share Index maintained on every trade. The index is the geometric
+ * mean of the Volume Weighted Stock Prices, so it is kept as a compensated
+ * sum of the logarithms of the prices: a trade replaces the logarithm of the
+ * price of its stock and reading the index is a single exponentiation.
+ * <p>
+ * Stocks are spread over lock stripes, each keeping the sum of its own
+ * stocks, so trades of stocks in different stripes do not contend. Reading
+ * the index adds up the stripes. A traded stock whose price rounds to zero
+ * has no logarithm, it is counted apart and, like in the geometric mean of
+ * the trade history, makes the index zero. With {@link FixedPointArithmetic} enabled
+ * the totals of the stocks are scaled longs. Every changed price of a stock
+ * is passed on to the {@link BasketIndexEngine}, if one is set.
+ */
+public class IncrementalAllShareIndexEngine implements AllShareIndexEngine {
+
+	// the sum is recalculated from scratch after that many updates to drop rounding residue
+	static final int RECALCULATION_INTERVAL = 1 << 16;
+
+	static final int STRIPES = 64;
+
+	private final Stripe[] stripes = new Stripe[STRIPES];
+
+	private int digitsAfterPoint;
+
+	private FixedPointArithmetic fixedPointArithmetic;
+
+	// last calculated index, returned again while the geometric mean does not change
+	private volatile CachedIndex cachedIndex;
+
+	private BasketIndexEngine basketIndexEngine;
+
+	public IncrementalAllShareIndexEngine() {
+		for (int i = 0; i < stripes.length; i++) {
+			stripes[i] = new Stripe();
+		}
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.engine.AllShareIndexEngine#onTrade(com.jpmorgan.stock.market.domain.Trade)
+	 */
+	@Override
+	public void onTrade(Trade trade) {
+		Stripe stripe = stripe(trade.getStockSymbol());
+		synchronized (stripe) {
+			StockTotals totals = stripe.totals(trade.getStockSymbol());
+			FixedPointArithmetic arithmetic = fixedPointArithmetic();
+			totals.add(trade, arithmetic);
+			reprice(stripe, trade.getStockSymbol(), totals, arithmetic);
+		}
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.engine.AllShareIndexEngine#onTrade(java.lang.String, long, long, int, int)
+	 */
+	@Override
+	public void onTrade(String stockSymbol, long timeStamp, long unscaledPrice, int priceScale, int quantity) {
+		Stripe stripe = stripe(stockSymbol);
+		synchronized (stripe) {
+			StockTotals totals = stripe.totals(stockSymbol);
+			FixedPointArithmetic arithmetic = fixedPointArithmetic();
+			totals.add(unscaledPrice, priceScale, quantity, arithmetic);
+			reprice(stripe, stockSymbol, totals, arithmetic);
+		}
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.engine.AllShareIndexEngine#onTrades(java.util.Collection)
+	 */
+	@Override
+	public void onTrades(Collection<Trade> trades) {
+		Map<String, List<Trade>> tradesByStock = trades.stream()
+				.collect(Collectors.groupingBy(Trade::getStockSymbol));
+		for (Map.Entry<String, List<Trade>> entry : tradesByStock.entrySet()) {
+			Stripe stripe = stripe(entry.getKey());
+			synchronized (stripe) {
+				FixedPointArithmetic arithmetic = fixedPointArithmetic();
+				StockTotals totals = stripe.totals(entry.getKey());
+				for (Trade trade : entry.getValue()) {
+					totals.add(trade, arithmetic);
+				}
+				// the price of the stock changes once for the whole batch
+				reprice(stripe, entry.getKey(), totals, arithmetic);
+			}
+		}
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.engine.AllShareIndexEngine#getAllShareIndex()
+	 */
+	@Override
+	public BigDecimal getAllShareIndex() {
+		// compensated sum of the stripes in locals, so reading the index does not allocate
+		double logSum = 0;
+		double compensation = 0;
+		int pricedStocks = 0;
+		int zeroPricedStocks = 0;
+		for (Stripe stripe : stripes) {
+			double stripeSum;
+			synchronized (stripe) {
+				stripeSum = stripe.logSum.sum;
+				compensation += stripe.logSum.compensation;
+				pricedStocks += stripe.pricedStocks;
+				zeroPricedStocks += stripe.zeroPricedStocks;
+			}
+			double newLogSum = logSum + stripeSum;
+			compensation += CompensatedSum.error(logSum, stripeSum, newLogSum);
+			logSum = newLogSum;
+		}
+		if (pricedStocks == 0) {
+			return BigDecimal.ZERO;
+		}
+		double geometricMean = zeroPricedStocks > 0 ? 0 : Math.exp((logSum + compensation) / pricedStocks);
+		CachedIndex cached = cachedIndex;
+		if (cached == null || cached.geometricMean != geometricMean) {
+			cached = new CachedIndex(geometricMean, 
+					BigDecimal.valueOf(geometricMean).setScale(digitsAfterPoint, RoundingMode.HALF_UP));
+			cachedIndex = cached;
+		}
+		return cached.allShareIndex;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.engine.AllShareIndexEngine#getIndexAggregate()
+	 */
+	@Override
+	public IndexAggregate getIndexAggregate() {
+		CompensatedSum logSum = new CompensatedSum();
+		int pricedStocks = 0;
+		int zeroPricedStocks = 0;
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				logSum.add(stripe.logSum.get());
+				pricedStocks += stripe.pricedStocks;
+				zeroPricedStocks += stripe.zeroPricedStocks;
+			}
+		}
+		return new IndexAggregate(logSum.get(), pricedStocks, zeroPricedStocks);
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.engine.AllShareIndexEngine#writeState(java.io.DataOutput)
+	 */
+	@Override
+	public void writeState(DataOutput out) throws IOException {
+		out.writeBoolean(fixedPointArithmetic() != null);
+		for (Stripe stripe : stripes) {
+			List<Map.Entry<String, StockTotals>> entries;
+			synchronized (stripe) {
+				entries = new ArrayList<Map.Entry<String, StockTotals>>(stripe.stockTotals.size());
+				for (Map.Entry<String, StockTotals> entry : stripe.stockTotals.entrySet()) {
+					entries.add(new SimpleImmutableEntry<String, StockTotals>(entry.getKey(), entry.getValue().copy()));
+				}
+			}
+			out.writeInt(entries.size());
+			for (Map.Entry<String, StockTotals> entry : entries) {
+				out.writeUTF(entry.getKey());
+				entry.getValue().write(out);
+			}
+		}
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.engine.AllShareIndexEngine#readState(java.io.DataInput)
+	 */
+	@Override
+	public void readState(DataInput in) throws IOException {
+		FixedPointArithmetic arithmetic = fixedPointArithmetic();
+		if (in.readBoolean() != (arithmetic != null)) {
+			throw new IOException("State was written with a different arithmetic");
+		}
+		clear();
+		for (int i = 0; i < STRIPES; i++) {
+			int count = in.readInt();
+			for (int j = 0; j < count; j++) {
+				String stockSymbol = in.readUTF();
+				Stripe stripe = stripe(stockSymbol);
+				synchronized (stripe) {
+					StockTotals totals = stripe.totals(stockSymbol);
+					totals.read(in);
+					if (totals.totalQuantity > 0) {
+						reprice(stripe, stockSymbol, totals, arithmetic);
+					}
+				}
+			}
+		}
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.engine.AllShareIndexEngine#clear()
+	 */
+	@Override
+	public void clear() {
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				stripe.clear();
+			}
+		}
+		if (basketIndexEngine != null) {
+			basketIndexEngine.clear();
+		}
+	}
+
+	private void reprice(Stripe stripe, String stockSymbol, StockTotals totals, FixedPointArithmetic arithmetic) {
+		double stockPrice = totals.stockPrice(digitsAfterPoint, arithmetic);
+		stripe.reprice(totals, stockPrice);
+		if (basketIndexEngine != null) {
+			basketIndexEngine.onStockPrice(stockSymbol, stockPrice);
+		}
+	}
+
+	private Stripe stripe(String stockSymbol) {
+		int hash = stockSymbol.hashCode();
+		return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+	}
+
+	private FixedPointArithmetic fixedPointArithmetic() {
+		return fixedPointArithmetic != null && fixedPointArithmetic.isEnabled() ? fixedPointArithmetic : null;
+	}
+
+	public void setDigitsAfterPoint(int digitsAfterPoint) {
+		this.digitsAfterPoint = digitsAfterPoint;
+	}
+
+	public void setFixedPointArithmetic(FixedPointArithmetic fixedPointArithmetic) {
+		this.fixedPointArithmetic = fixedPointArithmetic;
+	}
+
+	public void setBasketIndexEngine(BasketIndexEngine basketIndexEngine) {
+		this.basketIndexEngine = basketIndexEngine;
+	}
+
+	/**
+	 * Stocks of one lock stripe and the sum of logarithms of their prices.
+	 */
+	private static class Stripe {
+
+		private final Map<String, StockTotals> stockTotals = new HashMap<String, StockTotals>();
+
+		private final CompensatedSum logSum = new CompensatedSum();
+
+		// traded stocks, including the ones priced zero
+		private int pricedStocks;
+
+		// traded stocks whose price rounds to zero, they are not in the log sum
+		private int zeroPricedStocks;
+
+		private int updates;
+
+		StockTotals totals(String stockSymbol) {
+			StockTotals totals = stockTotals.get(stockSymbol);
+			if (totals == null) {
+				totals = new StockTotals();
+				stockTotals.put(stockSymbol, totals);
+			}
+			return totals;
+		}
+
+		void reprice(StockTotals totals, double stockPrice) {
+			if (totals.priced) {
+				if (totals.zeroPriced) {
+					zeroPricedStocks--;
+				} else {
+					logSum.add(-totals.logPrice);
+				}
+				pricedStocks--;
+			}
+			totals.priced = totals.totalQuantity > 0;
+			if (totals.priced) {
+				totals.zeroPriced = stockPrice <= 0;
+				if (totals.zeroPriced) {
+					zeroPricedStocks++;
+				} else {
+					totals.logPrice = Math.log(stockPrice);
+					logSum.add(totals.logPrice);
+				}
+				pricedStocks++;
+			}
+			if (++updates >= Math.max(RECALCULATION_INTERVAL, stockTotals.size())) {
+				recalculate();
+			}
+		}
+
+		void clear() {
+			stockTotals.clear();
+			logSum.clear();
+			pricedStocks = 0;
+			zeroPricedStocks = 0;
+			updates = 0;
+		}
+
+		private void recalculate() {
+			logSum.clear();
+			for (StockTotals totals : stockTotals.values()) {
+				if (totals.priced && !totals.zeroPriced) {
+					logSum.add(totals.logPrice);
+				}
+			}
+			updates = 0;
+		}
+	}
+
+	private static class CachedIndex {
+
+		private final double geometricMean;
+
+		private final BigDecimal allShareIndex;
+
+		CachedIndex(double geometricMean, BigDecimal allShareIndex) {
+			this.geometricMean = geometricMean;
+			this.allShareIndex = allShareIndex;
+		}
+	}
+
+	private static class StockTotals {
+
+		private BigDecimal totalTradedPrice = BigDecimal.ZERO;
+
+		private long scaledTotalTradedPrice;
+
+		private long totalQuantity;
+
+		private boolean priced;
+
+		private boolean zeroPriced;
+
+		private double logPrice;
+
+		void add(Trade trade, FixedPointArithmetic arithmetic) {
+			if (arithmetic == null) {
+				totalTradedPrice = totalTradedPrice.add(trade.getPrice().multiply(BigDecimal.valueOf(trade.getQuantity())));
+			} else {
+				long tradedPrice = arithmetic.tradedPrice(arithmetic.toScaled(trade.getPrice()), trade.getQuantity());
+				scaledTotalTradedPrice = Math.addExact(scaledTotalTradedPrice, tradedPrice);
+			}
+			totalQuantity += trade.getQuantity();
+		}
+
+		void add(long unscaledPrice, int priceScale, int quantity, FixedPointArithmetic arithmetic) {
+			if (arithmetic == null) {
+				totalTradedPrice = totalTradedPrice.add(BigDecimal.valueOf(unscaledPrice, priceScale)
+						.multiply(BigDecimal.valueOf(quantity)));
+			} else {
+				long tradedPrice = arithmetic.tradedPrice(arithmetic.toScaled(unscaledPrice, priceScale), quantity);
+				scaledTotalTradedPrice = Math.addExact(scaledTotalTradedPrice, tradedPrice);
+			}
+			totalQuantity += quantity;
+		}
+
+		StockTotals copy() {
+			StockTotals copy = new StockTotals();
+			copy.totalTradedPrice = totalTradedPrice;
+			copy.scaledTotalTradedPrice = scaledTotalTradedPrice;
+			copy.totalQuantity = totalQuantity;
+			return copy;
+		}
+
+		void write(DataOutput out) throws IOException {
+			out.writeUTF(totalTradedPrice.toString());
+			out.writeLong(scaledTotalTradedPrice);
+			out.writeLong(totalQuantity);
+		}
+
+		void read(DataInput in) throws IOException {
+			totalTradedPrice = new BigDecimal(in.readUTF());
+			scaledTotalTradedPrice = in.readLong();
+			totalQuantity = in.readLong();
+		}
+
+		/**
+		 * Get the Volume Weighted Stock Price rounded to digitsAfterPoint.
+		 */
+		double stockPrice(int digitsAfterPoint, FixedPointArithmetic arithmetic) {
+			if (arithmetic == null) {
+				return totalTradedPrice.divide(BigDecimal.valueOf(totalQuantity), digitsAfterPoint, RoundingMode.HALF_UP)
+						.doubleValue();
+			}
+			return arithmetic.toDouble(arithmetic.volumeWeightedStockPrice(scaledTotalTradedPrice, totalQuantity));
+		}
+	}
+
+}
@@ -0,0 +1,393 @@
+package com.jpmorgan.stock.market.engine.impl;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.jpmorgan.stock.market.dao.StockDao;
+import com.jpmorgan.stock.market.domain.IndexDefinition;
+import com.jpmorgan.stock.market.domain.Stock;
+import com.jpmorgan.stock.market.domain.enums.StockType;
+import com.jpmorgan.stock.market.engine.BasketIndexEngine;
+
+/**
+ * Basket indices maintained on every change of a Volume Weighted Stock 
+ * Price. Like the All Share Index every index keeps a compensated sum, of 
+ * the weighted logarithms of the prices of its stocks, so a changed price 
+ * replaces one term and reading an index is a single exponentiation.
+ * <p>
+ * Every stock keeps the indices it belongs to, so a changed price only 
+ * touches these. Prices are pushed by the 
+ * {@link IncrementalAllShareIndexEngine} the engine is set on, so the 
+ * indices follow its snapshots and replays. A price is applied under the 
+ * lock of its stock and then of each of its indices, readers lock the 
+ * index only.
+ * <p>
+ * Indices of all stocks of a type also take in stocks listed after they
+ * were registered: a stock is looked up in the stock DAO on its first 
+ * price after such an index was registered and joins the indices of its 
+ * type, so prices of stocks already resolved only compare a reference.
+ */
+public class IncrementalBasketIndexEngine implements BasketIndexEngine {
+
+	// the sum is recalculated from scratch after that many updates to drop rounding residue
+	static final int RECALCULATION_INTERVAL = 1 << 16;
+
+	private final ConcurrentMap<String, StockEntry> stocks = new ConcurrentHashMap<String, StockEntry>();
+
+	private final ConcurrentMap<String, Index> indices = new ConcurrentHashMap<String, Index>();
+
+	private volatile List<String> indexNames = Collections.emptyList();
+
+	// indices of all stocks of a type, replaced when one is registered or removed
+	private volatile List<Index> typeIndices = Collections.emptyList();
+
+	private List<IndexDefinition> definitions = Collections.emptyList();
+
+	private StockDao stockDao;
+
+	private int digitsAfterPoint;
+
+	/**
+	 * Register the configured index definitions.
+	 *
+	 */
+	public void init() {
+		for (IndexDefinition definition : definitions) {
+			register(definition);
+		}
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.engine.BasketIndexEngine#register(com.jpmorgan.stock.market.domain.IndexDefinition)
+	 */
+	@Override
+	public void register(IndexDefinition definition) {
+		Map<String, BigDecimal> weights = weights(definition);
+		synchronized (this) {
+			if (indices.containsKey(definition.getName())) {
+				throw new IllegalArgumentException("Index [" + definition.getName() + "] is already registered.");
+			}
+			Index index = new Index(definition.getStockType(), weights);
+			int member = 0;
+			for (String stockSymbol : weights.keySet()) {
+				StockEntry stock = stock(stockSymbol);
+				synchronized (stock) {
+					stock.memberships = Arrays.copyOf(stock.memberships, stock.memberships.length + 1);
+					stock.memberships[stock.memberships.length - 1] = new Membership(index, member);
+					synchronized (index) {
+						index.reprice(member, stock.stockPrice);
+					}
+				}
+				member++;
+			}
+			indices.put(definition.getName(), index);
+			if (index.stockType != null) {
+				List<Index> newTypeIndices = new ArrayList<Index>(typeIndices);
+				newTypeIndices.add(index);
+				typeIndices = Collections.unmodifiableList(newTypeIndices);
+			}
+			List<String> newIndexNames = new ArrayList<String>(indexNames);
+			newIndexNames.add(definition.getName());
+			indexNames = Collections.unmodifiableList(newIndexNames);
+		}
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.engine.BasketIndexEngine#unregister(java.lang.String)
+	 */
+	@Override
+	public synchronized boolean unregister(String name) {
+		Index index = indices.remove(name);
+		if (index == null) {
+			return false;
+		}
+		for (String stockSymbol : index.stockSymbols) {
+			StockEntry stock = stocks.get(stockSymbol);
+			synchronized (stock) {
+				List<Membership> memberships = new ArrayList<Membership>(Arrays.asList(stock.memberships));
+				memberships.removeIf(membership -> membership.index == index);
+				stock.memberships = memberships.toArray(new Membership[memberships.size()]);
+			}
+		}
+		if (index.stockType != null) {
+			List<Index> newTypeIndices = new ArrayList<Index>(typeIndices);
+			newTypeIndices.remove(index);
+			typeIndices = Collections.unmodifiableList(newTypeIndices);
+		}
+		List<String> newIndexNames = new ArrayList<String>(indexNames);
+		newIndexNames.remove(name);
+		indexNames = Collections.unmodifiableList(newIndexNames);
+		return true;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.engine.BasketIndexEngine#getIndexNames()
+	 */
+	@Override
+	public List<String> getIndexNames() {
+		return indexNames;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.engine.BasketIndexEngine#getIndex(java.lang.String)
+	 */
+	@Override
+	public BigDecimal getIndex(String name) {
+		Index index = indices.get(name);
+		if (index == null) {
+			return null;
+		}
+		synchronized (index) {
+			return index.getIndex(digitsAfterPoint);
+		}
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.engine.BasketIndexEngine#onStockPrice(java.lang.String, double)
+	 */
+	@Override
+	public void onStockPrice(String stockSymbol, double stockPrice) {
+		StockEntry stock = stock(stockSymbol);
+		if (stock.typeIndices != typeIndices) {
+			resolveTypeIndices(stockSymbol, stock);
+		}
+		synchronized (stock) {
+			stock.stockPrice = stockPrice;
+			for (Membership membership : stock.memberships) {
+				synchronized (membership.index) {
+					membership.index.reprice(membership.member, stockPrice);
+				}
+			}
+		}
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.engine.BasketIndexEngine#clear()
+	 */
+	@Override
+	public void clear() {
+		for (StockEntry stock : stocks.values()) {
+			synchronized (stock) {
+				stock.stockPrice = 0;
+				for (Membership membership : stock.memberships) {
+					synchronized (membership.index) {
+						membership.index.reprice(membership.member, 0);
+					}
+				}
+			}
+		}
+	}
+
+	private synchronized void resolveTypeIndices(String stockSymbol, StockEntry stock) {
+		List<Index> current = typeIndices;
+		if (stock.typeIndices == current) {
+			return;
+		}
+		Optional<Stock> listed = stockDao.findBySymbol(stockSymbol);
+		if (listed.isPresent()) {
+			for (Index index : current) {
+				if (index.stockType == listed.get().getType() && !isMember(stock, index)) {
+					synchronized (stock) {
+						synchronized (index) {
+							int member = index.add(stockSymbol, 1);
+							index.reprice(member, stock.stockPrice);
+							stock.memberships = Arrays.copyOf(stock.memberships, stock.memberships.length + 1);
+							stock.memberships[stock.memberships.length - 1] = new Membership(index, member);
+						}
+					}
+				}
+			}
+		}
+		stock.typeIndices = current;
+	}
+
+	private static boolean isMember(StockEntry stock, Index index) {
+		for (Membership membership : stock.memberships) {
+			if (membership.index == index) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private Map<String, BigDecimal> weights(IndexDefinition definition) {
+		if (definition.getName() == null) {
+			throw new IllegalArgumentException("Index name cannot be null.");
+		}
+		Map<String, BigDecimal> weights = new LinkedHashMap<String, BigDecimal>();
+		if (definition.getStockType() != null) {
+			for (Stock stock : stockDao.getAll()) {
+				if (stock.getType() == definition.getStockType()) {
+					weights.put(stock.getSymbol(), BigDecimal.ONE);
+				}
+			}
+		} else {
+			for (Map.Entry<String, BigDecimal> entry : definition.getWeights().entrySet()) {
+				if (stockDao.getId(entry.getKey()) < 0) {
+					throw new IllegalArgumentException("Stock with symbol [" + entry.getKey() 
+							+ "] is not present in the market.");
+				}
+				if (entry.getValue() == null || entry.getValue().signum() <= 0) {
+					throw new IllegalArgumentException("Weight of stock with symbol [" + entry.getKey() 
+							+ "] must be greater than zero.");
+				}
+				weights.put(entry.getKey(), entry.getValue());
+			}
+		}
+		if (weights.isEmpty()) {
+			throw new IllegalArgumentException("Index [" + definition.getName() + "] must have at least one stock.");
+		}
+		return weights;
+	}
+
+	private StockEntry stock(String stockSymbol) {
+		StockEntry stock = stocks.get(stockSymbol);
+		if (stock == null) {
+			stock = stocks.computeIfAbsent(stockSymbol, x -> new StockEntry());
+		}
+		return stock;
+	}
+
+	public void setDefinitions(List<IndexDefinition> definitions) {
+		this.definitions = definitions;
+	}
+
+	public void setStockDao(StockDao stockDao) {
+		this.stockDao = stockDao;
+	}
+
+	public void setDigitsAfterPoint(int digitsAfterPoint) {
+		this.digitsAfterPoint = digitsAfterPoint;
+	}
+
+	/**
+	 * Last price of a stock and the indices it belongs to.
+	 */
+	private static class StockEntry {
+
+		private double stockPrice;
+
+		private Membership[] memberships = new Membership[0];
+
+		// type indices the stock was last resolved against
+		private volatile List<Index> typeIndices;
+	}
+
+	private static class Membership {
+
+		private final Index index;
+
+		// position of the stock in the index
+		private final int member;
+
+		Membership(Index index, int member) {
+			this.index = index;
+			this.member = member;
+		}
+	}
+
+	/**
+	 * Stocks of an index with their weights and the logarithms of their 
+	 * prices, and the weighted sum of these.
+	 */
+	private static class Index {
+
+		// type of all stocks of the index, null for a basket
+		private final StockType stockType;
+
+		private String[] stockSymbols;
+
+		private double[] weights;
+
+		private double[] logPrices;
+
+		private boolean[] priced;
+
+		private final CompensatedSum weightedLogSum = new CompensatedSum();
+
+		private double pricedWeight;
+
+		private int pricedStocks;
+
+		private int updates;
+
+		// last calculated geometric mean and index, returned again while the mean does not change
+		private double geometricMean;
+
+		private BigDecimal index;
+
+		Index(StockType stockType, Map<String, BigDecimal> weights) {
+			this.stockType = stockType;
+			stockSymbols = weights.keySet().toArray(new String[weights.size()]);
+			this.weights = new double[stockSymbols.length];
+			for (int i = 0; i < stockSymbols.length; i++) {
+				this.weights[i] = weights.get(stockSymbols[i]).doubleValue();
+			}
+			logPrices = new double[stockSymbols.length];
+			priced = new boolean[stockSymbols.length];
+		}
+
+		int add(String stockSymbol, double weight) {
+			int member = stockSymbols.length;
+			stockSymbols = Arrays.copyOf(stockSymbols, member + 1);
+			stockSymbols[member] = stockSymbol;
+			weights = Arrays.copyOf(weights, member + 1);
+			weights[member] = weight;
+			logPrices = Arrays.copyOf(logPrices, member + 1);
+			priced = Arrays.copyOf(priced, member + 1);
+			return member;
+		}
+
+		void reprice(int member, double stockPrice) {
+			if (priced[member]) {
+				weightedLogSum.add(-weights[member] * logPrices[member]);
+				pricedWeight -= weights[member];
+				pricedStocks--;
+			}
+			priced[member] = stockPrice > 0;
+			if (priced[member]) {
+				logPrices[member] = Math.log(stockPrice);
+				weightedLogSum.add(weights[member] * logPrices[member]);
+				pricedWeight += weights[member];
+				pricedStocks++;
+			}
+			if (pricedStocks == 0 || ++updates >= Math.max(RECALCULATION_INTERVAL, stockSymbols.length)) {
+				recalculate();
+			}
+		}
+
+		BigDecimal getIndex(int digitsAfterPoint) {
+			if (pricedStocks == 0) {
+				return BigDecimal.ZERO;
+			}
+			double newGeometricMean = Math.exp(weightedLogSum.get() / pricedWeight);
+			if (index == null || newGeometricMean != geometricMean) {
+				geometricMean = newGeometricMean;
+				index = BigDecimal.valueOf(newGeometricMean).setScale(digitsAfterPoint, RoundingMode.HALF_UP);
+			}
+			return index;
+		}
+
+		private void recalculate() {
+			weightedLogSum.clear();
+			pricedWeight = 0;
+			for (int i = 0; i < stockSymbols.length; i++) {
+				if (priced[i]) {
+					weightedLogSum.add(weights[i] * logPrices[i]);
+					pricedWeight += weights[i];
+				}
+			}
+			updates = 0;
+		}
+	}
+
+}
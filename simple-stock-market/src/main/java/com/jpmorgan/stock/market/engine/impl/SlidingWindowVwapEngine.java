@@ -0,0 +1,430 @@
+package com.jpmorgan.stock.market.engine.impl;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+import com.jpmorgan.stock.market.clock.LocalTimeStamps;
+import com.jpmorgan.stock.market.clock.MarketClock;
+import com.jpmorgan.stock.market.clock.impl.MarketClockImpl;
+import com.jpmorgan.stock.market.domain.Trade;
+import com.jpmorgan.stock.market.engine.FixedPointArithmetic;
+import com.jpmorgan.stock.market.engine.VwapEngine;
+
+/**
+ * Volume Weighted Stock Price over a sliding time window. Every stock keeps
+ * the running total traded price and total quantity of the trades in the
+ * window, trades leaving the window are subtracted from the totals.
+ * With {@link FixedPointArithmetic} enabled the totals are scaled longs.
+ * <p>
+ * Prices over other time periods are summed up from {@link TimeBuckets}
+ * kept next to the window. The window ends at the time of the 
+ * {@link MarketClock}, so with event time it advances with the trades.
+ */
+public class SlidingWindowVwapEngine implements VwapEngine {
+
+	static final long NANOS_PER_SECOND = 1000000000L;
+
+	private final ConcurrentMap<String, Window> windows = new ConcurrentHashMap<String, Window>();
+
+	private Duration windowDuration = Duration.ofMinutes(5);
+
+	private int secondBuckets = 900;
+
+	private int minuteBuckets = 1440;
+
+	private Duration longestPastTime = Duration.ofMinutes(minuteBuckets);
+
+	private int digitsAfterPoint;
+
+	private FixedPointArithmetic fixedPointArithmetic;
+
+	private MarketClock marketClock = new MarketClockImpl();
+
+	/*
+	 * @see com.jpmorgan.stock.market.engine.VwapEngine#onTrade(com.jpmorgan.stock.market.domain.Trade)
+	 */
+	@Override
+	public void onTrade(Trade trade) {
+		Window window = window(trade.getStockSymbol());
+		synchronized (window) {
+			window.add(trade, windowStart());
+		}
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.engine.VwapEngine#onTrade(java.lang.String, long, long, int, int)
+	 */
+	@Override
+	public void onTrade(String stockSymbol, long timeStamp, long unscaledPrice, int priceScale, int quantity) {
+		Window window = window(stockSymbol);
+		synchronized (window) {
+			window.add(timeStamp, unscaledPrice, priceScale, quantity, windowStart());
+		}
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.engine.VwapEngine#onTrades(java.util.Collection)
+	 */
+	@Override
+	public void onTrades(Collection<Trade> trades) {
+		long windowStart = windowStart();
+		Map<String, List<Trade>> tradesByStock = trades.stream()
+				.collect(Collectors.groupingBy(Trade::getStockSymbol));
+		for (Map.Entry<String, List<Trade>> entry : tradesByStock.entrySet()) {
+			Window window = window(entry.getKey());
+			synchronized (window) {
+				for (Trade trade : entry.getValue()) {
+					window.add(trade, windowStart);
+				}
+			}
+		}
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.engine.VwapEngine#getVolumeWeightedStockPrice(java.lang.String)
+	 */
+	@Override
+	public BigDecimal getVolumeWeightedStockPrice(String stockSymbol) {
+		Window window = windows.get(stockSymbol);
+		if (window == null) {
+			return BigDecimal.ZERO;
+		}
+		synchronized (window) {
+			window.evict(windowStart());
+			return window.getVolumeWeightedStockPrice(digitsAfterPoint);
+		}
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.engine.VwapEngine#getVolumeWeightedStockPrice(java.lang.String, java.time.Duration)
+	 */
+	@Override
+	public BigDecimal getVolumeWeightedStockPrice(String stockSymbol, Duration pastTime) {
+		if (pastTime.equals(windowDuration)) {
+			return getVolumeWeightedStockPrice(stockSymbol);
+		}
+		if (pastTime.compareTo(longestPastTime) > 0) {
+			throw new IllegalArgumentException("Past time period must not be longer than " + longestPastTime 
+					+ ", it was " + pastTime + ".");
+		}
+		Window window = windows.get(stockSymbol);
+		if (window == null) {
+			return BigDecimal.ZERO;
+		}
+		long now = marketClock.epochNanos();
+		long nowSecond = Math.floorDiv(now, NANOS_PER_SECOND);
+		long fromSecond = nowSecond - pastTime.getSeconds();
+		if (Math.floorMod(now, NANOS_PER_SECOND) < pastTime.getNano()) {
+			fromSecond--;
+		}
+		synchronized (window) {
+			return window.buckets.getVolumeWeightedStockPrice(fromSecond, nowSecond, digitsAfterPoint);
+		}
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.engine.VwapEngine#getLongestPastTime()
+	 */
+	@Override
+	public Duration getLongestPastTime() {
+		return longestPastTime;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.engine.VwapEngine#writeState(java.io.DataOutput)
+	 */
+	@Override
+	public void writeState(DataOutput out) throws IOException {
+		List<Map.Entry<String, Window>> entries = new ArrayList<Map.Entry<String, Window>>(windows.entrySet());
+		out.writeBoolean(fixedPointArithmetic() != null);
+		out.writeInt(entries.size());
+		for (Map.Entry<String, Window> entry : entries) {
+			out.writeUTF(entry.getKey());
+			synchronized (entry.getValue()) {
+				entry.getValue().write(out);
+			}
+		}
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.engine.VwapEngine#readState(java.io.DataInput)
+	 */
+	@Override
+	public void readState(DataInput in) throws IOException {
+		if (in.readBoolean() != (fixedPointArithmetic() != null)) {
+			throw new IOException("State was written with a different arithmetic");
+		}
+		windows.clear();
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			Window window = window(in.readUTF());
+			synchronized (window) {
+				window.read(in);
+			}
+		}
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.engine.VwapEngine#clear()
+	 */
+	@Override
+	public void clear() {
+		windows.clear();
+	}
+
+	private Window window(String stockSymbol) {
+		Window window = windows.get(stockSymbol);
+		if (window == null) {
+			window = windows.computeIfAbsent(stockSymbol, x -> new Window(fixedPointArithmetic(), secondBuckets, minuteBuckets));
+		}
+		return window;
+	}
+
+	private FixedPointArithmetic fixedPointArithmetic() {
+		return fixedPointArithmetic != null && fixedPointArithmetic.isEnabled() ? fixedPointArithmetic : null;
+	}
+
+	private long windowStart() {
+		return marketClock.epochNanos() - windowDuration.toNanos();
+	}
+
+	public void setWindowMinutes(int windowMinutes) {
+		this.windowDuration = Duration.ofMinutes(windowMinutes);
+	}
+
+	public void setSecondBuckets(int secondBuckets) {
+		this.secondBuckets = TimeBuckets.checkSecondBuckets(secondBuckets);
+	}
+
+	public void setMinuteBuckets(int minuteBuckets) {
+		this.minuteBuckets = TimeBuckets.checkMinuteBuckets(minuteBuckets);
+		this.longestPastTime = Duration.ofMinutes(minuteBuckets);
+	}
+
+	public void setDigitsAfterPoint(int digitsAfterPoint) {
+		this.digitsAfterPoint = digitsAfterPoint;
+	}
+
+	public void setFixedPointArithmetic(FixedPointArithmetic fixedPointArithmetic) {
+		this.fixedPointArithmetic = fixedPointArithmetic;
+	}
+
+	public void setMarketClock(MarketClock marketClock) {
+		this.marketClock = marketClock;
+	}
+
+	/**
+	 * Trades of a single stock in the window ordered by creation time stamp,
+	 * held in a circular buffer together with their running totals. Traded
+	 * prices are kept either as {@link BigDecimal} or, in fixed point mode, 
+	 * as scaled longs.
+	 */
+	private static class Window {
+
+		private final FixedPointArithmetic arithmetic;
+
+		// every trade of the stock, also the ones that have left the window
+		private final TimeBuckets buckets;
+
+		// creation time stamps in local epoch nanoseconds
+		private long[] timeStamps = new long[16];
+
+		private BigDecimal[] tradedPrices;
+
+		private long[] scaledTradedPrices;
+
+		private int[] quantities = new int[16];
+
+		private int head;
+
+		private int size;
+
+		private BigDecimal totalTradedPrice = BigDecimal.ZERO;
+
+		private long scaledTotalTradedPrice;
+
+		private long totalQuantity;
+
+		// last calculated price, reset whenever the totals change
+		private BigDecimal stockPrice;
+
+		Window(FixedPointArithmetic arithmetic, int secondBuckets, int minuteBuckets) {
+			this.arithmetic = arithmetic;
+			this.buckets = new TimeBuckets(arithmetic, secondBuckets, minuteBuckets);
+			if (arithmetic == null) {
+				tradedPrices = new BigDecimal[16];
+			} else {
+				scaledTradedPrices = new long[16];
+			}
+		}
+
+		void add(Trade trade, long windowStart) {
+			long timeStamp = LocalTimeStamps.toEpochNanos(trade.getRecordCreationTimeStamp());
+			if (arithmetic == null) {
+				add(timeStamp, trade.getPrice().multiply(BigDecimal.valueOf(trade.getQuantity())), 0, 
+						trade.getQuantity(), windowStart);
+			} else {
+				add(timeStamp, null, arithmetic.tradedPrice(arithmetic.toScaled(trade.getPrice()), trade.getQuantity()), 
+						trade.getQuantity(), windowStart);
+			}
+		}
+
+		void add(long timeStamp, long unscaledPrice, int priceScale, int quantity, long windowStart) {
+			if (arithmetic == null) {
+				add(timeStamp, BigDecimal.valueOf(unscaledPrice, priceScale).multiply(BigDecimal.valueOf(quantity)), 0, 
+						quantity, windowStart);
+			} else {
+				add(timeStamp, null, arithmetic.tradedPrice(arithmetic.toScaled(unscaledPrice, priceScale), quantity), 
+						quantity, windowStart);
+			}
+		}
+
+		private void add(long timeStamp, BigDecimal tradedPrice, long scaledTradedPrice, int quantity, long windowStart) {
+			evict(windowStart);
+			buckets.add(Math.floorDiv(timeStamp, NANOS_PER_SECOND), tradedPrice, scaledTradedPrice, quantity);
+			if (timeStamp <= windowStart) {
+				// the trade has already left the window
+				return;
+			}
+			if (size == timeStamps.length) {
+				grow();
+			}
+			// find the position from the tail, late trades are rare and close to the tail
+			int position = size;
+			while (position > 0 && timeStamps[index(position - 1)] > timeStamp) {
+				move(index(position - 1), index(position));
+				position--;
+			}
+			int slot = index(position);
+			timeStamps[slot] = timeStamp;
+			quantities[slot] = quantity;
+			if (arithmetic == null) {
+				tradedPrices[slot] = tradedPrice;
+				totalTradedPrice = totalTradedPrice.add(tradedPrice);
+			} else {
+				scaledTradedPrices[slot] = scaledTradedPrice;
+				scaledTotalTradedPrice = Math.addExact(scaledTotalTradedPrice, scaledTradedPrice);
+			}
+			size++;
+			totalQuantity += quantity;
+			stockPrice = null;
+		}
+
+		void evict(long windowStart) {
+			while (size > 0 && timeStamps[head] <= windowStart) {
+				if (arithmetic == null) {
+					totalTradedPrice = totalTradedPrice.subtract(tradedPrices[head]);
+					tradedPrices[head] = null;
+				} else {
+					scaledTotalTradedPrice -= scaledTradedPrices[head];
+				}
+				totalQuantity -= quantities[head];
+				head = index(1);
+				size--;
+				stockPrice = null;
+			}
+		}
+
+		void write(DataOutput out) throws IOException {
+			out.writeInt(size);
+			for (int i = 0; i < size; i++) {
+				int slot = index(i);
+				out.writeLong(Math.floorDiv(timeStamps[slot], NANOS_PER_SECOND));
+				out.writeInt((int) Math.floorMod(timeStamps[slot], NANOS_PER_SECOND));
+				out.writeInt(quantities[slot]);
+				if (arithmetic == null) {
+					out.writeUTF(tradedPrices[slot].toString());
+				} else {
+					out.writeLong(scaledTradedPrices[slot]);
+				}
+			}
+			buckets.write(out);
+		}
+
+		void read(DataInput in) throws IOException {
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				if (size == timeStamps.length) {
+					grow();
+				}
+				// the trades were written in time stamp order
+				int slot = index(size);
+				timeStamps[slot] = in.readLong() * NANOS_PER_SECOND + in.readInt();
+				quantities[slot] = in.readInt();
+				if (arithmetic == null) {
+					tradedPrices[slot] = new BigDecimal(in.readUTF());
+					totalTradedPrice = totalTradedPrice.add(tradedPrices[slot]);
+				} else {
+					scaledTradedPrices[slot] = in.readLong();
+					scaledTotalTradedPrice = Math.addExact(scaledTotalTradedPrice, scaledTradedPrices[slot]);
+				}
+				totalQuantity += quantities[slot];
+				size++;
+			}
+			buckets.read(in);
+			stockPrice = null;
+		}
+
+		BigDecimal getVolumeWeightedStockPrice(int digitsAfterPoint) {
+			if (stockPrice == null) {
+				if (totalQuantity == 0) {
+					stockPrice = BigDecimal.ZERO;
+				} else if (arithmetic == null) {
+					stockPrice = totalTradedPrice.divide(BigDecimal.valueOf(totalQuantity), digitsAfterPoint, RoundingMode.HALF_UP);
+				} else {
+					stockPrice = arithmetic.toBigDecimal(arithmetic.volumeWeightedStockPrice(scaledTotalTradedPrice, totalQuantity));
+				}
+			}
+			return stockPrice;
+		}
+
+		private int index(int offset) {
+			return (head + offset) & (timeStamps.length - 1);
+		}
+
+		private void move(int from, int to) {
+			timeStamps[to] = timeStamps[from];
+			quantities[to] = quantities[from];
+			if (arithmetic == null) {
+				tradedPrices[to] = tradedPrices[from];
+			} else {
+				scaledTradedPrices[to] = scaledTradedPrices[from];
+			}
+		}
+
+		private void grow() {
+			int capacity = timeStamps.length * 2;
+			long[] newTimeStamps = new long[capacity];
+			int[] newQuantities = new int[capacity];
+			BigDecimal[] newTradedPrices = arithmetic == null ? new BigDecimal[capacity] : null;
+			long[] newScaledTradedPrices = arithmetic == null ? null : new long[capacity];
+			for (int i = 0; i < size; i++) {
+				int slot = index(i);
+				newTimeStamps[i] = timeStamps[slot];
+				newQuantities[i] = quantities[slot];
+				if (arithmetic == null) {
+					newTradedPrices[i] = tradedPrices[slot];
+				} else {
+					newScaledTradedPrices[i] = scaledTradedPrices[slot];
+				}
+			}
+			timeStamps = newTimeStamps;
+			quantities = newQuantities;
+			tradedPrices = newTradedPrices;
+			scaledTradedPrices = newScaledTradedPrices;
+			head = 0;
+		}
+	}
+
+}
@@ -0,0 +1,223 @@
+package com.jpmorgan.stock.market.engine.impl;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+import com.jpmorgan.stock.market.engine.FixedPointArithmetic;
+
+/**
+ * Traded price and quantity of the trades of a single stock summed per
+ * second and per minute, each in a ring of buckets keyed by epoch second or
+ * minute. A price over a time period adds up the second buckets of the
+ * partial minutes at both ends and the minute buckets in between, so it
+ * costs at most a couple of hundred additions whatever the period is.
+ * <p>
+ * The start of a period is rounded up to a whole second, and to a whole
+ * minute where it is older than the second buckets reach. Periods longer
+ * than the minute buckets reach would be cut to them, so the engine rejects
+ * them. Not thread safe.
+ */
+class TimeBuckets {
+
+	static final int MIN_SECOND_BUCKETS = 120;
+
+	private final FixedPointArithmetic arithmetic;
+
+	private final Ring seconds;
+
+	private final Ring minutes;
+
+	// reused by every calculation, so summing up does not allocate
+	private final Sum sum = new Sum();
+
+	// last price calculated in fixed point, returned again while it does not change
+	private BigDecimal lastStockPrice;
+
+	private long lastScaledStockPrice;
+
+	TimeBuckets(FixedPointArithmetic arithmetic, int secondBuckets, int minuteBuckets) {
+		this.arithmetic = arithmetic;
+		this.seconds = new Ring(checkSecondBuckets(secondBuckets));
+		this.minutes = new Ring(checkMinuteBuckets(minuteBuckets));
+	}
+
+	/**
+	 * Check a number of second buckets, which must cover the partial minutes
+	 * at both ends of a period.
+	 */
+	static int checkSecondBuckets(int secondBuckets) {
+		if (secondBuckets < MIN_SECOND_BUCKETS) {
+			throw new IllegalArgumentException("Number of second buckets must be at least " + MIN_SECOND_BUCKETS 
+					+ ", it was " + secondBuckets + ".");
+		}
+		return secondBuckets;
+	}
+
+	static int checkMinuteBuckets(int minuteBuckets) {
+		if (minuteBuckets <= 0) {
+			throw new IllegalArgumentException("Number of minute buckets must be greater than zero, it was " 
+					+ minuteBuckets + ".");
+		}
+		return minuteBuckets;
+	}
+
+	void add(long epochSecond, BigDecimal tradedPrice, long scaledTradedPrice, int quantity) {
+		seconds.add(epochSecond, tradedPrice, scaledTradedPrice, quantity);
+		minutes.add(Math.floorDiv(epochSecond, 60), tradedPrice, scaledTradedPrice, quantity);
+	}
+
+	/**
+	 * Get the Volume Weighted Stock Price of the trades in the seconds after
+	 * fromSecond up to and including toSecond.
+	 */
+	BigDecimal getVolumeWeightedStockPrice(long fromSecond, long toSecond, int digitsAfterPoint) {
+		sum.clear();
+		long first = fromSecond + 1;
+		long firstMinute = Math.floorDiv(first + 59, 60);
+		long lastMinute = Math.floorDiv(toSecond + 1, 60) - 1;
+		if (firstMinute > lastMinute) {
+			seconds.sum(first, toSecond, sum);
+		} else {
+			seconds.sum(first, firstMinute * 60 - 1, sum);
+			minutes.sum(firstMinute, lastMinute, sum);
+			seconds.sum((lastMinute + 1) * 60, toSecond, sum);
+		}
+		if (sum.quantity == 0) {
+			return BigDecimal.ZERO;
+		}
+		if (arithmetic == null) {
+			return sum.tradedPrice.divide(BigDecimal.valueOf(sum.quantity), digitsAfterPoint, RoundingMode.HALF_UP);
+		}
+		long scaledStockPrice = arithmetic.volumeWeightedStockPrice(sum.scaledTradedPrice, sum.quantity);
+		if (lastStockPrice == null || scaledStockPrice != lastScaledStockPrice) {
+			lastStockPrice = arithmetic.toBigDecimal(scaledStockPrice);
+			lastScaledStockPrice = scaledStockPrice;
+		}
+		return lastStockPrice;
+	}
+
+	void write(DataOutput out) throws IOException {
+		seconds.write(out);
+		minutes.write(out);
+	}
+
+	void read(DataInput in) throws IOException {
+		seconds.read(in);
+		minutes.read(in);
+	}
+
+	private static class Sum {
+
+		private BigDecimal tradedPrice = BigDecimal.ZERO;
+
+		private long scaledTradedPrice;
+
+		private long quantity;
+
+		void clear() {
+			tradedPrice = BigDecimal.ZERO;
+			scaledTradedPrice = 0;
+			quantity = 0;
+		}
+	}
+
+	/**
+	 * Buckets of a fixed time unit, a slot holds the bucket of its key 
+	 * modulo the number of slots until a newer key takes the slot.
+	 */
+	private class Ring {
+
+		private final long[] keys;
+
+		private final long[] quantities;
+
+		private final BigDecimal[] tradedPrices;
+
+		private final long[] scaledTradedPrices;
+
+		Ring(int buckets) {
+			keys = new long[buckets];
+			Arrays.fill(keys, Long.MIN_VALUE);
+			quantities = new long[buckets];
+			tradedPrices = arithmetic == null ? new BigDecimal[buckets] : null;
+			scaledTradedPrices = arithmetic == null ? null : new long[buckets];
+		}
+
+		void add(long key, BigDecimal tradedPrice, long scaledTradedPrice, long quantity) {
+			int slot = (int) Math.floorMod(key, (long) keys.length);
+			if (keys[slot] > key) {
+				// the bucket of the trade was already taken over by a newer one
+				return;
+			}
+			if (keys[slot] < key) {
+				keys[slot] = key;
+				quantities[slot] = 0;
+				if (arithmetic == null) {
+					tradedPrices[slot] = BigDecimal.ZERO;
+				} else {
+					scaledTradedPrices[slot] = 0;
+				}
+			}
+			quantities[slot] += quantity;
+			if (arithmetic == null) {
+				tradedPrices[slot] = tradedPrices[slot].add(tradedPrice);
+			} else {
+				scaledTradedPrices[slot] = Math.addExact(scaledTradedPrices[slot], scaledTradedPrice);
+			}
+		}
+
+		void sum(long fromKey, long toKey, Sum sum) {
+			// keys older than the ring reaches cannot be held by any slot
+			for (long key = Math.max(fromKey, toKey - keys.length + 1); key <= toKey; key++) {
+				int slot = (int) Math.floorMod(key, (long) keys.length);
+				if (keys[slot] == key) {
+					sum.quantity += quantities[slot];
+					if (arithmetic == null) {
+						sum.tradedPrice = sum.tradedPrice.add(tradedPrices[slot]);
+					} else {
+						sum.scaledTradedPrice = Math.addExact(sum.scaledTradedPrice, scaledTradedPrices[slot]);
+					}
+				}
+			}
+		}
+
+		void write(DataOutput out) throws IOException {
+			int count = 0;
+			for (long key : keys) {
+				if (key != Long.MIN_VALUE) {
+					count++;
+				}
+			}
+			out.writeInt(count);
+			for (int slot = 0; slot < keys.length; slot++) {
+				if (keys[slot] != Long.MIN_VALUE) {
+					out.writeLong(keys[slot]);
+					out.writeLong(quantities[slot]);
+					if (arithmetic == null) {
+						out.writeUTF(tradedPrices[slot].toString());
+					} else {
+						out.writeLong(scaledTradedPrices[slot]);
+					}
+				}
+			}
+		}
+
+		void read(DataInput in) throws IOException {
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				long key = in.readLong();
+				long quantity = in.readLong();
+				if (arithmetic == null) {
+					add(key, new BigDecimal(in.readUTF()), 0, quantity);
+				} else {
+					add(key, null, in.readLong(), quantity);
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,6 @@
+// Copyright (c) 2016 JPMorgan
+
+/**
+* Implementation of calculation engines
+*/
+package com.jpmorgan.stock.market.engine.impl;
\ No newline at end of file
@@ -0,0 +1,6 @@
+// Copyright (c) 2016 JPMorgan
+
+/**
+* Calculation engines
+*/
+package com.jpmorgan.stock.market.engine;
\ No newline at end of file
@@ -1,6 +1,6 @@
-// Copyright (c) 2016 JPMorgan
-
-/**
-* Custom exceptions
-*/
+// Copyright (c) 2016 JPMorgan
+
+/**
+* Custom exceptions
+*/
 package com.jpmorgan.stock.market.exceptions;
\ No newline at end of file
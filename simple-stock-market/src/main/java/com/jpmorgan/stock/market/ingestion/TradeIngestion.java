@@ -0,0 +1,93 @@
+package com.jpmorgan.stock.market.ingestion;
+
+import java.math.BigDecimal;
+
+import com.jpmorgan.stock.market.domain.enums.TradeIndicator;
+
+public interface TradeIngestion {
+	
+	/**
+	 * Check whether trades can be published.
+	 * 
+	 * @return true if trades are accepted and recorded
+	 */
+	public boolean isEnabled();
+	
+	/**
+	 * Publish a trade to be recorded, waiting while the buffer is full.
+	 * Trades are recorded in the order of their sequences, the creation time
+	 * stamp of a trade is taken when it is published.
+	 * 
+	 * @param stockSymbol
+	 * @param quantity
+	 * @param indicator
+	 * @param price
+	 * @return the sequence of the trade
+	 * @throws IllegalStateException if trade ingestion is not running
+	 */
+	public long publish(String stockSymbol, int quantity, TradeIndicator indicator, BigDecimal price);
+	
+	/**
+	 * Publish a trade given by an unscaled price, waiting while the buffer 
+	 * is full, without creating a price or a trade object.
+	 * 
+	 * @param stockSymbol
+	 * @param quantity
+	 * @param indicator
+	 * @param unscaledPrice
+	 * @param priceScale digits after point of the unscaled price
+	 * @return the sequence of the trade
+	 * @throws IllegalStateException if trade ingestion is not running
+	 */
+	public long publish(String stockSymbol, int quantity, TradeIndicator indicator, long unscaledPrice, int priceScale);
+	
+	/**
+	 * Publish a trade to be recorded unless the buffer is full.
+	 * 
+	 * @param stockSymbol
+	 * @param quantity
+	 * @param indicator
+	 * @param price
+	 * @return the sequence of the trade, -1 if the buffer is full
+	 * @throws IllegalStateException if trade ingestion is not running
+	 */
+	public long tryPublish(String stockSymbol, int quantity, TradeIndicator indicator, BigDecimal price);
+	
+	/**
+	 * Publish a trade given by an unscaled price unless the buffer is full.
+	 * 
+	 * @param stockSymbol
+	 * @param quantity
+	 * @param indicator
+	 * @param unscaledPrice
+	 * @param priceScale digits after point of the unscaled price
+	 * @return the sequence of the trade, -1 if the buffer is full
+	 * @throws IllegalStateException if trade ingestion is not running
+	 */
+	public long tryPublish(String stockSymbol, int quantity, TradeIndicator indicator, long unscaledPrice, 
+			int priceScale);
+	
+	/**
+	 * Wait until a published trade and all trades before it are recorded or rejected.
+	 * 
+	 * @param sequence
+	 * @param timeoutMillis
+	 * @return true if the trade was recorded or rejected in time
+	 */
+	public boolean awaitRecorded(long sequence, long timeoutMillis);
+	
+	/**
+	 * Get the sequence of the last recorded or rejected trade.
+	 * 
+	 * @return the sequence, -1 if no trade was recorded yet
+	 */
+	public long getRecordedSequence();
+	
+	/**
+	 * Get the number of published trades which were rejected by the service.
+	 * 
+	 * @return the number of rejected trades
+	 */
+	public long getRejectedTrades();
+
+}
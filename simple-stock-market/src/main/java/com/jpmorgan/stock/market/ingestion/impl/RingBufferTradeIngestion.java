@@ -0,0 +1,418 @@
+package com.jpmorgan.stock.market.ingestion.impl;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.log4j.Logger;
+
+import com.jpmorgan.stock.market.codec.TradeDecoder;
+import com.jpmorgan.stock.market.codec.TradeEncoder;
+import com.jpmorgan.stock.market.domain.enums.TradeIndicator;
+import com.jpmorgan.stock.market.exceptions.BusinessException;
+import com.jpmorgan.stock.market.ingestion.TradeIngestion;
+import com.jpmorgan.stock.market.service.SimpleStockMarketService;
+
+/**
+ * Trade ingestion through a ring buffer of pre-allocated, mutable trade
+ * slots in front of the service. Producers claim a sequence with a single
+ * atomic increment, fill the slot of the sequence and publish it by
+ * setting the sequence of the slot, so publishing never locks. A single
+ * writer thread takes the published slots in sequence order, in batches
+ * of up to maxBatchSize, encodes them as trade messages into a buffer it
+ * reuses and records them through 
+ * {@link SimpleStockMarketService#recordTradeMessages}, so the trade DAO 
+ * and the engines see one writer and their locks are never contended, and
+ * no trade object is created on the way unless the service needs one.
+ * <p>
+ * Prices are kept unscaled in the slots. Trades which do not fit into a
+ * message, with a symbol of more than 
+ * {@value com.jpmorgan.stock.market.codec.TradeDecoder#MAX_SYMBOL_LENGTH}
+ * characters, without symbol or indicator or with a price scale beyond a 
+ * byte, are rejected by the writer without reaching the service.
+ * <p>
+ * A slot is reused once the writer has recorded its trade. Producers which
+ * get ahead of the writer by the size of the buffer wait for it, which
+ * bounds the memory held by published trades. The claim, recorded and 
+ * cached recorded sequences are padded to cache lines of their own, as
+ * they are written by different threads. Idle threads spin, then yield,
+ * then park for a short while.
+ */
+public class RingBufferTradeIngestion implements TradeIngestion {
+	
+	final static Logger LOG = Logger.getLogger(RingBufferTradeIngestion.class);
+	
+	static final int SPINS = 100;
+	
+	static final int YIELDS = 100;
+	
+	static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+	
+	static final long NANOS_PER_MILLI = 1000000L;
+	
+	private boolean enabled;
+	
+	private int bufferSize = 1 << 16;
+	
+	private int maxBatchSize = 1024;
+	
+	private SimpleStockMarketService stockMarketService;
+	
+	private TradeSlot[] slots;
+	
+	private int mask;
+	
+	// next sequence to claim
+	private final Sequence claimed = new Sequence(0);
+	
+	// last sequence recorded by the writer
+	private final Sequence recorded = new Sequence(-1);
+	
+	// last recorded sequence seen by the producers, saves reading the writer's cache line
+	private final Sequence cachedRecorded = new Sequence(-1);
+	
+	// written by the writer thread only
+	private volatile long rejectedTrades;
+	
+	private volatile boolean running;
+	
+	private Thread writer;
+
+	/**
+	 * Allocate the slots and start the writer thread.
+	 * 
+	 */
+	public synchronized void start() {
+		if (!enabled || running) {
+			return;
+		}
+		// round up to a power of two, so the slot of a sequence is a mask away
+		int size = Math.max(2, 1 << (32 - Integer.numberOfLeadingZeros(bufferSize - 1)));
+		slots = new TradeSlot[size];
+		for (int i = 0; i < size; i++) {
+			slots[i] = new TradeSlot();
+		}
+		mask = size - 1;
+		bufferSize = size;
+		running = true;
+		writer = new Thread(this::write, "trade-ingestion");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Stop accepting trades, record the published ones and stop the writer
+	 * thread. Trades published concurrently to stopping may be dropped.
+	 * 
+	 */
+	public synchronized void stop() {
+		if (!running) {
+			return;
+		}
+		running = false;
+		try {
+			writer.join(TimeUnit.SECONDS.toMillis(10));
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+		writer = null;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.ingestion.TradeIngestion#isEnabled()
+	 */
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.ingestion.TradeIngestion#publish(java.lang.String, int, com.jpmorgan.stock.market.domain.enums.TradeIndicator, java.math.BigDecimal)
+	 */
+	@Override
+	public long publish(String stockSymbol, int quantity, TradeIndicator indicator, BigDecimal price) {
+		return publish(stockSymbol, quantity, indicator, unscaledPrice(price), priceScale(price));
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.ingestion.TradeIngestion#publish(java.lang.String, int, com.jpmorgan.stock.market.domain.enums.TradeIndicator, long, int)
+	 */
+	@Override
+	public long publish(String stockSymbol, int quantity, TradeIndicator indicator, long unscaledPrice, int priceScale) {
+		checkRunning();
+		long sequence = claimed.getAndIncrement();
+		long wrapPoint = sequence - bufferSize;
+		if (wrapPoint > cachedRecorded.get()) {
+			// the slot still holds a trade which is not recorded, wait for the writer
+			long recordedSequence;
+			int attempt = 0;
+			while (wrapPoint > (recordedSequence = recorded.get())) {
+				checkRunning();
+				attempt = idle(attempt);
+			}
+			cachedRecorded.set(recordedSequence);
+		}
+		fill(sequence, stockSymbol, quantity, indicator, unscaledPrice, priceScale);
+		return sequence;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.ingestion.TradeIngestion#tryPublish(java.lang.String, int, com.jpmorgan.stock.market.domain.enums.TradeIndicator, java.math.BigDecimal)
+	 */
+	@Override
+	public long tryPublish(String stockSymbol, int quantity, TradeIndicator indicator, BigDecimal price) {
+		return tryPublish(stockSymbol, quantity, indicator, unscaledPrice(price), priceScale(price));
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.ingestion.TradeIngestion#tryPublish(java.lang.String, int, com.jpmorgan.stock.market.domain.enums.TradeIndicator, long, int)
+	 */
+	@Override
+	public long tryPublish(String stockSymbol, int quantity, TradeIndicator indicator, long unscaledPrice, 
+			int priceScale) {
+		checkRunning();
+		long sequence;
+		do {
+			sequence = claimed.get();
+			if (sequence - bufferSize > recorded.get()) {
+				return -1;
+			}
+		} while (!claimed.compareAndSet(sequence, sequence + 1));
+		fill(sequence, stockSymbol, quantity, indicator, unscaledPrice, priceScale);
+		return sequence;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.ingestion.TradeIngestion#awaitRecorded(long, long)
+	 */
+	@Override
+	public boolean awaitRecorded(long sequence, long timeoutMillis) {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		int attempt = 0;
+		while (recorded.get() < sequence) {
+			if (System.nanoTime() - deadline > 0) {
+				return false;
+			}
+			attempt = idle(attempt);
+		}
+		return true;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.ingestion.TradeIngestion#getRecordedSequence()
+	 */
+	@Override
+	public long getRecordedSequence() {
+		return recorded.get();
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.ingestion.TradeIngestion#getRejectedTrades()
+	 */
+	@Override
+	public long getRejectedTrades() {
+		return rejectedTrades;
+	}
+
+	private void checkRunning() {
+		if (!running) {
+			throw new IllegalStateException("Trade ingestion is not running.");
+		}
+	}
+
+	private void fill(long sequence, String stockSymbol, int quantity, TradeIndicator indicator, long unscaledPrice, 
+			int priceScale) {
+		TradeSlot slot = slots[(int) sequence & mask];
+		slot.stockSymbol = stockSymbol;
+		slot.quantity = quantity;
+		slot.indicator = indicator;
+		slot.unscaledPrice = unscaledPrice;
+		slot.priceScale = priceScale;
+		slot.timeStamp = System.currentTimeMillis() * NANOS_PER_MILLI;
+		// publish the filled slot
+		TradeSlot.SEQUENCE.lazySet(slot, sequence);
+	}
+
+	private void write() {
+		ByteBuffer messages = ByteBuffer.allocateDirect(maxBatchSize * TradeDecoder.MESSAGE_SIZE)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		TradeEncoder encoder = new TradeEncoder();
+		long next = recorded.get() + 1;
+		int attempt = 0;
+		while (true) {
+			// read before taking slots, so every trade published before stopping is recorded
+			boolean stopping = !running;
+			int taken = 0;
+			int encoded = 0;
+			// absolute puts are bound by the limit of the previous batch
+			messages.clear();
+			while (taken < maxBatchSize) {
+				TradeSlot slot = slots[(int) (next + taken) & mask];
+				if (slot.sequence != next + taken) {
+					break;
+				}
+				if (slot.isEncodable()) {
+					encoder.wrap(messages, encoded * TradeDecoder.MESSAGE_SIZE).encode(slot.stockSymbol, slot.timeStamp, 
+							slot.indicator, slot.quantity, slot.unscaledPrice, slot.priceScale);
+					encoded++;
+				} else {
+					rejectedTrades++;
+				}
+				// do not keep the symbol of a recorded trade reachable
+				slot.stockSymbol = null;
+				taken++;
+			}
+			if (taken == 0) {
+				if (stopping) {
+					return;
+				}
+				attempt = idle(attempt);
+				continue;
+			}
+			attempt = 0;
+			messages.limit(encoded * TradeDecoder.MESSAGE_SIZE);
+			record(messages, encoded);
+			next += taken;
+			recorded.set(next - 1);
+		}
+	}
+
+	private void record(ByteBuffer messages, int count) {
+		if (count == 0) {
+			return;
+		}
+		try {
+			int rejections = stockMarketService.recordTradeMessages(messages);
+			if (rejections > 0) {
+				rejectedTrades += rejections;
+			}
+		} catch (BusinessException | RuntimeException e) {
+			// keep on recording the following trades
+			LOG.error("While recording a batch of " + count + " published trades an error occured: " 
+					+ e.getMessage());
+			rejectedTrades += count;
+		}
+	}
+
+	private static long unscaledPrice(BigDecimal price) {
+		if (price == null || price.unscaledValue().bitLength() > 63) {
+			return 0;
+		}
+		return price.unscaledValue().longValue();
+	}
+
+	private static int priceScale(BigDecimal price) {
+		if (price == null) {
+			return 0;
+		}
+		// a price which does not fit into a long unscaled cannot be encoded
+		return price.unscaledValue().bitLength() > 63 ? Integer.MAX_VALUE : price.scale();
+	}
+
+	private static int idle(int attempt) {
+		if (attempt < SPINS) {
+			return attempt + 1;
+		}
+		if (attempt < SPINS + YIELDS) {
+			Thread.yield();
+			return attempt + 1;
+		}
+		LockSupport.parkNanos(PARK_NANOS);
+		return attempt;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public void setBufferSize(int bufferSize) {
+		this.bufferSize = bufferSize;
+	}
+
+	public void setMaxBatchSize(int maxBatchSize) {
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	public void setStockMarketService(SimpleStockMarketService stockMarketService) {
+		this.stockMarketService = stockMarketService;
+	}
+
+	/**
+	 * Values of a published trade, reused for every bufferSize-th sequence.
+	 */
+	static class TradeSlot {
+		
+		static final AtomicLongFieldUpdater<TradeSlot> SEQUENCE = 
+				AtomicLongFieldUpdater.newUpdater(TradeSlot.class, "sequence");
+		
+		// sequence of the trade in the slot once it is filled
+		volatile long sequence = -1;
+		
+		String stockSymbol;
+		
+		int quantity;
+		
+		TradeIndicator indicator;
+		
+		long unscaledPrice;
+		
+		int priceScale;
+		
+		// publishing time in nanoseconds since 1970-01-01T00:00Z
+		long timeStamp;
+		
+		boolean isEncodable() {
+			return stockSymbol != null && !stockSymbol.isEmpty() && stockSymbol.length() <= TradeDecoder.MAX_SYMBOL_LENGTH 
+					&& indicator != null && priceScale == (byte) priceScale;
+		}
+	}
+
+	/**
+	 * Cache line padding before the value of a sequence.
+	 */
+	static class LeftPadding {
+		
+		long p1, p2, p3, p4, p5, p6, p7;
+	}
+
+	static class SequenceValue extends LeftPadding {
+		
+		volatile long value;
+	}
+
+	/**
+	 * Sequence counter on a cache line of its own, fields of super classes
+	 * are laid out first, so the value sits between the paddings.
+	 */
+	static class Sequence extends SequenceValue {
+		
+		static final AtomicLongFieldUpdater<SequenceValue> VALUE = 
+				AtomicLongFieldUpdater.newUpdater(SequenceValue.class, "value");
+		
+		long p9, p10, p11, p12, p13, p14, p15;
+		
+		Sequence(long initialValue) {
+			value = initialValue;
+		}
+		
+		long get() {
+			return value;
+		}
+		
+		void set(long newValue) {
+			value = newValue;
+		}
+		
+		long getAndIncrement() {
+			return VALUE.getAndIncrement(this);
+		}
+		
+		boolean compareAndSet(long expectedValue, long newValue) {
+			return VALUE.compareAndSet(this, expectedValue, newValue);
+		}
+	}
+
+}
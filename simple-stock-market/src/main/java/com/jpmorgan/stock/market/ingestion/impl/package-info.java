@@ -0,0 +1,6 @@
+// Copyright (c) 2016 JPMorgan
+
+/**
+* Implementation of trade ingestion
+*/
+package com.jpmorgan.stock.market.ingestion.impl;
\ No newline at end of file
@@ -0,0 +1,6 @@
+// Copyright (c) 2016 JPMorgan
+
+/**
+* Trade ingestion
+*/
+package com.jpmorgan.stock.market.ingestion;
\ No newline at end of file
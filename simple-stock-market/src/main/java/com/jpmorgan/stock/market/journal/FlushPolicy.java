@@ -0,0 +1,13 @@
+package com.jpmorgan.stock.market.journal;
+
+public enum FlushPolicy {
+
+	// Leave writing back to the operating system, trades survive a crash of the process only
+	OS,
+	
+	// Force in the background after a batch of trades or the flush interval
+	BATCH,
+	
+	// Force every trade before it is recorded
+	SYNC;
+}
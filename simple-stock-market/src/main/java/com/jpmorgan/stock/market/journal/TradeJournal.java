@@ -0,0 +1,87 @@
+package com.jpmorgan.stock.market.journal;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.jpmorgan.stock.market.domain.Trade;
+
+public interface TradeJournal {
+	
+	/**
+	 * Check whether trades are journaled.
+	 * 
+	 * @return true if trades are journaled
+	 */
+	public boolean isEnabled();
+	
+	/**
+	 * Check whether a trade can be written to the journal.
+	 * 
+	 * @param trade
+	 * @return true if every value of the trade fits into a journal record
+	 */
+	public boolean canAppend(Trade trade);
+	
+	/**
+	 * Append a trade to the journal.
+	 * 
+	 * @param trade
+	 */
+	public void append(Trade trade);
+	
+	/**
+	 * Append a batch of trades to the journal.
+	 * 
+	 * @param trades
+	 */
+	public void appendAll(Collection<Trade> trades);
+	
+	/**
+	 * Read back all journaled trades in the order they were appended.
+	 * 
+	 * @param consumer receives the trades in batches
+	 * @return the number of trades read
+	 */
+	public long replay(Consumer<List<Trade>> consumer);
+	
+	/**
+	 * Read back the journaled trades between two positions in the order they were appended.
+	 * 
+	 * @param fromPosition inclusive
+	 * @param toPosition exclusive
+	 * @param consumer receives the trades in batches
+	 * @return the number of trades read
+	 * @throws IllegalStateException if the trades at <code>fromPosition</code> were truncated
+	 */
+	public long replay(long fromPosition, long toPosition, Consumer<List<Trade>> consumer);
+	
+	/**
+	 * Get the position the next trade is appended at. Positions grow with
+	 * every appended trade.
+	 * 
+	 * @return the current position
+	 */
+	public long getPosition();
+	
+	/**
+	 * Drop journaled trades before a position. Trades may be kept in larger
+	 * units than single trades, so some trades before the position can remain.
+	 * 
+	 * @param position
+	 */
+	public void truncate(long position);
+	
+	/**
+	 * Force all appended trades to the storage device.
+	 * 
+	 */
+	public void flush();
+	
+	/**
+	 * Remove all journaled trades.
+	 * 
+	 */
+	public void clear();
+
+}
@@ -0,0 +1,569 @@
+package com.jpmorgan.stock.market.journal.impl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.apache.log4j.Logger;
+
+import com.jpmorgan.stock.market.domain.Trade;
+import com.jpmorgan.stock.market.domain.enums.TradeIndicator;
+import com.jpmorgan.stock.market.journal.FlushPolicy;
+import com.jpmorgan.stock.market.journal.TradeJournal;
+
+/**
+ * Write-ahead trade journal appending a fixed size binary record per trade
+ * to memory-mapped segment files, so appending a trade is a handful of
+ * stores into the page cache. Segments are named by their sequence number
+ * and a new one is mapped once the current one is full.
+ * <p>
+ * A record is {@value #RECORD_SIZE} bytes, little endian:
+ * <pre>
+ *  0 int   marker, written last
+ *  4 int   checksum of bytes 8 to 47
+ *  8 long  creation time stamp in epoch nanoseconds, UTC
+ * 16 long  unscaled price
+ * 24 int   quantity
+ * 28 byte  trade indicator
+ * 29 byte  price scale
+ * 30 byte  symbol length
+ * 32 16 bytes symbol, ASCII
+ * </pre>
+ * A full segment is not forced by the appending thread: with the BATCH
+ * policy it is forced by the flusher together with the next flush, with
+ * SYNC every record was already forced when it was appended.
+ * <p>
+ * Replay stops reading a segment at the first record without marker or
+ * with a wrong checksum, which is where the last append before a crash
+ * ended. Reopening the journal continues appending at that position.
+ * Trades appended while a replay runs are not replayed by it.
+ * <p>
+ * A position is the segment sequence number in the high and the byte
+ * offset within the segment in the low 32 bits.
+ */
+public class MappedTradeJournal implements TradeJournal {
+	
+	final static Logger LOG = Logger.getLogger(MappedTradeJournal.class);
+
+	static final int RECORD_SIZE = 48;
+	
+	static final int MAX_SYMBOL_LENGTH = 16;
+	
+	private static final int RECORD_MARKER = 0x54524431;
+	
+	private static final int CHECKSUM = 4;
+	
+	private static final int TIME_STAMP = 8;
+	
+	private static final int PRICE = 16;
+	
+	private static final int QUANTITY = 24;
+	
+	private static final int INDICATOR = 28;
+	
+	private static final int PRICE_SCALE = 29;
+	
+	private static final int SYMBOL_LENGTH = 30;
+	
+	private static final int SYMBOL = 32;
+	
+	private static final int REPLAY_BATCH_SIZE = 4096;
+	
+	private static final String SEGMENT_PREFIX = "trades-";
+	
+	private static final String SEGMENT_SUFFIX = ".journal";
+	
+	private static final TradeIndicator[] INDICATORS = TradeIndicator.values();
+	
+	private boolean enabled;
+	
+	private String directory;
+	
+	private long segmentBytes = 64L << 20;
+	
+	private FlushPolicy flushPolicy = FlushPolicy.BATCH;
+	
+	private int batchSize = 1024;
+	
+	private long flushIntervalMillis = 100;
+	
+	private volatile MappedByteBuffer segment;
+	
+	// full segments whose records are not forced yet, guarded by this
+	private final List<MappedByteBuffer> rolledSegments = new ArrayList<MappedByteBuffer>();
+	
+	// serializes forcing, so a flush returns only after earlier segments are forced
+	private final Object flushLock = new Object();
+	
+	private int segmentIndex;
+	
+	private int position;
+	
+	private volatile long appended;
+	
+	private final AtomicLong flushed = new AtomicLong();
+	
+	private final AtomicBoolean flushRequested = new AtomicBoolean();
+	
+	private ScheduledExecutorService flusher;
+
+	/**
+	 * Map the last segment and continue appending after its last complete record.
+	 * 
+	 * @throws IOException
+	 */
+	public synchronized void open() throws IOException {
+		if (!enabled) {
+			return;
+		}
+		Files.createDirectories(Paths.get(directory));
+		List<Path> segments = segments();
+		if (segments.isEmpty()) {
+			segmentIndex = 0;
+			segment = map(segmentPath(segmentIndex));
+			position = 0;
+		} else {
+			Path last = segments.get(segments.size() - 1);
+			segmentIndex = segmentIndex(last);
+			segment = map(last);
+			position = end(segment);
+		}
+		if (flushPolicy == FlushPolicy.BATCH && flushIntervalMillis > 0) {
+			flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "trade-journal-flusher");
+				thread.setDaemon(true);
+				return thread;
+			});
+			flusher.scheduleWithFixedDelay(this::flushIfPending, flushIntervalMillis, flushIntervalMillis, 
+					TimeUnit.MILLISECONDS);
+		}
+		LOG.info("Trade journal was opened in [" + directory + "] at segment " + segmentIndex + ".");
+	}
+
+	/**
+	 * Force all appended trades and stop flushing in the background.
+	 * 
+	 */
+	public synchronized void close() {
+		if (flusher != null) {
+			flusher.shutdown();
+			flusher = null;
+		}
+		if (segment != null) {
+			flush();
+			segment = null;
+		}
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.journal.TradeJournal#isEnabled()
+	 */
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.journal.TradeJournal#canAppend(com.jpmorgan.stock.market.domain.Trade)
+	 */
+	@Override
+	public boolean canAppend(Trade trade) {
+		String symbol = trade.getStockSymbol();
+		if (symbol.length() > MAX_SYMBOL_LENGTH) {
+			return false;
+		}
+		for (int i = 0; i < symbol.length(); i++) {
+			if (symbol.charAt(i) > 0x7f) {
+				return false;
+			}
+		}
+		BigDecimal price = trade.getPrice();
+		if (price.unscaledValue().bitLength() > 63 || price.scale() != (byte) price.scale()) {
+			return false;
+		}
+		if (trade.getRecordCreationTimeStamp() == null) {
+			return false;
+		}
+		try {
+			toEpochNanos(trade.getRecordCreationTimeStamp());
+		} catch (ArithmeticException ae) {
+			return false;
+		}
+		return true;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.journal.TradeJournal#append(com.jpmorgan.stock.market.domain.Trade)
+	 */
+	@Override
+	public void append(Trade trade) {
+		synchronized (this) {
+			write(trade);
+			appended++;
+		}
+		appended();
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.journal.TradeJournal#appendAll(java.util.Collection)
+	 */
+	@Override
+	public void appendAll(Collection<Trade> trades) {
+		synchronized (this) {
+			for (Trade trade : trades) {
+				write(trade);
+			}
+			appended += trades.size();
+		}
+		appended();
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.journal.TradeJournal#replay(java.util.function.Consumer)
+	 */
+	@Override
+	public long replay(Consumer<List<Trade>> consumer) {
+		return replay(0, Long.MAX_VALUE, consumer);
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.journal.TradeJournal#replay(long, long, java.util.function.Consumer)
+	 */
+	@Override
+	public long replay(long fromPosition, long toPosition, Consumer<List<Trade>> consumer) {
+		if (!enabled) {
+			return 0;
+		}
+		MappedByteBuffer current;
+		int currentIndex;
+		int currentEnd;
+		// the lock publishes the records appended so far, the replay of an open journal ends at them
+		synchronized (this) {
+			current = segment;
+			currentIndex = segmentIndex;
+			currentEnd = position;
+		}
+		long count = 0;
+		List<Trade> batch = new ArrayList<Trade>(REPLAY_BATCH_SIZE);
+		Map<String, String> symbols = new HashMap<String, String>();
+		byte[] symbolBytes = new byte[MAX_SYMBOL_LENGTH];
+		try {
+			List<Path> segments = segments();
+			if (fromPosition != 0 && segments.stream().noneMatch(path -> segmentIndex(path) == segmentIndex(fromPosition))) {
+				throw new IllegalStateException("Journal segment " + segmentIndex(fromPosition) 
+						+ " the replay starts from does not exist, it was truncated or removed.");
+			}
+			if (fromPosition == 0 && !segments.isEmpty() && segmentIndex(segments.get(0)) > 0) {
+				LOG.warn("Journal segments before segment " + segmentIndex(segments.get(0)) 
+						+ " were truncated, the replay starts at it.");
+			}
+			// records before the end are never written again, so they are read without the lock
+			for (Path path : segments) {
+				int index = segmentIndex(path);
+				if (index < segmentIndex(fromPosition) || index > segmentIndex(toPosition) 
+						|| current != null && index > currentIndex) {
+					continue;
+				}
+				MappedByteBuffer buffer = current != null && index == currentIndex ? current : mapReadOnly(path);
+				int offset = index == segmentIndex(fromPosition) ? segmentOffset(fromPosition) : 0;
+				int end = index == segmentIndex(toPosition) ? Math.min(segmentOffset(toPosition), buffer.capacity()) 
+						: buffer.capacity();
+				if (current != null && index == currentIndex) {
+					end = Math.min(end, currentEnd);
+				}
+				for (; offset + RECORD_SIZE <= end && isComplete(buffer, offset); offset += RECORD_SIZE) {
+					batch.add(read(buffer, offset, symbols, symbolBytes));
+					if (batch.size() == REPLAY_BATCH_SIZE) {
+						consumer.accept(batch);
+						count += batch.size();
+						batch = new ArrayList<Trade>(REPLAY_BATCH_SIZE);
+					}
+				}
+			}
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+		if (!batch.isEmpty()) {
+			consumer.accept(batch);
+			count += batch.size();
+		}
+		return count;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.journal.TradeJournal#getPosition()
+	 */
+	@Override
+	public synchronized long getPosition() {
+		return ((long) segmentIndex << 32) | position;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.journal.TradeJournal#truncate(long)
+	 */
+	@Override
+	public synchronized void truncate(long position) {
+		if (!enabled) {
+			return;
+		}
+		try {
+			// only whole segments are dropped, never the one appended to
+			for (Path path : segments()) {
+				int index = segmentIndex(path);
+				if (index < segmentIndex(position) && index < segmentIndex) {
+					Files.delete(path);
+				}
+			}
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.journal.TradeJournal#flush()
+	 */
+	@Override
+	public void flush() {
+		synchronized (flushLock) {
+			MappedByteBuffer current;
+			List<MappedByteBuffer> rolled = null;
+			long upTo;
+			synchronized (this) {
+				current = segment;
+				upTo = appended;
+				if (!rolledSegments.isEmpty()) {
+					rolled = new ArrayList<MappedByteBuffer>(rolledSegments);
+					rolledSegments.clear();
+				}
+			}
+			if (rolled != null) {
+				for (MappedByteBuffer buffer : rolled) {
+					buffer.force();
+				}
+			}
+			if (current != null) {
+				current.force();
+				flushed.accumulateAndGet(upTo, Math::max);
+			}
+		}
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.journal.TradeJournal#clear()
+	 */
+	@Override
+	public synchronized void clear() {
+		if (!enabled) {
+			return;
+		}
+		try {
+			for (Path path : segments()) {
+				Files.delete(path);
+			}
+			rolledSegments.clear();
+			segmentIndex = 0;
+			segment = map(segmentPath(segmentIndex));
+			position = 0;
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+		appended = 0;
+		flushed.set(0);
+	}
+
+	private void write(Trade trade) {
+		if (position + RECORD_SIZE > segment.capacity()) {
+			roll();
+		}
+		MappedByteBuffer buffer = segment;
+		int offset = position;
+		String symbol = trade.getStockSymbol();
+		buffer.putLong(offset + TIME_STAMP, toEpochNanos(trade.getRecordCreationTimeStamp()));
+		buffer.putLong(offset + PRICE, trade.getPrice().unscaledValue().longValueExact());
+		buffer.putInt(offset + QUANTITY, trade.getQuantity());
+		buffer.put(offset + INDICATOR, (byte) trade.getIndicator().ordinal());
+		buffer.put(offset + PRICE_SCALE, (byte) trade.getPrice().scale());
+		buffer.put(offset + SYMBOL_LENGTH, (byte) symbol.length());
+		for (int i = 0; i < MAX_SYMBOL_LENGTH; i++) {
+			buffer.put(offset + SYMBOL + i, i < symbol.length() ? (byte) symbol.charAt(i) : 0);
+		}
+		buffer.putInt(offset + CHECKSUM, checksum(buffer, offset));
+		// the marker makes the record complete
+		buffer.putInt(offset, RECORD_MARKER);
+		position += RECORD_SIZE;
+	}
+
+	private Trade read(MappedByteBuffer buffer, int offset, Map<String, String> symbols, byte[] symbolBytes) {
+		int symbolLength = buffer.get(offset + SYMBOL_LENGTH);
+		for (int i = 0; i < symbolLength; i++) {
+			symbolBytes[i] = buffer.get(offset + SYMBOL + i);
+		}
+		String symbol = symbols.computeIfAbsent(new String(symbolBytes, 0, symbolLength, StandardCharsets.US_ASCII), 
+				s -> s);
+		Trade trade = new Trade(symbol, buffer.getInt(offset + QUANTITY), INDICATORS[buffer.get(offset + INDICATOR)], 
+				BigDecimal.valueOf(buffer.getLong(offset + PRICE), buffer.get(offset + PRICE_SCALE)));
+		trade.setRecordCreationTimeStamp(toLocalDateTime(buffer.getLong(offset + TIME_STAMP)));
+		return trade;
+	}
+
+	private void appended() {
+		switch (flushPolicy) {
+			case SYNC:
+				flush();
+				break;
+			case BATCH:
+				if (appended - flushed.get() >= batchSize && flusher != null && flushRequested.compareAndSet(false, true)) {
+					flusher.execute(this::flushIfPending);
+				}
+				break;
+			default:
+				break;
+		}
+	}
+
+	private void flushIfPending() {
+		flushRequested.set(false);
+		if (appended != flushed.get()) {
+			flush();
+		}
+	}
+
+	private void roll() {
+		// with SYNC the records of the full segment were forced as they were appended
+		if (flushPolicy == FlushPolicy.BATCH) {
+			rolledSegments.add(segment);
+		}
+		try {
+			segment = map(segmentPath(segmentIndex + 1));
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+		segmentIndex++;
+		position = 0;
+	}
+
+	private MappedByteBuffer map(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, 
+				StandardOpenOption.WRITE)) {
+			long size = Math.max(channel.size(), segmentBytes / RECORD_SIZE * RECORD_SIZE);
+			MappedByteBuffer buffer = channel.map(MapMode.READ_WRITE, 0, size);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			return buffer;
+		}
+	}
+
+	private static MappedByteBuffer mapReadOnly(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			return buffer;
+		}
+	}
+
+	private List<Path> segments() throws IOException {
+		List<Path> segments = new ArrayList<Path>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(directory), 
+				SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+			for (Path path : stream) {
+				segments.add(path);
+			}
+		}
+		// the sequence number is zero padded, so names sort in sequence
+		segments.sort(null);
+		return segments;
+	}
+
+	private Path segmentPath(int index) {
+		return Paths.get(directory, String.format("%s%010d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+	}
+
+	private static int segmentIndex(Path path) {
+		String name = path.getFileName().toString();
+		return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+	}
+
+	private static int segmentIndex(long position) {
+		return (int) (position >>> 32);
+	}
+
+	private static int segmentOffset(long position) {
+		return (int) Math.min(position & 0xffffffffL, Integer.MAX_VALUE);
+	}
+
+	private static int end(MappedByteBuffer buffer) {
+		int offset = 0;
+		while (offset + RECORD_SIZE <= buffer.capacity() && isComplete(buffer, offset)) {
+			offset += RECORD_SIZE;
+		}
+		return offset;
+	}
+
+	private static boolean isComplete(MappedByteBuffer buffer, int offset) {
+		return buffer.getInt(offset) == RECORD_MARKER && buffer.getInt(offset + CHECKSUM) == checksum(buffer, offset);
+	}
+
+	private static int checksum(MappedByteBuffer buffer, int offset) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = TIME_STAMP; i < RECORD_SIZE; i += 8) {
+			hash = (hash ^ buffer.getLong(offset + i)) * 0x100000001b3L;
+		}
+		return (int) (hash ^ (hash >>> 32));
+	}
+
+	private static long toEpochNanos(LocalDateTime timeStamp) {
+		return Math.addExact(Math.multiplyExact(timeStamp.toEpochSecond(ZoneOffset.UTC), 1000000000L), timeStamp.getNano());
+	}
+
+	private static LocalDateTime toLocalDateTime(long epochNanos) {
+		return LocalDateTime.ofEpochSecond(Math.floorDiv(epochNanos, 1000000000L),
+				(int) Math.floorMod(epochNanos, 1000000000L), ZoneOffset.UTC);
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public void setDirectory(String directory) {
+		this.directory = directory;
+	}
+
+	public void setSegmentBytes(long segmentBytes) {
+		this.segmentBytes = segmentBytes;
+	}
+
+	public void setFlushPolicy(FlushPolicy flushPolicy) {
+		this.flushPolicy = flushPolicy;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public void setFlushIntervalMillis(long flushIntervalMillis) {
+		this.flushIntervalMillis = flushIntervalMillis;
+	}
+
+}
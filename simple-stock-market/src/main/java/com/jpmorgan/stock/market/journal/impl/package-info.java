@@ -0,0 +1,6 @@
+// Copyright (c) 2016 JPMorgan
+
+/**
+* Implementation of trade journal
+*/
+package com.jpmorgan.stock.market.journal.impl;
\ No newline at end of file
@@ -0,0 +1,6 @@
+// Copyright (c) 2016 JPMorgan
+
+/**
+* Trade journal
+*/
+package com.jpmorgan.stock.market.journal;
\ No newline at end of file
@@ -0,0 +1,118 @@
+package com.jpmorgan.stock.market.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of latencies in nanoseconds. Every power of two is
+ * split into 32 linear buckets, so a percentile is reported less than 1/32
+ * above the recorded value. Recording is a few atomic updates and does not
+ * allocate, percentiles are read from the live buckets.
+ */
+public class LatencyHistogram {
+	
+	static final int SUB_BUCKET_BITS = 5;
+	
+	static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	
+	// enough buckets for Long.MAX_VALUE
+	static final int BUCKETS = (64 - SUB_BUCKET_BITS) << SUB_BUCKET_BITS;
+	
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	
+	private final AtomicLong count = new AtomicLong();
+	
+	private final AtomicLong totalNanos = new AtomicLong();
+	
+	private final AtomicLong maxNanos = new AtomicLong();
+	
+	/**
+	 * Account a latency, negative latencies are accounted as zero.
+	 * 
+	 * @param nanos
+	 */
+	public void record(long nanos) {
+		long value = Math.max(nanos, 0);
+		counts.incrementAndGet(index(value));
+		count.incrementAndGet();
+		totalNanos.addAndGet(value);
+		long max = maxNanos.get();
+		while (value > max && !maxNanos.compareAndSet(max, value)) {
+			max = maxNanos.get();
+		}
+	}
+	
+	/**
+	 * Get the latency which a percentage of the accounted latencies do not
+	 * exceed.
+	 * 
+	 * @param percentile between 0 and 100
+	 * @return the highest latency of the bucket the percentile falls into, zero if nothing was accounted
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			total += counts.get(i);
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+		long max = maxNanos.get();
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				return Math.min(highestValue(i), max);
+			}
+		}
+		// latencies were accounted while counting
+		return max;
+	}
+	
+	public long getCount() {
+		return count.get();
+	}
+	
+	public long getMaxNanos() {
+		return maxNanos.get();
+	}
+	
+	public double getMeanNanos() {
+		long total = count.get();
+		return total == 0 ? 0 : (double) totalNanos.get() / total;
+	}
+	
+	/**
+	 * Drop all accounted latencies. Latencies accounted meanwhile may be
+	 * dropped partially.
+	 * 
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0);
+		}
+		count.set(0);
+		totalNanos.set(0);
+		maxNanos.set(0);
+	}
+	
+	static int index(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+		return ((shift + 1) << SUB_BUCKET_BITS) + subBucket;
+	}
+	
+	static long highestValue(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int shift = (index >> SUB_BUCKET_BITS) - 1;
+		long subBucket = index & (SUB_BUCKETS - 1);
+		return ((SUB_BUCKETS + subBucket) << shift) + (1L << shift) - 1;
+	}
+
+}
@@ -0,0 +1,38 @@
+package com.jpmorgan.stock.market.metrics;
+
+public enum Operation {
+
+	DIVIDEND_YIELD("calculateDividendYield"),
+	
+	PRICE_EARNINGS_RATIO("calculatePriceEarningsRatio"),
+	
+	DIVIDEND_YIELDS("calculateDividendYields"),
+	
+	PRICE_EARNINGS_RATIOS("calculatePriceEarningsRatios"),
+	
+	RECORD_TRADE("recordTrade"),
+	
+	RECORD_TRADES("recordTrades"),
+	
+	RECORD_TRADE_MESSAGES("recordTradeMessages"),
+	
+	VOLUME_WEIGHTED_STOCK_PRICE_IN_PAST_5_MINUTES("calculateVolumeWeightedStockPriceInPast5Minutes"),
+	
+	VOLUME_WEIGHTED_STOCK_PRICE("calculateVolumeWeightedStockPrice"),
+	
+	GBCE_ALL_SHARE_INDEX("calculateGBCEAllShareIndex"),
+	
+	BASKET_INDEX("calculateIndex"),
+	
+	MARKET_STATE("acquireMarketState");
+	
+	private final String methodName;
+	
+	private Operation(String methodName) {
+		this.methodName = methodName;
+	}
+	
+	public String getMethodName() {
+		return methodName;
+	}
+}
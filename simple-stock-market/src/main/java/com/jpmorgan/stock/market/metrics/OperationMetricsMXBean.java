@@ -0,0 +1,23 @@
+package com.jpmorgan.stock.market.metrics;
+
+/**
+ * Counters and latencies of a single service operation published through
+ * JMX.
+ */
+public interface OperationMetricsMXBean {
+	
+	public long getCalls();
+	
+	public long getRejections();
+	
+	public long getLatencyP50Nanos();
+	
+	public long getLatencyP99Nanos();
+	
+	public long getLatencyP999Nanos();
+	
+	public long getLatencyMaxNanos();
+	
+	public double getLatencyMeanNanos();
+
+}
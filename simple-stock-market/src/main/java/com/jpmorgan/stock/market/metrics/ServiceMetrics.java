@@ -0,0 +1,75 @@
+package com.jpmorgan.stock.market.metrics;
+
+import java.util.Map;
+
+public interface ServiceMetrics {
+	
+	/**
+	 * Check whether service calls are measured.
+	 * 
+	 * @return true if calls are measured
+	 */
+	public boolean isEnabled();
+	
+	/**
+	 * Account a call of an operation, whether it succeeded or not. Must
+	 * not allocate.
+	 * 
+	 * @param operation
+	 * @param startNanos value of System.nanoTime() when the call started
+	 */
+	public void record(Operation operation, long startNanos);
+	
+	/**
+	 * Account a rejected call of an operation or a rejected trade of a batch.
+	 * 
+	 * @param operation
+	 * @param reason message of the business exception
+	 */
+	public void reject(Operation operation, String reason);
+	
+	/**
+	 * Account recorded trades. Must not allocate.
+	 * 
+	 * @param trades
+	 */
+	public void addRecordedTrades(int trades);
+	
+	/**
+	 * Get the latencies of an operation.
+	 * 
+	 * @param operation
+	 * @return the latency histogram
+	 */
+	public LatencyHistogram getLatencyHistogram(Operation operation);
+	
+	/**
+	 * Get the number of rejections of an operation.
+	 * 
+	 * @param operation
+	 * @return the number of rejections
+	 */
+	public long getRejections(Operation operation);
+	
+	/**
+	 * Get the number of rejections by reason. Stock symbols in the reasons
+	 * are left out, so rejections for unknown stocks are counted together.
+	 * 
+	 * @return the number of rejections by reason
+	 */
+	public Map<String, Long> getRejectionsByReason();
+	
+	/**
+	 * Get the number of recorded trades.
+	 * 
+	 * @return the number of trades
+	 */
+	public long getRecordedTrades();
+	
+	/**
+	 * Drop all accounted calls, rejections and trades.
+	 * 
+	 */
+	public void reset();
+
+}
@@ -0,0 +1,34 @@
+package com.jpmorgan.stock.market.metrics;
+
+import java.util.Map;
+
+/**
+ * Service wide counters and gauges published through JMX.
+ */
+public interface ServiceMetricsMXBean {
+	
+	public long getRecordedTrades();
+	
+	public long getRejections();
+	
+	public Map<String, Long> getRejectionsByReason();
+	
+	/**
+	 * Get the number of trades in the trade store.
+	 * 
+	 * @return the number of trades, -1 if the trade store does not count them
+	 */
+	public long getStoredTrades();
+	
+	/**
+	 * Get an estimate of the memory held by the trade store.
+	 * 
+	 * @return the number of bytes, -1 if the trade store does not estimate it
+	 */
+	public long getStoredTradeBytes();
+	
+	public int getStocks();
+	
+	public void reset();
+
+}
@@ -0,0 +1,319 @@
+package com.jpmorgan.stock.market.metrics.impl;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+
+import com.jpmorgan.stock.market.dao.ColumnarTradeDao;
+import com.jpmorgan.stock.market.dao.RetainingTradeDao;
+import com.jpmorgan.stock.market.dao.StockDao;
+import com.jpmorgan.stock.market.dao.TradeDao;
+import com.jpmorgan.stock.market.metrics.LatencyHistogram;
+import com.jpmorgan.stock.market.metrics.Operation;
+import com.jpmorgan.stock.market.metrics.OperationMetricsMXBean;
+import com.jpmorgan.stock.market.metrics.ServiceMetrics;
+import com.jpmorgan.stock.market.metrics.ServiceMetricsMXBean;
+
+/**
+ * Service metrics published through the platform MBean server: one MXBean
+ * with the service wide counters and the trade store gauges, named
+ * &lt;domain&gt;:type=ServiceMetrics, and one MXBean per operation with its
+ * calls, rejections and latency percentiles, named
+ * &lt;domain&gt;:type=ServiceMetrics,operation=&lt;method name&gt;. MXBeans
+ * registered under the same names before are replaced, and closing the 
+ * replaced metrics leaves the MXBeans which replaced them registered.
+ * <p>
+ * Calls and recorded trades are counted with atomic updates only, gauges
+ * are read from the DAOs when the MXBean is read.
+ */
+public class JmxServiceMetrics implements ServiceMetrics, ServiceMetricsMXBean {
+	
+	final static Logger LOG = Logger.getLogger(JmxServiceMetrics.class);
+	
+	// bracketed stock symbols are left out of rejection reasons
+	private static final Pattern SYMBOL = Pattern.compile("\\[[^\\]]*\\]");
+	
+	private static final Operation[] OPERATIONS = Operation.values();
+	
+	// metrics every name was last registered by, guarding registration across instances
+	private static final Map<ObjectName, JmxServiceMetrics> OWNERS = new HashMap<ObjectName, JmxServiceMetrics>();
+	
+	private boolean enabled = true;
+	
+	private String domain = "com.jpmorgan.stock.market";
+	
+	private StockDao stockDao;
+	
+	private TradeDao tradeDao;
+	
+	private final OperationMetrics[] operationMetrics = new OperationMetrics[OPERATIONS.length];
+	
+	private final Map<String, AtomicLong> rejectionsByReason = new ConcurrentHashMap<String, AtomicLong>();
+	
+	private final AtomicLong recordedTrades = new AtomicLong();
+	
+	private final List<ObjectName> registeredNames = new ArrayList<ObjectName>();
+	
+	public JmxServiceMetrics() {
+		for (Operation operation : OPERATIONS) {
+			operationMetrics[operation.ordinal()] = new OperationMetrics();
+		}
+	}
+
+	/**
+	 * Register the MXBeans with the platform MBean server.
+	 * 
+	 */
+	public synchronized void open() {
+		if (!enabled) {
+			return;
+		}
+		try {
+			register(new ObjectName(domain + ":type=ServiceMetrics"), this);
+			for (Operation operation : OPERATIONS) {
+				register(new ObjectName(domain + ":type=ServiceMetrics,operation=" + operation.getMethodName()), 
+						operationMetrics[operation.ordinal()]);
+			}
+		} catch (JMException jme) {
+			// the service works without being observed
+			LOG.error("While registering the service metrics an error occured: " + jme.getMessage());
+		}
+	}
+
+	/**
+	 * Unregister the MXBeans.
+	 * 
+	 */
+	public synchronized void close() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		synchronized (OWNERS) {
+			for (ObjectName name : registeredNames) {
+				// a name registered again by other metrics since is theirs now
+				if (!OWNERS.remove(name, this)) {
+					continue;
+				}
+				try {
+					server.unregisterMBean(name);
+				} catch (JMException jme) {
+					LOG.warn("Service metrics [" + name + "] cannot be unregistered: " + jme.getMessage());
+				}
+			}
+		}
+		registeredNames.clear();
+	}
+
+	private void register(ObjectName name, Object mxBean) throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		synchronized (OWNERS) {
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+			server.registerMBean(mxBean, name);
+			OWNERS.put(name, this);
+		}
+		registeredNames.add(name);
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.metrics.ServiceMetrics#isEnabled()
+	 */
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.metrics.ServiceMetrics#record(com.jpmorgan.stock.market.metrics.Operation, long)
+	 */
+	@Override
+	public void record(Operation operation, long startNanos) {
+		operationMetrics[operation.ordinal()].latencies.record(System.nanoTime() - startNanos);
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.metrics.ServiceMetrics#reject(com.jpmorgan.stock.market.metrics.Operation, java.lang.String)
+	 */
+	@Override
+	public void reject(Operation operation, String reason) {
+		operationMetrics[operation.ordinal()].rejections.incrementAndGet();
+		String key = reason == null ? "" : SYMBOL.matcher(reason).replaceAll("[]");
+		rejectionsByReason.computeIfAbsent(key, k -> new AtomicLong()).incrementAndGet();
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.metrics.ServiceMetrics#addRecordedTrades(int)
+	 */
+	@Override
+	public void addRecordedTrades(int trades) {
+		recordedTrades.addAndGet(trades);
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.metrics.ServiceMetrics#getLatencyHistogram(com.jpmorgan.stock.market.metrics.Operation)
+	 */
+	@Override
+	public LatencyHistogram getLatencyHistogram(Operation operation) {
+		return operationMetrics[operation.ordinal()].latencies;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.metrics.ServiceMetrics#getRejections(com.jpmorgan.stock.market.metrics.Operation)
+	 */
+	@Override
+	public long getRejections(Operation operation) {
+		return operationMetrics[operation.ordinal()].getRejections();
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.metrics.ServiceMetrics#getRejectionsByReason()
+	 */
+	@Override
+	public Map<String, Long> getRejectionsByReason() {
+		Map<String, Long> rejections = new TreeMap<String, Long>();
+		rejectionsByReason.forEach((reason, count) -> rejections.put(reason, count.get()));
+		return rejections;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.metrics.ServiceMetrics#getRecordedTrades()
+	 */
+	@Override
+	public long getRecordedTrades() {
+		return recordedTrades.get();
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.metrics.ServiceMetricsMXBean#getRejections()
+	 */
+	@Override
+	public long getRejections() {
+		long rejections = 0;
+		for (OperationMetrics metrics : operationMetrics) {
+			rejections += metrics.getRejections();
+		}
+		return rejections;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.metrics.ServiceMetricsMXBean#getStoredTrades()
+	 */
+	@Override
+	public long getStoredTrades() {
+		if (tradeDao instanceof RetainingTradeDao) {
+			return ((RetainingTradeDao) tradeDao).getTradeCount();
+		}
+		if (tradeDao instanceof ColumnarTradeDao) {
+			return ((ColumnarTradeDao) tradeDao).getTradeCount();
+		}
+		return -1;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.metrics.ServiceMetricsMXBean#getStoredTradeBytes()
+	 */
+	@Override
+	public long getStoredTradeBytes() {
+		if (tradeDao instanceof RetainingTradeDao) {
+			return ((RetainingTradeDao) tradeDao).getEstimatedBytes();
+		}
+		if (tradeDao instanceof ColumnarTradeDao) {
+			return ((ColumnarTradeDao) tradeDao).getColumnBytes();
+		}
+		return -1;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.metrics.ServiceMetricsMXBean#getStocks()
+	 */
+	@Override
+	public int getStocks() {
+		return stockDao == null ? 0 : stockDao.getAll().size();
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.metrics.ServiceMetrics#reset()
+	 */
+	@Override
+	public void reset() {
+		for (OperationMetrics metrics : operationMetrics) {
+			metrics.latencies.reset();
+			metrics.rejections.set(0);
+		}
+		rejectionsByReason.clear();
+		recordedTrades.set(0);
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public void setDomain(String domain) {
+		this.domain = domain;
+	}
+
+	public void setStockDao(StockDao stockDao) {
+		this.stockDao = stockDao;
+	}
+
+	public void setTradeDao(TradeDao tradeDao) {
+		this.tradeDao = tradeDao;
+	}
+
+	/**
+	 * Calls, rejections and latencies of one operation.
+	 */
+	private static class OperationMetrics implements OperationMetricsMXBean {
+		
+		private final LatencyHistogram latencies = new LatencyHistogram();
+		
+		private final AtomicLong rejections = new AtomicLong();
+
+		@Override
+		public long getCalls() {
+			return latencies.getCount();
+		}
+
+		@Override
+		public long getRejections() {
+			return rejections.get();
+		}
+
+		@Override
+		public long getLatencyP50Nanos() {
+			return latencies.getValueAtPercentile(50);
+		}
+
+		@Override
+		public long getLatencyP99Nanos() {
+			return latencies.getValueAtPercentile(99);
+		}
+
+		@Override
+		public long getLatencyP999Nanos() {
+			return latencies.getValueAtPercentile(99.9);
+		}
+
+		@Override
+		public long getLatencyMaxNanos() {
+			return latencies.getMaxNanos();
+		}
+
+		@Override
+		public double getLatencyMeanNanos() {
+			return latencies.getMeanNanos();
+		}
+	}
+
+}
@@ -0,0 +1,6 @@
+// Copyright (c) 2016 JPMorgan
+
+/**
+* Implementation of service metrics
+*/
+package com.jpmorgan.stock.market.metrics.impl;
\ No newline at end of file
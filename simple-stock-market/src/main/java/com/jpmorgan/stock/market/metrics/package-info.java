@@ -0,0 +1,6 @@
+// Copyright (c) 2016 JPMorgan
+
+/**
+* Service metrics
+*/
+package com.jpmorgan.stock.market.metrics;
\ No newline at end of file
@@ -0,0 +1,33 @@
+package com.jpmorgan.stock.market.pricing;
+
+public interface BulkPricing {
+	
+	/**
+	 * Calculate the dividend yields of a price grid. Row i of the grid holds
+	 * the prices of a stock paying dividends[i] per share, the last dividend
+	 * of a common stock or the fixed dividend times the par value of a 
+	 * preferred stock. Yields are rounded half up to digitsAfterPoint, a 
+	 * price which is not a positive number or a yield too large to be 
+	 * calculated gives NaN.
+	 * 
+	 * @param dividends
+	 * @param prices
+	 * @param dividendYields the results, of the shape of the prices
+	 */
+	public void dividendYields(double[] dividends, double[][] prices, double[][] dividendYields);
+	
+	/**
+	 * Calculate the Price-Earnings Ratios of a price grid, the price divided
+	 * by the rounded dividend yield, see {@link #dividendYields}, rounded 
+	 * half up to digitsAfterPoint. Unlike the single calculation, which
+	 * needs the ratio to be exact at digitsAfterPoint, every ratio is 
+	 * rounded. A price which is not a positive number, has a yield of 
+	 * zero or a ratio too large to be calculated gives NaN.
+	 * 
+	 * @param dividends
+	 * @param prices
+	 * @param priceEarningsRatios the results, of the shape of the prices
+	 */
+	public void priceEarningsRatios(double[] dividends, double[][] prices, double[][] priceEarningsRatios);
+
+}
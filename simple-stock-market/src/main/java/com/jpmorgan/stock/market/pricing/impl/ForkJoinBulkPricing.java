@@ -0,0 +1,258 @@
+package com.jpmorgan.stock.market.pricing.impl;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+import com.jpmorgan.stock.market.engine.FixedPointArithmetic;
+import com.jpmorgan.stock.market.pricing.BulkPricing;
+
+/**
+ * Bulk pricing in primitive loops over the rows of a price grid. Prices 
+ * and dividends of up to {@value #UNIT_DIGITS} digits after point are 
+ * divided as scaled longs and rounded half up exactly, so results equal 
+ * the ones of {@link BigDecimal} under {@link RoundingMode#HALF_UP}; other
+ * prices are calculated with {@link BigDecimal}. Grids of more than 
+ * parallelThreshold prices are split into halves of rows on a fork-join 
+ * pool until a part has no more than parallelThreshold prices or a single
+ * row, a threshold of zero keeps every grid on the calling thread.
+ */
+public class ForkJoinBulkPricing implements BulkPricing {
+	
+	// prices and dividends are scaled to units of 10^-UNIT_DIGITS
+	static final int UNIT_DIGITS = 6;
+	
+	private static final double UNITS = 1e6;
+	
+	// below it two decimals of UNIT_DIGITS digits after point never round to the same double
+	private static final double MAX_VALUE = 1e9;
+	
+	// result of a calculation which does not fit in a long, priced as NaN
+	private static final long OUT_OF_RANGE = Long.MIN_VALUE;
+	
+	private int digitsAfterPoint;
+	
+	private int parallelThreshold;
+	
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	
+	private volatile ForkJoinPool pool;
+	
+	public synchronized void start() {
+		if (parallelThreshold <= 0 || pool != null) {
+			return;
+		}
+		pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+			thread.setName("bulk-pricing-" + thread.getPoolIndex());
+			thread.setDaemon(true);
+			return thread;
+		}, null, false);
+	}
+	
+	public synchronized void stop() {
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.pricing.BulkPricing#dividendYields(double[], double[][], double[][])
+	 */
+	@Override
+	public void dividendYields(double[] dividends, double[][] prices, double[][] dividendYields) {
+		price(new PricingTask(dividends, prices, dividendYields, false, 0, prices.length));
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.pricing.BulkPricing#priceEarningsRatios(double[], double[][], double[][])
+	 */
+	@Override
+	public void priceEarningsRatios(double[] dividends, double[][] prices, double[][] priceEarningsRatios) {
+		price(new PricingTask(dividends, prices, priceEarningsRatios, true, 0, prices.length));
+	}
+	
+	private void price(PricingTask task) {
+		ForkJoinPool current = pool;
+		if (current == null || task.size() <= parallelThreshold) {
+			task.priceRows();
+		} else {
+			current.invoke(task);
+		}
+	}
+	
+	static void dividendYields(double dividend, double[] prices, double[] dividendYields, int digitsAfterPoint) {
+		long dividendUnits = units(dividend);
+		long scale = powerOfTen(digitsAfterPoint);
+		for (int i = 0; i < prices.length; i++) {
+			double price = prices[i];
+			long dividendYield = price > 0 && price < Double.POSITIVE_INFINITY 
+					? dividendYield(dividend, dividendUnits, price, digitsAfterPoint, scale) : OUT_OF_RANGE;
+			dividendYields[i] = dividendYield != OUT_OF_RANGE ? (double) dividendYield / scale : Double.NaN;
+		}
+	}
+	
+	static void priceEarningsRatios(double dividend, double[] prices, double[] priceEarningsRatios, int digitsAfterPoint) {
+		long dividendUnits = units(dividend);
+		long scale = powerOfTen(digitsAfterPoint);
+		for (int i = 0; i < prices.length; i++) {
+			double price = prices[i];
+			// the price is checked before it is divided by
+			if (!(price > 0 && price < Double.POSITIVE_INFINITY)) {
+				priceEarningsRatios[i] = Double.NaN;
+				continue;
+			}
+			long dividendYield = dividendYield(dividend, dividendUnits, price, digitsAfterPoint, scale);
+			long priceEarningsRatio = dividendYield > 0 
+					? priceEarningsRatio(price, dividendYield, digitsAfterPoint, scale) : OUT_OF_RANGE;
+			priceEarningsRatios[i] = priceEarningsRatio != OUT_OF_RANGE 
+					? (double) priceEarningsRatio / scale : Double.NaN;
+		}
+	}
+	
+	/**
+	 * Dividend yield of a positive price in units of 10^-digitsAfterPoint,
+	 * {@link #OUT_OF_RANGE} if it does not fit in a long.
+	 */
+	private static long dividendYield(double dividend, long dividendUnits, double price, int digitsAfterPoint, 
+			long scale) {
+		long priceUnits = units(price);
+		if (dividendUnits >= 0 && priceUnits > 0) {
+			try {
+				return FixedPointArithmetic.divideHalfUp(Math.multiplyExact(dividendUnits, scale), priceUnits);
+			} catch (ArithmeticException ae) {
+				// the dividend is too large for scaled longs
+			}
+		}
+		try {
+			return BigDecimal.valueOf(dividend).divide(BigDecimal.valueOf(price), digitsAfterPoint, RoundingMode.HALF_UP)
+					.unscaledValue().longValueExact();
+		} catch (ArithmeticException ae) {
+			return OUT_OF_RANGE;
+		}
+	}
+	
+	/**
+	 * Price-Earnings Ratio of a positive price over a positive dividend 
+	 * yield in units of 10^-digitsAfterPoint, {@link #OUT_OF_RANGE} if it 
+	 * does not fit in a long.
+	 */
+	private static long priceEarningsRatio(double price, long dividendYield, int digitsAfterPoint, long scale) {
+		long priceUnits = units(price);
+		if (priceUnits > 0) {
+			try {
+				// (priceUnits / 10^UNIT_DIGITS) / (dividendYield / scale) in units of 1 / scale
+				return FixedPointArithmetic.divideHalfUp(Math.multiplyExact(Math.multiplyExact(priceUnits, scale), scale), 
+						Math.multiplyExact(dividendYield, (long) UNITS));
+			} catch (ArithmeticException ae) {
+				// the price is too large for scaled longs
+			}
+		}
+		try {
+			return BigDecimal.valueOf(price).divide(BigDecimal.valueOf(dividendYield, digitsAfterPoint), digitsAfterPoint, 
+					RoundingMode.HALF_UP).unscaledValue().longValueExact();
+		} catch (ArithmeticException ae) {
+			return OUT_OF_RANGE;
+		}
+	}
+	
+	/**
+	 * Convert a value to units of 10^-{@value #UNIT_DIGITS}.
+	 * 
+	 * @return the units, -1 unless the value is not negative, below 
+	 *         {@link #MAX_VALUE} and has at most {@value #UNIT_DIGITS} digits after point
+	 */
+	private static long units(double value) {
+		if (!(value >= 0 && value < MAX_VALUE)) {
+			return -1;
+		}
+		long units = Math.round(value * UNITS);
+		return units / UNITS == value ? units : -1;
+	}
+	
+	private static long powerOfTen(int exponent) {
+		long power = 1;
+		for (int i = 0; i < exponent; i++) {
+			power = Math.multiplyExact(power, 10);
+		}
+		return power;
+	}
+	
+	public void setDigitsAfterPoint(int digitsAfterPoint) {
+		this.digitsAfterPoint = digitsAfterPoint;
+	}
+	
+	public void setParallelThreshold(int parallelThreshold) {
+		this.parallelThreshold = parallelThreshold;
+	}
+	
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
+	
+	/**
+	 * Prices a range of rows of a grid, forking halves while it is larger
+	 * than the threshold.
+	 */
+	private class PricingTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final double[] dividends;
+
+		private final double[][] prices;
+
+		private final double[][] results;
+
+		private final boolean ratios;
+
+		private final int fromRow;
+
+		private final int toRow;
+
+		PricingTask(double[] dividends, double[][] prices, double[][] results, boolean ratios, int fromRow, int toRow) {
+			this.dividends = dividends;
+			this.prices = prices;
+			this.results = results;
+			this.ratios = ratios;
+			this.fromRow = fromRow;
+			this.toRow = toRow;
+		}
+
+		/*
+		 * @see java.util.concurrent.RecursiveAction#compute()
+		 */
+		@Override
+		protected void compute() {
+			if (toRow - fromRow > 1 && size() > parallelThreshold) {
+				int middleRow = (fromRow + toRow) >>> 1;
+				invokeAll(new PricingTask(dividends, prices, results, ratios, fromRow, middleRow), 
+						new PricingTask(dividends, prices, results, ratios, middleRow, toRow));
+			} else {
+				priceRows();
+			}
+		}
+
+		void priceRows() {
+			for (int row = fromRow; row < toRow; row++) {
+				if (ratios) {
+					priceEarningsRatios(dividends[row], prices[row], results[row], digitsAfterPoint);
+				} else {
+					dividendYields(dividends[row], prices[row], results[row], digitsAfterPoint);
+				}
+			}
+		}
+
+		long size() {
+			long size = 0;
+			for (int row = fromRow; row < toRow; row++) {
+				size += prices[row].length;
+			}
+			return size;
+		}
+	}
+
+}
@@ -0,0 +1,6 @@
+// Copyright (c) 2016 JPMorgan
+
+/**
+* Implementation of bulk pricing
+*/
+package com.jpmorgan.stock.market.pricing.impl;
\ No newline at end of file
@@ -0,0 +1,6 @@
+// Copyright (c) 2016 JPMorgan
+
+/**
+* Bulk pricing of price grids
+*/
+package com.jpmorgan.stock.market.pricing;
\ No newline at end of file
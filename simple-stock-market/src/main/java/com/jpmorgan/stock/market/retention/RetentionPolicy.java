@@ -0,0 +1,42 @@
+package com.jpmorgan.stock.market.retention;
+
+/**
+ * Limits on the trades kept for a stock.
+ */
+public class RetentionPolicy {
+	
+	// trades older than that many minutes are evicted, 0 keeps trades of any age
+	private int maxAgeMinutes;
+	
+	// trades beyond the newest ones are evicted, 0 keeps any number of trades
+	private int maxTrades;
+	
+	public RetentionPolicy() {
+	}
+	
+	public RetentionPolicy(int maxAgeMinutes, int maxTrades) {
+		this.maxAgeMinutes = maxAgeMinutes;
+		this.maxTrades = maxTrades;
+	}
+	
+	public boolean isLimited() {
+		return maxAgeMinutes > 0 || maxTrades > 0;
+	}
+
+	public int getMaxAgeMinutes() {
+		return maxAgeMinutes;
+	}
+
+	public void setMaxAgeMinutes(int maxAgeMinutes) {
+		this.maxAgeMinutes = maxAgeMinutes;
+	}
+
+	public int getMaxTrades() {
+		return maxTrades;
+	}
+
+	public void setMaxTrades(int maxTrades) {
+		this.maxTrades = maxTrades;
+	}
+
+}
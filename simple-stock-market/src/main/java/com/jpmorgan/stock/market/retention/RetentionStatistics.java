@@ -0,0 +1,47 @@
+package com.jpmorgan.stock.market.retention;
+
+/**
+ * Memory and eviction statistics of the retained trades.
+ */
+public class RetentionStatistics {
+	
+	private final long retainedTrades;
+	
+	private final long estimatedBytes;
+	
+	private final long evictedTrades;
+	
+	private final long sweeps;
+	
+	private final long lastSweepMillis;
+	
+	public RetentionStatistics(long retainedTrades, long estimatedBytes, long evictedTrades, long sweeps, 
+			long lastSweepMillis) {
+		this.retainedTrades = retainedTrades;
+		this.estimatedBytes = estimatedBytes;
+		this.evictedTrades = evictedTrades;
+		this.sweeps = sweeps;
+		this.lastSweepMillis = lastSweepMillis;
+	}
+
+	public long getRetainedTrades() {
+		return retainedTrades;
+	}
+
+	public long getEstimatedBytes() {
+		return estimatedBytes;
+	}
+
+	public long getEvictedTrades() {
+		return evictedTrades;
+	}
+
+	public long getSweeps() {
+		return sweeps;
+	}
+
+	public long getLastSweepMillis() {
+		return lastSweepMillis;
+	}
+
+}
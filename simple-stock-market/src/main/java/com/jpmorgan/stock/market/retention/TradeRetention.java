@@ -0,0 +1,44 @@
+package com.jpmorgan.stock.market.retention;
+
+import java.util.Collection;
+
+import com.jpmorgan.stock.market.domain.Trade;
+
+public interface TradeRetention {
+	
+	/**
+	 * Check whether trades are evicted.
+	 * 
+	 * @return true if any retention limit is set
+	 */
+	public boolean isEnabled();
+	
+	/**
+	 * Evict a few expired trades of the stock of a recorded trade.
+	 * 
+	 * @param trade
+	 */
+	public void onTrade(Trade trade);
+	
+	/**
+	 * Evict a few expired trades of the stocks of a recorded batch.
+	 * 
+	 * @param trades
+	 */
+	public void onTrades(Collection<Trade> trades);
+	
+	/**
+	 * Evict all expired trades of all stocks.
+	 * 
+	 * @return the number of evicted trades
+	 */
+	public long evictExpiredTrades();
+	
+	/**
+	 * Get memory and eviction statistics.
+	 * 
+	 * @return the statistics
+	 */
+	public RetentionStatistics getStatistics();
+
+}
@@ -0,0 +1,229 @@
+package com.jpmorgan.stock.market.retention.impl;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.log4j.Logger;
+
+import com.jpmorgan.stock.market.clock.MarketClock;
+import com.jpmorgan.stock.market.clock.impl.MarketClockImpl;
+import com.jpmorgan.stock.market.dao.RetainingTradeDao;
+import com.jpmorgan.stock.market.dao.TradeDao;
+import com.jpmorgan.stock.market.domain.Trade;
+import com.jpmorgan.stock.market.retention.RetentionPolicy;
+import com.jpmorgan.stock.market.retention.RetentionStatistics;
+import com.jpmorgan.stock.market.retention.TradeRetention;
+
+/**
+ * Trade retention evicting trades older than the maximum age or beyond the
+ * maximum number of trades of a stock, stocks may have policies of their
+ * own. Every recorded trade evicts from the oldest segments of its stock
+ * and a background sweep goes through all stocks one segment at a time,
+ * so trades of stocks without new trades expire as well and the lock of a
+ * stock is never held for longer than a segment takes.
+ * <p>
+ * Trades in the query window are never evicted: the maximum age is raised
+ * to the query window and the maximum number of trades is exceeded while
+ * more trades are in the query window. Ages are measured on the 
+ * {@link MarketClock}.
+ * <p>
+ * Only a {@link RetainingTradeDao} can evict trades. Without limits the 
+ * retention is disabled for trade DAOs keeping all trades until they are
+ * cleared, with limits it refuses to start.
+ */
+public class ScheduledTradeRetention implements TradeRetention {
+	
+	final static Logger LOG = Logger.getLogger(ScheduledTradeRetention.class);
+	
+	// segments evicted per recorded trade, more than one catches up after bursts
+	static final int SEGMENTS_PER_TRADE = 2;
+	
+	private RetainingTradeDao tradeDao;
+	
+	// the configured trade DAO when it cannot evict
+	private TradeDao keepingTradeDao;
+	
+	private RetentionPolicy retentionPolicy = new RetentionPolicy();
+	
+	private Map<String, RetentionPolicy> stockRetentionPolicies = Collections.emptyMap();
+	
+	private int queryWindowMinutes;
+	
+	private long sweepIntervalMillis = 1000;
+	
+	private MarketClock marketClock = new MarketClockImpl();
+	
+	private final LongAdder evictedTrades = new LongAdder();
+	
+	private final AtomicLong sweeps = new AtomicLong();
+	
+	private volatile long lastSweepMillis;
+	
+	private ScheduledExecutorService sweeper;
+
+	/**
+	 * Start sweeping all stocks periodically.
+	 * 
+	 */
+	public synchronized void start() {
+		if (keepingTradeDao != null && isLimited()) {
+			throw new IllegalStateException("Trade retention is limited, but the trade DAO [" 
+					+ keepingTradeDao.getClass().getSimpleName() + "] cannot evict trades. Use trade.storage=SHARDED "
+					+ "or no retention limits.");
+		}
+		if (!isEnabled() || sweepIntervalMillis <= 0) {
+			return;
+		}
+		sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "trade-retention");
+			thread.setDaemon(true);
+			return thread;
+		});
+		sweeper.scheduleWithFixedDelay(() -> {
+			try {
+				evictExpiredTrades();
+			} catch (RuntimeException re) {
+				LOG.error("While evicting expired trades an error occured: " + re.getMessage());
+			}
+		}, sweepIntervalMillis, sweepIntervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stop sweeping.
+	 * 
+	 */
+	public synchronized void stop() {
+		if (sweeper != null) {
+			sweeper.shutdown();
+			sweeper = null;
+		}
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.retention.TradeRetention#isEnabled()
+	 */
+	@Override
+	public boolean isEnabled() {
+		return tradeDao != null && isLimited();
+	}
+	
+	private boolean isLimited() {
+		if (retentionPolicy.isLimited()) {
+			return true;
+		}
+		// checked on every recorded trade, so without a stream
+		for (RetentionPolicy policy : stockRetentionPolicies.values()) {
+			if (policy.isLimited()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.retention.TradeRetention#onTrade(com.jpmorgan.stock.market.domain.Trade)
+	 */
+	@Override
+	public void onTrade(Trade trade) {
+		evict(trade.getStockSymbol(), marketClock.now(), SEGMENTS_PER_TRADE);
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.retention.TradeRetention#onTrades(java.util.Collection)
+	 */
+	@Override
+	public void onTrades(Collection<Trade> trades) {
+		LocalDateTime now = marketClock.now();
+		trades.stream().map(Trade::getStockSymbol).distinct()
+				.forEach(stockSymbol -> evict(stockSymbol, now, SEGMENTS_PER_TRADE));
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.retention.TradeRetention#evictExpiredTrades()
+	 */
+	@Override
+	public long evictExpiredTrades() {
+		if (tradeDao == null) {
+			return 0;
+		}
+		long start = System.nanoTime();
+		LocalDateTime now = marketClock.now();
+		long evicted = 0;
+		for (String stockSymbol : tradeDao.getStockSymbols()) {
+			// a segment at a time, so writers of the stock are blocked only briefly
+			int removed;
+			do {
+				removed = evict(stockSymbol, now, 1);
+				evicted += removed;
+			} while (removed > 0);
+		}
+		sweeps.incrementAndGet();
+		lastSweepMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		if (evicted > 0) {
+			LOG.debug(evicted + " expired trades were evicted in " + lastSweepMillis + " ms.");
+		}
+		return evicted;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.retention.TradeRetention#getStatistics()
+	 */
+	@Override
+	public RetentionStatistics getStatistics() {
+		if (tradeDao == null) {
+			return new RetentionStatistics(-1, -1, evictedTrades.sum(), sweeps.get(), lastSweepMillis);
+		}
+		return new RetentionStatistics(tradeDao.getTradeCount(), tradeDao.getEstimatedBytes(), evictedTrades.sum(), 
+				sweeps.get(), lastSweepMillis);
+	}
+
+	private int evict(String stockSymbol, LocalDateTime now, int maxSegments) {
+		RetentionPolicy policy = stockRetentionPolicies.getOrDefault(stockSymbol, retentionPolicy);
+		if (!policy.isLimited()) {
+			return 0;
+		}
+		LocalDateTime keepAfter = now.minusMinutes(queryWindowMinutes);
+		LocalDateTime cutoff = null;
+		if (policy.getMaxAgeMinutes() > 0) {
+			cutoff = now.minusMinutes(Math.max(policy.getMaxAgeMinutes(), queryWindowMinutes));
+		}
+		int removed = tradeDao.evictByStockSymbol(stockSymbol, cutoff, policy.getMaxTrades(), keepAfter, maxSegments);
+		if (removed > 0) {
+			evictedTrades.add(removed);
+		}
+		return removed;
+	}
+
+	public void setTradeDao(TradeDao tradeDao) {
+		this.tradeDao = tradeDao instanceof RetainingTradeDao ? (RetainingTradeDao) tradeDao : null;
+		this.keepingTradeDao = tradeDao instanceof RetainingTradeDao ? null : tradeDao;
+	}
+
+	public void setRetentionPolicy(RetentionPolicy retentionPolicy) {
+		this.retentionPolicy = retentionPolicy;
+	}
+
+	public void setStockRetentionPolicies(Map<String, RetentionPolicy> stockRetentionPolicies) {
+		this.stockRetentionPolicies = stockRetentionPolicies;
+	}
+
+	public void setQueryWindowMinutes(int queryWindowMinutes) {
+		this.queryWindowMinutes = queryWindowMinutes;
+	}
+
+	public void setSweepIntervalMillis(long sweepIntervalMillis) {
+		this.sweepIntervalMillis = sweepIntervalMillis;
+	}
+
+	public void setMarketClock(MarketClock marketClock) {
+		this.marketClock = marketClock;
+	}
+
+}
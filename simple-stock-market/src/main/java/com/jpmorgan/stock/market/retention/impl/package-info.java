@@ -0,0 +1,6 @@
+// Copyright (c) 2016 JPMorgan
+
+/**
+* Implementation of trade retention
+*/
+package com.jpmorgan.stock.market.retention.impl;
\ No newline at end of file
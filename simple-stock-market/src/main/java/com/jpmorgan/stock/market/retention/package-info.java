@@ -0,0 +1,6 @@
+// Copyright (c) 2016 JPMorgan
+
+/**
+* Trade retention
+*/
+package com.jpmorgan.stock.market.retention;
\ No newline at end of file
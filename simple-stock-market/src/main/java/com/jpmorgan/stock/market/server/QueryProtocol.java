@@ -0,0 +1,46 @@
+package com.jpmorgan.stock.market.server;
+
+/**
+ * Binary request-response protocol of the {@link QueryServer}. Every 
+ * request and response is a frame: an int length of the rest of the frame,
+ * followed by the frame. All numbers are big-endian, a decimal is a long 
+ * unscaled value and a byte scale, a string is an unsigned short length 
+ * followed by that many bytes of UTF-8.
+ * <p>
+ * A request is a byte type, an int request id and the arguments of the 
+ * type. A response is the int id of its request, a byte status and, for
+ * {@link #OK}, the result of the type or, for {@link #ERROR}, the message
+ * of the rejection. Requests may be pipelined, responses are returned in 
+ * the order of the requests.
+ * <ul>
+ * <li>{@link #DIVIDEND_YIELD}: string stock symbol, decimal price; returns decimal</li>
+ * <li>{@link #PRICE_EARNINGS_RATIO}: string stock symbol, decimal price; returns decimal</li>
+ * <li>{@link #VOLUME_WEIGHTED_STOCK_PRICE}: string stock symbol; returns decimal</li>
+ * <li>{@link #ALL_SHARE_INDEX}: returns decimal</li>
+ * <li>{@link #RECORD_TRADES}: int count, count binary trade messages, see 
+ * {@link com.jpmorgan.stock.market.codec.TradeDecoder}; returns int rejected</li>
+ * </ul>
+ */
+public final class QueryProtocol {
+	
+	public static final byte DIVIDEND_YIELD = 1;
+	
+	public static final byte PRICE_EARNINGS_RATIO = 2;
+	
+	public static final byte VOLUME_WEIGHTED_STOCK_PRICE = 3;
+	
+	public static final byte ALL_SHARE_INDEX = 4;
+	
+	public static final byte RECORD_TRADES = 5;
+	
+	public static final byte OK = 0;
+	
+	public static final byte ERROR = 1;
+	
+	// type and request id
+	public static final int REQUEST_HEADER_SIZE = 5;
+	
+	private QueryProtocol() {
+	}
+
+}
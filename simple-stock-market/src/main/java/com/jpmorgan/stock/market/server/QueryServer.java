@@ -0,0 +1,20 @@
+package com.jpmorgan.stock.market.server;
+
+public interface QueryServer {
+	
+	/**
+	 * Check whether the server accepts connections.
+	 * 
+	 * @return true if the market is served over the network
+	 */
+	public boolean isEnabled();
+	
+	/**
+	 * Get the port the server is bound to, which is chosen by the system 
+	 * when the configured port is zero.
+	 * 
+	 * @return the port, -1 if the server is not running
+	 */
+	public int getPort();
+
+}
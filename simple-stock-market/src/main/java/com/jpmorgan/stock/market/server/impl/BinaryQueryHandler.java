@@ -0,0 +1,141 @@
+package com.jpmorgan.stock.market.server.impl;
+
+import static com.jpmorgan.stock.market.server.QueryProtocol.ALL_SHARE_INDEX;
+import static com.jpmorgan.stock.market.server.QueryProtocol.DIVIDEND_YIELD;
+import static com.jpmorgan.stock.market.server.QueryProtocol.ERROR;
+import static com.jpmorgan.stock.market.server.QueryProtocol.OK;
+import static com.jpmorgan.stock.market.server.QueryProtocol.PRICE_EARNINGS_RATIO;
+import static com.jpmorgan.stock.market.server.QueryProtocol.RECORD_TRADES;
+import static com.jpmorgan.stock.market.server.QueryProtocol.REQUEST_HEADER_SIZE;
+import static com.jpmorgan.stock.market.server.QueryProtocol.VOLUME_WEIGHTED_STOCK_PRICE;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.ProtocolException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.jpmorgan.stock.market.codec.TradeDecoder;
+import com.jpmorgan.stock.market.exceptions.BusinessException;
+import com.jpmorgan.stock.market.server.QueryProtocol;
+import com.jpmorgan.stock.market.service.SimpleStockMarketService;
+
+/**
+ * Handler of the binary protocol, see {@link QueryProtocol}. Requests are
+ * read in place from the input and responses written in place to the 
+ * output; trade messages are passed on as a slice of the input.
+ */
+final class BinaryQueryHandler implements QueryHandler {
+	
+	private final SimpleStockMarketService stockMarketService;
+	
+	BinaryQueryHandler(SimpleStockMarketService stockMarketService) {
+		this.stockMarketService = stockMarketService;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.server.impl.QueryHandler#handle(com.jpmorgan.stock.market.server.impl.Connection)
+	 */
+	@Override
+	public boolean handle(Connection connection) throws IOException {
+		ByteBuffer in = connection.in;
+		if (in.remaining() < 4) {
+			return false;
+		}
+		int length = in.getInt(in.position());
+		if (length < REQUEST_HEADER_SIZE || length > in.capacity() - 4) {
+			throw new ProtocolException("Request of " + length + " bytes is out of range");
+		}
+		if (in.remaining() < 4 + length) {
+			return false;
+		}
+		int end = in.position() + 4 + length;
+		int limit = in.limit();
+		in.position(in.position() + 4);
+		in.limit(end);
+		try {
+			byte type = in.get();
+			int requestId = in.getInt();
+			respond(type, requestId, in, connection.out);
+		} catch (BufferUnderflowException bue) {
+			throw new ProtocolException("Request is shorter than its arguments");
+		} finally {
+			in.limit(limit);
+			in.position(end);
+		}
+		return true;
+	}
+	
+	private void respond(byte type, int requestId, ByteBuffer in, ByteBuffer out) throws ProtocolException {
+		int start = out.position();
+		out.putInt(0);
+		out.putInt(requestId);
+		int status = out.position();
+		try {
+			out.put(OK);
+			if (type == DIVIDEND_YIELD) {
+				String stockSymbol = getString(in);
+				putDecimal(out, stockMarketService.calculateDividendYield(stockSymbol, getDecimal(in)));
+			} else if (type == PRICE_EARNINGS_RATIO) {
+				String stockSymbol = getString(in);
+				putDecimal(out, stockMarketService.calculatePriceEarningsRatio(stockSymbol, getDecimal(in)));
+			} else if (type == VOLUME_WEIGHTED_STOCK_PRICE) {
+				putDecimal(out, stockMarketService.calculateVolumeWeightedStockPriceInPast5Minutes(getString(in)));
+			} else if (type == ALL_SHARE_INDEX) {
+				putDecimal(out, stockMarketService.calculateGBCEAllShareIndex());
+			} else if (type == RECORD_TRADES) {
+				out.putInt(stockMarketService.recordTradeMessages(getTradeMessages(in)));
+			} else {
+				throw new ProtocolException("Unknown request type [" + type + "]");
+			}
+		} catch (BusinessException | ArithmeticException e) {
+			// ArithmeticException is thrown for results which have no exact decimal or do not fit into a long
+			out.position(status);
+			out.put(ERROR);
+			putString(out, QueryHandler.message(e));
+		}
+		out.putInt(start, out.position() - start - 4);
+	}
+	
+	private static ByteBuffer getTradeMessages(ByteBuffer in) throws ProtocolException {
+		int count = in.getInt();
+		if (count < 0 || count != in.remaining() / TradeDecoder.MESSAGE_SIZE 
+				|| in.remaining() % TradeDecoder.MESSAGE_SIZE != 0) {
+			throw new ProtocolException("Request does not hold " + count + " trade messages");
+		}
+		ByteBuffer messages = in.slice();
+		in.position(in.limit());
+		return messages;
+	}
+	
+	private static String getString(ByteBuffer in) {
+		int length = in.getShort() & 0xFFFF;
+		if (length > in.remaining()) {
+			throw new BufferUnderflowException();
+		}
+		String string = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+		in.position(in.position() + length);
+		return string;
+	}
+	
+	private static BigDecimal getDecimal(ByteBuffer in) {
+		long unscaledValue = in.getLong();
+		return BigDecimal.valueOf(unscaledValue, in.get());
+	}
+	
+	private static void putString(ByteBuffer out, String string) {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		out.putShort((short) bytes.length);
+		out.put(bytes);
+	}
+	
+	private static void putDecimal(ByteBuffer out, BigDecimal decimal) {
+		if (decimal.scale() != (byte) decimal.scale()) {
+			throw new ArithmeticException("Scale of " + decimal + " does not fit into a byte.");
+		}
+		out.putLong(decimal.unscaledValue().longValueExact());
+		out.put((byte) decimal.scale());
+	}
+
+}
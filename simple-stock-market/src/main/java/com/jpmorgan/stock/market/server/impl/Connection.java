@@ -0,0 +1,32 @@
+package com.jpmorgan.stock.market.server.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * State of a connection, used by the selector thread only. Both buffers 
+ * are bounded and kept in write mode between events: the input holds the
+ * bytes of requests not handled yet, the output the bytes of responses not
+ * written yet.
+ */
+final class Connection {
+	
+	final SocketChannel channel;
+	
+	final ByteBuffer in;
+	
+	final ByteBuffer out;
+	
+	// chosen by the first bytes of the connection
+	QueryHandler handler;
+	
+	// close once the output is written
+	boolean closing;
+	
+	Connection(SocketChannel channel, int bufferSize) {
+		this.channel = channel;
+		this.in = ByteBuffer.allocate(bufferSize);
+		this.out = ByteBuffer.allocate(bufferSize);
+	}
+
+}
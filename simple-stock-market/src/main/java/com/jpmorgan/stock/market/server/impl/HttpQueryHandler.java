@@ -0,0 +1,262 @@
+package com.jpmorgan.stock.market.server.impl;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+import java.net.ProtocolException;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import com.jpmorgan.stock.market.domain.Trade;
+import com.jpmorgan.stock.market.domain.enums.TradeIndicator;
+import com.jpmorgan.stock.market.exceptions.BusinessException;
+import com.jpmorgan.stock.market.service.SimpleStockMarketService;
+
+/**
+ * Handler of a minimal HTTP/1.1 JSON endpoint, for clients without the 
+ * binary protocol. Arguments are passed as query parameters, request 
+ * bodies are skipped:
+ * <pre>
+ * GET  /dividend-yield?symbol=POP&amp;price=2.00
+ * GET  /price-earnings-ratio?symbol=POP&amp;price=2.00
+ * GET  /vwap?symbol=POP
+ * GET  /all-share-index
+ * POST /trades?symbol=POP&amp;quantity=10&amp;indicator=BUY&amp;price=2.00
+ * </pre>
+ * Connections are kept alive unless the client asks to close them or 
+ * speaks HTTP/1.0, and requests may be pipelined. Chunked and other 
+ * transfer codings are not supported: such a request is answered with 
+ * 501 and the connection is closed, as the end of its body is unknown.
+ */
+final class HttpQueryHandler implements QueryHandler {
+	
+	private static final byte[] HEADER_END = {'\r', '\n', '\r', '\n'};
+	
+	private final SimpleStockMarketService stockMarketService;
+	
+	HttpQueryHandler(SimpleStockMarketService stockMarketService) {
+		this.stockMarketService = stockMarketService;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.server.impl.QueryHandler#handle(com.jpmorgan.stock.market.server.impl.Connection)
+	 */
+	@Override
+	public boolean handle(Connection connection) throws IOException {
+		ByteBuffer in = connection.in;
+		int headerEnd = indexOf(in, HEADER_END);
+		if (headerEnd < 0) {
+			return false;
+		}
+		String[] lines = new String(in.array(), in.arrayOffset() + in.position(), headerEnd - in.position(), 
+				StandardCharsets.ISO_8859_1).split("\r\n");
+		String[] requestLine = lines[0].split(" ");
+		if (requestLine.length != 3 || !requestLine[2].startsWith("HTTP/1.")) {
+			throw new ProtocolException("Request line [" + lines[0] + "] is not HTTP/1.x");
+		}
+		int contentLength = 0;
+		boolean close = requestLine[2].equals("HTTP/1.0");
+		boolean transferEncoding = false;
+		for (int i = 1; i < lines.length; i++) {
+			int colon = lines[i].indexOf(':');
+			if (colon < 0) {
+				throw new ProtocolException("Header [" + lines[i] + "] has no value");
+			}
+			String name = lines[i].substring(0, colon).trim().toLowerCase(Locale.ROOT);
+			String value = lines[i].substring(colon + 1).trim();
+			if (name.equals("content-length")) {
+				contentLength = parseContentLength(value);
+			} else if (name.equals("transfer-encoding")) {
+				transferEncoding = true;
+			} else if (name.equals("connection")) {
+				close = value.equalsIgnoreCase("close") || (close && !value.equalsIgnoreCase("keep-alive"));
+			}
+		}
+		if (transferEncoding) {
+			// the body cannot be skipped, so neither can the requests after it
+			in.position(in.limit());
+			connection.closing = true;
+			connection.out.put(response(501, error("Transfer-Encoding is not supported."), true));
+			return true;
+		}
+		int end = headerEnd + HEADER_END.length;
+		if (contentLength > in.capacity() - (end - in.position())) {
+			throw new ProtocolException("Request body of " + contentLength + " bytes does not fit");
+		}
+		if (in.limit() - end < contentLength) {
+			return false;
+		}
+		in.position(end + contentLength);
+		connection.closing = close;
+		respond(requestLine[0], requestLine[1], close, connection.out);
+		return true;
+	}
+	
+	private void respond(String method, String target, boolean close, ByteBuffer out) {
+		int query = target.indexOf('?');
+		String path = query < 0 ? target : target.substring(0, query);
+		Map<String, String> parameters = query < 0 ? new HashMap<String, String>() 
+				: parseQuery(target.substring(query + 1));
+		int status = 200;
+		String body;
+		try {
+			if (path.equals("/dividend-yield") && method.equals("GET")) {
+				body = json("dividendYield", stockMarketService.calculateDividendYield(parameters.get("symbol"), 
+						decimal(parameters, "price")));
+			} else if (path.equals("/price-earnings-ratio") && method.equals("GET")) {
+				body = json("priceEarningsRatio", stockMarketService.calculatePriceEarningsRatio(
+						parameters.get("symbol"), decimal(parameters, "price")));
+			} else if (path.equals("/vwap") && method.equals("GET")) {
+				body = json("volumeWeightedStockPrice", 
+						stockMarketService.calculateVolumeWeightedStockPriceInPast5Minutes(parameters.get("symbol")));
+			} else if (path.equals("/all-share-index") && method.equals("GET")) {
+				body = json("allShareIndex", stockMarketService.calculateGBCEAllShareIndex());
+			} else if (path.equals("/trades") && method.equals("POST")) {
+				stockMarketService.recordTrade(new Trade(parameters.get("symbol"), integer(parameters, "quantity"), 
+						indicator(parameters), decimal(parameters, "price")));
+				body = "{\"recorded\":true}";
+			} else {
+				status = 404;
+				body = error(QueryHandler.cut("No resource " + method + " " + path));
+			}
+		} catch (BusinessException | ArithmeticException e) {
+			status = 400;
+			body = error(QueryHandler.message(e));
+		}
+		byte[] response = response(status, body, close);
+		if (response.length > MAX_RESPONSE_SIZE) {
+			// a result of a huge price given by the client
+			response = response(400, error("Result does not fit into a response."), close);
+		}
+		out.put(response);
+	}
+	
+	private static byte[] response(int status, String body, boolean close) {
+		byte[] content = body.getBytes(StandardCharsets.UTF_8);
+		byte[] header = ("HTTP/1.1 " + status + " " + reason(status) 
+				+ "\r\nContent-Type: application/json\r\nContent-Length: " + content.length 
+				+ (close ? "\r\nConnection: close" : "") + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1);
+		byte[] response = Arrays.copyOf(header, header.length + content.length);
+		System.arraycopy(content, 0, response, header.length, content.length);
+		return response;
+	}
+	
+	private static String reason(int status) {
+		switch (status) {
+			case 200:
+				return "OK";
+			case 400:
+				return "Bad Request";
+			case 404:
+				return "Not Found";
+			default:
+				return "Not Implemented";
+		}
+	}
+	
+	private static int indexOf(ByteBuffer in, byte[] bytes) {
+		byte[] array = in.array();
+		int offset = in.arrayOffset();
+		for (int i = in.position(); i <= in.limit() - bytes.length; i++) {
+			int j = 0;
+			while (j < bytes.length && array[offset + i + j] == bytes[j]) {
+				j++;
+			}
+			if (j == bytes.length) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	private static int parseContentLength(String value) throws ProtocolException {
+		try {
+			int contentLength = Integer.parseInt(value);
+			if (contentLength >= 0) {
+				return contentLength;
+			}
+		} catch (NumberFormatException nfe) {
+			// reported below
+		}
+		throw new ProtocolException("Content length [" + value + "] is not valid");
+	}
+	
+	private static Map<String, String> parseQuery(String query) {
+		Map<String, String> parameters = new HashMap<String, String>();
+		for (String parameter : query.split("&")) {
+			int equals = parameter.indexOf('=');
+			if (equals > 0) {
+				parameters.put(decode(parameter.substring(0, equals)), decode(parameter.substring(equals + 1)));
+			}
+		}
+		return parameters;
+	}
+	
+	private static String decode(String value) {
+		try {
+			return URLDecoder.decode(value, "UTF-8");
+		} catch (UnsupportedEncodingException | IllegalArgumentException e) {
+			// UTF-8 is always supported, malformed escapes are taken as they are
+			return value;
+		}
+	}
+	
+	private static BigDecimal decimal(Map<String, String> parameters, String name) throws BusinessException {
+		String value = parameters.get(name);
+		BigDecimal decimal;
+		try {
+			decimal = value == null ? null : new BigDecimal(value);
+		} catch (NumberFormatException nfe) {
+			throw new BusinessException("Parameter [" + name + "] is not a number.");
+		}
+		// the bounds of the binary protocol, so a huge exponent or precision is not calculated with
+		if (decimal != null 
+				&& (decimal.scale() != (byte) decimal.scale() || decimal.unscaledValue().bitLength() > 63)) {
+			throw new BusinessException("Parameter [" + name + "] does not fit into a long with a scale of a byte.");
+		}
+		return decimal;
+	}
+	
+	private static Integer integer(Map<String, String> parameters, String name) throws BusinessException {
+		String value = parameters.get(name);
+		try {
+			return value == null ? null : Integer.valueOf(value);
+		} catch (NumberFormatException nfe) {
+			throw new BusinessException("Parameter [" + name + "] is not an integer.");
+		}
+	}
+	
+	private static TradeIndicator indicator(Map<String, String> parameters) throws BusinessException {
+		String value = parameters.get("indicator");
+		try {
+			return value == null ? null : TradeIndicator.valueOf(value);
+		} catch (IllegalArgumentException iae) {
+			throw new BusinessException("Parameter [indicator] is not a trade indicator.");
+		}
+	}
+	
+	private static String json(String name, BigDecimal value) {
+		return "{\"" + name + "\":" + value.toPlainString() + "}";
+	}
+	
+	private static String error(String message) {
+		StringBuilder json = new StringBuilder("{\"error\":\"");
+		for (int i = 0; i < message.length(); i++) {
+			char c = message.charAt(i);
+			if (c == '"' || c == '\\') {
+				json.append('\\').append(c);
+			} else if (c < 0x20) {
+				json.append(String.format("\\u%04x", (int) c));
+			} else {
+				json.append(c);
+			}
+		}
+		return json.append("\"}").toString();
+	}
+
+}
@@ -0,0 +1,308 @@
+package com.jpmorgan.stock.market.server.impl;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import com.jpmorgan.stock.market.server.QueryProtocol;
+import com.jpmorgan.stock.market.server.QueryServer;
+import com.jpmorgan.stock.market.service.SimpleStockMarketService;
+
+/**
+ * Non-blocking query server on a single NIO selector thread, which accepts
+ * connections, reads requests, calls the service and writes responses. 
+ * The protocol of a connection is told by its first byte: a frame of the 
+ * binary {@link QueryProtocol} starts with the high byte of its length, 
+ * which is zero, any other byte starts an HTTP request, if HTTP is enabled.
+ * <p>
+ * Every connection has an input and an output buffer of bufferSize bytes.
+ * All complete requests in the input are handled in a row, so pipelined
+ * requests cost a single read and a single write. A request is only 
+ * handled while the output has room for the largest response; otherwise 
+ * the connection stops reading until the client takes its responses, so 
+ * a slow client holds no more than its two buffers.
+ */
+public class NioQueryServer implements QueryServer {
+	
+	final static Logger LOG = Logger.getLogger(NioQueryServer.class);
+	
+	// both buffers must hold a few responses and a request of a few hundred trades
+	static final int MIN_BUFFER_SIZE = 4 * QueryHandler.MAX_RESPONSE_SIZE;
+	
+	// keeps the high byte of the length of a binary frame zero
+	static final int MAX_BUFFER_SIZE = 1 << 24;
+	
+	private boolean enabled;
+	
+	private String host = "127.0.0.1";
+	
+	private int port;
+	
+	private boolean httpEnabled;
+	
+	private int bufferSize = 1 << 16;
+	
+	private int maxConnections = 1024;
+	
+	private SimpleStockMarketService stockMarketService;
+	
+	private QueryHandler binaryHandler;
+	
+	private QueryHandler httpHandler;
+	
+	private volatile boolean running;
+	
+	private Selector selector;
+	
+	private ServerSocketChannel serverChannel;
+	
+	private Thread server;
+	
+	// written by the selector thread only
+	private int connections;
+
+	/**
+	 * Bind the server socket and start the selector thread.
+	 * 
+	 * @throws IOException if the address cannot be bound
+	 */
+	public synchronized void start() throws IOException {
+		if (!enabled || running) {
+			return;
+		}
+		bufferSize = Math.min(Math.max(bufferSize, MIN_BUFFER_SIZE), MAX_BUFFER_SIZE);
+		binaryHandler = new BinaryQueryHandler(stockMarketService);
+		httpHandler = httpEnabled ? new HttpQueryHandler(stockMarketService) : null;
+		selector = Selector.open();
+		serverChannel = ServerSocketChannel.open();
+		try {
+			serverChannel.bind(new InetSocketAddress(host, port));
+			serverChannel.configureBlocking(false);
+			serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+		} catch (IOException ioe) {
+			serverChannel.close();
+			selector.close();
+			throw ioe;
+		}
+		running = true;
+		server = new Thread(this::serve, "query-server");
+		server.setDaemon(true);
+		server.start();
+		LOG.info("Query server is listening on " + serverChannel.getLocalAddress());
+	}
+
+	/**
+	 * Stop the selector thread and close all connections.
+	 * 
+	 */
+	public synchronized void stop() {
+		if (!running) {
+			return;
+		}
+		running = false;
+		selector.wakeup();
+		try {
+			server.join(TimeUnit.SECONDS.toMillis(10));
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+		server = null;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.server.QueryServer#isEnabled()
+	 */
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.server.QueryServer#getPort()
+	 */
+	@Override
+	public synchronized int getPort() {
+		return running ? serverChannel.socket().getLocalPort() : -1;
+	}
+	
+	private void serve() {
+		try {
+			while (running) {
+				selector.select();
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if (key.isValid()) {
+						handle(key);
+					}
+				}
+			}
+		} catch (IOException ioe) {
+			LOG.error("Query server stopped on an error: " + ioe.getMessage());
+		} finally {
+			for (SelectionKey key : selector.keys()) {
+				close(key);
+			}
+			try {
+				selector.close();
+			} catch (IOException ioe) {
+				LOG.warn("Selector cannot be closed: " + ioe.getMessage());
+			}
+		}
+	}
+	
+	private void handle(SelectionKey key) {
+		try {
+			if (key.isAcceptable()) {
+				accept();
+				return;
+			}
+			Connection connection = (Connection) key.attachment();
+			if (key.isReadable() && connection.channel.read(connection.in) < 0) {
+				close(key);
+				return;
+			}
+			// responses written before handling make room for more of them
+			write(connection);
+			boolean handled;
+			do {
+				// requests left in the input for lack of room are handled once the client took the responses
+				handled = process(connection);
+				write(connection);
+			} while (handled && !connection.closing && hasRoom(connection));
+			if (connection.closing && connection.out.position() == 0) {
+				close(key);
+				return;
+			}
+			if (!connection.in.hasRemaining() && hasRoom(connection)) {
+				throw new IOException("Request does not fit into " + bufferSize + " bytes");
+			}
+			int interest = 0;
+			if (!connection.closing && connection.in.hasRemaining() && hasRoom(connection)) {
+				interest |= SelectionKey.OP_READ;
+			}
+			if (connection.out.position() > 0) {
+				interest |= SelectionKey.OP_WRITE;
+			}
+			key.interestOps(interest);
+		} catch (IOException ioe) {
+			LOG.warn("Connection is closed: " + ioe.getMessage());
+			close(key);
+		} catch (RuntimeException re) {
+			// a failed request must not stop the server for the other connections
+			LOG.error("While serving a connection an error occured: " + re.getMessage(), re);
+			close(key);
+		}
+	}
+	
+	private void accept() throws IOException {
+		SocketChannel channel = serverChannel.accept();
+		if (channel == null) {
+			return;
+		}
+		if (connections >= maxConnections) {
+			LOG.warn("Connection of " + channel.getRemoteAddress() + " is refused, " + maxConnections 
+					+ " connections are open");
+			channel.close();
+			return;
+		}
+		channel.configureBlocking(false);
+		channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		channel.register(selector, SelectionKey.OP_READ, new Connection(channel, bufferSize));
+		connections++;
+	}
+	
+	private boolean process(Connection connection) throws IOException {
+		connection.in.flip();
+		try {
+			if (connection.handler == null && connection.in.hasRemaining()) {
+				connection.handler = handler(connection.in.get(0));
+			}
+			boolean handled = false;
+			// handle the pipelined requests in a row
+			while (!connection.closing && connection.in.hasRemaining() && hasRoom(connection) 
+					&& connection.handler.handle(connection)) {
+				handled = true;
+			}
+			return handled;
+		} finally {
+			connection.in.compact();
+		}
+	}
+	
+	private QueryHandler handler(byte first) throws IOException {
+		if (first == 0) {
+			return binaryHandler;
+		}
+		if (httpHandler != null) {
+			return httpHandler;
+		}
+		throw new IOException("Connection does not speak the binary protocol");
+	}
+	
+	private static boolean hasRoom(Connection connection) {
+		return connection.out.remaining() >= QueryHandler.MAX_RESPONSE_SIZE;
+	}
+	
+	private static void write(Connection connection) throws IOException {
+		if (connection.out.position() == 0) {
+			return;
+		}
+		connection.out.flip();
+		try {
+			connection.channel.write(connection.out);
+		} finally {
+			connection.out.compact();
+		}
+	}
+	
+	private void close(SelectionKey key) {
+		key.cancel();
+		try {
+			key.channel().close();
+		} catch (IOException ioe) {
+			LOG.warn("Channel cannot be closed: " + ioe.getMessage());
+		}
+		if (key.attachment() != null) {
+			connections--;
+		}
+	}
+	
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+	
+	public void setHost(String host) {
+		this.host = host;
+	}
+	
+	public void setPort(int port) {
+		this.port = port;
+	}
+	
+	public void setHttpEnabled(boolean httpEnabled) {
+		this.httpEnabled = httpEnabled;
+	}
+	
+	public void setBufferSize(int bufferSize) {
+		this.bufferSize = bufferSize;
+	}
+	
+	public void setMaxConnections(int maxConnections) {
+		this.maxConnections = maxConnections;
+	}
+	
+	public void setStockMarketService(SimpleStockMarketService stockMarketService) {
+		this.stockMarketService = stockMarketService;
+	}
+
+}
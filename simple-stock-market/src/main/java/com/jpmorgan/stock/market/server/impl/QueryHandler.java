@@ -0,0 +1,37 @@
+package com.jpmorgan.stock.market.server.impl;
+
+import java.io.IOException;
+
+/**
+ * Handler of the requests of one protocol.
+ */
+interface QueryHandler {
+	
+	// bound of a single response, a request is only handled with that much room in the output
+	static final int MAX_RESPONSE_SIZE = 1024;
+	
+	// rejection messages are cut to that many characters, so responses stay within the bound
+	static final int MAX_MESSAGE_LENGTH = 128;
+	
+	/**
+	 * Handle the request at the position of the input, which is in read 
+	 * mode, if all of it was received, and write the response to the output.
+	 * 
+	 * @param connection
+	 * @return true if a request was handled, false if more input is needed
+	 * @throws IOException if the input is not a request of the protocol, the connection is closed
+	 */
+	boolean handle(Connection connection) throws IOException;
+	
+	/**
+	 * Cut a rejection message to {@link #MAX_MESSAGE_LENGTH} characters.
+	 */
+	static String message(Exception e) {
+		return cut(e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage());
+	}
+	
+	static String cut(String message) {
+		return message.length() > MAX_MESSAGE_LENGTH ? message.substring(0, MAX_MESSAGE_LENGTH) : message;
+	}
+
+}
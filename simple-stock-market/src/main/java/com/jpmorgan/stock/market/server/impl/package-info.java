@@ -0,0 +1,6 @@
+// Copyright (c) 2016 JPMorgan
+
+/**
+* Implementation of the network front end on NIO selectors
+*/
+package com.jpmorgan.stock.market.server.impl;
\ No newline at end of file
@@ -0,0 +1,6 @@
+// Copyright (c) 2016 JPMorgan
+
+/**
+* Network front end of the market
+*/
+package com.jpmorgan.stock.market.server;
\ No newline at end of file
@@ -1,55 +1,152 @@
-package com.jpmorgan.stock.market.service;
-
-import java.math.BigDecimal;
-
-import com.jpmorgan.stock.market.domain.Trade;
-import com.jpmorgan.stock.market.exceptions.BusinessException;
-
-public interface SimpleStockMarketService {
-	
-	/**
-	 * Calculate the dividend yield
-	 * 
-	 * @param stockSymbol
-	 * @param price
-	 * @return the dividend yield
-	 * @throws BusinessException
-	 */
-	public BigDecimal calculateDividendYield(String stockSymbol, BigDecimal price)  throws BusinessException;
-	
-	/**
-	 * Calculate the Price-Earnings Ratio
-	 * 
-	 * @param stockSymbol
-	 * @param price
-	 * @return the P/E Ratio
-	 * @throws BusinessException
-	 */
-	public BigDecimal calculatePriceEarningsRatio(String stockSymbol, BigDecimal price)  throws BusinessException;
-	
-	/**
-	 * Record a trade
-	 * 
-	 * @param trade
-	 * @throws BusinessException
-	 */
-	public void recordTrade(Trade trade) throws BusinessException;
-	
-	/**
-	 * Calculate the Volume Weighted Stock Price in past 5 minutes
-	 * 
-	 * @param stockSymbol
-	 * @return the stock price in past 5 minutes
-	 * @throws BusinessException
-	 */
-	public BigDecimal calculateVolumeWeightedStockPriceInPast5Minutes(String stockSymbol) throws BusinessException;
-	
-	/**
-	 * Calculate GBCE All Share Index
-	 * 
-	 * @return the All Share Index
-	 * @throws BusinessException
-	 */
-	public BigDecimal calculateGBCEAllShareIndex() throws BusinessException;
-
-}
+package com.jpmorgan.stock.market.service;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+import com.jpmorgan.stock.market.domain.Trade;
+import com.jpmorgan.stock.market.domain.TradeRejection;
+import com.jpmorgan.stock.market.exceptions.BusinessException;
+import com.jpmorgan.stock.market.state.MarketState;
+
+public interface SimpleStockMarketService {
+	
+	/**
+	 * Calculate the dividend yield
+	 * 
+	 * @param stockSymbol
+	 * @param price
+	 * @return the dividend yield
+	 * @throws BusinessException
+	 */
+	public BigDecimal calculateDividendYield(String stockSymbol, BigDecimal price)  throws BusinessException;
+	
+	/**
+	 * Calculate the Price-Earnings Ratio
+	 * 
+	 * @param stockSymbol
+	 * @param price
+	 * @return the P/E Ratio
+	 * @throws BusinessException
+	 */
+	public BigDecimal calculatePriceEarningsRatio(String stockSymbol, BigDecimal price)  throws BusinessException;
+	
+	/**
+	 * Calculate the dividend yields of a grid of prices, row i holding the
+	 * prices of stock i. Every stock is looked up once for its row. A price
+	 * which is not a positive number gives NaN.
+	 * 
+	 * @param stockSymbols
+	 * @param prices
+	 * @param dividendYields the results, of the shape of the prices, rounded to digitsAfterPoint
+	 * @throws BusinessException if a stock is not present in the market or the arrays do not match
+	 */
+	public void calculateDividendYields(String[] stockSymbols, double[][] prices, double[][] dividendYields) 
+			throws BusinessException;
+	
+	/**
+	 * Calculate the Price-Earnings Ratios of a grid of prices, row i holding
+	 * the prices of stock i. Every stock is looked up once for its row. A 
+	 * price which is not a positive number or has a dividend yield of zero
+	 * gives NaN.
+	 * 
+	 * @param stockSymbols
+	 * @param prices
+	 * @param priceEarningsRatios the results, of the shape of the prices, rounded to digitsAfterPoint
+	 * @throws BusinessException if a stock is not present in the market or the arrays do not match
+	 */
+	public void calculatePriceEarningsRatios(String[] stockSymbols, double[][] prices, double[][] priceEarningsRatios) 
+			throws BusinessException;
+	
+	/**
+	 * Record a trade
+	 * 
+	 * @param trade
+	 * @throws BusinessException
+	 */
+	public void recordTrade(Trade trade) throws BusinessException;
+	
+	/**
+	 * Record a batch of trades. Invalid trades are rejected without 
+	 * failing the batch, all valid trades are recorded.
+	 * 
+	 * @param trades
+	 * @return the rejected trades, empty if all trades were recorded
+	 * @throws BusinessException
+	 */
+	public List<TradeRejection> recordTrades(Collection<Trade> trades) throws BusinessException;
+	
+	/**
+	 * Record a batch of binary trade messages read in place from the 
+	 * position to the limit of a buffer, see 
+	 * {@link com.jpmorgan.stock.market.codec.TradeDecoder}. Invalid trades
+	 * are rejected without failing the batch. With a columnar trade DAO and
+	 * neither journal nor retention no trade objects are created.
+	 * 
+	 * @param messages the messages, the position is moved to the limit
+	 * @return the number of rejected trades
+	 * @throws BusinessException if the buffer does not hold whole messages
+	 */
+	public int recordTradeMessages(ByteBuffer messages) throws BusinessException;
+	
+	/**
+	 * Calculate the Volume Weighted Stock Price in past 5 minutes
+	 * 
+	 * @param stockSymbol
+	 * @return the stock price in past 5 minutes
+	 * @throws BusinessException
+	 */
+	public BigDecimal calculateVolumeWeightedStockPriceInPast5Minutes(String stockSymbol) throws BusinessException;
+	
+	/**
+	 * Calculate the Volume Weighted Stock Price in a past time period. With
+	 * the VWAP engine the period must not be longer than its minute buckets
+	 * reach, one day with the shipped <code>vwap.minute.buckets=1440</code>.
+	 * 
+	 * @param stockSymbol
+	 * @param pastTime
+	 * @return the stock price in the past time period
+	 * @throws BusinessException if the period is not positive or is longer than the engine keeps trades
+	 */
+	public BigDecimal calculateVolumeWeightedStockPrice(String stockSymbol, Duration pastTime) throws BusinessException;
+	
+	/**
+	 * Calculate GBCE All Share Index
+	 * 
+	 * @return the All Share Index
+	 * @throws BusinessException
+	 */
+	public BigDecimal calculateGBCEAllShareIndex() throws BusinessException;
+	
+	/**
+	 * Calculate a registered basket index, the weighted geometric mean of 
+	 * the Volume Weighted Stock Prices of its stocks
+	 * 
+	 * @param indexName
+	 * @return the index, zero if none of its stocks was traded
+	 * @throws BusinessException if no index has the name
+	 */
+	public BigDecimal calculateIndex(String indexName) throws BusinessException;
+	
+	/**
+	 * Acquire a consistent view of the market: the Volume Weighted Stock 
+	 * Price in past 5 minutes of every stock, the GBCE All Share Index and
+	 * the basket indices of one version, which trades recorded afterwards 
+	 * do not change.
+	 * 
+	 * @return the market state
+	 * @throws BusinessException if market states are not published
+	 */
+	public MarketState acquireMarketState() throws BusinessException;
+	
+	/**
+	 * Clear the recorded trades and the prices calculated from them, in one
+	 * update no market state is published in the middle of. The trade 
+	 * journal is kept, so recovering replays the journaled trades again.
+	 * 
+	 */
+	public void clear();
+
+}
@@ -1,233 +1,963 @@
-package com.jpmorgan.stock.market.service.impl;
-
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.time.Duration;
-import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
-
-import org.apache.commons.math3.stat.StatUtils;
-import org.apache.log4j.Logger;
-
-import com.jpmorgan.stock.market.dao.StockDao;
-import com.jpmorgan.stock.market.dao.TradeDao;
-import com.jpmorgan.stock.market.domain.Stock;
-import com.jpmorgan.stock.market.domain.Trade;
-import com.jpmorgan.stock.market.exceptions.BusinessException;
-import com.jpmorgan.stock.market.service.SimpleStockMarketService;
-
-public class SimpleStockMarketServiceImpl implements SimpleStockMarketService {
-	
-	final static Logger LOG = Logger.getLogger(SimpleStockMarketServiceImpl.class);
-	
-	private StockDao stockDao;
-	
-	private TradeDao tradeDao;
-	
-	private int digitsAfterPoint;
-	
-	private int lastMinutes;
-
-	/*
-	 * @see com.jpmorgan.stock.market.service.SimpleStockMarketService#calculateDividendYield(java.lang.String, java.math.BigDecimal)
-	 */
-	@Override
-	public BigDecimal calculateDividendYield(String stockSymbol, BigDecimal price) throws BusinessException{
-		LOG.info("Calculating the dividend yield...");
-		BigDecimal dividend = null;
-		try {
-			dividend = calculateDividend(stockSymbol, price);
-		} catch(BusinessException be) {
-			LOG.error("While calculating the dividend yield an error occured: " + be.getMessage());
-			throw be;
-		}
-		LOG.info("Dividend Yield was calculated for stock with symbol [" + stockSymbol +"].");
-		return dividend;
-	}
-
-	private BigDecimal calculateDividend(String stockSymbol, BigDecimal price) throws BusinessException {
-		BigDecimal dividend = BigDecimal.ZERO;
-		// check the arguments
-		if (stockSymbol == null) {
-			throw new BusinessException("Stock symbol cannot be null.");
-		}
-		if (price == null) {
-			throw new BusinessException("Stock price cannot be null.");
-		}
-		if (price.compareTo(BigDecimal.ZERO) != 1) {
-			throw new BusinessException("Stock price must be greater than zero.");
-		}
-		Optional<Stock> stock = stockDao.findBySymbol(stockSymbol);
-		if (!stock.isPresent()) {
-			throw new BusinessException("Stock with symbol [" + stockSymbol + "] is not present in the market.");
-		}
-		// calculate the dividend depending on stock type
-		switch (stock.get().getType()) {
-			case COMMON: 
-				dividend = stock.get().getLastDividend().divide(price, digitsAfterPoint, RoundingMode.HALF_UP);
-				break;
-			case PREFERRED: 
-				dividend = stock.get().getFixedDividend().multiply(stock.get().getParValue())
-						.divide(price, digitsAfterPoint, RoundingMode.HALF_UP);
-				break;
-			default: 
-				throw new RuntimeException("Unknown stock type");
-		}
-		return dividend;
-	}
-
-	@Override
-	public BigDecimal calculatePriceEarningsRatio(String stockSymbol, BigDecimal price) throws BusinessException{
-		LOG.info("Calculating the Price-Earnings Ratio...");
-		BigDecimal priceEarningsRatio = null;
-		try {
-			BigDecimal dividend = calculateDividend(stockSymbol, price);
-			if (dividend.equals(BigDecimal.ZERO.setScale(digitsAfterPoint))) {
-				throw new BusinessException("Dividend calculated must not be equal to zero.");
-			}
-			priceEarningsRatio = price.divide(dividend).setScale(digitsAfterPoint);
-		} catch(BusinessException be) {
-			LOG.error("While calculating the P/E Ratio an error occured: " + be.getMessage());
-			throw be;
-		}
-		LOG.info("Price-Earnings Ratio was calculated for stock with symbol [" + stockSymbol +"].");
-		return priceEarningsRatio;
-	}
-
-	/*
-	 * @see com.jpmorgan.stock.market.service.SimpleStockMarketService#recordTrade(com.jpmorgan.stock.market.domain.Trade)
-	 */
-	@Override
-	public void recordTrade(Trade trade) throws BusinessException {
-		LOG.info("Recording a new trade..");
-		try {
-			if (trade == null) {
-				throw new BusinessException("Trade record cannot be null.");
-			}
-			// check all the values of the trade
-			if (trade.getStockSymbol() == null) {
-				throw new BusinessException("Stock symbol in a trade must not be null.");
-			}
-			if (trade.getQuantity() != null && trade.getQuantity() <= 0) {
-				throw new BusinessException("Quantity of shares in a trade must be greater than zero.");
-			}
-			if (trade.getIndicator() == null) {
-				throw new BusinessException("Trade indicator cannot be null.");
-			}
-			if (trade.getPrice() != null && trade.getPrice().compareTo(BigDecimal.ZERO) != 1) {
-				throw new BusinessException("Price of a share in a trade must be greater than zero.");
-			}
-			
-			Optional<Stock> stock = stockDao.findBySymbol(trade.getStockSymbol());
-			if (!stock.isPresent()) {
-				throw new BusinessException("A trade must be associated with a stock.");
-			}
-			// add a new trade
-			tradeDao.add(trade);
-		} catch (BusinessException be) {
-			LOG.error("While recording a new trade an error occured: " + be.getMessage());
-			throw be;
-		}
-		LOG.info("A new trade for stock with symbol [" + trade.getStockSymbol() + "] was recorded.");
-	}
-
-	/*
-	 * @see com.jpmorgan.stock.market.service.SimpleStockMarketService#calculateVolumeWeightedStockPriceInPast5Minutes(java.lang.String)
-	 */
-	@Override
-	public BigDecimal calculateVolumeWeightedStockPriceInPast5Minutes(String stockSymbol) throws BusinessException{
-		LOG.info("Calculating Volume Weighted Stock Price based on trades in last " + lastMinutes +" minutes.");
-		BigDecimal stockPrice = null;
-		try {
-			if (stockSymbol == null) {
-				throw new BusinessException("Stock symbol cannot be null.");
-			}
-			stockPrice = calculateVolumeWeightedStockPrice(stockSymbol, Duration.ofMinutes(5));
-		} catch(BusinessException be) {
-			LOG.error("While calculating Volume Weighted Stock Price an error occured: " + be.getMessage());
-			throw be;
-		}
-		LOG.info("Volume Weighted Stock Price based on trades in last " + lastMinutes 
-				+ " minutes for stock with symbol [" + stockSymbol + "was calculated.");
-		return stockPrice;
-	}
-	
-	private BigDecimal calculateVolumeWeightedStockPrice(String stockSymbol, Duration pastTime) throws BusinessException{
-		List<Trade> trades = tradeDao.findByStockSymbol(stockSymbol);
-		List<Trade> filteredTrades = filterTradesByCreationTimeStamp(trades, pastTime);
-		BigDecimal totalTradedPrice = BigDecimal.ZERO;
-		int totalQuantity = 0;
-		for (Trade trade : filteredTrades) {
-			// calculate total traded price for a specific stock
-			totalTradedPrice = totalTradedPrice.add(trade.getPrice().multiply(BigDecimal.valueOf(trade.getQuantity())));
-			// calculate total quantity for a specific stock
-			totalQuantity += trade.getQuantity();
-		}
-		BigDecimal totalStockPrice = BigDecimal.ZERO;
-		if (totalQuantity != 0) { 
-			totalStockPrice = totalTradedPrice.divide(BigDecimal.valueOf(totalQuantity), digitsAfterPoint, RoundingMode.HALF_UP);
-		}
-		return totalStockPrice;
-	}
-
-	private List<Trade> filterTradesByCreationTimeStamp(List<Trade> trades, Duration pastTime) {
-		List<Trade> filteredTrades = null;
-		if (pastTime == null) {
-			// if pasTime is null then filtering should not be done
-			filteredTrades = trades;
-		} else {
-			LocalDateTime startTimeStamp = LocalDateTime.now().minus(pastTime);
-			// filter trades that were created in the specified duration of time
-			filteredTrades = trades.stream()
-				.filter(x -> x.getRecordCreationTimeStamp().isAfter(startTimeStamp))
-				.collect(Collectors.toList());
-		}
-		return filteredTrades;
-	}
-
-	/*
-	 * @see com.jpmorgan.stock.market.service.SimpleStockMarketService#calculateGBCEAllShareIndex()
-	 */
-	@Override
-	public BigDecimal calculateGBCEAllShareIndex() throws BusinessException{
-		LOG.info("Calculating Global Beverage Corporation Exchange All Share Index...");
-		List<Stock> stocks = stockDao.getAll();
-		// get a list of prices for all stocks
-		List<BigDecimal> stockPrices = new ArrayList<BigDecimal>();
-		for (Stock stock : stocks) {
-			BigDecimal stockPrice = calculateVolumeWeightedStockPrice(stock.getSymbol(), null);
-			if (!stockPrice.equals(BigDecimal.ZERO)) {
-				stockPrices.add(stockPrice);
-			}
-		}
-		// create and populate a stock prices array of doubles
-		double[] stockPricesArray = new double[stockPrices.size()];
-		for (int i=0; i<stockPricesArray.length; i++) {
-			stockPricesArray[i] = stockPrices.get(i).doubleValue();
-		}
-		// return geometric mean of all prices for all stocks 
-		BigDecimal geometricMean = BigDecimal.valueOf(StatUtils.geometricMean(stockPricesArray));
-		LOG.info("All Share Index was calculated");
-		return geometricMean.setScale(digitsAfterPoint, RoundingMode.HALF_UP);
-	}
-
-	public void setStockDao(StockDao stockDao) {
-		this.stockDao = stockDao;
-	}
-
-	public void setTradeDao(TradeDao tradeDao) {
-		this.tradeDao = tradeDao;
-	}
-
-	public void setDigitsAfterPoint(int digitsAfterFraction) {
-		this.digitsAfterPoint = digitsAfterFraction;
-	}
-	
-	public void setLastMinutes(int lastMinutes) {
-		this.lastMinutes = lastMinutes;
-	}
-
-}
+package com.jpmorgan.stock.market.service.impl;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.math3.stat.StatUtils;
+import org.apache.log4j.Logger;
+
+import com.jpmorgan.stock.market.clock.LocalTimeStamps;
+import com.jpmorgan.stock.market.clock.MarketClock;
+import com.jpmorgan.stock.market.codec.SymbolTable;
+import com.jpmorgan.stock.market.codec.TradeDecoder;
+import com.jpmorgan.stock.market.dao.ColumnarTradeDao;
+import com.jpmorgan.stock.market.dao.StockDao;
+import com.jpmorgan.stock.market.dao.TradeDao;
+import com.jpmorgan.stock.market.domain.Stock;
+import com.jpmorgan.stock.market.domain.Trade;
+import com.jpmorgan.stock.market.domain.TradeRejection;
+import com.jpmorgan.stock.market.domain.TradeTotals;
+import com.jpmorgan.stock.market.engine.AllShareIndexEngine;
+import com.jpmorgan.stock.market.engine.BasketIndexEngine;
+import com.jpmorgan.stock.market.engine.FixedPointArithmetic;
+import com.jpmorgan.stock.market.engine.VwapEngine;
+import com.jpmorgan.stock.market.exceptions.BusinessException;
+import com.jpmorgan.stock.market.journal.TradeJournal;
+import com.jpmorgan.stock.market.metrics.Operation;
+import com.jpmorgan.stock.market.metrics.ServiceMetrics;
+import com.jpmorgan.stock.market.pricing.BulkPricing;
+import com.jpmorgan.stock.market.pricing.impl.ForkJoinBulkPricing;
+import com.jpmorgan.stock.market.retention.TradeRetention;
+import com.jpmorgan.stock.market.service.SimpleStockMarketService;
+import com.jpmorgan.stock.market.snapshot.Snapshotter;
+import com.jpmorgan.stock.market.state.MarketState;
+import com.jpmorgan.stock.market.state.MarketStates;
+import com.jpmorgan.stock.market.subscription.PriceSubscriptions;
+
+public class SimpleStockMarketServiceImpl implements SimpleStockMarketService {
+	
+	final static Logger LOG = Logger.getLogger(SimpleStockMarketServiceImpl.class);
+	
+	private StockDao stockDao;
+	
+	private TradeDao tradeDao;
+	
+	private VwapEngine vwapEngine;
+	
+	private AllShareIndexEngine allShareIndexEngine;
+	
+	private BasketIndexEngine basketIndexEngine;
+	
+	private FixedPointArithmetic fixedPointArithmetic;
+	
+	private TradeJournal tradeJournal;
+	
+	private Snapshotter snapshotter;
+	
+	private TradeRetention tradeRetention;
+	
+	private ServiceMetrics serviceMetrics;
+	
+	private PriceSubscriptions priceSubscriptions;
+	
+	private MarketClock marketClock;
+	
+	private MarketStates marketStates;
+	
+	private BulkPricing bulkPricing = new ForkJoinBulkPricing();
+	
+	private final SymbolTable symbols = new SymbolTable();
+	
+	// listed stocks whose symbols are all in the symbol table
+	private volatile List<Stock> tabledStocks;
+	
+	private int digitsAfterPoint;
+	
+	private int lastMinutes;
+
+	/*
+	 * @see com.jpmorgan.stock.market.service.SimpleStockMarketService#calculateDividendYield(java.lang.String, java.math.BigDecimal)
+	 */
+	@Override
+	public BigDecimal calculateDividendYield(String stockSymbol, BigDecimal price) throws BusinessException{
+		LOG.debug("Calculating the dividend yield...");
+		long start = System.nanoTime();
+		BigDecimal dividend = null;
+		try {
+			dividend = calculateDividend(stockSymbol, price);
+		} catch(BusinessException be) {
+			LOG.error("While calculating the dividend yield an error occured: " + be.getMessage());
+			reject(Operation.DIVIDEND_YIELD, be);
+			throw be;
+		} finally {
+			record(Operation.DIVIDEND_YIELD, start);
+		}
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Dividend Yield was calculated for stock with symbol [" + stockSymbol +"].");
+		}
+		return dividend;
+	}
+
+	private BigDecimal calculateDividend(String stockSymbol, BigDecimal price) throws BusinessException {
+		BigDecimal dividend = BigDecimal.ZERO;
+		// check the arguments
+		if (stockSymbol == null) {
+			throw new BusinessException("Stock symbol cannot be null.");
+		}
+		if (price == null) {
+			throw new BusinessException("Stock price cannot be null.");
+		}
+		if (price.compareTo(BigDecimal.ZERO) != 1) {
+			throw new BusinessException("Stock price must be greater than zero.");
+		}
+		Optional<Stock> stock = stockDao.findBySymbol(stockSymbol);
+		if (!stock.isPresent()) {
+			throw new BusinessException("Stock with symbol [" + stockSymbol + "] is not present in the market.");
+		}
+		if (fixedPointArithmetic != null && fixedPointArithmetic.isEnabled()) {
+			try {
+				return fixedPointArithmetic.toBigDecimal(fixedPointArithmetic.dividendYield(stock.get(), price));
+			} catch (ArithmeticException ae) {
+				// the values do not fit into scaled longs, calculate with BigDecimal
+			}
+		}
+		// calculate the dividend depending on stock type
+		switch (stock.get().getType()) {
+			case COMMON: 
+				dividend = stock.get().getLastDividend().divide(price, digitsAfterPoint, RoundingMode.HALF_UP);
+				break;
+			case PREFERRED: 
+				dividend = stock.get().getFixedDividend().multiply(stock.get().getParValue())
+						.divide(price, digitsAfterPoint, RoundingMode.HALF_UP);
+				break;
+			default: 
+				throw new RuntimeException("Unknown stock type");
+		}
+		return dividend;
+	}
+
+	@Override
+	public BigDecimal calculatePriceEarningsRatio(String stockSymbol, BigDecimal price) throws BusinessException{
+		LOG.debug("Calculating the Price-Earnings Ratio...");
+		long start = System.nanoTime();
+		BigDecimal priceEarningsRatio = null;
+		try {
+			BigDecimal dividend = calculateDividend(stockSymbol, price);
+			if (dividend.equals(BigDecimal.ZERO.setScale(digitsAfterPoint))) {
+				throw new BusinessException("Dividend calculated must not be equal to zero.");
+			}
+			priceEarningsRatio = calculatePriceEarningsRatio(price, dividend);
+		} catch(BusinessException be) {
+			LOG.error("While calculating the P/E Ratio an error occured: " + be.getMessage());
+			reject(Operation.PRICE_EARNINGS_RATIO, be);
+			throw be;
+		} finally {
+			record(Operation.PRICE_EARNINGS_RATIO, start);
+		}
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Price-Earnings Ratio was calculated for stock with symbol [" + stockSymbol +"].");
+		}
+		return priceEarningsRatio;
+	}
+
+	private BigDecimal calculatePriceEarningsRatio(BigDecimal price, BigDecimal dividend) {
+		if (fixedPointArithmetic != null && fixedPointArithmetic.isEnabled()) {
+			try {
+				long scaledDividend = dividend.setScale(digitsAfterPoint).unscaledValue().longValueExact();
+				return fixedPointArithmetic.toBigDecimal(fixedPointArithmetic.priceEarningsRatio(price, scaledDividend));
+			} catch (ArithmeticException ae) {
+				// the ratio cannot be held in a scaled long, calculate with BigDecimal
+			}
+		}
+		return price.divide(dividend).setScale(digitsAfterPoint);
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.service.SimpleStockMarketService#calculateDividendYields(java.lang.String[], double[][], double[][])
+	 */
+	@Override
+	public void calculateDividendYields(String[] stockSymbols, double[][] prices, double[][] dividendYields) 
+			throws BusinessException {
+		long start = System.nanoTime();
+		try {
+			bulkPricing.dividendYields(dividendsPerShare(stockSymbols, prices, dividendYields), prices, dividendYields);
+		} catch (BusinessException be) {
+			LOG.error("While calculating dividend yields an error occured: " + be.getMessage());
+			reject(Operation.DIVIDEND_YIELDS, be);
+			throw be;
+		} finally {
+			record(Operation.DIVIDEND_YIELDS, start);
+		}
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Dividend yields were calculated for " + stockSymbols.length + " stocks.");
+		}
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.service.SimpleStockMarketService#calculatePriceEarningsRatios(java.lang.String[], double[][], double[][])
+	 */
+	@Override
+	public void calculatePriceEarningsRatios(String[] stockSymbols, double[][] prices, double[][] priceEarningsRatios) 
+			throws BusinessException {
+		long start = System.nanoTime();
+		try {
+			bulkPricing.priceEarningsRatios(dividendsPerShare(stockSymbols, prices, priceEarningsRatios), prices, 
+					priceEarningsRatios);
+		} catch (BusinessException be) {
+			LOG.error("While calculating P/E Ratios an error occured: " + be.getMessage());
+			reject(Operation.PRICE_EARNINGS_RATIOS, be);
+			throw be;
+		} finally {
+			record(Operation.PRICE_EARNINGS_RATIOS, start);
+		}
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Price-Earnings Ratios were calculated for " + stockSymbols.length + " stocks.");
+		}
+	}
+
+	/**
+	 * Check the arrays of a price grid and look up the dividend per share of
+	 * every stock once.
+	 */
+	private double[] dividendsPerShare(String[] stockSymbols, double[][] prices, double[][] results) 
+			throws BusinessException {
+		if (stockSymbols == null || prices == null || results == null) {
+			throw new BusinessException("Stock symbols, prices and results cannot be null.");
+		}
+		if (prices.length != stockSymbols.length || results.length != stockSymbols.length) {
+			throw new BusinessException("Prices and results must have a row per stock symbol.");
+		}
+		double[] dividends = new double[stockSymbols.length];
+		for (int i = 0; i < stockSymbols.length; i++) {
+			if (stockSymbols[i] == null) {
+				throw new BusinessException("Stock symbol cannot be null.");
+			}
+			if (prices[i] == null || results[i] == null || results[i].length != prices[i].length) {
+				throw new BusinessException("Results must have the shape of the prices.");
+			}
+			Optional<Stock> stock = stockDao.findBySymbol(stockSymbols[i]);
+			if (!stock.isPresent()) {
+				throw new BusinessException("Stock with symbol [" + stockSymbols[i] + "] is not present in the market.");
+			}
+			switch (stock.get().getType()) {
+				case COMMON: 
+					dividends[i] = stock.get().getLastDividend().doubleValue();
+					break;
+				case PREFERRED: 
+					dividends[i] = stock.get().getFixedDividend().multiply(stock.get().getParValue()).doubleValue();
+					break;
+				default: 
+					throw new RuntimeException("Unknown stock type");
+			}
+		}
+		return dividends;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.service.SimpleStockMarketService#recordTrade(com.jpmorgan.stock.market.domain.Trade)
+	 */
+	@Override
+	public void recordTrade(Trade trade) throws BusinessException {
+		LOG.debug("Recording a new trade..");
+		long start = System.nanoTime();
+		try {
+			validateTrade(trade);
+			// journal the trade before it becomes visible
+			if (isJournaling()) {
+				tradeJournal.append(trade);
+			}
+			boolean updating = beginUpdate();
+			try {
+				if (marketClock != null) {
+					marketClock.onTrade(trade);
+				}
+				// add a new trade
+				tradeDao.add(trade);
+				if (vwapEngine != null) {
+					vwapEngine.onTrade(trade);
+				}
+				if (allShareIndexEngine != null) {
+					allShareIndexEngine.onTrade(trade);
+				}
+				if (isRetaining()) {
+					tradeRetention.onTrade(trade);
+				}
+			} finally {
+				endUpdate(updating);
+			}
+			if (isPublishing()) {
+				priceSubscriptions.onTrade(trade);
+			}
+			if (isMeasuring()) {
+				serviceMetrics.addRecordedTrades(1);
+			}
+		} catch (BusinessException be) {
+			LOG.error("While recording a new trade an error occured: " + be.getMessage());
+			reject(Operation.RECORD_TRADE, be);
+			throw be;
+		} finally {
+			record(Operation.RECORD_TRADE, start);
+		}
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("A new trade for stock with symbol [" + trade.getStockSymbol() + "] was recorded.");
+		}
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.service.SimpleStockMarketService#recordTrades(java.util.Collection)
+	 */
+	@Override
+	public List<TradeRejection> recordTrades(Collection<Trade> trades) throws BusinessException {
+		long start = System.nanoTime();
+		if (trades == null) {
+			LOG.error("While recording trades an error occured: Trade batch cannot be null.");
+			BusinessException be = new BusinessException("Trade batch cannot be null.");
+			reject(Operation.RECORD_TRADES, be);
+			record(Operation.RECORD_TRADES, start);
+			throw be;
+		}
+		List<Trade> validTrades = new ArrayList<Trade>(trades.size());
+		List<TradeRejection> rejections = new ArrayList<TradeRejection>();
+		int position = 0;
+		for (Trade trade : trades) {
+			try {
+				validateTrade(trade);
+				validTrades.add(trade);
+			} catch (BusinessException be) {
+				rejections.add(new TradeRejection(trade, position, be.getMessage()));
+				reject(Operation.RECORD_TRADES, be);
+			}
+			position++;
+		}
+		if (!validTrades.isEmpty()) {
+			recordValidTrades(validTrades);
+		}
+		record(Operation.RECORD_TRADES, start);
+		if (rejections.isEmpty()) {
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("A batch of " + validTrades.size() + " trades was recorded.");
+			}
+		} else {
+			LOG.warn("A batch of " + validTrades.size() + " trades was recorded, " + rejections.size() 
+					+ " trades were rejected, first rejection: " + rejections.get(0).getReason());
+		}
+		return rejections;
+	}
+
+	private void recordValidTrades(List<Trade> validTrades) {
+		if (isJournaling()) {
+			tradeJournal.appendAll(validTrades);
+		}
+		boolean updating = beginUpdate();
+		try {
+			if (marketClock != null) {
+				for (Trade trade : validTrades) {
+					marketClock.onTrade(trade);
+				}
+			}
+			tradeDao.addAll(validTrades);
+			if (vwapEngine != null) {
+				vwapEngine.onTrades(validTrades);
+			}
+			if (allShareIndexEngine != null) {
+				allShareIndexEngine.onTrades(validTrades);
+			}
+			if (isRetaining()) {
+				tradeRetention.onTrades(validTrades);
+			}
+		} finally {
+			endUpdate(updating);
+		}
+		if (isPublishing()) {
+			priceSubscriptions.onTrades(validTrades);
+		}
+		if (isMeasuring()) {
+			serviceMetrics.addRecordedTrades(validTrades.size());
+		}
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.service.SimpleStockMarketService#recordTradeMessages(java.nio.ByteBuffer)
+	 */
+	@Override
+	public int recordTradeMessages(ByteBuffer messages) throws BusinessException {
+		long start = System.nanoTime();
+		if (messages == null || messages.remaining() % TradeDecoder.MESSAGE_SIZE != 0) {
+			BusinessException be = new BusinessException(messages == null ? "Trade messages cannot be null." 
+					: "Trade messages must be whole messages of " + TradeDecoder.MESSAGE_SIZE + " bytes.");
+			LOG.error("While recording trade messages an error occured: " + be.getMessage());
+			reject(Operation.RECORD_TRADE_MESSAGES, be);
+			record(Operation.RECORD_TRADE_MESSAGES, start);
+			throw be;
+		}
+		// trade objects are only needed to journal, retain or store them as objects
+		ColumnarTradeDao columnarTradeDao = tradeDao instanceof ColumnarTradeDao && !isJournaling() && !isRetaining() 
+				? (ColumnarTradeDao) tradeDao : null;
+		List<Trade> validTrades = columnarTradeDao == null 
+				? new ArrayList<Trade>(messages.remaining() / TradeDecoder.MESSAGE_SIZE) : null;
+		TradeDecoder decoder = new TradeDecoder();
+		int recorded = 0;
+		int rejected = 0;
+		String firstRejection = null;
+		for (int offset = messages.position(); offset < messages.limit(); offset += TradeDecoder.MESSAGE_SIZE) {
+			decoder.wrap(messages, offset);
+			String stockSymbol = stockSymbol(decoder);
+			try {
+				validateTradeMessage(decoder, stockSymbol, columnarTradeDao);
+				if (columnarTradeDao == null) {
+					validTrades.add(decoder.toTrade(stockSymbol));
+				} else {
+					recordTradeMessage(columnarTradeDao, decoder, stockSymbol);
+					recorded++;
+				}
+			} catch (BusinessException be) {
+				if (rejected++ == 0) {
+					firstRejection = be.getMessage();
+				}
+				reject(Operation.RECORD_TRADE_MESSAGES, be);
+			}
+		}
+		messages.position(messages.limit());
+		if (validTrades != null && !validTrades.isEmpty()) {
+			recordValidTrades(validTrades);
+			recorded = validTrades.size();
+		} else if (recorded > 0 && isMeasuring()) {
+			serviceMetrics.addRecordedTrades(recorded);
+		}
+		record(Operation.RECORD_TRADE_MESSAGES, start);
+		if (rejected == 0) {
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("A batch of " + recorded + " trade messages was recorded.");
+			}
+		} else {
+			LOG.warn("A batch of " + recorded + " trade messages was recorded, " + rejected 
+					+ " trades were rejected, first rejection: " + firstRejection);
+		}
+		return rejected;
+	}
+
+	private void recordTradeMessage(ColumnarTradeDao columnarTradeDao, TradeDecoder decoder, String stockSymbol) 
+			throws BusinessException {
+		long timeStamp = LocalTimeStamps.toLocalEpochNanos(decoder.getExchangeTimeStamp());
+		long unscaledPrice = decoder.getUnscaledPrice();
+		int priceScale = decoder.getPriceScale();
+		int quantity = decoder.getQuantity();
+		boolean updating = beginUpdate();
+		try {
+			if (marketClock != null) {
+				marketClock.advanceTo(timeStamp);
+			}
+			columnarTradeDao.add(stockSymbol, timeStamp, unscaledPrice, priceScale, quantity, decoder.getIndicator());
+			if (vwapEngine != null) {
+				vwapEngine.onTrade(stockSymbol, timeStamp, unscaledPrice, priceScale, quantity);
+			}
+			if (allShareIndexEngine != null) {
+				allShareIndexEngine.onTrade(stockSymbol, timeStamp, unscaledPrice, priceScale, quantity);
+			}
+		} finally {
+			endUpdate(updating);
+		}
+		if (isPublishing()) {
+			priceSubscriptions.onTrade(stockSymbol);
+		}
+	}
+
+	private String stockSymbol(TradeDecoder decoder) {
+		String stockSymbol = decoder.findStockSymbol(symbols);
+		if (stockSymbol == null && decoder.hasStockSymbol()) {
+			// the stock DAO publishes a new list when stocks are added, so an unknown symbol is only looked up again then
+			List<Stock> stocks = stockDao.getAll();
+			if (stocks != tabledStocks) {
+				// only symbols of listed stocks are kept, so unknown symbols do not fill up the table
+				for (int i = 0; i < stocks.size(); i++) {
+					symbols.add(stocks.get(i).getSymbol());
+				}
+				tabledStocks = stocks;
+				stockSymbol = decoder.findStockSymbol(symbols);
+			}
+		}
+		return stockSymbol;
+	}
+
+	private void validateTradeMessage(TradeDecoder decoder, String stockSymbol, ColumnarTradeDao columnarTradeDao) 
+			throws BusinessException {
+		if (stockSymbol == null) {
+			// symbols of listed stocks are all in the symbol table
+			throw new BusinessException(decoder.hasStockSymbol() ? "A trade must be associated with a stock." 
+					: "Stock symbol in a trade must not be null.");
+		}
+		if (decoder.getExchangeTimeStamp() == Trade.NO_EXCHANGE_TIME_STAMP) {
+			throw new BusinessException("Trade message must have an exchange time stamp.");
+		}
+		if (decoder.getQuantity() <= 0) {
+			throw new BusinessException("Quantity of shares in a trade must be greater than zero.");
+		}
+		if (decoder.getIndicator() == null) {
+			throw new BusinessException("Trade indicator cannot be null.");
+		}
+		if (decoder.getUnscaledPrice() <= 0) {
+			throw new BusinessException("Price of a share in a trade must be greater than zero.");
+		}
+		if (fixedPointArithmetic != null && fixedPointArithmetic.isEnabled()) {
+			try {
+				fixedPointArithmetic.tradedPrice(fixedPointArithmetic.toScaled(decoder.getUnscaledPrice(), 
+						decoder.getPriceScale()), decoder.getQuantity());
+			} catch (ArithmeticException ae) {
+				throw new BusinessException("Price of a share in a trade must have at most " 
+						+ fixedPointArithmetic.getPriceScale() + " digits after point and fit into the traded price range.");
+			}
+		}
+		if (columnarTradeDao != null) {
+			try {
+				FixedPointArithmetic.rescale(decoder.getUnscaledPrice(), decoder.getPriceScale(), 
+						columnarTradeDao.getPriceScale());
+			} catch (ArithmeticException ae) {
+				throw new BusinessException("Price of a share in a trade must have at most " 
+						+ columnarTradeDao.getPriceScale() + " digits after point.");
+			}
+		}
+		if (stockDao.getId(stockSymbol) < 0) {
+			throw new BusinessException("A trade must be associated with a stock.");
+		}
+	}
+
+	private void validateTrade(Trade trade) throws BusinessException {
+		if (trade == null) {
+			throw new BusinessException("Trade record cannot be null.");
+		}
+		// check all the values of the trade
+		if (trade.getStockSymbol() == null) {
+			throw new BusinessException("Stock symbol in a trade must not be null.");
+		}
+		if (trade.getQuantity() == null || trade.getQuantity() <= 0) {
+			throw new BusinessException("Quantity of shares in a trade must be greater than zero.");
+		}
+		if (trade.getIndicator() == null) {
+			throw new BusinessException("Trade indicator cannot be null.");
+		}
+		if (trade.getPrice() == null || trade.getPrice().compareTo(BigDecimal.ZERO) != 1) {
+			throw new BusinessException("Price of a share in a trade must be greater than zero.");
+		}
+		if (fixedPointArithmetic != null && fixedPointArithmetic.isEnabled()) {
+			try {
+				fixedPointArithmetic.tradedPrice(fixedPointArithmetic.toScaled(trade.getPrice()), trade.getQuantity());
+			} catch (ArithmeticException ae) {
+				throw new BusinessException("Price of a share in a trade must have at most " 
+						+ fixedPointArithmetic.getPriceScale() + " digits after point and fit into the traded price range.");
+			}
+		}
+		
+		if (stockDao.getId(trade.getStockSymbol()) < 0) {
+			throw new BusinessException("A trade must be associated with a stock.");
+		}
+		// trailing zeros are only stripped from prices with more digits, so prices which fit do not allocate
+		if (tradeDao instanceof ColumnarTradeDao 
+				&& trade.getPrice().scale() > ((ColumnarTradeDao) tradeDao).getPriceScale()
+				&& trade.getPrice().stripTrailingZeros().scale() > ((ColumnarTradeDao) tradeDao).getPriceScale()) {
+			throw new BusinessException("Price of a share in a trade must have at most " 
+					+ ((ColumnarTradeDao) tradeDao).getPriceScale() + " digits after point.");
+		}
+		if (isJournaling() && !tradeJournal.canAppend(trade)) {
+			throw new BusinessException("Trade cannot be written to the trade journal.");
+		}
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.service.SimpleStockMarketService#clear()
+	 */
+	@Override
+	public void clear() {
+		boolean updating = beginUpdate();
+		try {
+			tradeDao.clear();
+			if (vwapEngine != null) {
+				vwapEngine.clear();
+			}
+			if (allShareIndexEngine != null) {
+				allShareIndexEngine.clear();
+			}
+		} finally {
+			endUpdate(updating);
+		}
+		LOG.info("The market was cleared.");
+	}
+
+	/**
+	 * Rebuild the trades and the engines from the trade journal. With
+	 * snapshots the engines start from the latest snapshot and only trades
+	 * journaled after it are replayed, so the trade DAO holds these only.
+	 * 
+	 */
+	public void recover() {
+		if (!isJournaling()) {
+			return;
+		}
+		// no market state is published from a half loaded snapshot or a half replayed journal
+		boolean updating = beginUpdate();
+		long start = System.nanoTime();
+		long replayedTrades;
+		try {
+			long position = 0;
+			if (snapshotter != null && snapshotter.isEnabled()) {
+				position = snapshotter.restore(vwapEngine, allShareIndexEngine);
+			}
+			LOG.info("Replaying the trade journal...");
+			replayedTrades = tradeJournal.replay(position, Long.MAX_VALUE, trades -> {
+				if (marketClock != null) {
+					for (Trade trade : trades) {
+						marketClock.onTrade(trade);
+					}
+				}
+				tradeDao.addAll(trades);
+				if (vwapEngine != null) {
+					vwapEngine.onTrades(trades);
+				}
+				if (allShareIndexEngine != null) {
+					allShareIndexEngine.onTrades(trades);
+				}
+				if (isRetaining()) {
+					tradeRetention.onTrades(trades);
+				}
+			});
+		} finally {
+			endUpdate(updating);
+		}
+		LOG.info(replayedTrades + " trades were replayed from the trade journal in " 
+				+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms.");
+	}
+
+	private boolean isJournaling() {
+		return tradeJournal != null && tradeJournal.isEnabled();
+	}
+
+	private boolean isRetaining() {
+		return tradeRetention != null && tradeRetention.isEnabled();
+	}
+
+	private boolean isMeasuring() {
+		return serviceMetrics != null && serviceMetrics.isEnabled();
+	}
+
+	private boolean isVersioning() {
+		return marketStates != null && marketStates.isEnabled();
+	}
+
+	/**
+	 * Begin an update no market state is published in the middle of.
+	 * 
+	 * @return whether an update began, false if market states are not published
+	 */
+	private boolean beginUpdate() {
+		if (!isVersioning()) {
+			return false;
+		}
+		marketStates.beginUpdate();
+		return true;
+	}
+
+	private void endUpdate(boolean updating) {
+		if (updating) {
+			marketStates.endUpdate();
+		}
+	}
+
+	private boolean isPublishing() {
+		return priceSubscriptions != null && priceSubscriptions.isEnabled();
+	}
+
+	private void record(Operation operation, long start) {
+		if (isMeasuring()) {
+			serviceMetrics.record(operation, start);
+		}
+	}
+
+	private void reject(Operation operation, BusinessException be) {
+		if (isMeasuring()) {
+			serviceMetrics.reject(operation, be.getMessage());
+		}
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.service.SimpleStockMarketService#calculateVolumeWeightedStockPriceInPast5Minutes(java.lang.String)
+	 */
+	@Override
+	public BigDecimal calculateVolumeWeightedStockPriceInPast5Minutes(String stockSymbol) throws BusinessException{
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Calculating Volume Weighted Stock Price based on trades in last " + lastMinutes +" minutes.");
+		}
+		long start = System.nanoTime();
+		BigDecimal stockPrice = null;
+		try {
+			if (stockSymbol == null) {
+				throw new BusinessException("Stock symbol cannot be null.");
+			}
+			if (vwapEngine != null) {
+				stockPrice = vwapEngine.getVolumeWeightedStockPrice(stockSymbol);
+			} else {
+				stockPrice = calculateVolumeWeightedStockPriceFromTrades(stockSymbol, Duration.ofMinutes(lastMinutes));
+			}
+		} catch(BusinessException be) {
+			LOG.error("While calculating Volume Weighted Stock Price an error occured: " + be.getMessage());
+			reject(Operation.VOLUME_WEIGHTED_STOCK_PRICE_IN_PAST_5_MINUTES, be);
+			throw be;
+		} finally {
+			record(Operation.VOLUME_WEIGHTED_STOCK_PRICE_IN_PAST_5_MINUTES, start);
+		}
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Volume Weighted Stock Price based on trades in last " + lastMinutes 
+					+ " minutes for stock with symbol [" + stockSymbol + "was calculated.");
+		}
+		return stockPrice;
+	}
+	
+	/*
+	 * @see com.jpmorgan.stock.market.service.SimpleStockMarketService#calculateVolumeWeightedStockPrice(java.lang.String, java.time.Duration)
+	 */
+	@Override
+	public BigDecimal calculateVolumeWeightedStockPrice(String stockSymbol, Duration pastTime) throws BusinessException{
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Calculating Volume Weighted Stock Price based on trades in last " + pastTime + ".");
+		}
+		long start = System.nanoTime();
+		BigDecimal stockPrice = null;
+		try {
+			if (stockSymbol == null) {
+				throw new BusinessException("Stock symbol cannot be null.");
+			}
+			if (pastTime == null || pastTime.isNegative() || pastTime.isZero()) {
+				throw new BusinessException("Past time period must be greater than zero.");
+			}
+			if (vwapEngine != null) {
+				if (pastTime.compareTo(vwapEngine.getLongestPastTime()) > 0) {
+					throw new BusinessException("Past time period must not be longer than " 
+							+ vwapEngine.getLongestPastTime() + ", it was " + pastTime + ".");
+				}
+				stockPrice = vwapEngine.getVolumeWeightedStockPrice(stockSymbol, pastTime);
+			} else {
+				stockPrice = calculateVolumeWeightedStockPriceFromTrades(stockSymbol, pastTime);
+			}
+		} catch(BusinessException be) {
+			LOG.error("While calculating Volume Weighted Stock Price an error occured: " + be.getMessage());
+			reject(Operation.VOLUME_WEIGHTED_STOCK_PRICE, be);
+			throw be;
+		} finally {
+			record(Operation.VOLUME_WEIGHTED_STOCK_PRICE, start);
+		}
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Volume Weighted Stock Price based on trades in last " + pastTime 
+					+ " for stock with symbol [" + stockSymbol + "] was calculated.");
+		}
+		return stockPrice;
+	}
+	
+	private BigDecimal calculateVolumeWeightedStockPriceFromTrades(String stockSymbol, Duration pastTime) {
+		if (tradeDao instanceof ColumnarTradeDao) {
+			return calculateVolumeWeightedStockPrice((ColumnarTradeDao) tradeDao, stockSymbol, pastTime);
+		}
+		List<Trade> filteredTrades = findTradesByCreationTimeStamp(stockSymbol, pastTime);
+		BigDecimal totalTradedPrice = BigDecimal.ZERO;
+		int totalQuantity = 0;
+		for (Trade trade : filteredTrades) {
+			// calculate total traded price for a specific stock
+			totalTradedPrice = totalTradedPrice.add(trade.getPrice().multiply(BigDecimal.valueOf(trade.getQuantity())));
+			// calculate total quantity for a specific stock
+			totalQuantity += trade.getQuantity();
+		}
+		BigDecimal totalStockPrice = BigDecimal.ZERO;
+		if (totalQuantity != 0) { 
+			totalStockPrice = totalTradedPrice.divide(BigDecimal.valueOf(totalQuantity), digitsAfterPoint, RoundingMode.HALF_UP);
+		}
+		return totalStockPrice;
+	}
+
+	private BigDecimal calculateVolumeWeightedStockPrice(ColumnarTradeDao columnarTradeDao, String stockSymbol, 
+			Duration pastTime) {
+		// add the trades up straight from the stored columns
+		TradeTotals totals = new TradeTotals(columnarTradeDao.getPriceScale());
+		LocalDateTime startTimeStamp = pastTime == null ? null : now().minus(pastTime);
+		columnarTradeDao.sumByStockSymbol(stockSymbol, startTimeStamp, null, totals);
+		if (totals.getTotalQuantity() == 0) {
+			return BigDecimal.ZERO;
+		}
+		return totals.getTotalTradedPrice().divide(BigDecimal.valueOf(totals.getTotalQuantity()), 
+				digitsAfterPoint, RoundingMode.HALF_UP);
+	}
+
+	private List<Trade> findTradesByCreationTimeStamp(String stockSymbol, Duration pastTime) {
+		if (pastTime == null) {
+			// if pasTime is null then filtering should not be done
+			return tradeDao.findByStockSymbol(stockSymbol);
+		}
+		// find trades that were created in the specified duration of time
+		LocalDateTime startTimeStamp = now().minus(pastTime);
+		return tradeDao.findByStockSymbol(stockSymbol, startTimeStamp, null);
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.service.SimpleStockMarketService#calculateGBCEAllShareIndex()
+	 */
+	@Override
+	public BigDecimal calculateGBCEAllShareIndex() throws BusinessException{
+		LOG.debug("Calculating Global Beverage Corporation Exchange All Share Index...");
+		long start = System.nanoTime();
+		BigDecimal allShareIndex = null;
+		try {
+			if (allShareIndexEngine != null) {
+				allShareIndex = allShareIndexEngine.getAllShareIndex();
+			} else {
+				allShareIndex = calculateGBCEAllShareIndexFromTrades();
+			}
+		} finally {
+			record(Operation.GBCE_ALL_SHARE_INDEX, start);
+		}
+		LOG.debug("All Share Index was calculated");
+		return allShareIndex;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.service.SimpleStockMarketService#calculateIndex(java.lang.String)
+	 */
+	@Override
+	public BigDecimal calculateIndex(String indexName) throws BusinessException {
+		long start = System.nanoTime();
+		BigDecimal index = null;
+		try {
+			if (indexName == null) {
+				throw new BusinessException("Index name cannot be null.");
+			}
+			if (basketIndexEngine != null) {
+				index = basketIndexEngine.getIndex(indexName);
+			}
+			if (index == null) {
+				throw new BusinessException("Index [" + indexName + "] is not registered.");
+			}
+		} catch (BusinessException be) {
+			LOG.error("While calculating an index an error occured: " + be.getMessage());
+			reject(Operation.BASKET_INDEX, be);
+			throw be;
+		} finally {
+			record(Operation.BASKET_INDEX, start);
+		}
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Index [" + indexName + "] was calculated.");
+		}
+		return index;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.service.SimpleStockMarketService#acquireMarketState()
+	 */
+	@Override
+	public MarketState acquireMarketState() throws BusinessException {
+		long start = System.nanoTime();
+		try {
+			if (!isVersioning()) {
+				throw new BusinessException("Market states are not published.");
+			}
+			return marketStates.acquire();
+		} catch (BusinessException be) {
+			LOG.error("While acquiring the market state an error occured: " + be.getMessage());
+			reject(Operation.MARKET_STATE, be);
+			throw be;
+		} finally {
+			record(Operation.MARKET_STATE, start);
+		}
+	}
+
+	private LocalDateTime now() {
+		return marketClock != null ? marketClock.now() : LocalDateTime.now();
+	}
+
+	private BigDecimal calculateGBCEAllShareIndexFromTrades() {
+		List<Stock> stocks = stockDao.getAll();
+		// get a list of prices for all stocks
+		List<BigDecimal> stockPrices = new ArrayList<BigDecimal>();
+		for (Stock stock : stocks) {
+			BigDecimal stockPrice = calculateVolumeWeightedStockPriceFromTrades(stock.getSymbol(), null);
+			if (!stockPrice.equals(BigDecimal.ZERO)) {
+				stockPrices.add(stockPrice);
+			}
+		}
+		// create and populate a stock prices array of doubles
+		double[] stockPricesArray = new double[stockPrices.size()];
+		for (int i=0; i<stockPricesArray.length; i++) {
+			stockPricesArray[i] = stockPrices.get(i).doubleValue();
+		}
+		// return geometric mean of all prices for all stocks 
+		BigDecimal geometricMean = BigDecimal.valueOf(StatUtils.geometricMean(stockPricesArray));
+		return geometricMean.setScale(digitsAfterPoint, RoundingMode.HALF_UP);
+	}
+
+	public void setStockDao(StockDao stockDao) {
+		this.stockDao = stockDao;
+	}
+
+	public void setTradeDao(TradeDao tradeDao) {
+		this.tradeDao = tradeDao;
+	}
+
+	public void setVwapEngine(VwapEngine vwapEngine) {
+		this.vwapEngine = vwapEngine;
+	}
+
+	public void setAllShareIndexEngine(AllShareIndexEngine allShareIndexEngine) {
+		this.allShareIndexEngine = allShareIndexEngine;
+	}
+
+	public void setBasketIndexEngine(BasketIndexEngine basketIndexEngine) {
+		this.basketIndexEngine = basketIndexEngine;
+	}
+
+	public void setFixedPointArithmetic(FixedPointArithmetic fixedPointArithmetic) {
+		this.fixedPointArithmetic = fixedPointArithmetic;
+	}
+
+	public void setTradeJournal(TradeJournal tradeJournal) {
+		this.tradeJournal = tradeJournal;
+	}
+
+	public void setSnapshotter(Snapshotter snapshotter) {
+		this.snapshotter = snapshotter;
+	}
+
+	public void setTradeRetention(TradeRetention tradeRetention) {
+		this.tradeRetention = tradeRetention;
+	}
+
+	public void setServiceMetrics(ServiceMetrics serviceMetrics) {
+		this.serviceMetrics = serviceMetrics;
+	}
+
+	public void setPriceSubscriptions(PriceSubscriptions priceSubscriptions) {
+		this.priceSubscriptions = priceSubscriptions;
+	}
+
+	public void setMarketClock(MarketClock marketClock) {
+		this.marketClock = marketClock;
+	}
+
+	public void setMarketStates(MarketStates marketStates) {
+		this.marketStates = marketStates;
+	}
+
+	public void setBulkPricing(BulkPricing bulkPricing) {
+		this.bulkPricing = bulkPricing;
+	}
+
+	public void setDigitsAfterPoint(int digitsAfterFraction) {
+		this.digitsAfterPoint = digitsAfterFraction;
+	}
+	
+	public void setLastMinutes(int lastMinutes) {
+		this.lastMinutes = lastMinutes;
+	}
+
+}
@@ -1,6 +1,6 @@
-// Copyright (c) 2016 JPMorgan
-
-/**
-* Implementation of Services
-*/
+// Copyright (c) 2016 JPMorgan
+
+/**
+* Implementation of Services
+*/
 package com.jpmorgan.stock.market.service.impl;
\ No newline at end of file
@@ -1,6 +1,6 @@
-// Copyright (c) 2016 JPMorgan
-
-/**
-* Services
-*/
+// Copyright (c) 2016 JPMorgan
+
+/**
+* Services
+*/
 package com.jpmorgan.stock.market.service;
\ No newline at end of file
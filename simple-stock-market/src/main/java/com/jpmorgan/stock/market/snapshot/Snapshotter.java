@@ -0,0 +1,31 @@
+package com.jpmorgan.stock.market.snapshot;
+
+import com.jpmorgan.stock.market.engine.AllShareIndexEngine;
+import com.jpmorgan.stock.market.engine.VwapEngine;
+
+public interface Snapshotter {
+	
+	/**
+	 * Check whether snapshots are taken.
+	 * 
+	 * @return true if snapshots are taken
+	 */
+	public boolean isEnabled();
+	
+	/**
+	 * Take a snapshot of the state covering all trades journaled so far.
+	 * 
+	 * @return the journal position the snapshot covers trades up to
+	 */
+	public long snapshot();
+	
+	/**
+	 * Restore engines to the state of the latest snapshot.
+	 * 
+	 * @param vwapEngine
+	 * @param allShareIndexEngine
+	 * @return the journal position trades have to be replayed from
+	 */
+	public long restore(VwapEngine vwapEngine, AllShareIndexEngine allShareIndexEngine);
+
+}
@@ -0,0 +1,346 @@
+package com.jpmorgan.stock.market.snapshot.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import com.jpmorgan.stock.market.dao.StockDao;
+import com.jpmorgan.stock.market.domain.Stock;
+import com.jpmorgan.stock.market.domain.enums.StockType;
+import com.jpmorgan.stock.market.engine.AllShareIndexEngine;
+import com.jpmorgan.stock.market.engine.VwapEngine;
+import com.jpmorgan.stock.market.journal.TradeJournal;
+import com.jpmorgan.stock.market.snapshot.Snapshotter;
+
+/**
+ * Snapshots written to binary files named by the journal position they
+ * cover trades up to. The snapshotter keeps engines of its own which
+ * follow the trade journal: taking a snapshot replays the trades journaled
+ * since the last snapshot into these engines and writes their state
+ * together with the stocks, so the live engines and recording trades are
+ * never paused and every snapshot matches exactly one journal position.
+ * <p>
+ * Snapshots are taken periodically in the background and when the
+ * snapshotter is closed. Older snapshots beyond the retained number are
+ * deleted and the journal is truncated up to the oldest retained one.
+ * <p>
+ * When the trades cannot be replayed into the engines of the snapshotter,
+ * the engines go back to the latest snapshot, so the failed trades are 
+ * replayed once again by the next snapshot instead of being added twice.
+ */
+public class FileSnapshotter implements Snapshotter {
+	
+	final static Logger LOG = Logger.getLogger(FileSnapshotter.class);
+	
+	private static final int MAGIC = 0x534e4150;
+	
+	private static final int VERSION = 1;
+	
+	private static final String SNAPSHOT_PREFIX = "snapshot-";
+	
+	private static final String SNAPSHOT_SUFFIX = ".snap";
+	
+	private boolean enabled;
+	
+	private String directory;
+	
+	private long intervalSeconds = 60;
+	
+	private int retainedSnapshots = 2;
+	
+	private boolean compactJournal = true;
+	
+	private StockDao stockDao;
+	
+	private TradeJournal tradeJournal;
+	
+	// engines following the journal, not the ones serving calculations
+	private VwapEngine vwapEngine;
+	
+	private AllShareIndexEngine allShareIndexEngine;
+	
+	// journal position the engines of the snapshotter cover trades up to
+	private long position;
+	
+	private ScheduledExecutorService scheduler;
+
+	/**
+	 * Load the latest readable snapshot and start taking snapshots periodically.
+	 * 
+	 * @throws IOException
+	 */
+	public synchronized void open() throws IOException {
+		if (!isEnabled()) {
+			return;
+		}
+		Files.createDirectories(Paths.get(directory));
+		loadLatest();
+		if (intervalSeconds > 0) {
+			scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "snapshotter");
+				thread.setDaemon(true);
+				return thread;
+			});
+			scheduler.scheduleWithFixedDelay(() -> {
+				try {
+					snapshot();
+				} catch (RuntimeException re) {
+					LOG.error("While taking a snapshot an error occured: " + re.getMessage());
+				}
+			}, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+		}
+	}
+
+	/**
+	 * Stop taking snapshots periodically and take a last one.
+	 * 
+	 */
+	public void close() {
+		if (!isEnabled()) {
+			return;
+		}
+		synchronized (this) {
+			if (scheduler != null) {
+				scheduler.shutdown();
+				scheduler = null;
+			}
+		}
+		snapshot();
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.snapshot.Snapshotter#isEnabled()
+	 */
+	@Override
+	public boolean isEnabled() {
+		return enabled && tradeJournal != null && tradeJournal.isEnabled();
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.snapshot.Snapshotter#snapshot()
+	 */
+	@Override
+	public synchronized long snapshot() {
+		if (!isEnabled()) {
+			return 0;
+		}
+		long start = System.nanoTime();
+		long snapshotPosition = tradeJournal.getPosition();
+		long trades;
+		try {
+			trades = tradeJournal.replay(position, snapshotPosition, batch -> {
+				vwapEngine.onTrades(batch);
+				allShareIndexEngine.onTrades(batch);
+			});
+		} catch (RuntimeException re) {
+			// the engines hold part of the trades, which the next snapshot would add again
+			try {
+				loadLatest();
+			} catch (IOException ioe) {
+				re.addSuppressed(ioe);
+			}
+			throw re;
+		}
+		position = snapshotPosition;
+		Path path = Paths.get(directory, String.format("%s%016x%s", SNAPSHOT_PREFIX, position, SNAPSHOT_SUFFIX));
+		Path temporaryPath = Paths.get(path.toString() + ".tmp");
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryPath)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeLong(position);
+				writeStocks(out);
+				vwapEngine.writeState(out);
+				allShareIndexEngine.writeState(out);
+			}
+			Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			compact();
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+		LOG.info("Snapshot [" + path.getFileName() + "] was taken, " + trades + " trades were added in " 
+				+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms.");
+		return position;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.snapshot.Snapshotter#restore(com.jpmorgan.stock.market.engine.VwapEngine, com.jpmorgan.stock.market.engine.AllShareIndexEngine)
+	 */
+	@Override
+	public synchronized long restore(VwapEngine vwapEngine, AllShareIndexEngine allShareIndexEngine) {
+		if (!isEnabled()) {
+			return 0;
+		}
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			this.vwapEngine.writeState(out);
+			this.allShareIndexEngine.writeState(out);
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+			vwapEngine.readState(in);
+			allShareIndexEngine.readState(in);
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+		return position;
+	}
+
+	private void loadLatest() throws IOException {
+		vwapEngine.clear();
+		allShareIndexEngine.clear();
+		position = 0;
+		List<Path> snapshots = snapshots();
+		for (int i = snapshots.size() - 1; i >= 0; i--) {
+			try {
+				load(snapshots.get(i));
+				LOG.info("Snapshot [" + snapshots.get(i).getFileName() + "] was loaded.");
+				break;
+			} catch (IOException ioe) {
+				LOG.warn("Snapshot [" + snapshots.get(i).getFileName() + "] cannot be loaded: " + ioe.getMessage());
+				vwapEngine.clear();
+				allShareIndexEngine.clear();
+				position = 0;
+			}
+		}
+	}
+
+	private void load(Path path) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException("Unknown snapshot format");
+			}
+			long snapshotPosition = in.readLong();
+			List<Stock> stocks = readStocks(in);
+			vwapEngine.readState(in);
+			allShareIndexEngine.readState(in);
+			// stocks listed now are kept as they are, only stocks known from the snapshot alone are added
+			for (Stock stock : stocks) {
+				if (!stockDao.findBySymbol(stock.getSymbol()).isPresent()) {
+					stockDao.add(stock);
+				}
+			}
+			position = snapshotPosition;
+		}
+	}
+
+	private void compact() throws IOException {
+		List<Path> snapshots = snapshots();
+		int retained = Math.max(1, retainedSnapshots);
+		for (int i = 0; i < snapshots.size() - retained; i++) {
+			Files.delete(snapshots.get(i));
+		}
+		if (compactJournal) {
+			// keep the trades after the oldest retained snapshot, in case the latest cannot be read
+			Path oldest = snapshots.get(Math.max(0, snapshots.size() - retained));
+			tradeJournal.truncate(snapshotPosition(oldest));
+		}
+	}
+
+	private void writeStocks(DataOutput out) throws IOException {
+		List<Stock> stocks = stockDao.getAll();
+		out.writeInt(stocks.size());
+		for (Stock stock : stocks) {
+			out.writeUTF(stock.getSymbol());
+			out.writeUTF(stock.getType().name());
+			writeDecimal(out, stock.getLastDividend());
+			writeDecimal(out, stock.getFixedDividend());
+			writeDecimal(out, stock.getParValue());
+		}
+	}
+
+	private List<Stock> readStocks(DataInput in) throws IOException {
+		int count = in.readInt();
+		List<Stock> stocks = new ArrayList<Stock>(count);
+		for (int i = 0; i < count; i++) {
+			stocks.add(new Stock(in.readUTF(), StockType.valueOf(in.readUTF()), readDecimal(in), readDecimal(in), 
+					readDecimal(in)));
+		}
+		return stocks;
+	}
+
+	private static void writeDecimal(DataOutput out, BigDecimal value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value.toString());
+		}
+	}
+
+	private static BigDecimal readDecimal(DataInput in) throws IOException {
+		return in.readBoolean() ? new BigDecimal(in.readUTF()) : null;
+	}
+
+	private List<Path> snapshots() throws IOException {
+		List<Path> snapshots = new ArrayList<Path>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(directory), 
+				SNAPSHOT_PREFIX + "*" + SNAPSHOT_SUFFIX)) {
+			for (Path path : stream) {
+				snapshots.add(path);
+			}
+		}
+		// the position is zero padded, so names sort by position
+		snapshots.sort(null);
+		return snapshots;
+	}
+
+	private static long snapshotPosition(Path path) {
+		String name = path.getFileName().toString();
+		return Long.parseUnsignedLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()), 16);
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public void setDirectory(String directory) {
+		this.directory = directory;
+	}
+
+	public void setIntervalSeconds(long intervalSeconds) {
+		this.intervalSeconds = intervalSeconds;
+	}
+
+	public void setRetainedSnapshots(int retainedSnapshots) {
+		this.retainedSnapshots = retainedSnapshots;
+	}
+
+	public void setCompactJournal(boolean compactJournal) {
+		this.compactJournal = compactJournal;
+	}
+
+	public void setStockDao(StockDao stockDao) {
+		this.stockDao = stockDao;
+	}
+
+	public void setTradeJournal(TradeJournal tradeJournal) {
+		this.tradeJournal = tradeJournal;
+	}
+
+	public void setVwapEngine(VwapEngine vwapEngine) {
+		this.vwapEngine = vwapEngine;
+	}
+
+	public void setAllShareIndexEngine(AllShareIndexEngine allShareIndexEngine) {
+		this.allShareIndexEngine = allShareIndexEngine;
+	}
+
+}
@@ -0,0 +1,6 @@
+// Copyright (c) 2016 JPMorgan
+
+/**
+* Implementation of snapshots
+*/
+package com.jpmorgan.stock.market.snapshot.impl;
\ No newline at end of file
@@ -0,0 +1,6 @@
+// Copyright (c) 2016 JPMorgan
+
+/**
+* Snapshots of the calculated state
+*/
+package com.jpmorgan.stock.market.snapshot;
\ No newline at end of file
@@ -0,0 +1,93 @@
+package com.jpmorgan.stock.market.state;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import com.jpmorgan.stock.market.clock.LocalTimeStamps;
+
+/**
+ * Immutable version of the prices of the market: the Volume Weighted Stock
+ * Price in past 5 minutes of every stock, the GBCE All Share Index and the
+ * basket indices, all covering the same recorded trades. Any number of 
+ * queries against one state give mutually consistent answers while trades
+ * keep being recorded.
+ */
+public final class MarketState {
+	
+	private final long version;
+	
+	private final long epochNanos;
+	
+	private final Map<String, BigDecimal> stockPrices;
+	
+	private final BigDecimal allShareIndex;
+	
+	private final Map<String, BigDecimal> indices;
+	
+	public MarketState(long version, long epochNanos, Map<String, BigDecimal> stockPrices, BigDecimal allShareIndex, 
+			Map<String, BigDecimal> indices) {
+		this.version = version;
+		this.epochNanos = epochNanos;
+		this.stockPrices = Collections.unmodifiableMap(stockPrices);
+		this.allShareIndex = allShareIndex;
+		this.indices = Collections.unmodifiableMap(indices);
+	}
+	
+	/**
+	 * Get the version, increasing with every published state.
+	 * 
+	 * @return the version
+	 */
+	public long getVersion() {
+		return version;
+	}
+	
+	/**
+	 * Get the market time the prices were taken at.
+	 * 
+	 * @return nanoseconds since 1970-01-01T00:00 local time
+	 */
+	public long getEpochNanos() {
+		return epochNanos;
+	}
+	
+	public LocalDateTime getTimeStamp() {
+		return LocalTimeStamps.toLocalDateTime(epochNanos);
+	}
+	
+	/**
+	 * Get the Volume Weighted Stock Price in past 5 minutes of a stock.
+	 * 
+	 * @param stockSymbol
+	 * @return the stock price, zero if the stock was not traded, <code>null</code> if it is not present in the market
+	 */
+	public BigDecimal getVolumeWeightedStockPrice(String stockSymbol) {
+		return stockPrices.get(stockSymbol);
+	}
+	
+	public Set<String> getStockSymbols() {
+		return stockPrices.keySet();
+	}
+	
+	public BigDecimal getAllShareIndex() {
+		return allShareIndex;
+	}
+	
+	/**
+	 * Get a basket index.
+	 * 
+	 * @param indexName
+	 * @return the index, <code>null</code> if it was not registered
+	 */
+	public BigDecimal getIndex(String indexName) {
+		return indices.get(indexName);
+	}
+	
+	public Set<String> getIndexNames() {
+		return indices.keySet();
+	}
+
+}
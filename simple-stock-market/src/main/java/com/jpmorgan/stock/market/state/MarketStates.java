@@ -0,0 +1,35 @@
+package com.jpmorgan.stock.market.state;
+
+public interface MarketStates {
+	
+	/**
+	 * Check whether market states are published.
+	 * 
+	 * @return true if updates are tracked and states can be acquired
+	 */
+	public boolean isEnabled();
+	
+	/**
+	 * Begin an update of the trades and engines, which no state is 
+	 * published in the middle of. Updates run concurrently with each other
+	 * and must not be nested.
+	 * 
+	 */
+	public void beginUpdate();
+	
+	/**
+	 * End an update, the next acquired state covers it.
+	 * 
+	 */
+	public void endUpdate();
+	
+	/**
+	 * Acquire the latest state. While nothing was recorded since it was 
+	 * published the state is returned as is, and neither acquiring nor 
+	 * publishing a state locks out the updates.
+	 * 
+	 * @return the state
+	 */
+	public MarketState acquire();
+
+}
@@ -0,0 +1,214 @@
+package com.jpmorgan.stock.market.state.impl;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.jpmorgan.stock.market.clock.MarketClock;
+import com.jpmorgan.stock.market.dao.StockDao;
+import com.jpmorgan.stock.market.domain.Stock;
+import com.jpmorgan.stock.market.engine.AllShareIndexEngine;
+import com.jpmorgan.stock.market.engine.BasketIndexEngine;
+import com.jpmorgan.stock.market.engine.VwapEngine;
+import com.jpmorgan.stock.market.state.MarketState;
+import com.jpmorgan.stock.market.state.MarketStates;
+
+/**
+ * Market states published lazily, at most once per count of finished 
+ * updates. Updates only count themselves in two {@link LongAdder}s, when 
+ * they start and when they finish, so they neither lock nor contend on a
+ * single line. Acquiring a state returns the published one as long as no
+ * update finished since and it is not older than maxAgeMillis of market 
+ * time. Otherwise the engines are read optimistically once every started
+ * update finished, and the state is kept only if no update started while 
+ * they were read. Should updates never pause for the given attempts, new 
+ * updates wait until the reader has read the engines, so it is not 
+ * starved.
+ * <p>
+ * States are immutable and nothing refers back to them, so an old state 
+ * is reclaimed by the garbage collector once no reader holds it.
+ */
+public class EpochMarketStates implements MarketStates {
+	
+	private static final int OPTIMISTIC_ATTEMPTS = 64;
+	
+	private final LongAdder startedUpdates = new LongAdder();
+	
+	private final LongAdder finishedUpdates = new LongAdder();
+	
+	private final AtomicReference<Published> current = new AtomicReference<Published>();
+	
+	// whether a starved reader holds new updates back
+	private volatile boolean pausing;
+	
+	private boolean enabled;
+	
+	private long maxAgeNanos;
+	
+	private StockDao stockDao;
+	
+	private VwapEngine vwapEngine;
+	
+	private AllShareIndexEngine allShareIndexEngine;
+	
+	private BasketIndexEngine basketIndexEngine;
+	
+	private MarketClock marketClock;
+
+	/*
+	 * @see com.jpmorgan.stock.market.state.MarketStates#isEnabled()
+	 */
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.state.MarketStates#beginUpdate()
+	 */
+	@Override
+	public void beginUpdate() {
+		while (pausing) {
+			Thread.yield();
+		}
+		startedUpdates.increment();
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.state.MarketStates#endUpdate()
+	 */
+	@Override
+	public void endUpdate() {
+		finishedUpdates.increment();
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.state.MarketStates#acquire()
+	 */
+	@Override
+	public MarketState acquire() {
+		for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+			MarketState state = tryAcquire();
+			if (state != null) {
+				return state;
+			}
+			Thread.yield();
+		}
+		return acquirePausing();
+	}
+	
+	/**
+	 * Acquire the published state or read a new one between updates.
+	 * 
+	 * @return the state, <code>null</code> if updates were running
+	 */
+	private MarketState tryAcquire() {
+		Published published = current.get();
+		// finished before started: equal sums mean no update was running in between
+		long finished = finishedUpdates.sum();
+		if (isCurrent(published, finished)) {
+			return published.state;
+		}
+		long started = startedUpdates.sum();
+		if (started != finished) {
+			return null;
+		}
+		MarketState state = read(published == null ? 1 : published.state.getVersion() + 1);
+		if (startedUpdates.sum() != started) {
+			return null;
+		}
+		// a reader publishing first wins, its state is at least as new
+		if (!current.compareAndSet(published, new Published(state, finished))) {
+			return tryAcquire();
+		}
+		return state;
+	}
+	
+	private synchronized MarketState acquirePausing() {
+		pausing = true;
+		try {
+			MarketState state;
+			while ((state = tryAcquire()) == null) {
+				Thread.yield();
+			}
+			return state;
+		} finally {
+			pausing = false;
+		}
+	}
+	
+	private boolean isCurrent(Published published, long finished) {
+		if (published == null || published.finishedUpdates != finished) {
+			return false;
+		}
+		// a clock reset back to an earlier time makes the state outdated too
+		long age = marketClock.epochNanos() - published.state.getEpochNanos();
+		return age >= 0 && age <= maxAgeNanos;
+	}
+	
+	private MarketState read(long version) {
+		long epochNanos = marketClock.epochNanos();
+		Map<String, BigDecimal> stockPrices = new HashMap<String, BigDecimal>();
+		for (Stock stock : stockDao.getAll()) {
+			stockPrices.put(stock.getSymbol(), vwapEngine.getVolumeWeightedStockPrice(stock.getSymbol()));
+		}
+		Map<String, BigDecimal> indices = new LinkedHashMap<String, BigDecimal>();
+		if (basketIndexEngine != null) {
+			for (String indexName : basketIndexEngine.getIndexNames()) {
+				BigDecimal index = basketIndexEngine.getIndex(indexName);
+				if (index != null) {
+					indices.put(indexName, index);
+				}
+			}
+		}
+		return new MarketState(version, epochNanos, stockPrices, allShareIndexEngine.getAllShareIndex(), indices);
+	}
+	
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+	
+	public void setMaxAgeMillis(long maxAgeMillis) {
+		this.maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxAgeMillis);
+	}
+	
+	public void setStockDao(StockDao stockDao) {
+		this.stockDao = stockDao;
+	}
+	
+	public void setVwapEngine(VwapEngine vwapEngine) {
+		this.vwapEngine = vwapEngine;
+	}
+	
+	public void setAllShareIndexEngine(AllShareIndexEngine allShareIndexEngine) {
+		this.allShareIndexEngine = allShareIndexEngine;
+	}
+	
+	public void setBasketIndexEngine(BasketIndexEngine basketIndexEngine) {
+		this.basketIndexEngine = basketIndexEngine;
+	}
+	
+	public void setMarketClock(MarketClock marketClock) {
+		this.marketClock = marketClock;
+	}
+
+	/**
+	 * A published state with the number of updates it covers.
+	 */
+	private static class Published {
+		
+		private final MarketState state;
+		
+		private final long finishedUpdates;
+		
+		Published(MarketState state, long finishedUpdates) {
+			this.state = state;
+			this.finishedUpdates = finishedUpdates;
+		}
+	}
+
+}
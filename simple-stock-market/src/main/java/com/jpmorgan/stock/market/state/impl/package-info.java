@@ -0,0 +1,6 @@
+// Copyright (c) 2016 JPMorgan
+
+/**
+* Implementation of versioned market states
+*/
+package com.jpmorgan.stock.market.state.impl;
\ No newline at end of file
@@ -0,0 +1,6 @@
+// Copyright (c) 2016 JPMorgan
+
+/**
+* Versioned market states
+*/
+package com.jpmorgan.stock.market.state;
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.jpmorgan.stock.market.subscription;
+
+import java.math.BigDecimal;
+
+public interface AllShareIndexListener {
+	
+	/**
+	 * Receive the latest GBCE All Share Index. Values which changed again 
+	 * before the listener returned are skipped, only the latest one is 
+	 * delivered.
+	 * 
+	 * @param allShareIndex
+	 */
+	public void onAllShareIndex(BigDecimal allShareIndex);
+
+}
@@ -0,0 +1,63 @@
+package com.jpmorgan.stock.market.subscription;
+
+import java.util.Collection;
+
+import com.jpmorgan.stock.market.domain.Trade;
+import com.jpmorgan.stock.market.exceptions.BusinessException;
+
+public interface PriceSubscriptions {
+	
+	/**
+	 * Check whether updated prices are pushed to listeners.
+	 * 
+	 * @return true if listeners can subscribe
+	 */
+	public boolean isEnabled();
+	
+	/**
+	 * Subscribe to the Volume Weighted Stock Price in past 5 minutes of a 
+	 * stock. The listener receives the current price first and then every
+	 * changed price, on a thread of the subscriptions.
+	 * 
+	 * @param stockSymbol
+	 * @param listener
+	 * @return the subscription
+	 * @throws BusinessException if the stock is not present in the market
+	 */
+	public Subscription subscribeStockPrice(String stockSymbol, StockPriceListener listener) throws BusinessException;
+	
+	/**
+	 * Subscribe to the GBCE All Share Index. The listener receives the 
+	 * current index first and then every changed index, on a thread of the
+	 * subscriptions.
+	 * 
+	 * @param listener
+	 * @return the subscription
+	 * @throws BusinessException
+	 */
+	public Subscription subscribeAllShareIndex(AllShareIndexListener listener) throws BusinessException;
+	
+	/**
+	 * Mark the prices changed by a recorded trade for dispatching. Called
+	 * on the recording thread, so it only marks and never calculates.
+	 * 
+	 * @param trade
+	 */
+	public void onTrade(Trade trade);
+	
+	/**
+	 * Mark the prices changed by a recorded trade of a stock for 
+	 * dispatching, for trades recorded without a trade object.
+	 * 
+	 * @param stockSymbol
+	 */
+	public void onTrade(String stockSymbol);
+	
+	/**
+	 * Mark the prices changed by a recorded batch for dispatching.
+	 * 
+	 * @param trades
+	 */
+	public void onTrades(Collection<Trade> trades);
+
+}
@@ -0,0 +1,17 @@
+package com.jpmorgan.stock.market.subscription;
+
+import java.math.BigDecimal;
+
+public interface StockPriceListener {
+	
+	/**
+	 * Receive the latest Volume Weighted Stock Price in past 5 minutes of a
+	 * subscribed stock. Prices which changed again before the listener
+	 * returned are skipped, only the latest one is delivered.
+	 * 
+	 * @param stockSymbol
+	 * @param stockPrice
+	 */
+	public void onStockPrice(String stockSymbol, BigDecimal stockPrice);
+
+}
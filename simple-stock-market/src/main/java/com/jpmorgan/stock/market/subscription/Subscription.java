@@ -0,0 +1,19 @@
+package com.jpmorgan.stock.market.subscription;
+
+public interface Subscription {
+	
+	/**
+	 * Stop delivering values to the listener. A value being delivered
+	 * while cancelling is still delivered.
+	 * 
+	 */
+	public void cancel();
+	
+	/**
+	 * Check whether the subscription was cancelled.
+	 * 
+	 * @return true if values are no longer delivered
+	 */
+	public boolean isCancelled();
+
+}
@@ -0,0 +1,376 @@
+package com.jpmorgan.stock.market.subscription.impl;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.log4j.Logger;
+
+import com.jpmorgan.stock.market.dao.StockDao;
+import com.jpmorgan.stock.market.domain.Trade;
+import com.jpmorgan.stock.market.engine.AllShareIndexEngine;
+import com.jpmorgan.stock.market.engine.VwapEngine;
+import com.jpmorgan.stock.market.exceptions.BusinessException;
+import com.jpmorgan.stock.market.subscription.AllShareIndexListener;
+import com.jpmorgan.stock.market.subscription.PriceSubscriptions;
+import com.jpmorgan.stock.market.subscription.StockPriceListener;
+import com.jpmorgan.stock.market.subscription.Subscription;
+
+/**
+ * Price subscriptions conflating updates twice. Recording a trade only
+ * marks its stock and the index as changed and wakes the dispatcher
+ * thread, which calculates every changed price once, however many trades
+ * arrived meanwhile, and offers it to the subscriptions. Prices are also
+ * calculated every refreshMillis, as the past 5 minutes move on without
+ * trades. Prices are read from the engines, not through the service, so
+ * dispatching is not counted as service calls and does not log.
+ * <p>
+ * Every subscription holds the latest undelivered value only and is
+ * delivered on the listener threads, so a slow listener skips the values
+ * it could not keep up with instead of queueing them, and does not delay
+ * the dispatcher or the other listeners. Values equal to the last offered 
+ * one are not delivered again.
+ */
+public class ConflatingPriceSubscriptions implements PriceSubscriptions {
+	
+	final static Logger LOG = Logger.getLogger(ConflatingPriceSubscriptions.class);
+	
+	private boolean enabled;
+	
+	private int listenerThreads = 2;
+	
+	private long refreshMillis = 1000;
+	
+	private StockDao stockDao;
+	
+	private VwapEngine vwapEngine;
+	
+	private AllShareIndexEngine allShareIndexEngine;
+	
+	private final ConcurrentMap<String, Subscribers<StockPriceListener>> stockSubscribers = 
+			new ConcurrentHashMap<String, Subscribers<StockPriceListener>>();
+	
+	private final Subscribers<AllShareIndexListener> indexSubscribers = new Subscribers<AllShareIndexListener>();
+	
+	// set when prices changed since the dispatcher last looked, saves unparking it on every trade
+	private volatile boolean signalled;
+	
+	private volatile boolean running;
+	
+	private Thread dispatcher;
+	
+	private ExecutorService listenerExecutor;
+
+	/**
+	 * Start the dispatcher and the listener threads.
+	 * 
+	 */
+	public synchronized void start() {
+		if (!enabled || running) {
+			return;
+		}
+		AtomicInteger threadNumber = new AtomicInteger();
+		listenerExecutor = Executors.newFixedThreadPool(listenerThreads, runnable -> {
+			Thread thread = new Thread(runnable, "price-listener-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		running = true;
+		dispatcher = new Thread(this::dispatch, "price-dispatcher");
+		dispatcher.setDaemon(true);
+		dispatcher.start();
+	}
+
+	/**
+	 * Stop dispatching and delivering prices.
+	 * 
+	 */
+	public synchronized void stop() {
+		if (!running) {
+			return;
+		}
+		running = false;
+		LockSupport.unpark(dispatcher);
+		try {
+			dispatcher.join(TimeUnit.SECONDS.toMillis(10));
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+		listenerExecutor.shutdownNow();
+		dispatcher = null;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.subscription.PriceSubscriptions#isEnabled()
+	 */
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.subscription.PriceSubscriptions#subscribeStockPrice(java.lang.String, com.jpmorgan.stock.market.subscription.StockPriceListener)
+	 */
+	@Override
+	public Subscription subscribeStockPrice(String stockSymbol, StockPriceListener listener) throws BusinessException {
+		checkRunning();
+		if (stockSymbol == null) {
+			throw new BusinessException("Stock symbol cannot be null.");
+		}
+		if (listener == null) {
+			throw new BusinessException("Listener cannot be null.");
+		}
+		if (!stockDao.findBySymbol(stockSymbol).isPresent()) {
+			throw new BusinessException("Stock with symbol [" + stockSymbol + "] is not present in the market.");
+		}
+		Subscribers<StockPriceListener> subscribers = stockSubscribers.computeIfAbsent(stockSymbol, 
+				symbol -> new Subscribers<StockPriceListener>());
+		return subscribers.add(new ConflatingSubscription<StockPriceListener>(listener, subscribers) {
+			
+			@Override
+			void deliver(StockPriceListener listener, BigDecimal value) {
+				listener.onStockPrice(stockSymbol, value);
+			}
+		});
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.subscription.PriceSubscriptions#subscribeAllShareIndex(com.jpmorgan.stock.market.subscription.AllShareIndexListener)
+	 */
+	@Override
+	public Subscription subscribeAllShareIndex(AllShareIndexListener listener) throws BusinessException {
+		checkRunning();
+		if (listener == null) {
+			throw new BusinessException("Listener cannot be null.");
+		}
+		return indexSubscribers.add(new ConflatingSubscription<AllShareIndexListener>(listener, indexSubscribers) {
+			
+			@Override
+			void deliver(AllShareIndexListener listener, BigDecimal value) {
+				listener.onAllShareIndex(value);
+			}
+		});
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.subscription.PriceSubscriptions#onTrade(com.jpmorgan.stock.market.domain.Trade)
+	 */
+	@Override
+	public void onTrade(Trade trade) {
+		onTrade(trade.getStockSymbol());
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.subscription.PriceSubscriptions#onTrade(java.lang.String)
+	 */
+	@Override
+	public void onTrade(String stockSymbol) {
+		markChanged(stockSubscribers.get(stockSymbol));
+		markChanged(indexSubscribers);
+	}
+
+	/*
+	 * @see com.jpmorgan.stock.market.subscription.PriceSubscriptions#onTrades(java.util.Collection)
+	 */
+	@Override
+	public void onTrades(Collection<Trade> trades) {
+		if (!stockSubscribers.isEmpty()) {
+			for (Trade trade : trades) {
+				markChanged(stockSubscribers.get(trade.getStockSymbol()));
+			}
+		}
+		markChanged(indexSubscribers);
+	}
+
+	private void checkRunning() {
+		if (!running) {
+			throw new IllegalStateException("Price subscriptions are not running.");
+		}
+	}
+
+	private void markChanged(Subscribers<?> subscribers) {
+		// a plain read first, so trades of stocks without subscribers or already marked stocks only read
+		if (subscribers == null || subscribers.changed || subscribers.subscriptions.isEmpty()) {
+			return;
+		}
+		subscribers.changed = true;
+		if (!signalled) {
+			signalled = true;
+			LockSupport.unpark(dispatcher);
+		}
+	}
+
+	private void dispatch() {
+		long refreshNanos = TimeUnit.MILLISECONDS.toNanos(refreshMillis);
+		long lastRefresh = System.nanoTime();
+		while (running) {
+			signalled = false;
+			boolean refresh = System.nanoTime() - lastRefresh >= refreshNanos;
+			if (refresh) {
+				lastRefresh = System.nanoTime();
+			}
+			for (ConcurrentMap.Entry<String, Subscribers<StockPriceListener>> entry : stockSubscribers.entrySet()) {
+				Subscribers<StockPriceListener> subscribers = entry.getValue();
+				if (subscribers.takeChanged(refresh)) {
+					try {
+						subscribers.offer(vwapEngine.getVolumeWeightedStockPrice(entry.getKey()));
+					} catch (RuntimeException e) {
+						LOG.error("While dispatching Volume Weighted Stock Price for stock with symbol [" 
+								+ entry.getKey() + "] an error occured: " + e.getMessage());
+					}
+				}
+			}
+			if (indexSubscribers.takeChanged(refresh)) {
+				try {
+					indexSubscribers.offer(allShareIndexEngine.getAllShareIndex());
+				} catch (RuntimeException e) {
+					LOG.error("While dispatching All Share Index an error occured: " + e.getMessage());
+				}
+			}
+			if (!signalled) {
+				LockSupport.parkNanos(this, refreshNanos - (System.nanoTime() - lastRefresh));
+			}
+		}
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public void setListenerThreads(int listenerThreads) {
+		this.listenerThreads = listenerThreads;
+	}
+
+	public void setRefreshMillis(long refreshMillis) {
+		this.refreshMillis = refreshMillis;
+	}
+
+	public void setStockDao(StockDao stockDao) {
+		this.stockDao = stockDao;
+	}
+
+	public void setVwapEngine(VwapEngine vwapEngine) {
+		this.vwapEngine = vwapEngine;
+	}
+
+	public void setAllShareIndexEngine(AllShareIndexEngine allShareIndexEngine) {
+		this.allShareIndexEngine = allShareIndexEngine;
+	}
+
+	/**
+	 * Subscriptions to a single price and whether the price changed since
+	 * it was last dispatched.
+	 */
+	private class Subscribers<L> {
+		
+		final List<ConflatingSubscription<L>> subscriptions = new CopyOnWriteArrayList<ConflatingSubscription<L>>();
+		
+		volatile boolean changed;
+		
+		Subscription add(ConflatingSubscription<L> subscription) {
+			subscriptions.add(subscription);
+			// the new listener receives the current price
+			changed = true;
+			signalled = true;
+			LockSupport.unpark(dispatcher);
+			return subscription;
+		}
+		
+		boolean takeChanged(boolean refresh) {
+			if (subscriptions.isEmpty() || !(changed || refresh)) {
+				return false;
+			}
+			// cleared before calculating, so trades arriving meanwhile mark the price again
+			changed = false;
+			return true;
+		}
+		
+		void offer(BigDecimal value) {
+			for (ConflatingSubscription<L> subscription : subscriptions) {
+				subscription.offer(value);
+			}
+		}
+	}
+
+	/**
+	 * Subscription holding the latest undelivered value, delivered by at 
+	 * most one listener thread at a time.
+	 */
+	private abstract class ConflatingSubscription<L> implements Subscription {
+		
+		private final L listener;
+		
+		private final Subscribers<L> subscribers;
+		
+		private final AtomicReference<BigDecimal> pending = new AtomicReference<BigDecimal>();
+		
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+		
+		// written by the dispatcher thread only
+		private BigDecimal lastOffered;
+		
+		private volatile boolean cancelled;
+		
+		ConflatingSubscription(L listener, Subscribers<L> subscribers) {
+			this.listener = listener;
+			this.subscribers = subscribers;
+		}
+		
+		abstract void deliver(L listener, BigDecimal value);
+		
+		void offer(BigDecimal value) {
+			if (cancelled || value.equals(lastOffered)) {
+				return;
+			}
+			lastOffered = value;
+			// replaces a value the listener did not take yet
+			pending.set(value);
+			if (scheduled.compareAndSet(false, true)) {
+				listenerExecutor.execute(this::drain);
+			}
+		}
+		
+		private void drain() {
+			do {
+				BigDecimal value;
+				while ((value = pending.getAndSet(null)) != null && !cancelled) {
+					try {
+						deliver(listener, value);
+					} catch (RuntimeException re) {
+						LOG.error("While delivering a price to a listener an error occured: " + re.getMessage());
+					}
+				}
+				scheduled.set(false);
+				// a value offered after the last take but before unscheduling is delivered now
+			} while (pending.get() != null && !cancelled && scheduled.compareAndSet(false, true));
+		}
+
+		/*
+		 * @see com.jpmorgan.stock.market.subscription.Subscription#cancel()
+		 */
+		@Override
+		public void cancel() {
+			cancelled = true;
+			subscribers.subscriptions.remove(this);
+		}
+
+		/*
+		 * @see com.jpmorgan.stock.market.subscription.Subscription#isCancelled()
+		 */
+		@Override
+		public boolean isCancelled() {
+			return cancelled;
+		}
+	}
+
+}
@@ -0,0 +1,6 @@
+// Copyright (c) 2016 JPMorgan
+
+/**
+* Implementation of price subscriptions
+*/
+package com.jpmorgan.stock.market.subscription.impl;
\ No newline at end of file
@@ -0,0 +1,6 @@
+// Copyright (c) 2016 JPMorgan
+
+/**
+* Price subscriptions
+*/
+package com.jpmorgan.stock.market.subscription;
\ No newline at end of file
@@ -0,0 +1,181 @@
+package com.jpmorgan.stock.market.backtest;
+
+import static com.jpmorgan.stock.market.domain.enums.TradeIndicator.BUY;
+import static com.jpmorgan.stock.market.domain.enums.TradeIndicator.SELL;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.jpmorgan.stock.market.backtest.impl.BinaryTradeFileWriter;
+import com.jpmorgan.stock.market.backtest.impl.CsvTradeFileReader;
+import com.jpmorgan.stock.market.dao.TradeDao;
+import com.jpmorgan.stock.market.domain.Trade;
+import com.jpmorgan.stock.market.engine.AllShareIndexEngine;
+import com.jpmorgan.stock.market.engine.VwapEngine;
+import com.jpmorgan.stock.market.service.SimpleStockMarketService;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"classpath:application-context.xml"})
+@TestPropertySource(properties = {"market.clock.source=EVENT_TIME"})
+@DirtiesContext
+public class BacktestTest {
+	
+	// 2016-10-03T08:00:00Z
+	private static final long START_NANOS = TimeUnit.SECONDS.toNanos(1475481600L);
+	
+	// a trade every 10 seconds for 22 minutes
+	private static final int TRADES = 132;
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	@Autowired
+	private Backtest backtest;
+	
+	@Autowired
+	private SimpleStockMarketService stockMarketService;
+	
+	@Autowired
+	private TradeDao tradeDao;
+	
+	@Autowired
+	private VwapEngine vwapEngine;
+	
+	@Autowired
+	private AllShareIndexEngine allShareIndexEngine;
+	
+	@Before
+	public void setUp() {
+		tradeDao.clear();
+		vwapEngine.clear();
+		allShareIndexEngine.clear();
+	}
+	
+	@Test
+	public void testRun_CsvSeries() throws Exception {
+		List<Trade> trades = newTrades();
+		Path file = folder.newFile("trades.csv").toPath();
+		StringBuilder csv = new StringBuilder("exchangeTimeStamp,stockSymbol,indicator,quantity,price\r\n");
+		for (Trade trade : trades) {
+			csv.append(trade.getExchangeTimeStamp()).append(',').append(trade.getStockSymbol()).append(',')
+					.append(trade.getIndicator()).append(',').append(trade.getQuantity()).append(',')
+					.append(trade.getPrice().toPlainString()).append("\r\n");
+		}
+		// a trade of a stock not in the market
+		csv.append(START_NANOS + 1).append(",XXX,BUY,10,1.5");
+		Files.write(file, csv.toString().getBytes(StandardCharsets.US_ASCII));
+		
+		StringWriter series = new StringWriter();
+		BacktestReport report = backtest.run(file, TradeFileFormat.CSV, Duration.ofMinutes(5), series);
+		assertThat(report.getTrades(), equalTo(TRADES + 1L));
+		assertThat(report.getRejectedTrades(), equalTo(1L));
+		assertThat("Trade of the unknown stock is late", report.getLateTrades(), equalTo(1L));
+		assertThat("Samples at 08:05, 08:10, 08:15, 08:20 and after the last trade", report.getSamples(), equalTo(5L));
+		assertThat(report.getSpeedUp(), greaterThan(1.0));
+		
+		String[] lines = series.toString().split("\n");
+		assertThat("Every sample has both stocks and the index", lines.length, equalTo(15));
+		for (String line : lines) {
+			String[] columns = line.split(",");
+			if (!columns[1].equals("GBCE")) {
+				assertThat(line, new BigDecimal(columns[2]), 
+						equalTo(volumeWeightedStockPrice(trades, columns[1], LocalDateTime.parse(columns[0]))));
+			}
+		}
+		assertThat("Last index must cover all trades", lines[lines.length - 1], 
+				containsString("," + stockMarketService.calculateGBCEAllShareIndex().toPlainString()));
+	}
+	
+	@Test
+	public void testRun_BinaryMatchesCsv() throws Exception {
+		List<Trade> trades = newTrades();
+		Path csvFile = folder.newFile("trades.csv").toPath();
+		Path binaryFile = folder.newFile("trades.bin").toPath();
+		List<String> lines = new ArrayList<String>();
+		try (BinaryTradeFileWriter writer = new BinaryTradeFileWriter(binaryFile)) {
+			for (Trade trade : trades) {
+				writer.write(trade);
+				lines.add(trade.getExchangeTimeStamp() + "," + trade.getStockSymbol() + "," + trade.getIndicator() + "," 
+						+ trade.getQuantity() + "," + trade.getPrice().toPlainString());
+			}
+		}
+		Files.write(csvFile, lines, StandardCharsets.US_ASCII);
+		
+		Writer csvSeries = new StringWriter();
+		backtest.run(csvFile, TradeFileFormat.CSV, Duration.ofMinutes(1), csvSeries);
+		setUp();
+		Writer binarySeries = new StringWriter();
+		BacktestReport report = backtest.run(binaryFile, TradeFileFormat.BINARY, Duration.ofMinutes(1), binarySeries);
+		assertThat(report.getTrades(), equalTo((long) TRADES));
+		assertThat(report.getBytes(), equalTo(8L + 32L * TRADES));
+		assertThat("Binary file must give the series of the CSV file", binarySeries.toString(), 
+				equalTo(csvSeries.toString()));
+	}
+	
+	@Test
+	public void testCsvReader_Malformed() throws IOException {
+		Path file = folder.newFile("malformed.csv").toPath();
+		Files.write(file, (START_NANOS + ",TEA,BUY,10,1.5\n" + START_NANOS + ",TEA,HOLD,10,1.5\n")
+				.getBytes(StandardCharsets.US_ASCII));
+		try {
+			new CsvTradeFileReader(16).read(file, trades -> { });
+			throw new AssertionError("Malformed trade must not be read");
+		} catch (IOException ioe) {
+			assertThat(ioe.getMessage(), is("Malformed trade at line 2: indicator must be BUY or SELL."));
+		}
+	}
+	
+	private static List<Trade> newTrades() {
+		List<Trade> trades = new ArrayList<Trade>();
+		for (int i = 0; i < TRADES; i++) {
+			trades.add(new Trade(i % 2 == 0 ? "TEA" : "POP", 1 + i % 9, i % 3 == 0 ? SELL : BUY, 
+					BigDecimal.valueOf(100 + i % 40, 2), START_NANOS + TimeUnit.SECONDS.toNanos(10 * i)));
+		}
+		return trades;
+	}
+	
+	private static BigDecimal volumeWeightedStockPrice(List<Trade> trades, String stockSymbol, LocalDateTime time) {
+		BigDecimal totalTradedPrice = BigDecimal.ZERO;
+		long totalQuantity = 0;
+		for (Trade trade : trades) {
+			LocalDateTime timeStamp = trade.getRecordCreationTimeStamp();
+			if (trade.getStockSymbol().equals(stockSymbol) && timeStamp.isAfter(time.minusMinutes(5)) 
+					&& timeStamp.isBefore(time)) {
+				totalTradedPrice = totalTradedPrice.add(trade.getPrice().multiply(BigDecimal.valueOf(trade.getQuantity())));
+				totalQuantity += trade.getQuantity();
+			}
+		}
+		if (totalQuantity == 0) {
+			return BigDecimal.ZERO;
+		}
+		return totalTradedPrice.divide(BigDecimal.valueOf(totalQuantity), 2, RoundingMode.HALF_UP);
+	}
+
+}
@@ -0,0 +1,206 @@
+package com.jpmorgan.stock.market.cluster;
+
+import static com.jpmorgan.stock.market.domain.enums.TradeIndicator.BUY;
+import static com.jpmorgan.stock.market.domain.enums.TradeIndicator.SELL;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.jpmorgan.stock.market.cluster.impl.SocketMarketCoordinator;
+import com.jpmorgan.stock.market.dao.TradeDao;
+import com.jpmorgan.stock.market.domain.PartitionedBatchResult;
+import com.jpmorgan.stock.market.domain.Trade;
+import com.jpmorgan.stock.market.engine.AllShareIndexEngine;
+import com.jpmorgan.stock.market.engine.VwapEngine;
+import com.jpmorgan.stock.market.exceptions.BusinessException;
+import com.jpmorgan.stock.market.service.SimpleStockMarketService;
+
+/**
+ * Partitioned market of in-process nodes talking over loopback, checked 
+ * against the single market of the test context.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"classpath:application-context.xml"})
+@DirtiesContext
+public class PartitionedMarketTest {
+	
+	private static final int NODES = 3;
+	
+	private static final String[] STOCKS = {"TEA", "POP", "ALE", "GIN", "JOE"};
+	
+	private static List<ClassPathXmlApplicationContext> nodes = new ArrayList<ClassPathXmlApplicationContext>();
+	
+	private static SocketMarketCoordinator coordinator;
+	
+	@Autowired
+	private SimpleStockMarketService stockMarketService;
+	
+	@Autowired
+	private TradeDao tradeDao;
+	
+	@Autowired
+	private VwapEngine vwapEngine;
+	
+	@Autowired
+	private AllShareIndexEngine allShareIndexEngine;
+	
+	@Autowired
+	private MarketCoordinator unconfiguredCoordinator;
+	
+	@BeforeClass
+	public static void startNodes() {
+		StringBuilder addresses = new StringBuilder();
+		for (int i = 0; i < NODES; i++) {
+			ClassPathXmlApplicationContext node = new ClassPathXmlApplicationContext(
+					new String[] {"classpath:application-context.xml"}, false);
+			Map<String, Object> properties = new HashMap<String, Object>();
+			properties.put("cluster.node.enabled", "true");
+			properties.put("cluster.node.port", "0");
+			properties.put("service.metrics.jmx.domain", "com.jpmorgan.stock.market.node" + i);
+			node.getEnvironment().getPropertySources().addFirst(new MapPropertySource("node" + i, properties));
+			node.refresh();
+			nodes.add(node);
+			addresses.append(i == 0 ? "" : ",").append("127.0.0.1:").append(node.getBean(PartitionNode.class).getPort());
+		}
+		coordinator = new SocketMarketCoordinator();
+		coordinator.setDigitsAfterPoint(2);
+		coordinator.setNodes(addresses.toString());
+	}
+	
+	@AfterClass
+	public static void stopNodes() {
+		coordinator.close();
+		for (ClassPathXmlApplicationContext node : nodes) {
+			node.close();
+		}
+		nodes.clear();
+	}
+	
+	@Before
+	public void setUp() {
+		tradeDao.clear();
+		vwapEngine.clear();
+		allShareIndexEngine.clear();
+		for (ClassPathXmlApplicationContext node : nodes) {
+			node.getBean(TradeDao.class).clear();
+			node.getBean(VwapEngine.class).clear();
+			node.getBean(AllShareIndexEngine.class).clear();
+		}
+	}
+	
+	@Test
+	public void testAllShareIndex_MergedFromPartialAggregates() throws BusinessException {
+		List<Trade> trades = new ArrayList<Trade>();
+		for (int i = 0; i < STOCKS.length; i++) {
+			trades.add(new Trade(STOCKS[i], 10 + i, BUY, new BigDecimal("1.25").multiply(BigDecimal.valueOf(i + 1))));
+			trades.add(new Trade(STOCKS[i], 3, SELL, new BigDecimal("7.10").add(BigDecimal.valueOf(i))));
+		}
+		PartitionedBatchResult result = coordinator.recordTrades(trades);
+		assertThat(result.getRejectedTrades(), equalTo(0));
+		assertThat(result.isComplete(), equalTo(true));
+		stockMarketService.recordTrades(trades);
+		
+		assertThat("Merged index must be the index of a single market", coordinator.calculateGBCEAllShareIndex(), 
+				equalTo(stockMarketService.calculateGBCEAllShareIndex()));
+		for (String stockSymbol : STOCKS) {
+			assertThat(coordinator.calculateVolumeWeightedStockPriceInPast5Minutes(stockSymbol), 
+					equalTo(stockMarketService.calculateVolumeWeightedStockPriceInPast5Minutes(stockSymbol)));
+			int partition = coordinator.getPartition(stockSymbol);
+			for (int i = 0; i < NODES; i++) {
+				BigDecimal stockPrice = nodes.get(i).getBean(SimpleStockMarketService.class)
+						.calculateVolumeWeightedStockPriceInPast5Minutes(stockSymbol);
+				assertThat("Only the node of " + stockSymbol + " may own its trades", 
+						stockPrice.signum() != 0, equalTo(i == partition));
+			}
+		}
+	}
+	
+	@Test
+	public void testRecordTrades_InvalidTradesRejected() throws BusinessException {
+		PartitionedBatchResult result = coordinator.recordTrades(Arrays.asList(
+				new Trade("TEA", 10, BUY, new BigDecimal("2.00")), new Trade("XYZ", 10, BUY, new BigDecimal("2.00")), 
+				new Trade("POP", -1, BUY, new BigDecimal("2.00")), new Trade("POP", 10, BUY, null), null));
+		assertThat(result.getRejectedTrades(), equalTo(4));
+		assertThat("Trades without a price or a trade must not be sent", result.getInvalidTrades(), equalTo(2));
+		assertThat(result.getRejectedTrades(coordinator.getPartition("XYZ")) >= 1, equalTo(true));
+		assertThat(coordinator.calculateVolumeWeightedStockPriceInPast5Minutes("TEA"), equalTo(new BigDecimal("2.00")));
+		assertThat(coordinator.calculateGBCEAllShareIndex(), equalTo(new BigDecimal("2.00")));
+	}
+	
+	@Test(expected = BusinessException.class)
+	public void testRecordTrade_Rejected() throws BusinessException {
+		coordinator.recordTrade(new Trade("XYZ", 10, BUY, new BigDecimal("2.00")));
+	}
+	
+	@Test
+	public void testRecordTrades_NodeDownFailsItsPartitionOnly() throws BusinessException, IOException {
+		int port;
+		try (ServerSocket closed = new ServerSocket(0)) {
+			port = closed.getLocalPort();
+		}
+		SocketMarketCoordinator halfDown = new SocketMarketCoordinator();
+		// the first node is live, the second one is down
+		halfDown.setNodes("127.0.0.1:" + nodes.get(0).getBean(PartitionNode.class).getPort() + ",127.0.0.1:" + port);
+		try {
+			List<Trade> trades = new ArrayList<Trade>();
+			for (String stockSymbol : STOCKS) {
+				trades.add(new Trade(stockSymbol, 10, BUY, new BigDecimal("2.00")));
+			}
+			PartitionedBatchResult result = halfDown.recordTrades(trades);
+			assertThat(result.isComplete(), equalTo(false));
+			assertThat("Live node must record its trades", result.getFailure(0), equalTo(null));
+			assertThat("Node down must fail its partition", result.getFailure(1) != null, equalTo(true));
+			assertThat(result.getRejectedTrades(), equalTo(0));
+			for (String stockSymbol : STOCKS) {
+				if (halfDown.getPartition(stockSymbol) == 0) {
+					assertThat(nodes.get(0).getBean(SimpleStockMarketService.class)
+							.calculateVolumeWeightedStockPriceInPast5Minutes(stockSymbol), equalTo(new BigDecimal("2.00")));
+				}
+			}
+		} finally {
+			halfDown.close();
+		}
+	}
+	
+	@Test(expected = BusinessException.class)
+	public void testAllShareIndex_NodeDown() throws BusinessException, IOException {
+		int port;
+		try (ServerSocket closed = new ServerSocket(0)) {
+			port = closed.getLocalPort();
+		}
+		SocketMarketCoordinator unreachable = new SocketMarketCoordinator();
+		unreachable.setNodes("127.0.0.1:" + port);
+		try {
+			unreachable.calculateGBCEAllShareIndex();
+		} finally {
+			unreachable.close();
+		}
+	}
+	
+	@Test(expected = BusinessException.class)
+	public void testAllShareIndex_NoNodesConfigured() throws BusinessException {
+		assertThat(unconfiguredCoordinator.isEnabled(), equalTo(false));
+		unconfiguredCoordinator.calculateGBCEAllShareIndex();
+	}
+
+}
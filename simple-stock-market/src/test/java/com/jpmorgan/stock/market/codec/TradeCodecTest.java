@@ -0,0 +1,219 @@
+package com.jpmorgan.stock.market.codec;
+
+import static com.jpmorgan.stock.market.codec.TradeDecoder.MESSAGE_SIZE;
+import static com.jpmorgan.stock.market.domain.enums.StockType.COMMON;
+import static com.jpmorgan.stock.market.domain.enums.TradeIndicator.BUY;
+import static com.jpmorgan.stock.market.domain.enums.TradeIndicator.SELL;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.jpmorgan.stock.market.clock.ClockSource;
+import com.jpmorgan.stock.market.clock.MarketClock;
+import com.jpmorgan.stock.market.clock.impl.MarketClockImpl;
+import com.jpmorgan.stock.market.dao.StockDao;
+import com.jpmorgan.stock.market.dao.TradeDao;
+import com.jpmorgan.stock.market.dao.impl.OffHeapTradeDaoImpl;
+import com.jpmorgan.stock.market.domain.Stock;
+import com.jpmorgan.stock.market.domain.Trade;
+import com.jpmorgan.stock.market.engine.AllShareIndexEngine;
+import com.jpmorgan.stock.market.engine.VwapEngine;
+import com.jpmorgan.stock.market.engine.impl.IncrementalAllShareIndexEngine;
+import com.jpmorgan.stock.market.engine.impl.SlidingWindowVwapEngine;
+import com.jpmorgan.stock.market.exceptions.BusinessException;
+import com.jpmorgan.stock.market.service.SimpleStockMarketService;
+import com.jpmorgan.stock.market.service.impl.SimpleStockMarketServiceImpl;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"classpath:application-context.xml"})
+@TestPropertySource(properties = {"market.clock.source=EVENT_TIME"})
+@DirtiesContext
+public class TradeCodecTest {
+	
+	// 2016-10-03T08:00:00Z
+	private static final long START_NANOS = TimeUnit.SECONDS.toNanos(1475481600L);
+	
+	private static final int TRADES = 200;
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	@Autowired
+	private SimpleStockMarketService stockMarketService;
+	
+	@Autowired
+	private StockDao stockDao;
+	
+	@Autowired
+	private TradeDao tradeDao;
+	
+	@Autowired
+	private VwapEngine vwapEngine;
+	
+	@Autowired
+	private AllShareIndexEngine allShareIndexEngine;
+	
+	@Autowired
+	private MarketClock marketClock;
+	
+	@Before
+	public void setUp() {
+		tradeDao.clear();
+		vwapEngine.clear();
+		allShareIndexEngine.clear();
+		marketClock.reset();
+	}
+	
+	@Test
+	public void testEncodeDecode() {
+		Trade trade = new Trade("GIN", 12, SELL, new BigDecimal("101.0025"), START_NANOS + 7);
+		for (ByteBuffer buffer : new ByteBuffer[] {ByteBuffer.allocate(2 * MESSAGE_SIZE), 
+				ByteBuffer.allocateDirect(2 * MESSAGE_SIZE).order(ByteOrder.LITTLE_ENDIAN)}) {
+			new TradeEncoder().wrap(buffer, MESSAGE_SIZE).encode(trade);
+			assertThat("Byte order of the buffer must not change the message", buffer.getLong(MESSAGE_SIZE), 
+					equalTo(buffer.order() == ByteOrder.LITTLE_ENDIAN ? START_NANOS + 7 : Long.reverseBytes(START_NANOS + 7)));
+			
+			TradeDecoder decoder = new TradeDecoder().wrap(buffer, MESSAGE_SIZE);
+			assertThat(decoder.getExchangeTimeStamp(), equalTo(START_NANOS + 7));
+			assertThat(decoder.getUnscaledPrice(), equalTo(1010025L));
+			assertThat(decoder.getPriceScale(), equalTo(4));
+			assertThat(decoder.getQuantity(), equalTo(12));
+			assertThat(decoder.getIndicator(), equalTo(SELL));
+			assertThat(decoder.getStockSymbol(), equalTo("GIN"));
+			assertThat(buffer.position(), equalTo(0));
+			
+			SymbolTable symbols = new SymbolTable();
+			assertThat("Unknown symbol must not be found", decoder.findStockSymbol(symbols), nullValue());
+			String symbol = symbols.add(decoder.getStockSymbol());
+			assertThat("Known symbol must be found without a new string", decoder.findStockSymbol(symbols), 
+					sameInstance(symbol));
+			
+			Trade decoded = decoder.toTrade(symbol);
+			assertThat(decoded.getPrice(), equalTo(trade.getPrice()));
+			assertThat(decoded.getRecordCreationTimeStamp(), equalTo(trade.getRecordCreationTimeStamp()));
+		}
+	}
+	
+	@Test
+	public void testRecordTradeMessages() throws BusinessException {
+		List<Trade> trades = newTrades();
+		ByteBuffer messages = ByteBuffer.allocateDirect((TRADES + 2) * MESSAGE_SIZE);
+		TradeEncoder encoder = new TradeEncoder();
+		for (int i = 0; i < TRADES; i++) {
+			encoder.wrap(messages, i * MESSAGE_SIZE).encode(trades.get(i));
+		}
+		encoder.wrap(messages, TRADES * MESSAGE_SIZE).encode("XYZ", START_NANOS, BUY, 10, 150, 2);
+		encoder.wrap(messages, (TRADES + 1) * MESSAGE_SIZE).encode("TEA", START_NANOS, BUY, 0, 150, 2);
+		
+		assertThat("Unknown stock and zero quantity must be rejected", 
+				stockMarketService.recordTradeMessages(messages), equalTo(2));
+		assertThat("Messages must be consumed", messages.remaining(), equalTo(0));
+		assertThat(tradeDao.getAll().size(), equalTo(TRADES));
+		BigDecimal[] prices = prices(stockMarketService);
+		
+		setUp();
+		stockMarketService.recordTrades(trades);
+		assertThat("Messages must give the prices of trade objects", prices(stockMarketService), equalTo(prices));
+	}
+	
+	@Test
+	public void testRecordTradeMessages_InPlaceFromFileChannel() throws Exception {
+		List<Trade> trades = newTrades();
+		stockMarketService.recordTrades(trades);
+		
+		Path file = folder.newFile("trades.bin").toPath();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			MappedByteBuffer messages = channel.map(FileChannel.MapMode.READ_WRITE, 0, TRADES * MESSAGE_SIZE);
+			TradeEncoder encoder = new TradeEncoder();
+			for (int i = 0; i < TRADES; i++) {
+				encoder.wrap(messages, i * MESSAGE_SIZE).encode(trades.get(i));
+			}
+			
+			OffHeapTradeDaoImpl columnarTradeDao = new OffHeapTradeDaoImpl(stockDao, 4);
+			SimpleStockMarketService inPlaceService = newInPlaceService(columnarTradeDao);
+			assertThat(inPlaceService.recordTradeMessages(messages), equalTo(0));
+			assertThat(columnarTradeDao.getAll().size(), equalTo(TRADES));
+			assertThat("Trades recorded in place must give the same prices", prices(inPlaceService), 
+					equalTo(prices(stockMarketService)));
+		}
+	}
+	
+	@Test
+	@DirtiesContext
+	public void testRecordTradeMessages_StockListedLater() throws BusinessException {
+		ByteBuffer messages = ByteBuffer.allocate(MESSAGE_SIZE);
+		new TradeEncoder().wrap(messages, 0).encode("NEW", START_NANOS, BUY, 10, 150, 2);
+		assertThat("Unknown stock must be rejected", stockMarketService.recordTradeMessages(messages), equalTo(1));
+		
+		stockDao.add(new Stock("NEW", COMMON, BigDecimal.ZERO, null, BigDecimal.ONE));
+		messages.rewind();
+		assertThat("Stock listed after the symbols were read must be recorded", 
+				stockMarketService.recordTradeMessages(messages), equalTo(0));
+		assertThat(tradeDao.findByStockSymbol("NEW").size(), equalTo(1));
+	}
+	
+	@Test(expected = BusinessException.class)
+	public void testRecordTradeMessages_PartialMessage() throws BusinessException {
+		stockMarketService.recordTradeMessages(ByteBuffer.allocate(MESSAGE_SIZE + 1));
+	}
+	
+	private SimpleStockMarketService newInPlaceService(OffHeapTradeDaoImpl columnarTradeDao) {
+		MarketClockImpl clock = new MarketClockImpl();
+		clock.setSource(ClockSource.EVENT_TIME);
+		SlidingWindowVwapEngine vwapEngine = new SlidingWindowVwapEngine();
+		vwapEngine.setDigitsAfterPoint(2);
+		vwapEngine.setMarketClock(clock);
+		IncrementalAllShareIndexEngine allShareIndexEngine = new IncrementalAllShareIndexEngine();
+		allShareIndexEngine.setDigitsAfterPoint(2);
+		SimpleStockMarketServiceImpl service = new SimpleStockMarketServiceImpl();
+		service.setStockDao(stockDao);
+		service.setTradeDao(columnarTradeDao);
+		service.setVwapEngine(vwapEngine);
+		service.setAllShareIndexEngine(allShareIndexEngine);
+		service.setMarketClock(clock);
+		service.setDigitsAfterPoint(2);
+		service.setLastMinutes(5);
+		return service;
+	}
+	
+	private static BigDecimal[] prices(SimpleStockMarketService service) throws BusinessException {
+		return new BigDecimal[] {service.calculateVolumeWeightedStockPriceInPast5Minutes("TEA"), 
+				service.calculateVolumeWeightedStockPriceInPast5Minutes("POP"), 
+				service.calculateVolumeWeightedStockPriceInPast5Minutes("GIN"), 
+				service.calculateGBCEAllShareIndex()};
+	}
+	
+	private static List<Trade> newTrades() {
+		String[] symbols = {"TEA", "POP", "GIN"};
+		List<Trade> trades = new ArrayList<Trade>();
+		for (int i = 0; i < TRADES; i++) {
+			trades.add(new Trade(symbols[i % 3], 1 + i % 7, i % 4 == 0 ? SELL : BUY, 
+					BigDecimal.valueOf(10000 + i % 50 * 25, 2 + i % 3), START_NANOS + TimeUnit.SECONDS.toNanos(5 * i)));
+		}
+		return trades;
+	}
+
+}
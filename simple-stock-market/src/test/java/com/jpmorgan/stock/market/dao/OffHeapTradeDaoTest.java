@@ -0,0 +1,176 @@
+package com.jpmorgan.stock.market.dao;
+
+import static com.jpmorgan.stock.market.domain.enums.TradeIndicator.BUY;
+import static com.jpmorgan.stock.market.domain.enums.TradeIndicator.SELL;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.jpmorgan.stock.market.clock.LocalTimeStamps;
+import com.jpmorgan.stock.market.dao.impl.OffHeapTradeDaoImpl;
+import com.jpmorgan.stock.market.domain.Trade;
+import com.jpmorgan.stock.market.domain.TradeTotals;
+import com.jpmorgan.stock.market.domain.enums.TradeIndicator;
+import com.jpmorgan.stock.market.exceptions.BusinessException;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"classpath:dao-test-context.xml"})
+@TestPropertySource(properties = {"trade.storage=OFF_HEAP"})
+public class OffHeapTradeDaoTest {
+	
+	private static final int CHUNK_ROWS = 8;
+	
+	@Autowired
+	private StockDao stockDao;
+	
+	@Autowired
+	private TradeDao storageTradeDao;
+	
+	private OffHeapTradeDaoImpl tradeDao;
+	
+	@Before
+	public void setUp() {
+		tradeDao = new OffHeapTradeDaoImpl(stockDao, 4, CHUNK_ROWS);
+	}
+	
+	@Test
+	public void testTradeStorage_OffHeap() {
+		assertThat("Trade storage must select the off-heap trade DAO", storageTradeDao instanceof OffHeapTradeDaoImpl, 
+				is(true));
+		assertThat("Prices must be stored with the configured scale", 
+				((OffHeapTradeDaoImpl) storageTradeDao).getPriceScale(), equalTo(4));
+	}
+	
+	@Test
+	public void testAddNewTrades() {
+		LocalDateTime now = LocalDateTime.now();
+		tradeDao.add(newTrade("POP", 5, BUY, "2.75", now));
+		tradeDao.addAll(Arrays.asList(newTrade("GIN", 10, SELL, "1.0001", now)));
+		List<Trade> trades = tradeDao.getAll();
+		assertThat("Number of trades must be 2", trades.size(), equalTo(2));
+		Trade trade = trades.get(1);
+		assertThat("Stock symbol must be read back", trade.getStockSymbol(), equalTo("GIN"));
+		assertThat("Quantity must be read back", trade.getQuantity(), equalTo(10));
+		assertThat("Indicator must be read back", trade.getIndicator(), equalTo(SELL));
+		assertThat("Price must be read back", trade.getPrice(), equalTo(new BigDecimal("1.0001")));
+		assertThat("Time stamp must be read back", trade.getRecordCreationTimeStamp(), equalTo(now));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testAddNewTrade_UnknownStock() {
+		tradeDao.add(newTrade("XYZ", 5, BUY, "2.75", LocalDateTime.now()));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testAddNewTrade_PriceScaleTooLarge() {
+		tradeDao.add(newTrade("POP", 5, BUY, "2.75001", LocalDateTime.now()));
+	}
+	
+	@Test(expected = BusinessException.class)
+	public void testAddTradeFields_UnknownStock() throws BusinessException {
+		tradeDao.add("XYZ", LocalTimeStamps.currentEpochNanos(), 275, 2, 5, BUY);
+	}
+	
+	@Test(expected = BusinessException.class)
+	public void testAddTradeFields_PriceScaleTooLarge() throws BusinessException {
+		tradeDao.add("POP", LocalTimeStamps.currentEpochNanos(), 275001, 5, 5, BUY);
+	}
+	
+	@Test
+	public void testGetTradesWithStockSymbolInTimeRange_LateTrades() {
+		LocalDateTime now = LocalDateTime.now();
+		// every other trade arrives late, before the trade that arrived previously
+		for (int i = 0; i < 20; i += 2) {
+			tradeDao.add(newTrade("ALE", 1, BUY, "1.00", now.minusSeconds(100 - i - 1)));
+			tradeDao.add(newTrade("ALE", 1, BUY, "3.00", now.minusSeconds(100 - i)));
+		}
+		List<Trade> trades = tradeDao.findByStockSymbol("ALE");
+		for (int i = 1; i < trades.size(); i++) {
+			assertThat("Trades must be ordered by time stamp", 
+					trades.get(i).getRecordCreationTimeStamp().isAfter(trades.get(i - 1).getRecordCreationTimeStamp()), 
+					is(true));
+		}
+		
+		// late trades keep later lookups a binary search over ordered rows
+		tradeDao.add(newTrade("ALE", 1, BUY, "1.00", now.minusSeconds(50)));
+		trades = tradeDao.findByStockSymbol("ALE", now.minusSeconds(91), now.minusSeconds(50));
+		assertThat("Number of trades with stock symbol ALE between 91 and 50 seconds ago must be 11", trades.size(), is(11));
+		assertThat("Last trade in the range must be the latest trade", trades.get(10).getRecordCreationTimeStamp(), 
+				equalTo(now.minusSeconds(50)));
+		
+		TradeTotals totals = new TradeTotals(4);
+		tradeDao.sumByStockSymbol("ALE", now.minusSeconds(92), now.minusSeconds(81), totals);
+		assertThat("Number of summed trades must be 11", totals.getTradeCount(), equalTo(11));
+		assertThat("Total traded price must match", totals.getTotalTradedPrice().compareTo(new BigDecimal("21")), is(0));
+	}
+	
+	@Test
+	public void testGetTradesWithStockSymbolInTimeRange_Found() {
+		LocalDateTime now = LocalDateTime.now();
+		tradeDao.add(newTrade("ALE", 1, BUY, "1.00", now.minusMinutes(10)));
+		tradeDao.add(newTrade("ALE", 1, BUY, "1.00", now.minusMinutes(2)));
+		tradeDao.add(newTrade("JOE", 1, BUY, "1.00", now.minusMinutes(3)));
+		
+		List<Trade> trades = tradeDao.findByStockSymbol("ALE", now.minusMinutes(7), null);
+		assertThat("Number of trades with stock symbol ALE in last 7 minutes must be 1", trades.size(), is(1));
+		
+		// a late trade must be placed between the two trades above
+		tradeDao.add(newTrade("ALE", 1, BUY, "1.00", now.minusMinutes(6)));
+		trades = tradeDao.findByStockSymbol("ALE", now.minusMinutes(7), null);
+		assertThat("Number of trades with stock symbol ALE in last 7 minutes must be 2", trades.size(), is(2));
+		assertThat("Trades must be ordered by time stamp", trades.get(0).getRecordCreationTimeStamp(), 
+				equalTo(now.minusMinutes(6)));
+		
+		trades = tradeDao.findByStockSymbol("ALE", now.minusMinutes(11), now.minusMinutes(6));
+		assertThat("Number of trades with stock symbol ALE between 11 and 6 minutes ago must be 2", trades.size(), is(2));
+		assertThat("Number of trades with stock symbol TEA must be 0", tradeDao.findByStockSymbol("TEA").size(), is(0));
+	}
+	
+	@Test
+	public void testSumByStockSymbol_ManyChunks() {
+		LocalDateTime now = LocalDateTime.now();
+		BigDecimal expectedTotal = BigDecimal.ZERO;
+		int expectedQuantity = 0;
+		for (int i = 0; i < 100; i++) {
+			BigDecimal price = new BigDecimal("1.25").add(BigDecimal.valueOf(i, 4));
+			tradeDao.add(newTrade("POP", i + 1, BUY, price.toPlainString(), now.minusSeconds(100 - i)));
+			tradeDao.add(newTrade("TEA", 1, SELL, "9.99", now.minusSeconds(100 - i)));
+			if (i >= 50) {
+				expectedTotal = expectedTotal.add(price.multiply(BigDecimal.valueOf(i + 1)));
+				expectedQuantity += i + 1;
+			}
+		}
+		assertThat("Chunks must be allocated as rows are added", tradeDao.getColumnBytes() >= 200L * 25, is(true));
+		
+		TradeTotals totals = new TradeTotals(4);
+		tradeDao.sumByStockSymbol("POP", now.minusSeconds(51), null, totals);
+		assertThat("Number of summed trades must be 50", totals.getTradeCount(), equalTo(50));
+		assertThat("Total quantity must match", totals.getTotalQuantity(), equalTo((long) expectedQuantity));
+		assertThat("Total traded price must match", totals.getTotalTradedPrice().compareTo(expectedTotal), is(0));
+		
+		tradeDao.clear();
+		assertThat("Number of trades after clear must be 0", tradeDao.getAll().size(), is(0));
+		assertThat("Chunks must be released on clear", tradeDao.getColumnBytes(), is(0L));
+	}
+	
+	private Trade newTrade(String stockSymbol, int quantity, TradeIndicator indicator, 
+			String price, LocalDateTime timeStamp) {
+		Trade trade = new Trade(stockSymbol, quantity, indicator, new BigDecimal(price));
+		trade.setRecordCreationTimeStamp(timeStamp);
+		return trade;
+	}
+	
+}
@@ -1,56 +1,84 @@
-package com.jpmorgan.stock.market.dao;
-
-import static com.jpmorgan.stock.market.domain.enums.StockType.COMMON;
-import static com.jpmorgan.stock.market.domain.enums.StockType.PREFERRED;
-import static org.hamcrest.CoreMatchers.equalTo;
-import static org.hamcrest.MatcherAssert.assertThat;
-
-import java.math.BigDecimal;
-import java.util.List;
-import java.util.Optional;
-
-import org.junit.Test;
-import org.junit.runner.RunWith;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.test.context.ContextConfiguration;
-import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
-
-import com.jpmorgan.stock.market.domain.Stock;
-
-@RunWith(SpringJUnit4ClassRunner.class)
-@ContextConfiguration(locations = {"classpath:spring/stock-dao.xml"})
-public class StockDaoTest {
-	
-	@Autowired
-	private StockDao stockDao;
-	
-	@Test
-	public void testGetAllElements() {
-		List<Stock> stocks = stockDao.getAll();
-		assertThat("Number of stocks must be 5", stocks.size(), equalTo(5));
-	}
-	
-	@Test
-	public void testAddNewStocks() {
-		int initialSize = stockDao.getAll().size();
-		Stock stock1 = new Stock("RRR", COMMON, BigDecimal.TEN, null, new BigDecimal("1.20"));
-		Stock stock2 = new Stock("ABR", PREFERRED, BigDecimal.valueOf(5), null, new BigDecimal("2.50"));
-		stockDao.add(stock1);
-		stockDao.add(stock2);
-		List<Stock> stocks = stockDao.getAll();
-		assertThat("Number of stocks must be 7", stocks.size(), equalTo(initialSize+2));
-	}
-	
-	@Test
-	public void testFindByStockSymbol_Found() {
-		Optional<Stock> stock = stockDao.findBySymbol("POP");
-		assertThat("Found stock is null", stock.isPresent());
-	}
-	
-	@Test
-	public void testFindByStockSymbol_NotFound() {
-		Optional<Stock> stock = stockDao.findBySymbol("SSS");
-		assertThat("Found stock is not found", !stock.isPresent());
-	}
-
-}
+package com.jpmorgan.stock.market.dao;
+
+import static com.jpmorgan.stock.market.domain.enums.StockType.COMMON;
+import static com.jpmorgan.stock.market.domain.enums.StockType.PREFERRED;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.jpmorgan.stock.market.domain.Stock;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"classpath:dao-test-context.xml"})
+public class StockDaoTest {
+	
+	@Autowired
+	private StockDao stockDao;
+	
+	@Test
+	public void testGetAllElements() {
+		List<Stock> stocks = stockDao.getAll();
+		assertThat("Number of stocks must be 5", stocks.size(), equalTo(5));
+	}
+	
+	@Test
+	public void testAddNewStocks() {
+		int initialSize = stockDao.getAll().size();
+		Stock stock1 = new Stock("RRR", COMMON, BigDecimal.TEN, null, new BigDecimal("1.20"));
+		Stock stock2 = new Stock("ABR", PREFERRED, BigDecimal.valueOf(5), null, new BigDecimal("2.50"));
+		stockDao.add(stock1);
+		stockDao.add(stock2);
+		List<Stock> stocks = stockDao.getAll();
+		assertThat("Number of stocks must be 7", stocks.size(), equalTo(initialSize+2));
+	}
+	
+	@Test
+	public void testFindByStockSymbol_Found() {
+		Optional<Stock> stock = stockDao.findBySymbol("POP");
+		assertThat("Found stock is null", stock.isPresent());
+	}
+	
+	@Test
+	public void testFindByStockSymbol_NotFound() {
+		Optional<Stock> stock = stockDao.findBySymbol("SSS");
+		assertThat("Found stock is not found", !stock.isPresent());
+	}
+	
+	@Test
+	public void testFindById_Found() {
+		int id = stockDao.getId("GIN");
+		assertThat("Id of stock GIN is incorrect", id, equalTo(3));
+		Optional<Stock> stock = stockDao.findById(id);
+		assertThat("Found stock is null", stock.isPresent());
+		assertThat("Found stock is incorrect", stock.get().getSymbol(), equalTo("GIN"));
+	}
+	
+	@Test
+	public void testFindById_NotFound() {
+		assertThat("Id of missing stock must be -1", stockDao.getId("SSS"), equalTo(-1));
+		assertThat("Found stock is not found", !stockDao.findById(-1).isPresent());
+		assertThat("Found stock is not found", !stockDao.findById(100000).isPresent());
+	}
+	
+	@Test
+	@DirtiesContext
+	public void testGetAllElements_Snapshot() {
+		List<Stock> stocks = stockDao.getAll();
+		int initialSize = stocks.size();
+		stockDao.add(new Stock("WIN", COMMON, BigDecimal.ONE, null, BigDecimal.ONE));
+		assertThat("Snapshot must not change when a stock is added", stocks.size(), equalTo(initialSize));
+		assertThat("Number of stocks is incorrect", stockDao.getAll().size(), equalTo(initialSize + 1));
+		assertThat("Id of added stock is incorrect", stockDao.getId("WIN"), equalTo(initialSize));
+	}
+
+}
@@ -1,57 +1,100 @@
-package com.jpmorgan.stock.market.dao;
-
-import static com.jpmorgan.stock.market.domain.enums.TradeIndicator.BUY;
-import static com.jpmorgan.stock.market.domain.enums.TradeIndicator.SELL;
-import static org.hamcrest.CoreMatchers.equalTo;
-import static org.hamcrest.CoreMatchers.is;
-import static org.hamcrest.MatcherAssert.assertThat;
-
-import java.math.BigDecimal;
-import java.util.List;
-
-import org.junit.Test;
-import org.junit.runner.RunWith;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.test.context.ContextConfiguration;
-import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
-
-import com.jpmorgan.stock.market.domain.Trade;
-
-@RunWith(SpringJUnit4ClassRunner.class)
-@ContextConfiguration(locations = {"classpath:spring/stock-dao.xml"})
-public class TradeDaoTest {
-	
-	@Autowired
-	private TradeDao tradeDao;
-	
-	@Test
-	public void testGetAllElements() {
-		List<Trade> trades = tradeDao.getAll();
-		assertThat("Number of trades must be 0", trades.size(), equalTo(0));
-	}
-	
-	@Test
-	public void testAddNewTrades() {
-		int initialSize = tradeDao.getAll().size();
-		Trade trade1 = new Trade("POP", 5, BUY, new BigDecimal("2.75"));
-		tradeDao.add(trade1);
-		List<Trade> trades = tradeDao.getAll();
-		assertThat("Number of trades must be 1", trades.size(), equalTo(initialSize+1));
-		
-		Trade trade2 = new Trade("GIN", 10, SELL, new BigDecimal("1.00"));
-		tradeDao.add(trade2);
-		trades = tradeDao.getAll();
-		assertThat("Number of trades must be 2", trades.size(), equalTo(initialSize+2));
-	}
-	
-	@Test
-	public void testGetTradesWithStockSymbol_Found() {
-		List<Trade> trades = tradeDao.findByStockSymbol("RRR");
-		assertThat("Number of trades with stock symbol TEA must be 0", trades.size(), is(0));
-		Trade newTrade = new Trade("TEA", 5, BUY, new BigDecimal("2.75"));
-		tradeDao.add(newTrade);
-		trades = tradeDao.findByStockSymbol("TEA");
-		assertThat("Number of trades with stock symbol TEA after one was added must be 1", trades.size(), is(1));
-	}
-
-}
+package com.jpmorgan.stock.market.dao;
+
+import static com.jpmorgan.stock.market.domain.enums.TradeIndicator.BUY;
+import static com.jpmorgan.stock.market.domain.enums.TradeIndicator.SELL;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.jpmorgan.stock.market.domain.Trade;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"classpath:dao-test-context.xml"})
+public class TradeDaoTest {
+	
+	@Autowired
+	private TradeDao tradeDao;
+	
+	@Test
+	public void testGetAllElements() {
+		List<Trade> trades = tradeDao.getAll();
+		assertThat("Number of trades must be 0", trades.size(), equalTo(0));
+	}
+	
+	@Test
+	public void testAddNewTrades() {
+		int initialSize = tradeDao.getAll().size();
+		Trade trade1 = new Trade("POP", 5, BUY, new BigDecimal("2.75"));
+		tradeDao.add(trade1);
+		List<Trade> trades = tradeDao.getAll();
+		assertThat("Number of trades must be 1", trades.size(), equalTo(initialSize+1));
+		
+		Trade trade2 = new Trade("GIN", 10, SELL, new BigDecimal("1.00"));
+		tradeDao.add(trade2);
+		trades = tradeDao.getAll();
+		assertThat("Number of trades must be 2", trades.size(), equalTo(initialSize+2));
+	}
+	
+	@Test
+	public void testGetTradesWithStockSymbol_Found() {
+		List<Trade> trades = tradeDao.findByStockSymbol("RRR");
+		assertThat("Number of trades with stock symbol TEA must be 0", trades.size(), is(0));
+		Trade newTrade = new Trade("TEA", 5, BUY, new BigDecimal("2.75"));
+		tradeDao.add(newTrade);
+		trades = tradeDao.findByStockSymbol("TEA");
+		assertThat("Number of trades with stock symbol TEA after one was added must be 1", trades.size(), is(1));
+	}
+	
+	@Test
+	public void testGetTradesWithStockSymbolInTimeRange_Found() {
+		LocalDateTime now = LocalDateTime.now();
+		tradeDao.add(newTrade("ALE", now.minusMinutes(10)));
+		tradeDao.add(newTrade("ALE", now.minusMinutes(2)));
+		// a late trade must be placed between the two trades above
+		tradeDao.add(newTrade("ALE", now.minusMinutes(6)));
+		tradeDao.add(newTrade("JOE", now.minusMinutes(3)));
+		
+		List<Trade> trades = tradeDao.findByStockSymbol("ALE", now.minusMinutes(7), null);
+		assertThat("Number of trades with stock symbol ALE in last 7 minutes must be 2", trades.size(), is(2));
+		assertThat("Trades must be ordered by time stamp", trades.get(0).getRecordCreationTimeStamp(), 
+				equalTo(now.minusMinutes(6)));
+		
+		trades = tradeDao.findByStockSymbol("ALE", now.minusMinutes(11), now.minusMinutes(6));
+		assertThat("Number of trades with stock symbol ALE between 11 and 6 minutes ago must be 2", trades.size(), is(2));
+		
+		trades = tradeDao.findByStockSymbol("ALE", now.minusMinutes(1), null);
+		assertThat("Number of trades with stock symbol ALE in last minute must be 0", trades.size(), is(0));
+	}
+	
+	@Test
+	public void testGetTradesWithStockSymbolInTimeRange_ManyLateTrades() {
+		LocalDateTime start = LocalDateTime.now().minusDays(1);
+		// insert enough trades in reverse order to split segments several times
+		for (int i = 5000; i > 0; i--) {
+			tradeDao.add(newTrade("GIN", start.plusSeconds(i)));
+		}
+		List<Trade> trades = tradeDao.findByStockSymbol("GIN", start.plusSeconds(1000), start.plusSeconds(2000));
+		assertThat("Number of trades with stock symbol GIN in range must be 1000", trades.size(), is(1000));
+		for (int i = 0; i < trades.size(); i++) {
+			assertThat("Trades must be ordered by time stamp", trades.get(i).getRecordCreationTimeStamp(), 
+					equalTo(start.plusSeconds(1001 + i)));
+		}
+	}
+	
+	private Trade newTrade(String stockSymbol, LocalDateTime timeStamp) {
+		Trade trade = new Trade(stockSymbol, 5, BUY, new BigDecimal("1.25"));
+		trade.setRecordCreationTimeStamp(timeStamp);
+		return trade;
+	}
+
+}
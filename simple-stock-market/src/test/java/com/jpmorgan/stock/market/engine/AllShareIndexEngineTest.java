@@ -0,0 +1,86 @@
+package com.jpmorgan.stock.market.engine;
+
+import static com.jpmorgan.stock.market.domain.enums.TradeIndicator.BUY;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.commons.math3.stat.StatUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.jpmorgan.stock.market.domain.Trade;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"classpath:application-context.xml"})
+public class AllShareIndexEngineTest {
+	
+	@Autowired
+	private AllShareIndexEngine allShareIndexEngine;
+	
+	@Before
+	public void setUp() {
+		allShareIndexEngine.clear();
+	}
+	
+	@Test
+	public void testAllShareIndex_NoTrades() {
+		assertThat("AllShareIndex is incorrect", allShareIndexEngine.getAllShareIndex(), equalTo(BigDecimal.ZERO));
+	}
+	
+	@Test
+	public void testAllShareIndex_MatchesGeometricMean() {
+		Random random = new Random(42);
+		Map<String, BigDecimal[]> totals = new HashMap<String, BigDecimal[]>();
+		for (int i = 0; i < 200000; i++) {
+			String stockSymbol = "S" + random.nextInt(300);
+			int quantity = 1 + random.nextInt(1000);
+			BigDecimal price = BigDecimal.valueOf(1 + random.nextInt(100000), 2);
+			allShareIndexEngine.onTrade(new Trade(stockSymbol, quantity, BUY, price));
+			BigDecimal[] stockTotals = totals.get(stockSymbol);
+			if (stockTotals == null) {
+				stockTotals = new BigDecimal[] {BigDecimal.ZERO, BigDecimal.ZERO};
+				totals.put(stockSymbol, stockTotals);
+			}
+			stockTotals[0] = stockTotals[0].add(price.multiply(BigDecimal.valueOf(quantity)));
+			stockTotals[1] = stockTotals[1].add(BigDecimal.valueOf(quantity));
+		}
+		// calculate the index the way it was calculated from the trade history
+		double[] stockPrices = new double[totals.size()];
+		int i = 0;
+		for (BigDecimal[] stockTotals : totals.values()) {
+			stockPrices[i++] = stockTotals[0].divide(stockTotals[1], 2, RoundingMode.HALF_UP).doubleValue();
+		}
+		BigDecimal expected = BigDecimal.valueOf(StatUtils.geometricMean(stockPrices)).setScale(2, RoundingMode.HALF_UP);
+		assertThat("AllShareIndex is incorrect", allShareIndexEngine.getAllShareIndex(), equalTo(expected));
+	}
+	
+	@Test
+	public void testAllShareIndex_StockPricedZeroCounts() {
+		allShareIndexEngine.onTrade(new Trade("TEA", 1, BUY, new BigDecimal("0.004")));
+		allShareIndexEngine.onTrade(new Trade("POP", 1, BUY, new BigDecimal("5.00")));
+		// like the geometric mean of the trade history, a traded stock priced 0.00 makes the index zero
+		BigDecimal expected = BigDecimal.valueOf(StatUtils.geometricMean(new double[] {0.00, 5.00}))
+				.setScale(2, RoundingMode.HALF_UP);
+		assertThat("AllShareIndex with a stock priced zero is incorrect", allShareIndexEngine.getAllShareIndex(), 
+				equalTo(expected));
+		assertThat("Index aggregate with a stock priced zero is incorrect", 
+				allShareIndexEngine.getIndexAggregate().getAllShareIndex(2), equalTo(expected));
+		
+		allShareIndexEngine.onTrade(new Trade("TEA", 1, BUY, new BigDecimal("1.996")));
+		assertThat("Priced stock must be back in the log sum", allShareIndexEngine.getAllShareIndex(), 
+				equalTo(new BigDecimal("2.24")));
+		assertThat("Index aggregate must count the priced stock again", 
+				allShareIndexEngine.getIndexAggregate().getAllShareIndex(2), equalTo(new BigDecimal("2.24")));
+	}
+
+}
@@ -0,0 +1,135 @@
+package com.jpmorgan.stock.market.engine;
+
+import static com.jpmorgan.stock.market.domain.enums.StockType.PREFERRED;
+import static com.jpmorgan.stock.market.domain.enums.TradeIndicator.BUY;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.jpmorgan.stock.market.dao.StockDao;
+import com.jpmorgan.stock.market.domain.IndexDefinition;
+import com.jpmorgan.stock.market.domain.Stock;
+import com.jpmorgan.stock.market.domain.Trade;
+import com.jpmorgan.stock.market.exceptions.BusinessException;
+import com.jpmorgan.stock.market.service.SimpleStockMarketService;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"classpath:application-context.xml"})
+@DirtiesContext
+public class BasketIndexEngineTest {
+	
+	@Autowired
+	private AllShareIndexEngine allShareIndexEngine;
+	
+	@Autowired
+	private BasketIndexEngine basketIndexEngine;
+	
+	@Autowired
+	private SimpleStockMarketService stockMarketService;
+	
+	@Autowired
+	private StockDao stockDao;
+	
+	@Before
+	public void setUp() {
+		allShareIndexEngine.clear();
+	}
+	
+	@After
+	public void tearDown() {
+		basketIndexEngine.unregister("DRINKS");
+	}
+	
+	@Test
+	public void testIndex_WeightedGeometricMean() {
+		basketIndexEngine.register(new IndexDefinition("DRINKS", weights("TEA", "1", "POP", "3", "ALE", "2")));
+		assertThat("Index without trades must be zero", basketIndexEngine.getIndex("DRINKS"), equalTo(BigDecimal.ZERO));
+		
+		allShareIndexEngine.onTrade(new Trade("TEA", 10, BUY, new BigDecimal("4.00")));
+		allShareIndexEngine.onTrade(new Trade("TEA", 30, BUY, new BigDecimal("2.00")));
+		allShareIndexEngine.onTrade(new Trade("POP", 5, BUY, new BigDecimal("7.35")));
+		allShareIndexEngine.onTrade(new Trade("JOE", 5, BUY, new BigDecimal("900.00")));
+		// ALE has no price yet, so it does not count
+		assertThat(basketIndexEngine.getIndex("DRINKS"), equalTo(weightedGeometricMean(2.5, 1, 7.35, 3)));
+		
+		allShareIndexEngine.onTrade(new Trade("ALE", 1, BUY, new BigDecimal("11.11")));
+		assertThat(basketIndexEngine.getIndex("DRINKS"), equalTo(weightedGeometricMean(2.5, 1, 7.35, 3, 11.11, 2)));
+		
+		allShareIndexEngine.clear();
+		assertThat("Cleared prices must reset the index", basketIndexEngine.getIndex("DRINKS"), equalTo(BigDecimal.ZERO));
+	}
+	
+	@Test
+	public void testRegister_StartsFromCurrentPrices() throws BusinessException {
+		allShareIndexEngine.onTrades(Arrays.asList(new Trade("GIN", 10, BUY, new BigDecimal("3.20")), 
+				new Trade("POP", 10, BUY, new BigDecimal("1.25"))));
+		assertThat("Configured index of preferred stocks", stockMarketService.calculateIndex("PREFERRED"), 
+				equalTo(new BigDecimal("3.20")));
+		
+		basketIndexEngine.register(new IndexDefinition("DRINKS", weights("GIN", "1", "POP", "1")));
+		assertThat(basketIndexEngine.getIndexNames(), equalTo(Arrays.asList("PREFERRED", "DRINKS")));
+		assertThat(stockMarketService.calculateIndex("DRINKS"), equalTo(weightedGeometricMean(3.2, 1, 1.25, 1)));
+		
+		assertThat(basketIndexEngine.unregister("DRINKS"), equalTo(true));
+		assertThat(basketIndexEngine.getIndex("DRINKS"), nullValue());
+		allShareIndexEngine.onTrade(new Trade("GIN", 30, BUY, new BigDecimal("1.20")));
+		assertThat("Removed index must not hold the other indices of its stocks back", 
+				stockMarketService.calculateIndex("PREFERRED"), equalTo(new BigDecimal("1.70")));
+	}
+	
+	@Test
+	public void testTypeIndex_StockListedLater() throws BusinessException {
+		allShareIndexEngine.onTrade(new Trade("GIN", 10, BUY, new BigDecimal("3.20")));
+		stockDao.add(new Stock("STOUT", PREFERRED, new BigDecimal("0.10"), new BigDecimal("0.05"), BigDecimal.ONE));
+		allShareIndexEngine.onTrade(new Trade("STOUT", 10, BUY, new BigDecimal("5.00")));
+		assertThat("Stock listed after the index was registered must join the index of its type", 
+				stockMarketService.calculateIndex("PREFERRED"), equalTo(weightedGeometricMean(3.2, 1, 5.0, 1)));
+		
+		allShareIndexEngine.onTrade(new Trade("STOUT", 30, BUY, new BigDecimal("1.00")));
+		assertThat(stockMarketService.calculateIndex("PREFERRED"), equalTo(weightedGeometricMean(3.2, 1, 2.0, 1)));
+	}
+	
+	@Test(expected = BusinessException.class)
+	public void testCalculateIndex_NotRegistered() throws BusinessException {
+		stockMarketService.calculateIndex("DRINKS");
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testRegister_UnknownStock() {
+		basketIndexEngine.register(new IndexDefinition("DRINKS", weights("TEA", "1", "XYZ", "1")));
+	}
+	
+	private static Map<String, BigDecimal> weights(String... symbolsAndWeights) {
+		Map<String, BigDecimal> weights = new LinkedHashMap<String, BigDecimal>();
+		for (int i = 0; i < symbolsAndWeights.length; i += 2) {
+			weights.put(symbolsAndWeights[i], new BigDecimal(symbolsAndWeights[i + 1]));
+		}
+		return weights;
+	}
+	
+	private static BigDecimal weightedGeometricMean(double... pricesAndWeights) {
+		double weightedLogSum = 0;
+		double totalWeight = 0;
+		for (int i = 0; i < pricesAndWeights.length; i += 2) {
+			weightedLogSum += pricesAndWeights[i + 1] * Math.log(pricesAndWeights[i]);
+			totalWeight += pricesAndWeights[i + 1];
+		}
+		return BigDecimal.valueOf(Math.exp(weightedLogSum / totalWeight)).setScale(2, RoundingMode.HALF_UP);
+	}
+
+}
@@ -0,0 +1,132 @@
+package com.jpmorgan.stock.market.engine;
+
+import static com.jpmorgan.stock.market.domain.enums.StockType.COMMON;
+import static com.jpmorgan.stock.market.domain.enums.StockType.PREFERRED;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jpmorgan.stock.market.domain.Stock;
+
+public class FixedPointArithmeticTest {
+	
+	private static final int DIGITS_AFTER_POINT = 2;
+	
+	private FixedPointArithmetic arithmetic;
+	
+	private Random random = new Random(7);
+	
+	@Before
+	public void setUp() {
+		arithmetic = new FixedPointArithmetic();
+		arithmetic.setEnabled(true);
+		arithmetic.setPriceScale(4);
+		arithmetic.setDigitsAfterPoint(DIGITS_AFTER_POINT);
+	}
+	
+	@Test
+	public void testVolumeWeightedStockPrice_EqualsBigDecimal() {
+		for (int i = 0; i < 100000; i++) {
+			BigDecimal totalTradedPrice = BigDecimal.ZERO;
+			long scaledTotalTradedPrice = 0;
+			long totalQuantity = 0;
+			for (int j = random.nextInt(5); j >= 0; j--) {
+				BigDecimal price = randomPrice();
+				int quantity = 1 + random.nextInt(10000);
+				totalTradedPrice = totalTradedPrice.add(price.multiply(BigDecimal.valueOf(quantity)));
+				scaledTotalTradedPrice += arithmetic.tradedPrice(arithmetic.toScaled(price), quantity);
+				totalQuantity += quantity;
+			}
+			BigDecimal expected = totalTradedPrice.divide(BigDecimal.valueOf(totalQuantity), DIGITS_AFTER_POINT, RoundingMode.HALF_UP);
+			assertThat("Stock price is incorrect", 
+					arithmetic.toBigDecimal(arithmetic.volumeWeightedStockPrice(scaledTotalTradedPrice, totalQuantity)), 
+					equalTo(expected));
+		}
+	}
+	
+	@Test
+	public void testDividendYield_EqualsBigDecimal() {
+		for (int i = 0; i < 100000; i++) {
+			BigDecimal price = randomPrice();
+			Stock common = new Stock("C", COMMON, randomPrice(), null, randomPrice());
+			assertThat("Dividend is incorrect", arithmetic.toBigDecimal(arithmetic.dividendYield(common, price)), 
+					equalTo(common.getLastDividend().divide(price, DIGITS_AFTER_POINT, RoundingMode.HALF_UP)));
+			Stock preferred = new Stock("P", PREFERRED, randomPrice(), randomRate(), randomRate());
+			assertThat("Dividend is incorrect", arithmetic.toBigDecimal(arithmetic.dividendYield(preferred, price)), 
+					equalTo(preferred.getFixedDividend().multiply(preferred.getParValue())
+							.divide(price, DIGITS_AFTER_POINT, RoundingMode.HALF_UP)));
+		}
+	}
+	
+	@Test
+	public void testPriceEarningsRatio_EqualsBigDecimal() {
+		int exact = 0;
+		for (int i = 0; i < 100000; i++) {
+			BigDecimal price = randomPrice();
+			long dividend = 1 + random.nextInt(1000);
+			BigDecimal expected;
+			try {
+				expected = price.divide(arithmetic.toBigDecimal(dividend)).setScale(DIGITS_AFTER_POINT);
+			} catch (ArithmeticException e) {
+				expected = null;
+			}
+			BigDecimal actual;
+			try {
+				actual = arithmetic.toBigDecimal(arithmetic.priceEarningsRatio(price, dividend));
+				exact++;
+			} catch (ArithmeticException e) {
+				actual = null;
+			}
+			assertThat("P/E Ratio is incorrect", actual, equalTo(expected));
+		}
+		assertThat("Some ratios must be exact", exact > 0);
+	}
+	
+	@Test
+	public void testToScaled_EqualsSetScale() {
+		String[] prices = { "0.0001", "999999999999.9999", "99999999999.99999", "-0.5", "1E+3", "123456789012345678", 
+				"922337203685477.5807" };
+		for (String price : prices) {
+			assertToScaled(new BigDecimal(price));
+		}
+		for (int i = 0; i < 100000; i++) {
+			long unscaled = (long) (random.nextDouble() * 1000000000000000L);
+			assertToScaled(BigDecimal.valueOf(unscaled, random.nextInt(5)));
+		}
+	}
+	
+	private void assertToScaled(BigDecimal price) {
+		long expected;
+		try {
+			expected = price.setScale(4).unscaledValue().longValueExact();
+		} catch (ArithmeticException ae) {
+			return;
+		}
+		assertThat("Scaled price of " + price + " is incorrect", arithmetic.toScaled(price), equalTo(expected));
+	}
+	
+	@Test(expected = ArithmeticException.class)
+	public void testTradedPrice_Overflow() {
+		arithmetic.tradedPrice(arithmetic.toScaled(new BigDecimal("900000000000000")), Integer.MAX_VALUE);
+	}
+	
+	@Test(expected = ArithmeticException.class)
+	public void testToScaled_TooManyDigitsAfterPoint() {
+		arithmetic.toScaled(new BigDecimal("1.00001"));
+	}
+	
+	private BigDecimal randomPrice() {
+		return BigDecimal.valueOf(1 + random.nextInt(1000000), random.nextInt(5));
+	}
+	
+	private BigDecimal randomRate() {
+		return BigDecimal.valueOf(1 + random.nextInt(10000), 2 + random.nextInt(3));
+	}
+
+}
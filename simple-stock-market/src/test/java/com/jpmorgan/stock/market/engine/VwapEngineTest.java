@@ -0,0 +1,129 @@
+package com.jpmorgan.stock.market.engine;
+
+import static com.jpmorgan.stock.market.domain.enums.TradeIndicator.BUY;
+import static com.jpmorgan.stock.market.domain.enums.TradeIndicator.SELL;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.jpmorgan.stock.market.domain.Trade;
+import com.jpmorgan.stock.market.engine.impl.SlidingWindowVwapEngine;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"classpath:application-context.xml"})
+public class VwapEngineTest {
+	
+	@Autowired
+	private VwapEngine vwapEngine;
+	
+	@Before
+	public void setUp() {
+		vwapEngine.clear();
+	}
+	
+	@Test
+	public void testVolumeWeightedStockPrice_Successful() {
+		vwapEngine.onTrade(new Trade("POP", 10, BUY, new BigDecimal("2.50")));
+		vwapEngine.onTrade(new Trade("POP", 140, SELL, new BigDecimal("2.10")));
+		vwapEngine.onTrade(new Trade("GIN", 35, SELL, new BigDecimal("1.00")));
+		assertThat("Stock price for POP is incorrect", vwapEngine.getVolumeWeightedStockPrice("POP"), 
+				equalTo(new BigDecimal("2.13")));
+		assertThat("Stock price for GIN is incorrect", vwapEngine.getVolumeWeightedStockPrice("GIN"), 
+				equalTo(new BigDecimal("1.00")));
+		assertThat("Stock price for JOE is incorrect", vwapEngine.getVolumeWeightedStockPrice("JOE"), 
+				equalTo(BigDecimal.ZERO));
+	}
+	
+	@Test
+	public void testVolumeWeightedStockPrice_TradesLeaveWindow() {
+		LocalDateTime now = LocalDateTime.now();
+		// a trade which already left the window is ignored
+		vwapEngine.onTrade(newTrade("TEA", 20, "1.50", now.minusMinutes(30)));
+		// a trade which is about to leave the window
+		Trade leaving = newTrade("TEA", 10, "3.00", now.minusMinutes(5).plusSeconds(1));
+		vwapEngine.onTrade(newTrade("TEA", 5, "1.20", now));
+		// late trades are accounted as well
+		vwapEngine.onTrade(leaving);
+		assertThat("Stock price for TEA is incorrect", vwapEngine.getVolumeWeightedStockPrice("TEA"), 
+				equalTo(new BigDecimal("2.40")));
+		
+		vwapEngine.onTrade(newTrade("TEA", 5, "1.50", now.minusMinutes(6)));
+		assertThat("Stock price for TEA is incorrect", vwapEngine.getVolumeWeightedStockPrice("TEA"), 
+				equalTo(new BigDecimal("2.40")));
+	}
+	
+	@Test
+	public void testVolumeWeightedStockPrice_ManyTrades() {
+		LocalDateTime start = LocalDateTime.now().minusMinutes(4);
+		BigDecimal totalTradedPrice = BigDecimal.ZERO;
+		int totalQuantity = 0;
+		for (int i = 0; i < 1000; i++) {
+			int quantity = 1 + i % 7;
+			BigDecimal price = BigDecimal.valueOf(100 + i % 13, 2);
+			// every tenth trade arrives late
+			LocalDateTime timeStamp = start.plusNanos(i % 10 == 0 ? i * 1000L - 5000 : i * 1000L);
+			vwapEngine.onTrade(newTrade("ALE", quantity, price.toPlainString(), timeStamp));
+			totalTradedPrice = totalTradedPrice.add(price.multiply(BigDecimal.valueOf(quantity)));
+			totalQuantity += quantity;
+		}
+		BigDecimal expected = totalTradedPrice.divide(BigDecimal.valueOf(totalQuantity), 2, RoundingMode.HALF_UP);
+		assertThat("Stock price for ALE is incorrect", vwapEngine.getVolumeWeightedStockPrice("ALE"), equalTo(expected));
+	}
+	
+	@Test
+	public void testVolumeWeightedStockPriceInPastTime_Successful() {
+		LocalDateTime now = LocalDateTime.now();
+		vwapEngine.onTrade(newTrade("JOE", 10, "2.00", now.minusSeconds(30)));
+		vwapEngine.onTrade(newTrade("JOE", 10, "4.00", now.minusMinutes(3)));
+		// older than the second buckets reach
+		vwapEngine.onTrade(newTrade("JOE", 20, "1.00", now.minusMinutes(40)));
+		vwapEngine.onTrade(newTrade("JOE", 60, "3.00", now.minusHours(3)));
+		assertThat("Stock price for JOE in past minute is incorrect", 
+				vwapEngine.getVolumeWeightedStockPrice("JOE", Duration.ofMinutes(1)), equalTo(new BigDecimal("2.00")));
+		assertThat("Stock price for JOE in past 10 minutes is incorrect", 
+				vwapEngine.getVolumeWeightedStockPrice("JOE", Duration.ofMinutes(10)), equalTo(new BigDecimal("3.00")));
+		assertThat("Stock price for JOE in past hour is incorrect", 
+				vwapEngine.getVolumeWeightedStockPrice("JOE", Duration.ofHours(1)), equalTo(new BigDecimal("2.00")));
+		assertThat("Stock price for JOE in past day is incorrect", 
+				vwapEngine.getVolumeWeightedStockPrice("JOE", Duration.ofDays(1)), equalTo(new BigDecimal("2.60")));
+		assertThat("Stock price for JOE in the window must match the window", 
+				vwapEngine.getVolumeWeightedStockPrice("JOE", Duration.ofMinutes(5)), 
+				equalTo(vwapEngine.getVolumeWeightedStockPrice("JOE")));
+		assertThat("Stock price for TEA in past hour is incorrect", 
+				vwapEngine.getVolumeWeightedStockPrice("TEA", Duration.ofHours(1)), equalTo(BigDecimal.ZERO));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testVolumeWeightedStockPriceInPastTime_LongerThanBuckets() {
+		vwapEngine.onTrade(newTrade("JOE", 10, "2.00", LocalDateTime.now()));
+		vwapEngine.getVolumeWeightedStockPrice("JOE", Duration.ofDays(1).plusMinutes(1));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testSecondBuckets_TooFew() {
+		new SlidingWindowVwapEngine().setSecondBuckets(60);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testMinuteBuckets_None() {
+		new SlidingWindowVwapEngine().setMinuteBuckets(0);
+	}
+	
+	private Trade newTrade(String stockSymbol, int quantity, String price, LocalDateTime timeStamp) {
+		Trade trade = new Trade(stockSymbol, quantity, BUY, new BigDecimal(price));
+		trade.setRecordCreationTimeStamp(timeStamp);
+		return trade;
+	}
+
+}
@@ -0,0 +1,183 @@
+package com.jpmorgan.stock.market.ingestion;
+
+import static com.jpmorgan.stock.market.domain.enums.TradeIndicator.BUY;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.jpmorgan.stock.market.codec.TradeDecoder;
+import com.jpmorgan.stock.market.dao.TradeDao;
+import com.jpmorgan.stock.market.domain.Trade;
+import com.jpmorgan.stock.market.engine.AllShareIndexEngine;
+import com.jpmorgan.stock.market.engine.VwapEngine;
+import com.jpmorgan.stock.market.exceptions.BusinessException;
+import com.jpmorgan.stock.market.ingestion.impl.RingBufferTradeIngestion;
+import com.jpmorgan.stock.market.service.impl.SimpleStockMarketServiceImpl;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"classpath:application-context.xml"})
+@TestPropertySource(properties = {"trade.ingestion.enabled=true", "trade.ingestion.buffer.size=1024"})
+@DirtiesContext
+public class TradeIngestionTest {
+	
+	private static final String[] SYMBOLS = { "TEA", "POP", "ALE", "GIN" };
+	
+	private static final int TRADES_PER_PRODUCER = 20000;
+	
+	@Autowired
+	private TradeIngestion tradeIngestion;
+	
+	@Autowired
+	private TradeDao tradeDao;
+	
+	@Autowired
+	private VwapEngine vwapEngine;
+	
+	@Autowired
+	private AllShareIndexEngine allShareIndexEngine;
+	
+	@Before
+	public void setUp() {
+		tradeDao.clear();
+		vwapEngine.clear();
+		allShareIndexEngine.clear();
+	}
+	
+	@Test
+	public void testPublish_RecordedInPublishOrder() throws Exception {
+		ExecutorService producers = Executors.newFixedThreadPool(SYMBOLS.length);
+		List<Future<Long>> lastSequences = new ArrayList<Future<Long>>();
+		for (String symbol : SYMBOLS) {
+			lastSequences.add(producers.submit(() -> {
+				long sequence = -1;
+				for (int i = 1; i <= TRADES_PER_PRODUCER; i++) {
+					sequence = tradeIngestion.publish(symbol, i, BUY, BigDecimal.valueOf(100 + i % 10, 2));
+				}
+				return sequence;
+			}));
+		}
+		long lastSequence = -1;
+		for (Future<Long> sequence : lastSequences) {
+			lastSequence = Math.max(lastSequence, sequence.get(30, TimeUnit.SECONDS));
+		}
+		producers.shutdown();
+		assertThat("Every sequence must be claimed once", lastSequence, 
+				equalTo(SYMBOLS.length * (long) TRADES_PER_PRODUCER - 1));
+		assertThat("Published trades must be recorded", tradeIngestion.awaitRecorded(lastSequence, 30000), is(true));
+		
+		for (String symbol : SYMBOLS) {
+			List<Trade> trades = tradeDao.findByStockSymbol(symbol);
+			assertThat("Every trade of " + symbol + " must be recorded", trades.size(), is(TRADES_PER_PRODUCER));
+			for (int i = 0; i < trades.size(); i++) {
+				assertThat("Trades of " + symbol + " must be recorded in publish order", trades.get(i).getQuantity(), 
+						is(i + 1));
+			}
+		}
+	}
+	
+	@Test
+	public void testPublish_UnknownStock_Rejected() {
+		long rejectedTrades = tradeIngestion.getRejectedTrades();
+		tradeIngestion.publish("TEA", 10, BUY, new BigDecimal("1.50"));
+		long sequence = tradeIngestion.publish("XXX", 10, BUY, new BigDecimal("1.50"));
+		assertThat("Published trades must be recorded", tradeIngestion.awaitRecorded(sequence, 30000), is(true));
+		assertThat("Trade of an unknown stock must be rejected", tradeIngestion.getRejectedTrades(), 
+				is(rejectedTrades + 1));
+		assertThat("Valid trade must be recorded", tradeDao.findByStockSymbol("TEA").size(), is(1));
+	}
+	
+	@Test
+	public void testPublish_UnscaledPrice() {
+		long rejectedTrades = tradeIngestion.getRejectedTrades();
+		tradeIngestion.publish("POP", 10, BUY, 250, 2);
+		tradeIngestion.publish("POP", 30, BUY, new BigDecimal("1.5"));
+		// a symbol longer than a trade message holds is rejected by the writer
+		long sequence = tradeIngestion.publish("POPPOPPOPPOP", 10, BUY, 250, 2);
+		assertThat("Published trades must be recorded", tradeIngestion.awaitRecorded(sequence, 30000), is(true));
+		assertThat("Trade which does not fit into a message must be rejected", tradeIngestion.getRejectedTrades(), 
+				is(rejectedTrades + 1));
+		assertThat("Stock price for POP is incorrect", vwapEngine.getVolumeWeightedStockPrice("POP"), 
+				equalTo(new BigDecimal("1.75")));
+	}
+	
+	@Test
+	public void testTryPublish_BufferFull() throws Exception {
+		BlockingService service = new BlockingService();
+		RingBufferTradeIngestion ingestion = new RingBufferTradeIngestion();
+		ingestion.setEnabled(true);
+		ingestion.setBufferSize(16);
+		ingestion.setStockMarketService(service);
+		ingestion.start();
+		try {
+			// the writer takes the first trade and blocks, its slot is not reused before it is recorded
+			ingestion.publish("TEA", 1, BUY, BigDecimal.ONE);
+			assertThat("Writer must take the first trade", service.recording.await(10, TimeUnit.SECONDS), is(true));
+			for (int i = 2; i <= 16; i++) {
+				assertThat("Trade must be published", ingestion.tryPublish("TEA", i, BUY, BigDecimal.ONE), 
+						equalTo(i - 1L));
+			}
+			assertThat("Full buffer must refuse a trade", ingestion.tryPublish("TEA", 17, BUY, BigDecimal.ONE), 
+					equalTo(-1L));
+			
+			service.release.countDown();
+			long sequence = ingestion.publish("TEA", 17, BUY, BigDecimal.ONE);
+			assertThat("Published trades must be recorded", ingestion.awaitRecorded(sequence, 10000), is(true));
+			for (int i = 0; i < 17; i++) {
+				assertThat("Trades must be recorded in sequence order", service.trades.get(i).getQuantity(), is(i + 1));
+			}
+		} finally {
+			service.release.countDown();
+			ingestion.stop();
+		}
+	}
+	
+	/**
+	 * Service recording trades into a list, blocking the first batch until released.
+	 */
+	private static class BlockingService extends SimpleStockMarketServiceImpl {
+		
+		private final CountDownLatch recording = new CountDownLatch(1);
+		
+		private final CountDownLatch release = new CountDownLatch(1);
+		
+		private final List<Trade> trades = Collections.synchronizedList(new ArrayList<Trade>());
+		
+		@Override
+		public int recordTradeMessages(ByteBuffer messages) throws BusinessException {
+			recording.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+			TradeDecoder decoder = new TradeDecoder();
+			for (int offset = messages.position(); offset < messages.limit(); offset += TradeDecoder.MESSAGE_SIZE) {
+				decoder.wrap(messages, offset);
+				trades.add(decoder.toTrade(decoder.getStockSymbol()));
+			}
+			messages.position(messages.limit());
+			return 0;
+		}
+	}
+
+}
@@ -0,0 +1,217 @@
+package com.jpmorgan.stock.market.journal;
+
+import static com.jpmorgan.stock.market.domain.enums.TradeIndicator.BUY;
+import static com.jpmorgan.stock.market.domain.enums.TradeIndicator.SELL;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.jpmorgan.stock.market.domain.Trade;
+import com.jpmorgan.stock.market.journal.impl.MappedTradeJournal;
+
+public class MappedTradeJournalTest {
+	
+	final static Logger LOG = Logger.getLogger(MappedTradeJournalTest.class);
+	
+	private static final int RECORD_SIZE = 48;
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	private MappedTradeJournal journal;
+	
+	@After
+	public void tearDown() {
+		if (journal != null) {
+			journal.close();
+		}
+	}
+	
+	@Test
+	public void testReplayAppendedTrades() throws IOException {
+		journal = open(FlushPolicy.SYNC, 1 << 20);
+		LocalDateTime now = LocalDateTime.now();
+		journal.append(newTrade("POP", 5, "2.75", now));
+		journal.appendAll(Arrays.asList(newTrade("GIN", 10, "1.0001", now.minusNanos(1)), newTrade("TEA", 1, "12E+3", now)));
+		
+		List<Trade> trades = replay(journal);
+		assertThat("Number of replayed trades must be 3", trades.size(), is(3));
+		Trade trade = trades.get(1);
+		assertThat("Stock symbol must be replayed", trade.getStockSymbol(), equalTo("GIN"));
+		assertThat("Quantity must be replayed", trade.getQuantity(), equalTo(10));
+		assertThat("Indicator must be replayed", trade.getIndicator(), equalTo(SELL));
+		assertThat("Price must be replayed", trade.getPrice(), equalTo(new BigDecimal("1.0001")));
+		assertThat("Time stamp must be replayed", trade.getRecordCreationTimeStamp(), equalTo(now.minusNanos(1)));
+		assertThat("Price scale must be replayed", trades.get(2).getPrice(), equalTo(new BigDecimal("12E+3")));
+	}
+	
+	@Test
+	public void testReopenAndRollSegments() throws IOException {
+		// ten records per segment
+		journal = open(FlushPolicy.OS, RECORD_SIZE * 10);
+		for (int i = 0; i < 25; i++) {
+			journal.append(newTrade("ALE", i + 1, "1.00", LocalDateTime.now()));
+		}
+		journal.close();
+		
+		journal = open(FlushPolicy.OS, RECORD_SIZE * 10);
+		for (int i = 25; i < 40; i++) {
+			journal.append(newTrade("ALE", i + 1, "1.00", LocalDateTime.now()));
+		}
+		List<Trade> trades = replay(journal);
+		assertThat("Number of replayed trades must be 40", trades.size(), is(40));
+		for (int i = 0; i < trades.size(); i++) {
+			assertThat("Trades must be replayed in order", trades.get(i).getQuantity(), equalTo(i + 1));
+		}
+		assertThat("Number of segments must be 4", folder.getRoot().listFiles().length, is(4));
+		
+		journal.clear();
+		assertThat("Number of trades after clear must be 0", replay(journal).size(), is(0));
+	}
+	
+	@Test
+	public void testRollSegments_BatchFlush() throws IOException {
+		// full segments are forced by the next flush instead of the appending thread
+		journal = open(FlushPolicy.BATCH, RECORD_SIZE * 10);
+		for (int i = 0; i < 25; i++) {
+			journal.append(newTrade("ALE", i + 1, "1.00", LocalDateTime.now()));
+		}
+		journal.flush();
+		journal.close();
+		
+		journal = open(FlushPolicy.BATCH, RECORD_SIZE * 10);
+		List<Trade> trades = replay(journal);
+		assertThat("Number of replayed trades must be 25", trades.size(), is(25));
+		assertThat("The last trade must be the one appended", trades.get(24).getQuantity(), equalTo(25));
+	}
+	
+	@Test(expected = IllegalStateException.class)
+	public void testReplayFromTruncatedSegment() throws IOException {
+		// ten records per segment
+		journal = open(FlushPolicy.OS, RECORD_SIZE * 10);
+		for (int i = 0; i < 15; i++) {
+			journal.append(newTrade("ALE", i + 1, "1.00", LocalDateTime.now()));
+		}
+		long position = journal.getPosition();
+		for (int i = 15; i < 30; i++) {
+			journal.append(newTrade("ALE", i + 1, "1.00", LocalDateTime.now()));
+		}
+		journal.truncate(journal.getPosition());
+		// the trades from the position on are gone, replaying the rest would skip them silently
+		journal.replay(position, Long.MAX_VALUE, trades -> { });
+	}
+	
+	@Test
+	public void testReplayAfterTruncate() throws IOException {
+		// ten records per segment
+		journal = open(FlushPolicy.OS, RECORD_SIZE * 10);
+		for (int i = 0; i < 30; i++) {
+			journal.append(newTrade("ALE", i + 1, "1.00", LocalDateTime.now()));
+		}
+		journal.truncate(journal.getPosition());
+		// a full replay starts at the first segment left, with a warning
+		List<Trade> trades = replay(journal);
+		assertThat("Number of trades left after truncate must be 10", trades.size(), is(10));
+		assertThat("The first trade left must be the first of the last segment", trades.get(0).getQuantity(), 
+				equalTo(21));
+	}
+	
+	@Test
+	public void testReplayStopsAtTornRecord() throws IOException {
+		journal = open(FlushPolicy.SYNC, 1 << 20);
+		for (int i = 0; i < 3; i++) {
+			journal.append(newTrade("JOE", i + 1, "1.00", LocalDateTime.now()));
+		}
+		journal.close();
+		File segment = folder.getRoot().listFiles()[0];
+		try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+			// corrupt the quantity of the last record
+			file.seek(2 * RECORD_SIZE + 24);
+			file.writeInt(42);
+		}
+		
+		journal = open(FlushPolicy.SYNC, 1 << 20);
+		assertThat("Number of replayed trades must be 2", replay(journal).size(), is(2));
+		// the torn record is overwritten by the next append
+		journal.append(newTrade("JOE", 4, "1.00", LocalDateTime.now()));
+		List<Trade> trades = replay(journal);
+		assertThat("Number of replayed trades must be 3", trades.size(), is(3));
+		assertThat("The last trade must be the one appended", trades.get(2).getQuantity(), equalTo(4));
+	}
+	
+	@Test
+	public void testCanAppend() throws IOException {
+		journal = open(FlushPolicy.OS, 1 << 20);
+		assertThat("A regular trade can be appended", journal.canAppend(newTrade("POP", 1, "2.75", LocalDateTime.now())), 
+				is(true));
+		assertThat("A symbol longer than 16 characters cannot be appended", 
+				journal.canAppend(newTrade("ABCDEFGHIJKLMNOPQ", 1, "2.75", LocalDateTime.now())), is(false));
+		assertThat("A symbol that is not ASCII cannot be appended", 
+				journal.canAppend(newTrade("P\u00d6P", 1, "2.75", LocalDateTime.now())), is(false));
+		assertThat("A price not fitting into a long cannot be appended", 
+				journal.canAppend(newTrade("POP", 1, "92233720368547758.08", LocalDateTime.now())), is(false));
+		assertThat("A time stamp beyond epoch nanoseconds cannot be appended", 
+				journal.canAppend(newTrade("POP", 1, "2.75", LocalDateTime.of(2300, 1, 1, 0, 0))), is(false));
+	}
+	
+	@Test
+	public void testReplayThroughput() throws IOException {
+		int count = 1000000;
+		journal = open(FlushPolicy.BATCH, 64 << 20);
+		LocalDateTime now = LocalDateTime.now();
+		List<Trade> batch = new ArrayList<Trade>();
+		for (int i = 0; i < count; i++) {
+			batch.add(newTrade("C" + (i % 64), i % 100 + 1, "1.25", now));
+			if (batch.size() == 1000) {
+				journal.appendAll(batch);
+				batch.clear();
+			}
+		}
+		long start = System.nanoTime();
+		long[] replayed = new long[1];
+		long total = journal.replay(trades -> replayed[0] += trades.size());
+		long elapsed = System.nanoTime() - start;
+		assertThat("All trades must be replayed", total, equalTo((long) count));
+		assertThat("All trades must be passed to the consumer", replayed[0], equalTo((long) count));
+		LOG.info(count + " trades were replayed in " + elapsed / 1000000 + " ms, " 
+				+ (count * 1000000000L / Math.max(1, elapsed)) + " trades/s.");
+	}
+	
+	private MappedTradeJournal open(FlushPolicy flushPolicy, long segmentBytes) throws IOException {
+		MappedTradeJournal journal = new MappedTradeJournal();
+		journal.setEnabled(true);
+		journal.setDirectory(folder.getRoot().getPath());
+		journal.setFlushPolicy(flushPolicy);
+		journal.setSegmentBytes(segmentBytes);
+		journal.open();
+		return journal;
+	}
+	
+	private List<Trade> replay(MappedTradeJournal journal) {
+		List<Trade> trades = new ArrayList<Trade>();
+		journal.replay(trades::addAll);
+		return trades;
+	}
+	
+	private Trade newTrade(String stockSymbol, int quantity, String price, LocalDateTime timeStamp) {
+		Trade trade = new Trade(stockSymbol, quantity, quantity % 2 == 0 ? SELL : BUY, new BigDecimal(price));
+		trade.setRecordCreationTimeStamp(timeStamp);
+		return trade;
+	}
+	
+}
@@ -0,0 +1,154 @@
+package com.jpmorgan.stock.market.metrics;
+
+import static com.jpmorgan.stock.market.domain.enums.TradeIndicator.BUY;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.jpmorgan.stock.market.domain.Trade;
+import com.jpmorgan.stock.market.exceptions.BusinessException;
+import com.jpmorgan.stock.market.metrics.impl.JmxServiceMetrics;
+import com.jpmorgan.stock.market.service.SimpleStockMarketService;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"classpath:application-context.xml"})
+@DirtiesContext
+public class ServiceMetricsTest {
+	
+	private static final String UNKNOWN_STOCK = "Stock with symbol [] is not present in the market.";
+	
+	@Autowired
+	private SimpleStockMarketService stockMarketService;
+	
+	@Autowired
+	private ServiceMetrics serviceMetrics;
+	
+	@Before
+	public void setUp() {
+		serviceMetrics.reset();
+	}
+	
+	@Test
+	public void testLatencyHistogram_Percentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertThat("Empty histogram must report zero", histogram.getValueAtPercentile(99), is(0L));
+		for (long nanos = 1; nanos <= 100000; nanos++) {
+			histogram.record(nanos);
+		}
+		assertThat("Count is wrong", histogram.getCount(), is(100000L));
+		assertThat("Max is wrong", histogram.getMaxNanos(), is(100000L));
+		assertThat("Mean is wrong", histogram.getMeanNanos(), equalTo(50000.5));
+		long[][] expectations = { { 50, 50000 }, { 99, 99000 }, { 100, 100000 } };
+		for (long[] expectation : expectations) {
+			long value = histogram.getValueAtPercentile(expectation[0]);
+			assertThat("Percentile must not be below the recorded value", value, greaterThanOrEqualTo(expectation[1]));
+			assertThat("Percentile must be within 1/32 of the recorded value", value, 
+					lessThanOrEqualTo(expectation[1] + expectation[1] / 32));
+		}
+		assertThat("Small values must be exact", LatencyHistogram.highestValue(LatencyHistogram.index(17)), is(17L));
+		assertThat("Largest value must fit", LatencyHistogram.index(Long.MAX_VALUE), is(LatencyHistogram.BUCKETS - 1));
+		assertThat("Largest value must be the bound", LatencyHistogram.highestValue(LatencyHistogram.BUCKETS - 1), 
+				is(Long.MAX_VALUE));
+	}
+	
+	@Test
+	public void testServiceCalls_CountedByOperationAndReason() throws BusinessException {
+		stockMarketService.recordTrade(new Trade("TEA", 10, BUY, new BigDecimal("1.50")));
+		stockMarketService.recordTrades(Arrays.asList(new Trade("TEA", 10, BUY, new BigDecimal("1.50")),
+				new Trade("XXX", 10, BUY, new BigDecimal("1.50"))));
+		for (String stockSymbol : new String[] { "XXX", "YYY" }) {
+			try {
+				stockMarketService.calculateDividendYield(stockSymbol, BigDecimal.ONE);
+			} catch (BusinessException be) {
+				// counted as rejection
+			}
+		}
+		stockMarketService.calculateGBCEAllShareIndex();
+		
+		assertThat("One call of recordTrade must be measured", 
+				serviceMetrics.getLatencyHistogram(Operation.RECORD_TRADE).getCount(), is(1L));
+		assertThat("Two calls of calculateDividendYield must be measured", 
+				serviceMetrics.getLatencyHistogram(Operation.DIVIDEND_YIELD).getCount(), is(2L));
+		assertThat("One call of calculateGBCEAllShareIndex must be measured", 
+				serviceMetrics.getLatencyHistogram(Operation.GBCE_ALL_SHARE_INDEX).getCount(), is(1L));
+		assertThat("Two trades must be recorded", serviceMetrics.getRecordedTrades(), is(2L));
+		assertThat("Rejected trade of the batch must be counted", 
+				serviceMetrics.getRejections(Operation.RECORD_TRADES), is(1L));
+		assertThat("Unknown stocks must be counted under one reason", 
+				serviceMetrics.getRejectionsByReason().get(UNKNOWN_STOCK), is(2L));
+		assertThat("Rejected trade must be counted by reason", 
+				serviceMetrics.getRejectionsByReason().get("A trade must be associated with a stock."), is(1L));
+	}
+	
+	@Test
+	public void testMXBeans_Published() throws Exception {
+		stockMarketService.recordTrade(new Trade("GIN", 5, BUY, new BigDecimal("2.00")));
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName service = new ObjectName("com.jpmorgan.stock.market:type=ServiceMetrics");
+		ObjectName recordTrade = new ObjectName("com.jpmorgan.stock.market:type=ServiceMetrics,operation=recordTrade");
+		assertThat("Recorded trades must be published", server.getAttribute(service, "RecordedTrades"), equalTo(1L));
+		assertThat("Stored trades must be published", (Long) server.getAttribute(service, "StoredTrades"), 
+				greaterThanOrEqualTo(1L));
+		assertThat("Calls must be published", server.getAttribute(recordTrade, "Calls"), equalTo(1L));
+		assertThat("Latency must be published", (Long) server.getAttribute(recordTrade, "LatencyP999Nanos"), 
+				greaterThanOrEqualTo((Long) server.getAttribute(recordTrade, "LatencyP50Nanos")));
+		server.invoke(service, "reset", null, null);
+		assertThat("Reset must clear the calls", server.getAttribute(recordTrade, "Calls"), equalTo(0L));
+	}
+	
+	@Test
+	public void testClose_KeepsReplacingMXBeans() throws Exception {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName("com.jpmorgan.stock.market.test:type=ServiceMetrics");
+		JmxServiceMetrics replaced = new JmxServiceMetrics();
+		replaced.setDomain(name.getDomain());
+		replaced.open();
+		JmxServiceMetrics replacing = new JmxServiceMetrics();
+		replacing.setDomain(name.getDomain());
+		replacing.open();
+		
+		// as when the context of the replaced metrics is closed after a newer one started
+		replaced.close();
+		assertThat("Closing replaced metrics must keep the MXBeans replacing them", server.isRegistered(name), is(true));
+		replacing.close();
+		assertThat("Closing the metrics must unregister their MXBeans", server.isRegistered(name), is(false));
+	}
+	
+	@Test
+	public void testRecord_AllocationFree() {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		// let the recording code be compiled first
+		recordCalls(200000);
+		long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+		recordCalls(200000);
+		long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+		assertThat("Recording must not allocate", allocated, lessThan(1024L));
+	}
+	
+	private void recordCalls(int calls) {
+		for (int i = 0; i < calls; i++) {
+			serviceMetrics.record(i % 2 == 0 ? Operation.RECORD_TRADE : Operation.DIVIDEND_YIELD, System.nanoTime() - i);
+			serviceMetrics.addRecordedTrades(1);
+		}
+	}
+
+}
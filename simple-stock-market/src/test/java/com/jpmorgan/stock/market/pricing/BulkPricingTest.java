@@ -0,0 +1,147 @@
+package com.jpmorgan.stock.market.pricing;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.jpmorgan.stock.market.exceptions.BusinessException;
+import com.jpmorgan.stock.market.pricing.impl.ForkJoinBulkPricing;
+import com.jpmorgan.stock.market.service.SimpleStockMarketService;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"classpath:application-context.xml"})
+public class BulkPricingTest {
+	
+	private static final String[] STOCK_SYMBOLS = {"TEA", "POP", "ALE", "GIN", "JOE"};
+	
+	private static final int SCENARIOS = 200;
+	
+	@Autowired
+	private SimpleStockMarketService stockMarketService;
+	
+	@Test
+	public void testCalculateDividendYields_MatchesSingleCalculation() throws BusinessException {
+		double[][] prices = priceGrid(STOCK_SYMBOLS.length, SCENARIOS);
+		double[][] dividendYields = new double[STOCK_SYMBOLS.length][SCENARIOS];
+		stockMarketService.calculateDividendYields(STOCK_SYMBOLS, prices, dividendYields);
+		for (int i = 0; i < STOCK_SYMBOLS.length; i++) {
+			for (int j = 0; j < SCENARIOS; j++) {
+				BigDecimal expected = stockMarketService.calculateDividendYield(STOCK_SYMBOLS[i], 
+						BigDecimal.valueOf(prices[i][j]));
+				assertThat(STOCK_SYMBOLS[i] + " at " + prices[i][j], dividendYields[i][j], equalTo(expected.doubleValue()));
+			}
+		}
+	}
+	
+	@Test
+	public void testCalculatePriceEarningsRatios_PriceOverRoundedYield() throws BusinessException {
+		double[][] prices = priceGrid(STOCK_SYMBOLS.length, SCENARIOS);
+		double[][] priceEarningsRatios = new double[STOCK_SYMBOLS.length][SCENARIOS];
+		stockMarketService.calculatePriceEarningsRatios(STOCK_SYMBOLS, prices, priceEarningsRatios);
+		for (int i = 0; i < STOCK_SYMBOLS.length; i++) {
+			for (int j = 0; j < SCENARIOS; j++) {
+				BigDecimal price = BigDecimal.valueOf(prices[i][j]);
+				BigDecimal dividendYield = stockMarketService.calculateDividendYield(STOCK_SYMBOLS[i], price);
+				double expected = dividendYield.signum() == 0 ? Double.NaN 
+						: price.divide(dividendYield, 2, RoundingMode.HALF_UP).doubleValue();
+				assertThat(STOCK_SYMBOLS[i] + " at " + prices[i][j], priceEarningsRatios[i][j], equalTo(expected));
+			}
+		}
+	}
+	
+	@Test
+	public void testCalculateDividendYields_RoundedHalfUpOnTies() throws BusinessException {
+		double[][] dividendYields = new double[1][1];
+		stockMarketService.calculateDividendYields(new String[] {"ALE"}, new double[][] {{0.40}}, dividendYields);
+		assertThat("0.23 / 0.40 = 0.575 must round up", dividendYields[0][0], equalTo(0.58));
+		assertThat(dividendYields[0][0], 
+				equalTo(stockMarketService.calculateDividendYield("ALE", new BigDecimal("0.40")).doubleValue()));
+		
+		// 0.145 is just below 0.145 as double, so rounding the double quotient gives 0.14
+		ForkJoinBulkPricing bulkPricing = new ForkJoinBulkPricing();
+		bulkPricing.setDigitsAfterPoint(2);
+		double[][] results = new double[1][2];
+		bulkPricing.dividendYields(new double[] {2.9}, new double[][] {{20, 5.8}}, results);
+		assertThat("2.9 / 20 = 0.145 must round up", results[0][0], equalTo(0.15));
+		assertThat(results[0][1], equalTo(0.5));
+		bulkPricing.priceEarningsRatios(new double[] {2.9}, new double[][] {{20, 5.8}}, results);
+		assertThat("20 / 0.15 must be rounded half up", results[0][0], equalTo(133.33));
+		assertThat("5.8 / 0.50 must be exact", results[0][1], equalTo(11.6));
+	}
+	
+	@Test
+	public void testCalculateDividendYields_InvalidPrices() throws BusinessException {
+		double[][] dividendYields = new double[1][4];
+		stockMarketService.calculateDividendYields(new String[] {"POP"}, 
+				new double[][] {{0, -1.5, Double.NaN, 1.6}}, dividendYields);
+		assertThat(dividendYields[0], equalTo(new double[] {Double.NaN, Double.NaN, Double.NaN, 0.05}));
+	}
+	
+	@Test
+	public void testBulkPricing_ResultsOutOfRange() {
+		ForkJoinBulkPricing bulkPricing = new ForkJoinBulkPricing();
+		bulkPricing.setDigitsAfterPoint(2);
+		double[][] results = new double[1][2];
+		bulkPricing.dividendYields(new double[] {8}, new double[][] {{1e-20, 1.6}}, results);
+		assertThat("Dividend yield too large for a long must be NaN", results[0], equalTo(new double[] {Double.NaN, 5}));
+		bulkPricing.priceEarningsRatios(new double[] {1e16}, new double[][] {{1e17, 1e15}}, results);
+		assertThat("Price-Earnings Ratio too large for a long must be NaN", results[0], 
+				equalTo(new double[] {Double.NaN, 1e14}));
+	}
+	
+	@Test(expected = BusinessException.class)
+	public void testCalculateDividendYields_UnknownStock() throws BusinessException {
+		stockMarketService.calculateDividendYields(new String[] {"POP", "XYZ"}, priceGrid(2, 2), new double[2][2]);
+	}
+	
+	@Test(expected = BusinessException.class)
+	public void testCalculatePriceEarningsRatios_ResultShape() throws BusinessException {
+		stockMarketService.calculatePriceEarningsRatios(new String[] {"POP", "ALE"}, priceGrid(2, 3), new double[2][2]);
+	}
+	
+	@Test
+	public void testForkJoin_MatchesSequential() {
+		double[] dividends = new double[1000];
+		for (int i = 0; i < dividends.length; i++) {
+			dividends[i] = 0.01 * (i % 37);
+		}
+		double[][] prices = priceGrid(dividends.length, 300);
+		ForkJoinBulkPricing sequential = new ForkJoinBulkPricing();
+		sequential.setDigitsAfterPoint(2);
+		ForkJoinBulkPricing parallel = new ForkJoinBulkPricing();
+		parallel.setDigitsAfterPoint(2);
+		parallel.setParallelThreshold(1024);
+		parallel.setParallelism(2);
+		parallel.start();
+		try {
+			double[][] expected = new double[dividends.length][300];
+			double[][] actual = new double[dividends.length][300];
+			sequential.priceEarningsRatios(dividends, prices, expected);
+			parallel.priceEarningsRatios(dividends, prices, actual);
+			assertThat("Split grid must give the results of the whole grid", Arrays.deepEquals(actual, expected), is(true));
+		} finally {
+			parallel.stop();
+		}
+	}
+	
+	private static double[][] priceGrid(int stocks, int scenarios) {
+		double[][] prices = new double[stocks][scenarios];
+		for (int i = 0; i < stocks; i++) {
+			for (int j = 0; j < scenarios; j++) {
+				prices[i][j] = BigDecimal.valueOf(37L * (j + 1) + i, 2).doubleValue();
+			}
+		}
+		return prices;
+	}
+
+}
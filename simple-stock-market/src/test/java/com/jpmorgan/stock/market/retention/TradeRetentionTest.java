@@ -0,0 +1,131 @@
+package com.jpmorgan.stock.market.retention;
+
+import static com.jpmorgan.stock.market.domain.enums.TradeIndicator.BUY;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.jpmorgan.stock.market.dao.RetainingTradeDao;
+import com.jpmorgan.stock.market.dao.StockDao;
+import com.jpmorgan.stock.market.dao.impl.OffHeapTradeDaoImpl;
+import com.jpmorgan.stock.market.domain.Trade;
+import com.jpmorgan.stock.market.retention.impl.ScheduledTradeRetention;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"classpath:dao-test-context.xml"})
+@DirtiesContext
+public class TradeRetentionTest {
+	
+	@Autowired
+	private RetainingTradeDao tradeDao;
+	
+	@Autowired
+	private StockDao stockDao;
+	
+	@Before
+	public void setUp() {
+		tradeDao.clear();
+	}
+	
+	@Test
+	public void testEvictExpiredTrades_MaxAge() {
+		TradeRetention retention = newRetention(new RetentionPolicy(30, 0));
+		LocalDateTime now = LocalDateTime.now();
+		for (int i = 0; i < 2000; i++) {
+			tradeDao.add(newTrade("TEA", now.minusHours(2).plusNanos(i * 1000L)));
+		}
+		for (int i = 0; i < 100; i++) {
+			tradeDao.add(newTrade("TEA", now.minusMinutes(1)));
+		}
+		assertThat("Number of evicted trades must be 2000", retention.evictExpiredTrades(), is(2000L));
+		assertThat("Number of trades of TEA must be 100", tradeDao.findByStockSymbol("TEA").size(), is(100));
+		
+		RetentionStatistics statistics = retention.getStatistics();
+		assertThat("Number of retained trades must be 100", statistics.getRetainedTrades(), equalTo(100L));
+		assertThat("Number of evicted trades must be 2000", statistics.getEvictedTrades(), equalTo(2000L));
+		assertThat("Number of sweeps must be 1", statistics.getSweeps(), equalTo(1L));
+		assertThat("Memory of retained trades must be estimated", statistics.getEstimatedBytes() > 0, is(true));
+	}
+	
+	@Test
+	public void testEvictOnTrade_MaxTrades() {
+		TradeRetention retention = newRetention(new RetentionPolicy(0, 100));
+		LocalDateTime start = LocalDateTime.now().minusHours(1);
+		for (int i = 0; i < 3000; i++) {
+			Trade trade = newTrade("ALE", start.plusNanos(i * 1000L));
+			tradeDao.add(trade);
+			retention.onTrade(trade);
+		}
+		assertThat("Number of trades of ALE must be 100", tradeDao.findByStockSymbol("ALE").size(), is(100));
+		assertThat("The newest trades must be kept", tradeDao.findByStockSymbol("ALE").get(99).getRecordCreationTimeStamp(), 
+				equalTo(start.plusNanos(2999 * 1000L)));
+		
+		// trades in the query window are kept beyond the maximum number of trades
+		for (int i = 0; i < 200; i++) {
+			Trade trade = newTrade("ALE", LocalDateTime.now());
+			tradeDao.add(trade);
+			retention.onTrade(trade);
+		}
+		assertThat("Number of trades of ALE must be 200", tradeDao.findByStockSymbol("ALE").size(), is(200));
+	}
+	
+	@Test
+	public void testEvictExpiredTrades_StockRetentionPolicy() {
+		ScheduledTradeRetention retention = newRetention(new RetentionPolicy());
+		retention.setStockRetentionPolicies(Collections.singletonMap("POP", new RetentionPolicy(0, 10)));
+		LocalDateTime start = LocalDateTime.now().minusHours(1);
+		for (int i = 0; i < 50; i++) {
+			tradeDao.add(newTrade("POP", start.plusSeconds(i)));
+			tradeDao.add(newTrade("GIN", start.plusSeconds(i)));
+		}
+		assertThat("Number of evicted trades must be 40", retention.evictExpiredTrades(), is(40L));
+		assertThat("Number of trades of POP must be 10", tradeDao.findByStockSymbol("POP").size(), is(10));
+		assertThat("Number of trades of GIN must be 50", tradeDao.findByStockSymbol("GIN").size(), is(50));
+	}
+	
+	@Test
+	public void testEvictExpiredTrades_OffHeapTradesKept() {
+		OffHeapTradeDaoImpl offHeapTradeDao = new OffHeapTradeDaoImpl(stockDao, 2);
+		ScheduledTradeRetention retention = newRetention(new RetentionPolicy());
+		retention.setTradeDao(offHeapTradeDao);
+		retention.start();
+		offHeapTradeDao.add(newTrade("TEA", LocalDateTime.now().minusHours(1)));
+		assertThat("Retention must be disabled for trades which cannot be evicted", retention.isEnabled(), is(false));
+		assertThat("No trade must be evicted", retention.evictExpiredTrades(), is(0L));
+		assertThat("Trade of TEA must be kept", offHeapTradeDao.findByStockSymbol("TEA").size(), is(1));
+	}
+	
+	@Test(expected = IllegalStateException.class)
+	public void testStart_LimitsOnOffHeapTrades() {
+		ScheduledTradeRetention retention = newRetention(new RetentionPolicy(30, 0));
+		retention.setTradeDao(new OffHeapTradeDaoImpl(stockDao, 2));
+		retention.start();
+	}
+	
+	private ScheduledTradeRetention newRetention(RetentionPolicy policy) {
+		ScheduledTradeRetention retention = new ScheduledTradeRetention();
+		retention.setTradeDao(tradeDao);
+		retention.setRetentionPolicy(policy);
+		retention.setQueryWindowMinutes(5);
+		return retention;
+	}
+	
+	private Trade newTrade(String stockSymbol, LocalDateTime timeStamp) {
+		Trade trade = new Trade(stockSymbol, 1, BUY, BigDecimal.ONE);
+		trade.setRecordCreationTimeStamp(timeStamp);
+		return trade;
+	}
+	
+}
@@ -0,0 +1,276 @@
+package com.jpmorgan.stock.market.server;
+
+import static com.jpmorgan.stock.market.domain.enums.TradeIndicator.BUY;
+import static com.jpmorgan.stock.market.domain.enums.TradeIndicator.SELL;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.jpmorgan.stock.market.codec.TradeDecoder;
+import com.jpmorgan.stock.market.codec.TradeEncoder;
+import com.jpmorgan.stock.market.dao.TradeDao;
+import com.jpmorgan.stock.market.domain.Trade;
+import com.jpmorgan.stock.market.engine.AllShareIndexEngine;
+import com.jpmorgan.stock.market.engine.VwapEngine;
+import com.jpmorgan.stock.market.exceptions.BusinessException;
+import com.jpmorgan.stock.market.service.SimpleStockMarketService;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"classpath:application-context.xml"})
+@TestPropertySource(properties = {"query.server.enabled=true", "query.server.port=0", 
+		"query.server.buffer.size=4096"})
+public class QueryServerTest {
+	
+	@Autowired
+	private QueryServer queryServer;
+	
+	@Autowired
+	private SimpleStockMarketService stockMarketService;
+	
+	@Autowired
+	private TradeDao tradeDao;
+	
+	@Autowired
+	private VwapEngine vwapEngine;
+	
+	@Autowired
+	private AllShareIndexEngine allShareIndexEngine;
+	
+	@Before
+	public void setUp() {
+		tradeDao.clear();
+		vwapEngine.clear();
+		allShareIndexEngine.clear();
+	}
+	
+	@Test
+	public void testBinary_PipelinedRequests() throws IOException, BusinessException {
+		ByteBuffer requests = ByteBuffer.allocate(1024);
+		ByteBuffer trades = ByteBuffer.allocate(2 * TradeDecoder.MESSAGE_SIZE);
+		TradeEncoder encoder = new TradeEncoder();
+		encoder.wrap(trades, 0).encode(new Trade("POP", 10, BUY, new BigDecimal("2.00")));
+		encoder.wrap(trades, TradeDecoder.MESSAGE_SIZE).encode(new Trade("TEA", 5, SELL, new BigDecimal("3.00")));
+		int start = begin(requests, QueryProtocol.RECORD_TRADES, 1);
+		requests.putInt(2).put(trades);
+		end(requests, start);
+		start = begin(requests, QueryProtocol.VOLUME_WEIGHTED_STOCK_PRICE, 2);
+		putString(requests, "POP");
+		end(requests, start);
+		end(requests, begin(requests, QueryProtocol.ALL_SHARE_INDEX, 3));
+		start = begin(requests, QueryProtocol.DIVIDEND_YIELD, 4);
+		putString(requests, "POP");
+		requests.putLong(200).put((byte) 2);
+		end(requests, start);
+		start = begin(requests, QueryProtocol.PRICE_EARNINGS_RATIO, 5);
+		putString(requests, "POP");
+		requests.putLong(200).put((byte) 2);
+		end(requests, start);
+		start = begin(requests, QueryProtocol.DIVIDEND_YIELD, 6);
+		putString(requests, "XYZ");
+		requests.putLong(200).put((byte) 2);
+		end(requests, start);
+		
+		try (Socket socket = connect()) {
+			// all requests in a single write, the responses come back in their order
+			socket.getOutputStream().write(requests.array(), 0, requests.position());
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			assertThat(readResponse(in, 1), equalTo(QueryProtocol.OK));
+			assertThat("No trade must be rejected", in.readInt(), equalTo(0));
+			assertThat(readResponse(in, 2), equalTo(QueryProtocol.OK));
+			assertThat(readDecimal(in), equalTo(new BigDecimal("2.00")));
+			assertThat(readResponse(in, 3), equalTo(QueryProtocol.OK));
+			assertThat(readDecimal(in), equalTo(stockMarketService.calculateGBCEAllShareIndex()));
+			assertThat(readResponse(in, 4), equalTo(QueryProtocol.OK));
+			assertThat(readDecimal(in), 
+					equalTo(stockMarketService.calculateDividendYield("POP", new BigDecimal("2.00"))));
+			assertThat(readResponse(in, 5), equalTo(QueryProtocol.OK));
+			assertThat(readDecimal(in), 
+					equalTo(stockMarketService.calculatePriceEarningsRatio("POP", new BigDecimal("2.00"))));
+			assertThat(readResponse(in, 6), equalTo(QueryProtocol.ERROR));
+			assertThat(in.readUTF(), equalTo("Stock with symbol [XYZ] is not present in the market."));
+		}
+	}
+	
+	@Test
+	public void testBinary_BurstLargerThanTheBuffers() throws Exception {
+		final int queries = 20000;
+		stockMarketService.recordTrade(new Trade("GIN", 10, BUY, new BigDecimal("4.00")));
+		try (Socket socket = connect()) {
+			final OutputStream out = socket.getOutputStream();
+			final AtomicReference<IOException> failure = new AtomicReference<IOException>();
+			// the server stops reading while its output is full, so the requests are written on their own thread
+			Thread writer = new Thread(() -> {
+				ByteBuffer requests = ByteBuffer.allocate(queries * 13);
+				for (int i = 0; i < queries; i++) {
+					end(requests, begin(requests, QueryProtocol.ALL_SHARE_INDEX, i));
+				}
+				try {
+					out.write(requests.array(), 0, requests.position());
+				} catch (IOException ioe) {
+					failure.set(ioe);
+				}
+			}, "query-writer");
+			writer.start();
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			for (int i = 0; i < queries; i++) {
+				assertThat(readResponse(in, i), equalTo(QueryProtocol.OK));
+				assertThat(readDecimal(in), equalTo(new BigDecimal("4.00")));
+			}
+			writer.join();
+			assertThat(failure.get() == null, equalTo(true));
+		}
+	}
+	
+	@Test
+	public void testBinary_OversizedRequestClosesConnection() throws IOException {
+		try (Socket socket = connect()) {
+			ByteBuffer request = ByteBuffer.allocate(8);
+			request.putInt(1 << 20).putInt(0);
+			socket.getOutputStream().write(request.array());
+			assertThat(isClosed(socket.getInputStream()), equalTo(true));
+		}
+	}
+	
+	@Test
+	public void testHttp_PipelinedRequests() throws IOException {
+		try (Socket socket = connect()) {
+			String requests = "POST /trades?symbol=POP&quantity=10&indicator=BUY&price=2.00 HTTP/1.1\r\n"
+					+ "Host: localhost\r\nContent-Length: 0\r\n\r\n"
+					+ "GET /vwap?symbol=POP HTTP/1.1\r\nHost: localhost\r\n\r\n"
+					+ "GET /dividend-yield?symbol=XYZ&price=2.00 HTTP/1.1\r\nHost: localhost\r\n\r\n"
+					+ "GET /quotes HTTP/1.1\r\nHost: localhost\r\n\r\n"
+					+ "GET /all-share-index HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n";
+			socket.getOutputStream().write(requests.getBytes(StandardCharsets.US_ASCII));
+			InputStream in = new BufferedInputStream(socket.getInputStream());
+			assertThat(readHttpResponse(in), equalTo("200 {\"recorded\":true}"));
+			assertThat(readHttpResponse(in), equalTo("200 {\"volumeWeightedStockPrice\":2.00}"));
+			assertThat(readHttpResponse(in), 
+					equalTo("400 {\"error\":\"Stock with symbol [XYZ] is not present in the market.\"}"));
+			assertThat(readHttpResponse(in), startsWith("404 "));
+			assertThat(readHttpResponse(in), equalTo("200 {\"allShareIndex\":2.00}"));
+			assertThat("Connection must be closed as asked", isClosed(in), equalTo(true));
+		}
+	}
+	
+	@Test
+	public void testHttp_HugeNumbersRejected() throws IOException {
+		try (Socket socket = connect()) {
+			String requests = "GET /dividend-yield?symbol=POP&price=1E-999999999 HTTP/1.1\r\nHost: localhost\r\n\r\n"
+					+ "GET /price-earnings-ratio?symbol=POP&price=99999999999999999999 HTTP/1.1\r\nHost: localhost\r\n\r\n"
+					+ "GET /dividend-yield?symbol=POP&price=2.00 HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n";
+			socket.getOutputStream().write(requests.getBytes(StandardCharsets.US_ASCII));
+			InputStream in = new BufferedInputStream(socket.getInputStream());
+			String rejection = "400 {\"error\":\"Parameter [price] does not fit into a long with a scale of a byte.\"}";
+			assertThat(readHttpResponse(in), equalTo(rejection));
+			assertThat(readHttpResponse(in), equalTo(rejection));
+			assertThat(readHttpResponse(in), startsWith("200 "));
+		}
+	}
+	
+	@Test
+	public void testHttp_ChunkedBodyRejected() throws IOException {
+		try (Socket socket = connect()) {
+			String requests = "POST /trades?symbol=POP&quantity=10&indicator=BUY&price=2.00 HTTP/1.1\r\n"
+					+ "Host: localhost\r\nTransfer-Encoding: chunked\r\n\r\n"
+					+ "1a\r\nGET /vwap?symbol=POP HTTP/1.1\r\n0\r\n\r\n";
+			socket.getOutputStream().write(requests.getBytes(StandardCharsets.US_ASCII));
+			InputStream in = new BufferedInputStream(socket.getInputStream());
+			assertThat(readHttpResponse(in), equalTo("501 {\"error\":\"Transfer-Encoding is not supported.\"}"));
+			assertThat("Connection must be closed after a body of unknown length", isClosed(in), equalTo(true));
+		}
+		assertThat("Trade of a rejected request must not be recorded", 
+				vwapEngine.getVolumeWeightedStockPrice("POP"), equalTo(BigDecimal.ZERO));
+	}
+	
+	private Socket connect() throws IOException {
+		Socket socket = new Socket("127.0.0.1", queryServer.getPort());
+		socket.setSoTimeout(10000);
+		return socket;
+	}
+	
+	private static int begin(ByteBuffer requests, byte type, int requestId) {
+		int start = requests.position();
+		requests.putInt(0).put(type).putInt(requestId);
+		return start;
+	}
+	
+	private static void end(ByteBuffer requests, int start) {
+		requests.putInt(start, requests.position() - start - 4);
+	}
+	
+	private static void putString(ByteBuffer requests, String string) {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		requests.putShort((short) bytes.length).put(bytes);
+	}
+	
+	private static byte readResponse(DataInputStream in, int requestId) throws IOException {
+		in.readInt();
+		assertThat("Responses must come in the order of the requests", in.readInt(), equalTo(requestId));
+		return in.readByte();
+	}
+	
+	private static BigDecimal readDecimal(DataInputStream in) throws IOException {
+		long unscaledValue = in.readLong();
+		return BigDecimal.valueOf(unscaledValue, in.readByte());
+	}
+	
+	/**
+	 * Read an HTTP response as its status code and body.
+	 */
+	private static String readHttpResponse(InputStream in) throws IOException {
+		String statusLine = readLine(in);
+		int contentLength = 0;
+		for (String header = readLine(in); !header.isEmpty(); header = readLine(in)) {
+			if (header.toLowerCase().startsWith("content-length:")) {
+				contentLength = Integer.parseInt(header.substring(15).trim());
+			}
+		}
+		byte[] body = new byte[contentLength];
+		new DataInputStream(in).readFully(body);
+		return statusLine.split(" ")[1] + " " + new String(body, StandardCharsets.UTF_8);
+	}
+	
+	private static String readLine(InputStream in) throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		int b;
+		while ((b = in.read()) != '\n') {
+			if (b < 0) {
+				throw new IOException("Connection closed in a line");
+			}
+			if (b != '\r') {
+				line.write(b);
+			}
+		}
+		return new String(line.toByteArray(), StandardCharsets.ISO_8859_1);
+	}
+	
+	private static boolean isClosed(InputStream in) {
+		try {
+			return in.read() < 0;
+		} catch (IOException ioe) {
+			// reset by the server
+			return true;
+		}
+	}
+
+}
@@ -0,0 +1,159 @@
+package com.jpmorgan.stock.market.service;
+
+import static com.jpmorgan.stock.market.domain.enums.StockType.COMMON;
+import static com.jpmorgan.stock.market.domain.enums.TradeIndicator.BUY;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.jpmorgan.stock.market.dao.StockDao;
+import com.jpmorgan.stock.market.dao.TradeDao;
+import com.jpmorgan.stock.market.domain.Stock;
+import com.jpmorgan.stock.market.domain.Trade;
+import com.jpmorgan.stock.market.engine.AllShareIndexEngine;
+import com.jpmorgan.stock.market.engine.VwapEngine;
+import com.jpmorgan.stock.market.exceptions.BusinessException;
+import com.jpmorgan.stock.market.service.impl.SimpleStockMarketServiceImpl;
+
+/**
+ * Correctness of trades recorded by concurrent writers while a reader
+ * queries the trades. How ingestion throughput scales with writer threads 
+ * is measured by ServiceBenchmark.recordTrade in the benchmarks module.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"classpath:application-context.xml"})
+@DirtiesContext
+public class ConcurrentTradeIngestionTest {
+	
+	private static final int STOCKS = 64;
+	
+	private static final int TRADES_PER_THREAD = STOCKS * 1000;
+	
+	@Autowired
+	private SimpleStockMarketService stockMarketService;
+	
+	@Autowired
+	private StockDao stockDao;
+	
+	@Autowired
+	private TradeDao tradeDao;
+	
+	@Autowired
+	private VwapEngine vwapEngine;
+	
+	@Autowired
+	private AllShareIndexEngine allShareIndexEngine;
+	
+	private Level serviceLogLevel;
+	
+	@Before
+	public void setUp() {
+		for (int i = 0; i < STOCKS; i++) {
+			stockDao.add(new Stock("C" + i, COMMON, BigDecimal.ONE, null, BigDecimal.ONE));
+		}
+		// logging every trade would slow the writers down to the log appender
+		Logger serviceLog = Logger.getLogger(SimpleStockMarketServiceImpl.class);
+		serviceLogLevel = serviceLog.getLevel();
+		serviceLog.setLevel(Level.WARN);
+	}
+	
+	@After
+	public void tearDown() {
+		Logger.getLogger(SimpleStockMarketServiceImpl.class).setLevel(serviceLogLevel);
+	}
+	
+	@Test
+	public void testRecordTrade_ConcurrentWritersAndReaders() throws Exception {
+		int maxThreads = Math.max(4, Runtime.getRuntime().availableProcessors());
+		for (int threads = 1; threads <= maxThreads; threads *= 2) {
+			tradeDao.clear();
+			vwapEngine.clear();
+			allShareIndexEngine.clear();
+			recordConcurrently(threads);
+			int trades = threads * TRADES_PER_THREAD;
+			
+			assertThat("Number of trades is incorrect", tradeDao.getAll().size(), equalTo(trades));
+			int stockTrades = 0;
+			for (int i = 0; i < STOCKS; i++) {
+				stockTrades += tradeDao.findByStockSymbol("C" + i).size();
+				// every stock is traded at 1.00 and 3.00 in equal quantities
+				assertThat("Stock price is incorrect", 
+						stockMarketService.calculateVolumeWeightedStockPriceInPast5Minutes("C" + i), 
+						equalTo(new BigDecimal("2.00")));
+			}
+			assertThat("Number of trades by stock is incorrect", stockTrades, equalTo(trades));
+			assertThat("AllShareIndex is incorrect", stockMarketService.calculateGBCEAllShareIndex(), 
+					equalTo(new BigDecimal("2.00")));
+		}
+	}
+	
+	private void recordConcurrently(int threads) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+		try {
+			AtomicBoolean writing = new AtomicBoolean(true);
+			// a reader checks that views stay consistent while trades are added
+			Future<?> reader = executor.submit(() -> {
+				while (writing.get()) {
+					for (int i = 0; i < STOCKS; i++) {
+						List<Trade> trades = tradeDao.findByStockSymbol("C" + i);
+						for (int j = 1; j < trades.size(); j++) {
+							if (trades.get(j).getRecordCreationTimeStamp().isBefore(trades.get(j - 1).getRecordCreationTimeStamp())) {
+								throw new AssertionError("Trades are not ordered by time stamp");
+							}
+						}
+					}
+					tradeDao.getAll();
+				}
+				return null;
+			});
+			List<Callable<Void>> writers = new ArrayList<Callable<Void>>();
+			for (int t = 0; t < threads; t++) {
+				int writer = t;
+				writers.add(() -> {
+					int[] stockTrades = new int[STOCKS];
+					for (int i = 0; i < TRADES_PER_THREAD; i++) {
+						int stock = (writer + i * threads) % STOCKS;
+						BigDecimal price = stockTrades[stock]++ % 2 == 0 ? BigDecimal.ONE : new BigDecimal("3.00");
+						recordTrade(new Trade("C" + stock, 10, BUY, price));
+					}
+					return null;
+				});
+			}
+			for (Future<Void> future : executor.invokeAll(writers)) {
+				future.get();
+			}
+			writing.set(false);
+			reader.get();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	private void recordTrade(Trade trade) {
+		try {
+			stockMarketService.recordTrade(trade);
+		} catch (BusinessException be) {
+			throw new AssertionError(be);
+		}
+	}
+
+}
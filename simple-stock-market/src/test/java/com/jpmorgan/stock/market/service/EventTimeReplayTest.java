@@ -0,0 +1,135 @@
+package com.jpmorgan.stock.market.service;
+
+import static com.jpmorgan.stock.market.domain.enums.TradeIndicator.BUY;
+import static com.jpmorgan.stock.market.domain.enums.TradeIndicator.SELL;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.jpmorgan.stock.market.clock.MarketClock;
+import com.jpmorgan.stock.market.dao.TradeDao;
+import com.jpmorgan.stock.market.domain.Trade;
+import com.jpmorgan.stock.market.engine.AllShareIndexEngine;
+import com.jpmorgan.stock.market.engine.VwapEngine;
+import com.jpmorgan.stock.market.exceptions.BusinessException;
+import com.jpmorgan.stock.market.service.impl.SimpleStockMarketServiceImpl;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"classpath:application-context.xml"})
+@TestPropertySource(properties = {"market.clock.source=EVENT_TIME"})
+@DirtiesContext
+public class EventTimeReplayTest {
+	
+	// 2016-10-03T08:00:00Z, a trade every second for a trading day of 8 hours
+	private static final long DAY_START_NANOS = TimeUnit.SECONDS.toNanos(1475481600L);
+	
+	private static final int TRADES = 8 * 3600;
+	
+	private static final int BATCH_SIZE = 1000;
+	
+	@Autowired
+	private SimpleStockMarketService stockMarketService;
+	
+	@Autowired
+	private MarketClock marketClock;
+	
+	@Autowired
+	private TradeDao tradeDao;
+	
+	@Autowired
+	private VwapEngine vwapEngine;
+	
+	@Autowired
+	private AllShareIndexEngine allShareIndexEngine;
+	
+	private Level serviceLogLevel;
+	
+	@Before
+	public void setUp() {
+		tradeDao.clear();
+		vwapEngine.clear();
+		allShareIndexEngine.clear();
+		marketClock.reset();
+		Logger serviceLog = Logger.getLogger(SimpleStockMarketServiceImpl.class);
+		serviceLogLevel = serviceLog.getLevel();
+		serviceLog.setLevel(Level.WARN);
+	}
+	
+	@After
+	public void tearDown() {
+		Logger.getLogger(SimpleStockMarketServiceImpl.class).setLevel(serviceLogLevel);
+	}
+	
+	@Test
+	public void testExchangeTimeStamp_LocalCreationTimeStamp() {
+		long exchangeTimeStamp = DAY_START_NANOS + 123456789L;
+		Trade trade = new Trade("TEA", 10, BUY, BigDecimal.ONE, exchangeTimeStamp);
+		assertThat(trade.hasExchangeTimeStamp(), equalTo(true));
+		assertThat(trade.getExchangeTimeStamp(), equalTo(exchangeTimeStamp));
+		assertThat("Creation time stamp must be the exchange time in the default time zone", 
+				trade.getRecordCreationTimeStamp(), equalTo(LocalDateTime.ofInstant(
+						Instant.ofEpochSecond(0, exchangeTimeStamp), ZoneId.systemDefault())));
+		assertThat(new Trade("TEA", 10, BUY, BigDecimal.ONE).hasExchangeTimeStamp(), equalTo(false));
+	}
+	
+	@Test
+	public void testReplayDay_WindowAdvancesOnEventTime() throws BusinessException {
+		List<Trade> batch = new ArrayList<Trade>(BATCH_SIZE);
+		for (int i = 0; i < TRADES; i++) {
+			batch.add(newTrade(i));
+			if (batch.size() == BATCH_SIZE) {
+				assertThat(stockMarketService.recordTrades(batch).isEmpty(), equalTo(true));
+				batch.clear();
+			}
+		}
+		stockMarketService.recordTrades(batch);
+		assertThat("Clock must be at the last replayed trade", marketClock.now(), 
+				equalTo(newTrade(TRADES - 1).getRecordCreationTimeStamp()));
+		
+		// trades of the last 5 minutes of the replayed day, the trade exactly 5 minutes ago has left the window
+		BigDecimal totalTradedPrice = BigDecimal.ZERO;
+		long totalQuantity = 0;
+		for (int i = TRADES - 299; i < TRADES; i++) {
+			Trade trade = newTrade(i);
+			totalTradedPrice = totalTradedPrice.add(trade.getPrice().multiply(BigDecimal.valueOf(trade.getQuantity())));
+			totalQuantity += trade.getQuantity();
+		}
+		assertThat("Volume Weighted Stock Price must cover the last 5 minutes of event time", 
+				stockMarketService.calculateVolumeWeightedStockPriceInPast5Minutes("ALE"), 
+				equalTo(totalTradedPrice.divide(BigDecimal.valueOf(totalQuantity), 2, RoundingMode.HALF_UP)));
+		
+		marketClock.reset();
+		tradeDao.clear();
+		vwapEngine.clear();
+		stockMarketService.recordTrade(newTrade(0));
+		assertThat("Next day must start from its own first trade", 
+				stockMarketService.calculateVolumeWeightedStockPriceInPast5Minutes("ALE"), 
+				equalTo(newTrade(0).getPrice().setScale(2)));
+	}
+	
+	private static Trade newTrade(int second) {
+		return new Trade("ALE", 1 + second % 7, second % 2 == 0 ? BUY : SELL, 
+				BigDecimal.valueOf(100 + second % 50, 2), DAY_START_NANOS + TimeUnit.SECONDS.toNanos(second));
+	}
+
+}
@@ -0,0 +1,32 @@
+package com.jpmorgan.stock.market.service;
+
+import static com.jpmorgan.stock.market.domain.enums.TradeIndicator.BUY;
+import static org.hamcrest.Matchers.startsWith;
+
+import java.math.BigDecimal;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import com.jpmorgan.stock.market.domain.Trade;
+import com.jpmorgan.stock.market.exceptions.BusinessException;
+
+/**
+ * Runs all service tests with fixed point arithmetic enabled.
+ */
+@TestPropertySource(properties = {"fixed.point.arithmetic=true"})
+public class FixedPointSimpleStockMarketServiceTest extends SimpleStockMarketServiceTest {
+	
+	@Autowired
+	private SimpleStockMarketService stockMarketService;
+	
+	@Test
+	public void testRecordTrade_PriceScaleTooLarge_Negative() throws BusinessException {
+		thrown.expect(BusinessException.class);
+		thrown.expectMessage(startsWith("Price of a share in a trade must have at most 4 digits after point"));
+		Trade trade = new Trade("POP", 20, BUY, new BigDecimal("2.123456"));
+		stockMarketService.recordTrade(trade);
+	}
+
+}
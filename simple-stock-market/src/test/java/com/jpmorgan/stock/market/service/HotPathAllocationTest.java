@@ -0,0 +1,146 @@
+package com.jpmorgan.stock.market.service;
+
+import static com.jpmorgan.stock.market.domain.enums.TradeIndicator.BUY;
+import static com.jpmorgan.stock.market.domain.enums.TradeIndicator.SELL;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.jpmorgan.stock.market.codec.TradeDecoder;
+import com.jpmorgan.stock.market.codec.TradeEncoder;
+import com.jpmorgan.stock.market.dao.TradeDao;
+import com.jpmorgan.stock.market.domain.Trade;
+import com.jpmorgan.stock.market.engine.AllShareIndexEngine;
+import com.jpmorgan.stock.market.engine.VwapEngine;
+import com.jpmorgan.stock.market.exceptions.BusinessException;
+
+/**
+ * Measures the heap allocated by the hot paths in production mode: fixed
+ * point arithmetic enabled and the off heap trade storage, with the 
+ * shipped logging, which logs service calls at DEBUG only.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"classpath:application-context.xml"})
+@TestPropertySource(properties = {"fixed.point.arithmetic=true", "trade.storage=OFF_HEAP"})
+public class HotPathAllocationTest {
+	
+	private static final int WARM_UP_CALLS = 25000;
+	
+	private static final int MEASURED_CALLS = 5000;
+	
+	private static final int MESSAGES_PER_BATCH = 100;
+	
+	private final com.sun.management.ThreadMXBean threads = 
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+	
+	@Autowired
+	private SimpleStockMarketService stockMarketService;
+	
+	@Autowired
+	private TradeDao tradeDao;
+	
+	@Autowired
+	private VwapEngine vwapEngine;
+	
+	@Autowired
+	private AllShareIndexEngine allShareIndexEngine;
+	
+	@Before
+	public void setUp() {
+		tradeDao.clear();
+		vwapEngine.clear();
+		allShareIndexEngine.clear();
+	}
+	
+	@Test
+	public void testRecordTrade_NoGarbage() throws BusinessException {
+		Trade[] trades = newTrades("ALE", WARM_UP_CALLS + MEASURED_CALLS);
+		for (int i = 0; i < WARM_UP_CALLS; i++) {
+			stockMarketService.recordTrade(trades[i]);
+		}
+		long allocatedBefore = allocatedBytes();
+		for (int i = WARM_UP_CALLS; i < trades.length; i++) {
+			stockMarketService.recordTrade(trades[i]);
+		}
+		// the trade store grows the row numbers of the stock by doubling, about 8 bytes per trade
+		double bytesPerTrade = (double) (allocatedBytes() - allocatedBefore) / MEASURED_CALLS;
+		assertThat("Recording a trade must only allocate the trade store", bytesPerTrade, lessThan(16.0));
+	}
+	
+	@Test
+	public void testRecordTradeMessages_InPlace() throws BusinessException {
+		ByteBuffer messages = newMessages("ALE", WARM_UP_CALLS + MEASURED_CALLS);
+		recordBatches(messages, 0, WARM_UP_CALLS);
+		long allocatedBefore = allocatedBytes();
+		recordBatches(messages, WARM_UP_CALLS, WARM_UP_CALLS + MEASURED_CALLS);
+		// no trade objects, only the row numbers of the stock and a decoder per batch
+		double bytesPerTrade = (double) (allocatedBytes() - allocatedBefore) / MEASURED_CALLS;
+		assertThat("Trade messages must be recorded in place with the off heap trade storage", bytesPerTrade, 
+				lessThan(16.0));
+	}
+	
+	@Test
+	public void testReads_AllocationFree() throws BusinessException {
+		for (Trade trade : newTrades("GIN", 1000)) {
+			stockMarketService.recordTrade(trade);
+		}
+		Duration pastTime = Duration.ofMinutes(15);
+		readAll(pastTime, WARM_UP_CALLS);
+		long allocatedBefore = allocatedBytes();
+		readAll(pastTime, MEASURED_CALLS);
+		assertThat("Reading prices and the index must not allocate", allocatedBytes() - allocatedBefore, 
+				lessThan(1024L));
+	}
+	
+	private void readAll(Duration pastTime, int calls) throws BusinessException {
+		for (int i = 0; i < calls; i++) {
+			stockMarketService.calculateVolumeWeightedStockPriceInPast5Minutes("GIN");
+			stockMarketService.calculateVolumeWeightedStockPrice("GIN", pastTime);
+			stockMarketService.calculateGBCEAllShareIndex();
+		}
+	}
+	
+	private void recordBatches(ByteBuffer messages, int from, int to) throws BusinessException {
+		for (int i = from; i < to; i += MESSAGES_PER_BATCH) {
+			messages.limit((i + MESSAGES_PER_BATCH) * TradeDecoder.MESSAGE_SIZE).position(i * TradeDecoder.MESSAGE_SIZE);
+			stockMarketService.recordTradeMessages(messages);
+		}
+	}
+	
+	private long allocatedBytes() {
+		return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+	
+	private static ByteBuffer newMessages(String stockSymbol, int count) {
+		ByteBuffer messages = ByteBuffer.allocateDirect(count * TradeDecoder.MESSAGE_SIZE);
+		TradeEncoder encoder = new TradeEncoder();
+		long start = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+		for (int i = 0; i < count; i++) {
+			encoder.wrap(messages, i * TradeDecoder.MESSAGE_SIZE).encode(stockSymbol, start + i, i % 2 == 0 ? BUY : SELL, 
+					1 + i % 100, 100 + i % 50, 2);
+		}
+		return messages;
+	}
+	
+	private static Trade[] newTrades(String stockSymbol, int count) {
+		Trade[] trades = new Trade[count];
+		for (int i = 0; i < count; i++) {
+			trades[i] = new Trade(stockSymbol, 1 + i % 100, i % 2 == 0 ? BUY : SELL, BigDecimal.valueOf(100 + i % 50, 2));
+		}
+		return trades;
+	}
+
+}
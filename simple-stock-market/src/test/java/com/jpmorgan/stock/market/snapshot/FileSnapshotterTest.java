@@ -0,0 +1,207 @@
+package com.jpmorgan.stock.market.snapshot;
+
+import static com.jpmorgan.stock.market.domain.enums.TradeIndicator.BUY;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.jpmorgan.stock.market.dao.StockDao;
+import com.jpmorgan.stock.market.domain.Trade;
+import com.jpmorgan.stock.market.engine.AllShareIndexEngine;
+import com.jpmorgan.stock.market.engine.VwapEngine;
+import com.jpmorgan.stock.market.engine.impl.IncrementalAllShareIndexEngine;
+import com.jpmorgan.stock.market.engine.impl.SlidingWindowVwapEngine;
+import com.jpmorgan.stock.market.journal.FlushPolicy;
+import com.jpmorgan.stock.market.journal.impl.MappedTradeJournal;
+import com.jpmorgan.stock.market.snapshot.impl.FileSnapshotter;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"classpath:dao-test-context.xml"})
+public class FileSnapshotterTest {
+	
+	private static final String[] SYMBOLS = {"TEA", "POP", "ALE", "GIN", "JOE"};
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	@Autowired
+	private StockDao stockDao;
+	
+	private MappedTradeJournal journal;
+	
+	@After
+	public void tearDown() {
+		journal.close();
+	}
+	
+	@Test
+	public void testRestoreSnapshotAndReplaySuffix() throws IOException {
+		journal = openJournal(1 << 20);
+		FileSnapshotter snapshotter = openSnapshotter(journal);
+		VwapEngine vwapEngine = newVwapEngine();
+		AllShareIndexEngine allShareIndexEngine = newAllShareIndexEngine();
+		for (int i = 0; i < 100; i++) {
+			record(i, vwapEngine, allShareIndexEngine);
+		}
+		snapshotter.snapshot();
+		for (int i = 100; i < 150; i++) {
+			record(i, vwapEngine, allShareIndexEngine);
+		}
+		// restart without a last snapshot, as after a crash
+		journal.close();
+		
+		journal = openJournal(1 << 20);
+		snapshotter = openSnapshotter(journal);
+		VwapEngine restoredVwapEngine = newVwapEngine();
+		AllShareIndexEngine restoredAllShareIndexEngine = newAllShareIndexEngine();
+		long position = snapshotter.restore(restoredVwapEngine, restoredAllShareIndexEngine);
+		long replayedTrades = journal.replay(position, Long.MAX_VALUE, trades -> {
+			restoredVwapEngine.onTrades(trades);
+			restoredAllShareIndexEngine.onTrades(trades);
+		});
+		assertThat("Only trades after the snapshot must be replayed", replayedTrades, is(50L));
+		for (String symbol : SYMBOLS) {
+			assertThat("Restored stock price of " + symbol + " must match", 
+					restoredVwapEngine.getVolumeWeightedStockPrice(symbol), 
+					equalTo(vwapEngine.getVolumeWeightedStockPrice(symbol)));
+		}
+		assertThat("Restored All Share Index must match", restoredAllShareIndexEngine.getAllShareIndex(), 
+				equalTo(allShareIndexEngine.getAllShareIndex()));
+	}
+	
+	@Test
+	public void testSnapshotsCompactJournal() throws IOException {
+		// ten records per segment
+		journal = openJournal(48 * 10);
+		FileSnapshotter snapshotter = openSnapshotter(journal);
+		VwapEngine vwapEngine = newVwapEngine();
+		AllShareIndexEngine allShareIndexEngine = newAllShareIndexEngine();
+		for (int i = 0; i < 100; i++) {
+			record(i, vwapEngine, allShareIndexEngine);
+			if (i % 25 == 24) {
+				snapshotter.snapshot();
+			}
+		}
+		File journalDirectory = new File(folder.getRoot(), "journal");
+		assertThat("Journal segments before the retained snapshots must be dropped", 
+				journalDirectory.listFiles().length, lessThan(10));
+		assertThat("Number of retained snapshots must be 2", new File(folder.getRoot(), "snapshots").listFiles().length, 
+				is(2));
+		
+		long position = snapshotter.restore(newVwapEngine(), newAllShareIndexEngine());
+		assertThat("Snapshot must cover all trades", position, equalTo(journal.getPosition()));
+	}
+	
+	@Test
+	public void testSnapshotAfterFailedReplay() throws IOException {
+		journal = openJournal(1 << 20);
+		AtomicBoolean failing = new AtomicBoolean();
+		SlidingWindowVwapEngine failingVwapEngine = new SlidingWindowVwapEngine() {
+			@Override
+			public void onTrades(Collection<Trade> trades) {
+				super.onTrades(trades);
+				if (failing.get()) {
+					throw new IllegalStateException("Failing engine");
+				}
+			}
+		};
+		failingVwapEngine.setDigitsAfterPoint(2);
+		FileSnapshotter snapshotter = openSnapshotter(journal, failingVwapEngine);
+		VwapEngine vwapEngine = newVwapEngine();
+		AllShareIndexEngine allShareIndexEngine = newAllShareIndexEngine();
+		for (int i = 0; i < 50; i++) {
+			record(i, vwapEngine, allShareIndexEngine);
+		}
+		snapshotter.snapshot();
+		for (int i = 50; i < 100; i++) {
+			record(i, vwapEngine, allShareIndexEngine);
+		}
+		failing.set(true);
+		try {
+			snapshotter.snapshot();
+			fail("A failing replay must fail the snapshot");
+		} catch (IllegalStateException ise) {
+			// the engines of the snapshotter went back to the first snapshot
+		}
+		failing.set(false);
+		snapshotter.snapshot();
+		
+		VwapEngine restoredVwapEngine = newVwapEngine();
+		AllShareIndexEngine restoredAllShareIndexEngine = newAllShareIndexEngine();
+		snapshotter.restore(restoredVwapEngine, restoredAllShareIndexEngine);
+		for (String symbol : SYMBOLS) {
+			assertThat("Trades of a failed replay must not be added twice to " + symbol, 
+					restoredVwapEngine.getVolumeWeightedStockPrice(symbol), 
+					equalTo(vwapEngine.getVolumeWeightedStockPrice(symbol)));
+		}
+		assertThat("Restored All Share Index must match", restoredAllShareIndexEngine.getAllShareIndex(), 
+				equalTo(allShareIndexEngine.getAllShareIndex()));
+	}
+	
+	private void record(int i, VwapEngine vwapEngine, AllShareIndexEngine allShareIndexEngine) {
+		Trade trade = new Trade(SYMBOLS[i % SYMBOLS.length], i + 1, BUY, BigDecimal.valueOf(100 + i % 7, 2));
+		trade.setRecordCreationTimeStamp(LocalDateTime.now().minusSeconds(150 - i));
+		journal.append(trade);
+		vwapEngine.onTrade(trade);
+		allShareIndexEngine.onTrade(trade);
+	}
+	
+	private MappedTradeJournal openJournal(long segmentBytes) throws IOException {
+		MappedTradeJournal journal = new MappedTradeJournal();
+		journal.setEnabled(true);
+		journal.setDirectory(new File(folder.getRoot(), "journal").getPath());
+		journal.setFlushPolicy(FlushPolicy.OS);
+		journal.setSegmentBytes(segmentBytes);
+		journal.open();
+		return journal;
+	}
+	
+	private FileSnapshotter openSnapshotter(MappedTradeJournal journal) throws IOException {
+		return openSnapshotter(journal, newVwapEngine());
+	}
+	
+	private FileSnapshotter openSnapshotter(MappedTradeJournal journal, VwapEngine vwapEngine) throws IOException {
+		FileSnapshotter snapshotter = new FileSnapshotter();
+		snapshotter.setEnabled(true);
+		snapshotter.setDirectory(new File(folder.getRoot(), "snapshots").getPath());
+		// snapshots are only taken by the test
+		snapshotter.setIntervalSeconds(0);
+		snapshotter.setStockDao(stockDao);
+		snapshotter.setTradeJournal(journal);
+		snapshotter.setVwapEngine(vwapEngine);
+		snapshotter.setAllShareIndexEngine(newAllShareIndexEngine());
+		snapshotter.open();
+		return snapshotter;
+	}
+	
+	private VwapEngine newVwapEngine() {
+		SlidingWindowVwapEngine vwapEngine = new SlidingWindowVwapEngine();
+		vwapEngine.setDigitsAfterPoint(2);
+		return vwapEngine;
+	}
+	
+	private AllShareIndexEngine newAllShareIndexEngine() {
+		IncrementalAllShareIndexEngine allShareIndexEngine = new IncrementalAllShareIndexEngine();
+		allShareIndexEngine.setDigitsAfterPoint(2);
+		return allShareIndexEngine;
+	}
+	
+}
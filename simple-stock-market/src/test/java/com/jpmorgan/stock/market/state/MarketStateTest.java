@@ -0,0 +1,137 @@
+package com.jpmorgan.stock.market.state;
+
+import static com.jpmorgan.stock.market.domain.enums.TradeIndicator.BUY;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.number.OrderingComparison.greaterThan;
+import static org.hamcrest.number.OrderingComparison.lessThanOrEqualTo;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.jpmorgan.stock.market.domain.Trade;
+import com.jpmorgan.stock.market.exceptions.BusinessException;
+import com.jpmorgan.stock.market.service.SimpleStockMarketService;
+import com.jpmorgan.stock.market.service.impl.SimpleStockMarketServiceImpl;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"classpath:application-context.xml"})
+@TestPropertySource(properties = {"market.states.max.age.millis=60000"})
+public class MarketStateTest {
+	
+	@Autowired
+	private SimpleStockMarketService stockMarketService;
+	
+	private Level serviceLogLevel;
+	
+	@Before
+	public void setUp() {
+		stockMarketService.clear();
+		Logger serviceLog = Logger.getLogger(SimpleStockMarketServiceImpl.class);
+		serviceLogLevel = serviceLog.getLevel();
+		serviceLog.setLevel(Level.WARN);
+	}
+	
+	@After
+	public void tearDown() {
+		Logger.getLogger(SimpleStockMarketServiceImpl.class).setLevel(serviceLogLevel);
+	}
+	
+	@Test
+	public void testAcquire_StateIsNotChangedByLaterTrades() throws BusinessException {
+		stockMarketService.recordTrade(new Trade("TEA", 10, BUY, new BigDecimal("4.00")));
+		MarketState first = stockMarketService.acquireMarketState();
+		assertThat(first.getVolumeWeightedStockPrice("TEA"), equalTo(new BigDecimal("4.00")));
+		assertThat(first.getAllShareIndex(), equalTo(new BigDecimal("4.00")));
+		assertThat("Unknown stock has no price", first.getVolumeWeightedStockPrice("XYZ"), nullValue());
+		
+		stockMarketService.recordTrade(new Trade("POP", 10, BUY, new BigDecimal("9.00")));
+		MarketState second = stockMarketService.acquireMarketState();
+		assertThat(second.getVersion(), greaterThan(first.getVersion()));
+		assertThat(second.getVolumeWeightedStockPrice("POP"), equalTo(new BigDecimal("9.00")));
+		assertThat(second.getAllShareIndex(), equalTo(new BigDecimal("6.00")));
+		
+		assertThat("Acquired state must not see later trades", first.getVolumeWeightedStockPrice("POP"), 
+				equalTo(BigDecimal.ZERO));
+		assertThat(first.getAllShareIndex(), equalTo(new BigDecimal("4.00")));
+	}
+	
+	@Test
+	public void testAcquire_UnchangedStateIsShared() throws BusinessException {
+		stockMarketService.recordTrade(new Trade("TEA", 10, BUY, new BigDecimal("4.00")));
+		MarketState state = stockMarketService.acquireMarketState();
+		assertThat("State of an unchanged market must be reused", stockMarketService.acquireMarketState(), 
+				sameInstance(state));
+		assertThat(state.getIndexNames().contains("PREFERRED"), equalTo(true));
+	}
+	
+	@Test
+	public void testAcquire_ClearIsAnUpdate() throws BusinessException {
+		stockMarketService.recordTrade(new Trade("GIN", 10, BUY, new BigDecimal("3.00")));
+		MarketState state = stockMarketService.acquireMarketState();
+		assertThat(state.getVolumeWeightedStockPrice("GIN"), equalTo(new BigDecimal("3.00")));
+		stockMarketService.clear();
+		MarketState cleared = stockMarketService.acquireMarketState();
+		assertThat(cleared.getVersion(), greaterThan(state.getVersion()));
+		assertThat("Cleared market must have no prices", cleared.getVolumeWeightedStockPrice("GIN"), 
+				equalTo(BigDecimal.ZERO));
+	}
+	
+	@Test
+	public void testAcquire_ConcurrentWriterNeverShowsHalfABatch() throws Exception {
+		final AtomicBoolean running = new AtomicBoolean(true);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		Thread writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					for (int i = 0; running.get(); i++) {
+						// alternate the price, so the prices move far between batches
+						BigDecimal price = i % 2 == 0 ? new BigDecimal("1.00") : new BigDecimal("100.00");
+						stockMarketService.recordTrades(Arrays.asList(new Trade("TEA", 10, BUY, price), 
+								new Trade("POP", 10, BUY, price)));
+					}
+				} catch (Throwable t) {
+					failure.set(t);
+				}
+			}
+		}, "market-state-writer");
+		writer.start();
+		try {
+			long end = System.currentTimeMillis() + 500;
+			long version = 0;
+			while (System.currentTimeMillis() < end) {
+				MarketState state = stockMarketService.acquireMarketState();
+				assertThat(state.getVersion(), greaterThan(version - 1));
+				version = state.getVersion();
+				BigDecimal tea = state.getVolumeWeightedStockPrice("TEA");
+				assertThat("Both stocks of a batch must be seen", state.getVolumeWeightedStockPrice("POP"), 
+						equalTo(tea));
+				if (tea.signum() > 0) {
+					assertThat("Index must be of the same trades", 
+							state.getAllShareIndex().subtract(tea).abs(), lessThanOrEqualTo(new BigDecimal("0.01")));
+				}
+			}
+		} finally {
+			running.set(false);
+			writer.join();
+		}
+		assertThat(failure.get(), nullValue());
+	}
+
+}
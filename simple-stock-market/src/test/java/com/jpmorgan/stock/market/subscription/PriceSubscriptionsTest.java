@@ -0,0 +1,154 @@
+package com.jpmorgan.stock.market.subscription;
+
+import static com.jpmorgan.stock.market.domain.enums.TradeIndicator.BUY;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.lessThan;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.jpmorgan.stock.market.dao.TradeDao;
+import com.jpmorgan.stock.market.domain.Trade;
+import com.jpmorgan.stock.market.engine.AllShareIndexEngine;
+import com.jpmorgan.stock.market.engine.VwapEngine;
+import com.jpmorgan.stock.market.exceptions.BusinessException;
+import com.jpmorgan.stock.market.service.SimpleStockMarketService;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"classpath:application-context.xml"})
+@TestPropertySource(properties = {"price.subscriptions.enabled=true"})
+@DirtiesContext
+public class PriceSubscriptionsTest {
+	
+	private static final long TIMEOUT_MILLIS = 10000;
+	
+	@Autowired
+	private PriceSubscriptions priceSubscriptions;
+	
+	@Autowired
+	private SimpleStockMarketService stockMarketService;
+	
+	@Autowired
+	private TradeDao tradeDao;
+	
+	@Autowired
+	private VwapEngine vwapEngine;
+	
+	@Autowired
+	private AllShareIndexEngine allShareIndexEngine;
+	
+	@Before
+	public void setUp() {
+		tradeDao.clear();
+		vwapEngine.clear();
+		allShareIndexEngine.clear();
+	}
+	
+	@Test
+	public void testSubscribeStockPrice_PushedOffRecordingThread() throws Exception {
+		BlockingQueue<BigDecimal> prices = new LinkedBlockingQueue<BigDecimal>();
+		List<String> threads = new CopyOnWriteArrayList<String>();
+		Subscription subscription = priceSubscriptions.subscribeStockPrice("POP", (stockSymbol, stockPrice) -> {
+			assertThat(stockSymbol, is("POP"));
+			threads.add(Thread.currentThread().getName());
+			prices.add(stockPrice);
+		});
+		try {
+			assertThat("Current price must be pushed on subscribing", prices.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS), 
+					equalTo(BigDecimal.ZERO));
+			stockMarketService.recordTrade(new Trade("POP", 10, BUY, new BigDecimal("2.00")));
+			stockMarketService.recordTrade(new Trade("POP", 30, BUY, new BigDecimal("4.00")));
+			awaitValue(prices, stockMarketService.calculateVolumeWeightedStockPriceInPast5Minutes("POP"));
+			assertThat("Listener must not be called on the recording thread", threads, 
+					not(hasItem(Thread.currentThread().getName())));
+		} finally {
+			subscription.cancel();
+		}
+		assertThat(subscription.isCancelled(), is(true));
+	}
+	
+	@Test
+	public void testSubscribeStockPrice_SlowListenerConflated() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		BlockingQueue<BigDecimal> prices = new LinkedBlockingQueue<BigDecimal>();
+		AtomicInteger deliveries = new AtomicInteger();
+		Subscription subscription = priceSubscriptions.subscribeStockPrice("ALE", (stockSymbol, stockPrice) -> {
+			deliveries.incrementAndGet();
+			try {
+				release.await();
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+			prices.add(stockPrice);
+		});
+		BlockingQueue<BigDecimal> fastPrices = new LinkedBlockingQueue<BigDecimal>();
+		Subscription fastSubscription = priceSubscriptions.subscribeStockPrice("ALE", 
+				(stockSymbol, stockPrice) -> fastPrices.add(stockPrice));
+		try {
+			int trades = 1000;
+			for (int i = 1; i <= trades; i++) {
+				stockMarketService.recordTrade(new Trade("ALE", i, BUY, BigDecimal.valueOf(i)));
+			}
+			BigDecimal lastPrice = stockMarketService.calculateVolumeWeightedStockPriceInPast5Minutes("ALE");
+			awaitValue(fastPrices, lastPrice);
+			release.countDown();
+			awaitValue(prices, lastPrice);
+			assertThat("Slow listener must only see the latest prices", deliveries.get(), lessThan(trades));
+		} finally {
+			release.countDown();
+			subscription.cancel();
+			fastSubscription.cancel();
+		}
+	}
+	
+	@Test
+	public void testSubscribeAllShareIndex() throws Exception {
+		BlockingQueue<BigDecimal> indices = new LinkedBlockingQueue<BigDecimal>();
+		Subscription subscription = priceSubscriptions.subscribeAllShareIndex(indices::add);
+		try {
+			stockMarketService.recordTrade(new Trade("TEA", 10, BUY, new BigDecimal("2.00")));
+			stockMarketService.recordTrade(new Trade("GIN", 10, BUY, new BigDecimal("8.00")));
+			awaitValue(indices, new BigDecimal("4.00"));
+		} finally {
+			subscription.cancel();
+		}
+		indices.clear();
+		stockMarketService.recordTrade(new Trade("GIN", 10, BUY, new BigDecimal("18.00")));
+		assertThat("Cancelled listener must not receive the index", indices.poll(500, TimeUnit.MILLISECONDS), 
+				equalTo(null));
+	}
+	
+	@Test(expected = BusinessException.class)
+	public void testSubscribeStockPrice_UnknownStock() throws BusinessException {
+		priceSubscriptions.subscribeStockPrice("XXX", (stockSymbol, stockPrice) -> { });
+	}
+	
+	private static void awaitValue(BlockingQueue<BigDecimal> values, BigDecimal expected) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		BigDecimal value;
+		do {
+			value = values.poll(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+		} while (value != null && !value.equals(expected));
+		assertThat("Latest value must be pushed", value, equalTo(expected));
+	}
+
+}